@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitive encodings of the {@link BinaryGraphFormat}.
+ */
+final class BinaryEncoder {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+        ensureCapacity(4);
+        bytes[size++] = (byte) (value >>> 24);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(encoded.length);
+        write(encoded, 0, encoded.length);
+    }
+
+    void write(BinaryEncoder other) {
+        write(other.bytes, 0, other.size);
+    }
+
+    private void write(byte[] source, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(bytes, 0, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+/**
+ * Constants of the binary graph wire format, a compact alternative to the JSON representations for high-volume graph
+ * transfer, written by {@link BinaryGraphWriter} and read by {@link BinaryGraphReader}.
+ * <p/>
+ * A stream starts with {@link #MAGIC} and {@link #VERSION}, followed by batches, each prefixed by its length as a
+ * 4-byte big-endian int. A zero length ends the stream. Every batch holds either nodes or relationships and is
+ * self-contained:
+ * <ul>
+ * <li>kind ({@link #NODES} or {@link #RELATIONSHIPS}) and number of elements,</li>
+ * <li>a dictionary of all labels, relationship types and property keys used in the batch,</li>
+ * <li>element IDs as zig-zag varint deltas,</li>
+ * <li>for nodes, label dictionary indices per node; for relationships, a column of type dictionary indices and columns
+ * of start and end node IDs as zig-zag varint deltas,</li>
+ * <li>property columns, one per property key and value type: key dictionary index, type tag, varint deltas of indices
+ * of elements that have the property, and the typed values.</li>
+ * </ul>
+ * Integral values are zig-zag varints, floating point values are big-endian IEEE 754, Strings are UTF-8 prefixed by
+ * their length. Arrays are prefixed by their length. Only numeric (<code>Long</code>) IDs are supported.
+ */
+public final class BinaryGraphFormat {
+
+    /**
+     * Media type of the format.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.graphaware.graph+binary";
+
+    static final byte[] MAGIC = {'G', 'A', 'B', 'G'};
+    static final byte VERSION = 1;
+
+    static final byte NODES = 1;
+    static final byte RELATIONSHIPS = 2;
+
+    static final byte STRING = 0;
+    static final byte LONG = 1;
+    static final byte INT = 2;
+    static final byte SHORT = 3;
+    static final byte BYTE = 4;
+    static final byte DOUBLE = 5;
+    static final byte FLOAT = 6;
+    static final byte BOOLEAN = 7;
+    static final byte CHAR = 8;
+    static final byte ARRAY = 0x10;
+
+    private BinaryGraphFormat() {
+    }
+}
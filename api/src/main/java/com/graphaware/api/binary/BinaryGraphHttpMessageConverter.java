@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+import com.graphaware.api.SerializableNode;
+import com.graphaware.api.SerializableRelationship;
+import com.graphaware.api.json.JsonGraph;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Spring {@link org.springframework.http.converter.HttpMessageConverter} serving and accepting {@link JsonGraph}s in
+ * the {@link BinaryGraphFormat}, selected by content negotiation on {@link BinaryGraphFormat#MEDIA_TYPE}. Clients that
+ * ask for JSON keep getting JSON.
+ * <p/>
+ * Graphs are read into new instances of the requested {@link JsonGraph} subclass, which must have a no-arg constructor,
+ * with {@link com.graphaware.api.json.LongIdJsonNode}s and {@link com.graphaware.api.json.LongIdJsonRelationship}s.
+ * Graphs that can't be written in the format (e.g. with String IDs) are rejected before any of the response is written.
+ */
+public class BinaryGraphHttpMessageConverter extends AbstractHttpMessageConverter<JsonGraph> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(BinaryGraphFormat.MEDIA_TYPE);
+
+    public BinaryGraphHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonGraph.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected JsonGraph readInternal(Class<? extends JsonGraph> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] body = StreamUtils.copyToByteArray(inputMessage.getBody());
+        try {
+            return new BinaryGraphReader(ByteBuffer.wrap(body)).readInto(BeanUtils.instantiateClass(clazz));
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Could not read binary graph: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeInternal(JsonGraph graph, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            for (Object node : graph.getNodes()) {
+                BinaryGraphWriter.checkWritable((SerializableNode<?>) node);
+            }
+            for (Object relationship : graph.getRelationships()) {
+                BinaryGraphWriter.checkWritable((SerializableRelationship<?>) relationship);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException("Could not write binary graph: " + e.getMessage(), e);
+        }
+
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(StreamUtils.nonClosing(outputMessage.getBody()))) {
+            for (Object node : graph.getNodes()) {
+                writer.addNode((SerializableNode<?>) node);
+            }
+            for (Object relationship : graph.getRelationships()) {
+                writer.addRelationship((SerializableRelationship<?>) relationship);
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+import com.graphaware.api.json.JsonGraph;
+import com.graphaware.api.json.LongIdJsonNode;
+import com.graphaware.api.json.LongIdJsonRelationship;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.graphaware.api.binary.BinaryGraphFormat.*;
+
+/**
+ * Reader of the {@link BinaryGraphFormat}, decoding batches directly from a {@link ByteBuffer} (e.g. a memory-mapped
+ * file or a received HTTP body) without copying it.
+ * <p/>
+ * The position of the given buffer is not modified. Instances are not thread-safe.
+ * <p/>
+ * Since the input may be untrusted (e.g. an HTTP body), every count that determines the size of something allocated
+ * (elements in a batch, dictionary entries, labels of a node, values in a property column, array lengths) is checked
+ * against the number of bytes left in the batch, as each counted item takes at least one byte, and against a maximum.
+ */
+public class BinaryGraphReader {
+
+    /**
+     * Default maximum of any count read from the stream.
+     */
+    public static final int DEFAULT_MAX_COUNT = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private final int maxCount;
+
+    /**
+     * Create a reader with {@link #DEFAULT_MAX_COUNT}.
+     *
+     * @param source buffer positioned at the start of the stream.
+     * @throws IllegalArgumentException if the buffer doesn't hold the binary graph format.
+     */
+    public BinaryGraphReader(ByteBuffer source) {
+        this(source, DEFAULT_MAX_COUNT);
+    }
+
+    /**
+     * Create a reader.
+     *
+     * @param source   buffer positioned at the start of the stream.
+     * @param maxCount maximum number of elements in a batch, entries in a dictionary, labels of a node, values in a
+     *                 property column and elements of an array. Must be positive.
+     * @throws IllegalArgumentException if the buffer doesn't hold the binary graph format.
+     */
+    public BinaryGraphReader(ByteBuffer source, int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("Max count must be positive, was " + maxCount);
+        }
+        this.maxCount = maxCount;
+
+        buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.remaining() < MAGIC.length + 1) {
+            throw new IllegalArgumentException("Not a binary graph: too short");
+        }
+        for (byte expected : MAGIC) {
+            if (buffer.get() != expected) {
+                throw new IllegalArgumentException("Not a binary graph: wrong magic number");
+            }
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary graph version " + version);
+        }
+    }
+
+    /**
+     * @return true iff there is another batch.
+     */
+    public boolean hasNext() {
+        return buffer.remaining() >= 4 + 1 && buffer.getInt(buffer.position()) != 0;
+    }
+
+    /**
+     * @return true iff the next batch holds nodes, false if it holds relationships.
+     * @throws IllegalStateException if there is no next batch.
+     */
+    public boolean isNextNodes() {
+        checkHasNext();
+        return buffer.get(buffer.position() + 4) == NODES;
+    }
+
+    /**
+     * Read the next batch, which must hold nodes.
+     *
+     * @return nodes.
+     * @throws IllegalStateException    if the next batch doesn't hold nodes.
+     * @throws IllegalArgumentException if the batch is malformed.
+     */
+    public List<LongIdJsonNode> nextNodes() {
+        if (!isNextNodes()) {
+            throw new IllegalStateException("Next batch holds relationships");
+        }
+
+        try {
+            ByteBuffer batch = nextBatch();
+            int count = readLength(batch);
+            String[] dictionary = readDictionary(batch);
+
+            long[] ids = readDeltas(batch, count);
+
+            String[][] labels = new String[count][];
+            for (int i = 0; i < count; i++) {
+                labels[i] = new String[readLength(batch)];
+                for (int j = 0; j < labels[i].length; j++) {
+                    labels[i][j] = dictionary[readCount(batch)];
+                }
+            }
+
+            List<Map<String, Object>> properties = readProperties(batch, count, dictionary);
+
+            List<LongIdJsonNode> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new LongIdJsonNode(ids[i], labels[i], properties.get(i)));
+            }
+            return result;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IllegalArgumentException("Malformed binary graph batch", e);
+        }
+    }
+
+    /**
+     * Read the next batch, which must hold relationships.
+     *
+     * @return relationships.
+     * @throws IllegalStateException    if the next batch doesn't hold relationships.
+     * @throws IllegalArgumentException if the batch is malformed.
+     */
+    public List<LongIdJsonRelationship> nextRelationships() {
+        if (isNextNodes()) {
+            throw new IllegalStateException("Next batch holds nodes");
+        }
+
+        try {
+            ByteBuffer batch = nextBatch();
+            int count = readLength(batch);
+            String[] dictionary = readDictionary(batch);
+
+            long[] ids = readDeltas(batch, count);
+            String[] types = new String[count];
+            for (int i = 0; i < count; i++) {
+                types[i] = dictionary[readCount(batch)];
+            }
+            long[] startNodeIds = readDeltas(batch, count);
+            long[] endNodeIds = readDeltas(batch, count);
+
+            List<Map<String, Object>> properties = readProperties(batch, count, dictionary);
+
+            List<LongIdJsonRelationship> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new LongIdJsonRelationship(ids[i], startNodeIds[i], endNodeIds[i], types[i], properties.get(i)));
+            }
+            return result;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+            throw new IllegalArgumentException("Malformed binary graph batch", e);
+        }
+    }
+
+    /**
+     * Read all remaining batches into a graph.
+     *
+     * @param graph to add elements to.
+     * @param <G>   type of the graph.
+     * @return the graph.
+     */
+    public <G extends JsonGraph<?>> G readInto(G graph) {
+        while (hasNext()) {
+            if (isNextNodes()) {
+                for (LongIdJsonNode node : nextNodes()) {
+                    graph.addNode(node);
+                }
+            } else {
+                for (LongIdJsonRelationship relationship : nextRelationships()) {
+                    graph.addRelationship(relationship);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private void checkHasNext() {
+        if (!hasNext()) {
+            throw new IllegalStateException("There are no more batches");
+        }
+    }
+
+    private ByteBuffer nextBatch() {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed binary graph: batch length " + length);
+        }
+
+        ByteBuffer batch = buffer.slice();
+        batch.limit(length);
+        buffer.position(buffer.position() + length);
+
+        batch.get(); //kind, already checked
+        return batch;
+    }
+
+    private String[] readDictionary(ByteBuffer batch) {
+        String[] dictionary = new String[readLength(batch)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(batch);
+        }
+        return dictionary;
+    }
+
+    private static long[] readDeltas(ByteBuffer batch, int count) {
+        if (count > batch.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        long[] result = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readZigZag(batch);
+            result[i] = previous;
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> readProperties(ByteBuffer batch, int count, String[] dictionary) {
+        List<Map<String, Object>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new HashMap<>());
+        }
+
+        int columns = readCount(batch);
+        for (int c = 0; c < columns; c++) {
+            String key = dictionary[readCount(batch)];
+            byte tag = batch.get();
+            int values = readLength(batch);
+
+            int[] indices = new int[values];
+            int index = 0;
+            for (int v = 0; v < values; v++) {
+                index += readCount(batch);
+                indices[v] = index;
+            }
+
+            for (int v = 0; v < values; v++) {
+                result.get(indices[v]).put(key, readValue(batch, tag));
+            }
+        }
+
+        return result;
+    }
+
+    private Object readValue(ByteBuffer batch, byte tag) {
+        switch (tag) {
+            case STRING:
+                return readString(batch);
+            case LONG:
+                return readZigZag(batch);
+            case INT:
+                return (int) readZigZag(batch);
+            case SHORT:
+                return (short) readZigZag(batch);
+            case BYTE:
+                return batch.get();
+            case DOUBLE:
+                return batch.getDouble();
+            case FLOAT:
+                return batch.getFloat();
+            case BOOLEAN:
+                return batch.get() != 0;
+            case CHAR:
+                return (char) readVarLong(batch);
+            default:
+                return readArray(batch, tag);
+        }
+    }
+
+    private Object readArray(ByteBuffer batch, byte tag) {
+        int length = readLength(batch);
+        switch (tag & ~ARRAY) {
+            case STRING:
+                String[] strings = new String[length];
+                for (int i = 0; i < length; i++) {
+                    strings[i] = readString(batch);
+                }
+                return strings;
+            case LONG:
+                long[] longs = new long[length];
+                for (int i = 0; i < length; i++) {
+                    longs[i] = readZigZag(batch);
+                }
+                return longs;
+            case INT:
+                int[] ints = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ints[i] = (int) readZigZag(batch);
+                }
+                return ints;
+            case SHORT:
+                short[] shorts = new short[length];
+                for (int i = 0; i < length; i++) {
+                    shorts[i] = (short) readZigZag(batch);
+                }
+                return shorts;
+            case BYTE:
+                byte[] bytes = new byte[length];
+                batch.get(bytes);
+                return bytes;
+            case DOUBLE:
+                double[] doubles = new double[length];
+                for (int i = 0; i < length; i++) {
+                    doubles[i] = batch.getDouble();
+                }
+                return doubles;
+            case FLOAT:
+                float[] floats = new float[length];
+                for (int i = 0; i < length; i++) {
+                    floats[i] = batch.getFloat();
+                }
+                return floats;
+            case BOOLEAN:
+                boolean[] booleans = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    booleans[i] = batch.get() != 0;
+                }
+                return booleans;
+            case CHAR:
+                char[] chars = new char[length];
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) readVarLong(batch);
+                }
+                return chars;
+            default:
+                throw new IllegalArgumentException("Unknown type tag " + tag);
+        }
+    }
+
+    private static String readString(ByteBuffer batch) {
+        int length = readCount(batch);
+        if (length > batch.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        String result;
+        if (batch.hasArray()) {
+            result = new String(batch.array(), batch.arrayOffset() + batch.position(), length, StandardCharsets.UTF_8);
+            batch.position(batch.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            batch.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    /**
+     * Read a count of items that are about to be allocated, each of which takes at least one byte of the batch.
+     *
+     * @param batch to read from.
+     * @return count.
+     * @throws IllegalArgumentException if the count exceeds the remaining bytes of the batch or the maximum count.
+     */
+    private int readLength(ByteBuffer batch) {
+        int count = readCount(batch);
+        if (count > batch.remaining()) {
+            throw new IllegalArgumentException("Malformed binary graph: count " + count + " exceeds the " + batch.remaining() + " remaining bytes of the batch");
+        }
+        if (count > maxCount) {
+            throw new IllegalArgumentException("Binary graph count " + count + " exceeds the maximum of " + maxCount);
+        }
+        return count;
+    }
+
+    private static int readCount(ByteBuffer batch) {
+        long count = readVarLong(batch);
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed binary graph: count " + count);
+        }
+        return (int) count;
+    }
+
+    private static long readZigZag(ByteBuffer batch) {
+        long value = readVarLong(batch);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer batch) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = batch.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed binary graph: varint too long");
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+import com.graphaware.api.SerializableNode;
+import com.graphaware.api.SerializableRelationship;
+import com.graphaware.common.representation.DetachedPropertyContainer;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.graphaware.api.binary.BinaryGraphFormat.*;
+
+/**
+ * Streaming writer of the {@link BinaryGraphFormat}.
+ * <p/>
+ * Nodes and relationships are buffered until {@link #getBatchSize()} of them have been added, or until an element of
+ * the other kind is added, and then written out as a batch. Memory is therefore bounded by the batch size, not by the
+ * size of the graph. {@link #close()} must be called to complete the stream.
+ * <p/>
+ * Element IDs ({@link SerializableNode#getId()}, {@link SerializableRelationship#getId()} and start/end node IDs) must
+ * be numbers. Instances are not thread-safe.
+ */
+public class BinaryGraphWriter implements Closeable, Flushable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final Map<Class<?>, Byte> TAGS = new HashMap<>();
+
+    static {
+        TAGS.put(String.class, STRING);
+        TAGS.put(Long.class, LONG);
+        TAGS.put(Integer.class, INT);
+        TAGS.put(Short.class, SHORT);
+        TAGS.put(Byte.class, BYTE);
+        TAGS.put(Double.class, DOUBLE);
+        TAGS.put(Float.class, FLOAT);
+        TAGS.put(Boolean.class, BOOLEAN);
+        TAGS.put(Character.class, CHAR);
+        TAGS.put(String[].class, (byte) (STRING | ARRAY));
+        TAGS.put(long[].class, (byte) (LONG | ARRAY));
+        TAGS.put(int[].class, (byte) (INT | ARRAY));
+        TAGS.put(short[].class, (byte) (SHORT | ARRAY));
+        TAGS.put(byte[].class, (byte) (BYTE | ARRAY));
+        TAGS.put(double[].class, (byte) (DOUBLE | ARRAY));
+        TAGS.put(float[].class, (byte) (FLOAT | ARRAY));
+        TAGS.put(boolean[].class, (byte) (BOOLEAN | ARRAY));
+        TAGS.put(char[].class, (byte) (CHAR | ARRAY));
+    }
+
+    private final OutputStream outputStream;
+    private final int batchSize;
+
+    private final List<SerializableNode<?>> nodes = new ArrayList<>();
+    private final List<SerializableRelationship<?>> relationships = new ArrayList<>();
+
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+    private final Map<Long, Column> columns = new LinkedHashMap<>();
+    private final BinaryEncoder batch = new BinaryEncoder();
+    private final BinaryEncoder body = new BinaryEncoder();
+
+    private boolean closed;
+
+    /**
+     * Column of values of a property key and type.
+     */
+    private static final class Column {
+        private final int keyIndex;
+        private final byte tag;
+        private final BinaryEncoder indices = new BinaryEncoder();
+        private final BinaryEncoder values = new BinaryEncoder();
+        private int count;
+        private int lastIndex;
+
+        private Column(int keyIndex, byte tag) {
+            this.keyIndex = keyIndex;
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Create a writer with {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param outputStream to write to. Closed by {@link #close()}.
+     * @throws IOException if the header can't be written.
+     */
+    public BinaryGraphWriter(OutputStream outputStream) throws IOException {
+        this(outputStream, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a writer.
+     *
+     * @param outputStream to write to. Closed by {@link #close()}.
+     * @param batchSize    maximum number of elements per batch.
+     * @throws IOException if the header can't be written.
+     */
+    public BinaryGraphWriter(OutputStream outputStream, int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+        }
+
+        this.outputStream = outputStream;
+        this.batchSize = batchSize;
+
+        outputStream.write(MAGIC);
+        outputStream.write(VERSION);
+    }
+
+    public BinaryGraphWriter addNode(SerializableNode<?> node) throws IOException {
+        checkOpen();
+        checkWritable(node);
+        writeRelationships();
+
+        nodes.add(node);
+        if (nodes.size() >= batchSize) {
+            writeNodes();
+        }
+
+        return this;
+    }
+
+    public BinaryGraphWriter addNodes(Iterable<? extends SerializableNode<?>> nodes) throws IOException {
+        for (SerializableNode<?> node : nodes) {
+            addNode(node);
+        }
+
+        return this;
+    }
+
+    public BinaryGraphWriter addRelationship(SerializableRelationship<?> relationship) throws IOException {
+        checkOpen();
+        checkWritable(relationship);
+        writeNodes();
+
+        relationships.add(relationship);
+        if (relationships.size() >= batchSize) {
+            writeRelationships();
+        }
+
+        return this;
+    }
+
+    public BinaryGraphWriter addRelationships(Iterable<? extends SerializableRelationship<?>> relationships) throws IOException {
+        for (SerializableRelationship<?> relationship : relationships) {
+            addRelationship(relationship);
+        }
+
+        return this;
+    }
+
+    /**
+     * Check that a node can be written in the binary graph format, so that callers can reject a graph before any of
+     * it has been written.
+     *
+     * @param node to check.
+     * @throws IllegalArgumentException if the node's ID isn't a number or it has a property value of unsupported type.
+     */
+    public static void checkWritable(SerializableNode<?> node) {
+        id(node.getId(), "Node");
+        checkProperties(node);
+    }
+
+    /**
+     * Check that a relationship can be written in the binary graph format, so that callers can reject a graph before
+     * any of it has been written.
+     *
+     * @param relationship to check.
+     * @throws IllegalArgumentException if the relationship's or its nodes' IDs aren't numbers or it has a property value
+     *                                  of unsupported type.
+     */
+    public static void checkWritable(SerializableRelationship<?> relationship) {
+        id(relationship.getId(), "Relationship");
+        id(relationship.getStartNodeId(), "Start node");
+        id(relationship.getEndNodeId(), "End node");
+        checkProperties(relationship);
+    }
+
+    private static void checkProperties(DetachedPropertyContainer<?, ?> element) {
+        Map<String, Object> properties = element.getProperties();
+        if (properties != null) {
+            for (Object value : properties.values()) {
+                tagOf(value);
+            }
+        }
+    }
+
+    /**
+     * @return maximum number of elements per batch.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    private void writeNodes() throws IOException {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        long previousId = 0;
+        for (SerializableNode<?> node : nodes) {
+            long id = id(node.getId(), "Node");
+            body.writeZigZag(id - previousId);
+            previousId = id;
+        }
+
+        for (SerializableNode<?> node : nodes) {
+            String[] labels = node.getLabels();
+            if (labels == null) {
+                body.writeVarLong(0);
+                continue;
+            }
+            body.writeVarLong(labels.length);
+            for (String label : labels) {
+                body.writeVarLong(indexOf(label));
+            }
+        }
+
+        writeBatch(NODES, nodes);
+        nodes.clear();
+    }
+
+    private void writeRelationships() throws IOException {
+        if (relationships.isEmpty()) {
+            return;
+        }
+
+        long previousId = 0;
+        for (SerializableRelationship<?> relationship : relationships) {
+            long id = id(relationship.getId(), "Relationship");
+            body.writeZigZag(id - previousId);
+            previousId = id;
+        }
+
+        for (SerializableRelationship<?> relationship : relationships) {
+            body.writeVarLong(indexOf(relationship.getType()));
+        }
+
+        previousId = 0;
+        for (SerializableRelationship<?> relationship : relationships) {
+            long id = id(relationship.getStartNodeId(), "Start node");
+            body.writeZigZag(id - previousId);
+            previousId = id;
+        }
+
+        previousId = 0;
+        for (SerializableRelationship<?> relationship : relationships) {
+            long id = id(relationship.getEndNodeId(), "End node");
+            body.writeZigZag(id - previousId);
+            previousId = id;
+        }
+
+        writeBatch(RELATIONSHIPS, relationships);
+        relationships.clear();
+    }
+
+    private void writeBatch(byte kind, List<? extends DetachedPropertyContainer<?, ?>> elements) throws IOException {
+        for (int i = 0; i < elements.size(); i++) {
+            Map<String, Object> properties = elements.get(i).getProperties();
+            if (properties == null) {
+                continue;
+            }
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                addToColumn(i, property.getKey(), property.getValue());
+            }
+        }
+
+        body.writeVarLong(columns.size());
+        for (Column column : columns.values()) {
+            body.writeVarLong(column.keyIndex);
+            body.writeByte(column.tag);
+            body.writeVarLong(column.count);
+            body.write(column.indices);
+            body.write(column.values);
+        }
+
+        batch.writeByte(kind);
+        batch.writeVarLong(elements.size());
+        batch.writeVarLong(dictionary.size());
+        for (String entry : dictionary.keySet()) {
+            batch.writeString(entry);
+        }
+        batch.write(body);
+
+        writeLength(batch.size());
+        batch.writeTo(outputStream);
+
+        batch.reset();
+        body.reset();
+        dictionary.clear();
+        columns.clear();
+    }
+
+    private void writeLength(int length) throws IOException {
+        outputStream.write(length >>> 24);
+        outputStream.write(length >>> 16);
+        outputStream.write(length >>> 8);
+        outputStream.write(length);
+    }
+
+    private void addToColumn(int elementIndex, String key, Object value) {
+        byte tag = tagOf(value);
+        int keyIndex = indexOf(key);
+
+        Column column = columns.computeIfAbsent(((long) keyIndex << 8) | tag, k -> new Column(keyIndex, tag));
+        column.indices.writeVarLong(elementIndex - column.lastIndex);
+        column.lastIndex = elementIndex;
+        column.count++;
+        writeValue(column.values, tag, value);
+    }
+
+    private int indexOf(String entry) {
+        Integer index = dictionary.get(entry);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(entry, index);
+        }
+        return index;
+    }
+
+    private static long id(Object id, String element) {
+        if (!(id instanceof Number)) {
+            throw new IllegalArgumentException(element + " ID must be a number in the binary graph format, was " + id);
+        }
+        return ((Number) id).longValue();
+    }
+
+    private static byte tagOf(Object value) {
+        Byte tag = value == null ? null : TAGS.get(value.getClass());
+        if (tag == null) {
+            throw new IllegalArgumentException("Unsupported property value " + value);
+        }
+        return tag;
+    }
+
+    private static void writeValue(BinaryEncoder encoder, byte tag, Object value) {
+        switch (tag) {
+            case STRING:
+                encoder.writeString((String) value);
+                break;
+            case LONG:
+            case INT:
+            case SHORT:
+                encoder.writeZigZag(((Number) value).longValue());
+                break;
+            case BYTE:
+                encoder.writeByte((Byte) value);
+                break;
+            case DOUBLE:
+                encoder.writeLong(Double.doubleToRawLongBits((Double) value));
+                break;
+            case FLOAT:
+                encoder.writeInt(Float.floatToRawIntBits((Float) value));
+                break;
+            case BOOLEAN:
+                encoder.writeByte((Boolean) value ? 1 : 0);
+                break;
+            case CHAR:
+                encoder.writeVarLong((Character) value);
+                break;
+            default:
+                writeArray(encoder, tag, value);
+        }
+    }
+
+    private static void writeArray(BinaryEncoder encoder, byte tag, Object value) {
+        switch (tag & ~ARRAY) {
+            case STRING:
+                String[] strings = (String[]) value;
+                encoder.writeVarLong(strings.length);
+                for (String string : strings) {
+                    encoder.writeString(string);
+                }
+                break;
+            case LONG:
+                long[] longs = (long[]) value;
+                encoder.writeVarLong(longs.length);
+                for (long l : longs) {
+                    encoder.writeZigZag(l);
+                }
+                break;
+            case INT:
+                int[] ints = (int[]) value;
+                encoder.writeVarLong(ints.length);
+                for (int i : ints) {
+                    encoder.writeZigZag(i);
+                }
+                break;
+            case SHORT:
+                short[] shorts = (short[]) value;
+                encoder.writeVarLong(shorts.length);
+                for (short s : shorts) {
+                    encoder.writeZigZag(s);
+                }
+                break;
+            case BYTE:
+                byte[] bytes = (byte[]) value;
+                encoder.writeVarLong(bytes.length);
+                for (byte b : bytes) {
+                    encoder.writeByte(b);
+                }
+                break;
+            case DOUBLE:
+                double[] doubles = (double[]) value;
+                encoder.writeVarLong(doubles.length);
+                for (double d : doubles) {
+                    encoder.writeLong(Double.doubleToRawLongBits(d));
+                }
+                break;
+            case FLOAT:
+                float[] floats = (float[]) value;
+                encoder.writeVarLong(floats.length);
+                for (float f : floats) {
+                    encoder.writeInt(Float.floatToRawIntBits(f));
+                }
+                break;
+            case BOOLEAN:
+                boolean[] booleans = (boolean[]) value;
+                encoder.writeVarLong(booleans.length);
+                for (boolean b : booleans) {
+                    encoder.writeByte(b ? 1 : 0);
+                }
+                break;
+            case CHAR:
+                char[] chars = (char[]) value;
+                encoder.writeVarLong(chars.length);
+                for (char c : chars) {
+                    encoder.writeVarLong(c);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown type tag " + tag);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Binary graph writer has been closed");
+        }
+    }
+
+    /**
+     * Write buffered elements as a batch and flush the underlying stream.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeNodes();
+        writeRelationships();
+        outputStream.flush();
+    }
+
+    /**
+     * Write buffered elements, end the stream, and close the underlying output stream.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        writeNodes();
+        writeRelationships();
+
+        writeLength(0);
+
+        closed = true;
+        outputStream.close();
+    }
+}
@@ -30,6 +30,9 @@ import java.util.Set;
 
 /**
  * Abstract base class for convenient JSON-serializable graphs with fluent interface.
+ * <p/>
+ * The whole graph is held in memory and de-duplicated by deep equality. For large graphs, use
+ * {@link StreamingJsonGraphWriter}, which produces the same JSON.
  *
  * @param <T> type of the concrete class extending this.
  */
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphaware.api.SerializableNode;
+import com.graphaware.api.SerializableRelationship;
+import com.graphaware.api.transform.NodeTransformer;
+import com.graphaware.api.transform.RelationshipTransformer;
+import com.graphaware.api.transform.TrivialNodeTransformer;
+import com.graphaware.api.transform.TrivialRelationshipTransformer;
+import com.graphaware.common.representation.DetachedPropertyContainer;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming counterpart of {@link JsonGraph}, producing the same JSON (<code>{"nodes":[...],"relationships":[...]}</code>)
+ * without holding the graph in memory.
+ * <p/>
+ * Nodes and relationships are serialized by a Jackson {@link JsonGenerator} as soon as they are added, so the first
+ * bytes reach the client immediately and memory doesn't grow with the size of the serialized elements. Duplicates are
+ * detected by Neo4j ID in primitive hash sets, which only cost a few bytes per element, rather than by deep equality.
+ * Duplicate {@link Node}s and {@link Relationship}s are skipped before they are transformed. Serializable elements with
+ * no graph ID ({@link DetachedPropertyContainer#NEW}) are always written.
+ * <p/>
+ * All nodes must be added before the first relationship. {@link #close()} must be called to complete the JSON.
+ * Instances are not thread-safe.
+ */
+public class StreamingJsonGraphWriter implements Closeable, Flushable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(MAPPER);
+
+    private final JsonGenerator generator;
+    private final PrimitiveLongSet nodeIds = Primitive.longSet();
+    private final PrimitiveLongSet relationshipIds = Primitive.longSet();
+
+    private Section section = Section.NONE;
+    private long nodeCount;
+    private long relationshipCount;
+
+    private enum Section {
+        NONE,
+        NODES,
+        RELATIONSHIPS,
+        CLOSED
+    }
+
+    /**
+     * Create a writer writing to a stream. The stream is closed by {@link #close()}.
+     *
+     * @param outputStream to write to.
+     * @throws IOException if the generator can't be created.
+     */
+    public StreamingJsonGraphWriter(OutputStream outputStream) throws IOException {
+        this(JSON_FACTORY.createGenerator(outputStream));
+    }
+
+    /**
+     * Create a writer writing to a generator. The generator is closed by {@link #close()}. If the generator has no
+     * codec, a default {@link ObjectMapper} is used to serialize elements.
+     *
+     * @param generator to write to.
+     */
+    public StreamingJsonGraphWriter(JsonGenerator generator) {
+        if (generator.getCodec() == null) {
+            generator.setCodec(MAPPER);
+        }
+        this.generator = generator;
+    }
+
+    public StreamingJsonGraphWriter addNode(SerializableNode node) throws IOException {
+        long graphId = node.getGraphId();
+        if (graphId != DetachedPropertyContainer.NEW && !nodeIds.add(graphId)) {
+            return this;
+        }
+
+        writeNode(node);
+        return this;
+    }
+
+    public StreamingJsonGraphWriter addNode(Node node) throws IOException {
+        return addNode(node, TrivialNodeTransformer.getInstance());
+    }
+
+    public StreamingJsonGraphWriter addNode(Node node, NodeTransformer<?> transformer) throws IOException {
+        if (!nodeIds.add(node.getId())) {
+            return this;
+        }
+
+        writeNode(transformer.transform(node));
+        return this;
+    }
+
+    public StreamingJsonGraphWriter addNodes(Iterable<Node> nodes) throws IOException {
+        return addNodes(nodes, TrivialNodeTransformer.getInstance());
+    }
+
+    public StreamingJsonGraphWriter addNodes(Iterable<Node> nodes, NodeTransformer<?> transformer) throws IOException {
+        for (Node node : nodes) {
+            addNode(node, transformer);
+        }
+
+        return this;
+    }
+
+    public StreamingJsonGraphWriter addRelationship(SerializableRelationship relationship) throws IOException {
+        long graphId = relationship.getGraphId();
+        if (graphId != DetachedPropertyContainer.NEW && !relationshipIds.add(graphId)) {
+            return this;
+        }
+
+        writeRelationship(relationship);
+        return this;
+    }
+
+    public StreamingJsonGraphWriter addRelationship(Relationship relationship) throws IOException {
+        return addRelationship(relationship, TrivialRelationshipTransformer.getInstance());
+    }
+
+    public StreamingJsonGraphWriter addRelationship(Relationship relationship, RelationshipTransformer<?> transformer) throws IOException {
+        if (!relationshipIds.add(relationship.getId())) {
+            return this;
+        }
+
+        writeRelationship(transformer.transform(relationship));
+        return this;
+    }
+
+    public StreamingJsonGraphWriter addRelationships(Iterable<Relationship> relationships) throws IOException {
+        return addRelationships(relationships, TrivialRelationshipTransformer.getInstance());
+    }
+
+    public StreamingJsonGraphWriter addRelationships(Iterable<Relationship> relationships, RelationshipTransformer<?> transformer) throws IOException {
+        for (Relationship relationship : relationships) {
+            addRelationship(relationship, transformer);
+        }
+
+        return this;
+    }
+
+    private void writeNode(SerializableNode node) throws IOException {
+        switch (section) {
+            case NONE:
+                startNodes();
+                break;
+            case NODES:
+                break;
+            default:
+                throw new IllegalStateException("Nodes must be added before relationships and before the writer is closed");
+        }
+
+        generator.writeObject(node);
+        nodeCount++;
+    }
+
+    private void writeRelationship(SerializableRelationship relationship) throws IOException {
+        switch (section) {
+            case NONE:
+                startNodes();
+                startRelationships();
+                break;
+            case NODES:
+                startRelationships();
+                break;
+            case RELATIONSHIPS:
+                break;
+            default:
+                throw new IllegalStateException("Relationships can't be added after the writer has been closed");
+        }
+
+        generator.writeObject(relationship);
+        relationshipCount++;
+    }
+
+    private void startNodes() throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("nodes");
+        section = Section.NODES;
+    }
+
+    private void startRelationships() throws IOException {
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("relationships");
+        section = Section.RELATIONSHIPS;
+    }
+
+    /**
+     * @return number of nodes written so far, excluding skipped duplicates.
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return number of relationships written so far, excluding skipped duplicates.
+     */
+    public long getRelationshipCount() {
+        return relationshipCount;
+    }
+
+    /**
+     * Flush what has been written so far to the underlying output.
+     *
+     * @throws IOException if flushing fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * Complete the JSON and close the underlying generator.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (section == Section.CLOSED) {
+            return;
+        }
+
+        if (section == Section.NONE) {
+            startNodes();
+        }
+        if (section == Section.NODES) {
+            startRelationships();
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+        section = Section.CLOSED;
+
+        generator.close();
+    }
+}
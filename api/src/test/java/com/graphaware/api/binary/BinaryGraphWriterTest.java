@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.binary;
+
+import com.graphaware.api.json.LongIdJsonNode;
+import com.graphaware.api.json.LongIdJsonRelationship;
+import com.graphaware.api.json.StringIdJsonNode;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link BinaryGraphWriter} and {@link BinaryGraphReader}.
+ */
+public class BinaryGraphWriterTest {
+
+    @Test
+    public void nodesAndRelationshipsShouldSurviveRoundTrip() throws IOException {
+        List<LongIdJsonNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> properties = new HashMap<>();
+            if (i % 2 == 0) {
+                properties.put("name", "node" + i);
+            }
+            if (i % 3 == 0) {
+                properties.put("age", i * 10L);
+            }
+            nodes.add(new LongIdJsonNode(1000 - i * 7, i % 2 == 0 ? new String[]{"Person", "Employee"} : new String[0], properties));
+        }
+        nodes.get(4).getProperties().put("age", "unknown");
+
+        List<LongIdJsonRelationship> relationships = new ArrayList<>();
+        relationships.add(new LongIdJsonRelationship(5, 1000, 993, "KNOWS", Collections.singletonMap("weight", -1.5)));
+        relationships.add(new LongIdJsonRelationship(Long.MAX_VALUE, 0, 993, "LIKES", new HashMap<>()));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(output, 3)) {
+            writer.addNodes(nodes);
+            writer.addRelationships(relationships);
+        }
+
+        BinaryGraphReader reader = new BinaryGraphReader(ByteBuffer.wrap(output.toByteArray()));
+
+        List<LongIdJsonNode> readNodes = new ArrayList<>();
+        while (reader.hasNext() && reader.isNextNodes()) {
+            List<LongIdJsonNode> batch = reader.nextNodes();
+            assertTrue(batch.size() <= 3);
+            readNodes.addAll(batch);
+        }
+        List<LongIdJsonRelationship> readRelationships = reader.nextRelationships();
+        assertFalse(reader.hasNext());
+
+        assertEquals(nodes.size(), readNodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals(nodes.get(i).getId(), readNodes.get(i).getId());
+            assertArrayEquals(nodes.get(i).getLabels(), readNodes.get(i).getLabels());
+            assertEquals(nodes.get(i).getProperties(), readNodes.get(i).getProperties());
+        }
+
+        assertEquals(2, readRelationships.size());
+        for (int i = 0; i < relationships.size(); i++) {
+            assertEquals(relationships.get(i).getId(), readRelationships.get(i).getId());
+            assertEquals(relationships.get(i).getStartNodeId(), readRelationships.get(i).getStartNodeId());
+            assertEquals(relationships.get(i).getEndNodeId(), readRelationships.get(i).getEndNodeId());
+            assertEquals(relationships.get(i).getType(), readRelationships.get(i).getType());
+            assertEquals(relationships.get(i).getProperties(), readRelationships.get(i).getProperties());
+        }
+    }
+
+    @Test
+    public void allPropertyTypesShouldSurviveRoundTrip() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("string", "žluťoučký kůň");
+        properties.put("long", Long.MIN_VALUE);
+        properties.put("int", -42);
+        properties.put("short", (short) 300);
+        properties.put("byte", (byte) -3);
+        properties.put("double", Math.PI);
+        properties.put("float", 2.5f);
+        properties.put("boolean", true);
+        properties.put("char", 'x');
+        properties.put("strings", new String[]{"a", ""});
+        properties.put("longs", new long[]{1, -1, Long.MAX_VALUE});
+        properties.put("ints", new int[]{Integer.MIN_VALUE, 0});
+        properties.put("shorts", new short[]{-1});
+        properties.put("bytes", new byte[]{1, 2, -128});
+        properties.put("doubles", new double[]{-0.5, Double.NaN});
+        properties.put("floats", new float[]{1.25f});
+        properties.put("booleans", new boolean[]{true, false});
+        properties.put("chars", new char[]{'a', '€'});
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(output)) {
+            writer.addNode(new LongIdJsonNode(1, new String[]{"L"}, properties));
+        }
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(output.size());
+        direct.put(output.toByteArray());
+        direct.flip();
+
+        Map<String, Object> read = new BinaryGraphReader(direct).nextNodes().get(0).getProperties();
+
+        assertEquals(0, direct.position());
+        assertEquals(properties.size(), read.size());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            assertEquals(property.getValue().getClass(), read.get(property.getKey()).getClass());
+        }
+        assertEquals("žluťoučký kůň", read.get("string"));
+        assertEquals(Long.MIN_VALUE, read.get("long"));
+        assertEquals(-42, read.get("int"));
+        assertEquals((short) 300, read.get("short"));
+        assertEquals((byte) -3, read.get("byte"));
+        assertEquals(Math.PI, read.get("double"));
+        assertEquals(2.5f, read.get("float"));
+        assertEquals(true, read.get("boolean"));
+        assertEquals('x', read.get("char"));
+        assertArrayEquals(new String[]{"a", ""}, (String[]) read.get("strings"));
+        assertArrayEquals(new long[]{1, -1, Long.MAX_VALUE}, (long[]) read.get("longs"));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, 0}, (int[]) read.get("ints"));
+        assertArrayEquals(new short[]{-1}, (short[]) read.get("shorts"));
+        assertArrayEquals(new byte[]{1, 2, -128}, (byte[]) read.get("bytes"));
+        assertArrayEquals(new double[]{-0.5, Double.NaN}, (double[]) read.get("doubles"), 0);
+        assertArrayEquals(new float[]{1.25f}, (float[]) read.get("floats"), 0);
+        assertArrayEquals(new boolean[]{true, false}, (boolean[]) read.get("booleans"));
+        assertArrayEquals(new char[]{'a', '€'}, (char[]) read.get("chars"));
+    }
+
+    @Test
+    public void emptyStreamShouldHaveNoBatches() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new BinaryGraphWriter(output).close();
+
+        assertFalse(new BinaryGraphReader(ByteBuffer.wrap(output.toByteArray())).hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericIdsShouldBeRejected() throws IOException {
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(new ByteArrayOutputStream())) {
+            writer.addNode(new StringIdJsonNode("one", new String[0], new HashMap<>()));
+        }
+    }
+
+    @Test
+    public void nonNumericIdsShouldBeDetectedBeforeWriting() {
+        try {
+            BinaryGraphWriter.checkWritable(new StringIdJsonNode("one", new String[0], new HashMap<>()));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //ok
+        }
+
+        BinaryGraphWriter.checkWritable(new LongIdJsonNode(1, new String[0], new HashMap<>()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countsExceedingBatchShouldBeRejected() {
+        //a nodes batch of 6 bytes claiming 2^28 nodes
+        byte[] stream = {'G', 'A', 'B', 'G', BinaryGraphFormat.VERSION, 0, 0, 0, 6, BinaryGraphFormat.NODES, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01, 0, 0, 0, 0};
+
+        new BinaryGraphReader(ByteBuffer.wrap(stream)).nextNodes();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countsExceedingMaximumShouldBeRejected() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(output)) {
+            writer.addNode(new LongIdJsonNode(1, new String[0], Collections.singletonMap("values", new long[100])));
+        }
+
+        new BinaryGraphReader(ByteBuffer.wrap(output.toByteArray()), 10).nextNodes();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherContentShouldBeRejected() {
+        new BinaryGraphReader(ByteBuffer.wrap("{\"nodes\":[]}".getBytes()));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.api.json;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.*;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for {@link StreamingJsonGraphWriter}.
+ */
+public class StreamingJsonGraphWriterTest {
+
+    private GraphDatabaseService database;
+    private ByteArrayOutputStream output;
+    private StreamingJsonGraphWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+
+        try (Transaction tx = database.beginTx()) {
+            Node node1 = database.createNode(Label.label("L1"), Label.label("L2"));
+            Node node2 = database.createNode();
+
+            node1.setProperty("k1", "v1");
+            node1.setProperty("k2", 2);
+
+            Relationship r = node1.createRelationshipTo(node2, RelationshipType.withName("R"));
+            r.setProperty("k1", "v1");
+            r.setProperty("k2", 2);
+
+            Relationship r2 = node1.createRelationshipTo(node2, RelationshipType.withName("R2"));
+            r2.setProperty("k1", "v2");
+            r2.setProperty("k2", 4);
+
+            tx.success();
+        }
+
+        output = new ByteArrayOutputStream();
+        writer = new StreamingJsonGraphWriter(output);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldStreamGraph() throws Exception {
+        try (Transaction tx = database.beginTx()) {
+            writer.addNodes(database.getAllNodes());
+            writer.addRelationships(database.getAllRelationships());
+            tx.success();
+        }
+        writer.close();
+
+        JSONAssert.assertEquals("{\"nodes\":" +
+                "[{\"properties\":{\"k1\":\"v1\",\"k2\":2},\"labels\":[\"L1\",\"L2\"],\"id\":0}," +
+                "{\"properties\":{},\"labels\":[],\"id\":1}]," +
+                "\"relationships\":" +
+                "[{\"properties\":{\"k1\":\"v1\",\"k2\":2},\"type\":\"R\",\"id\":0,\"startNodeId\":0,\"endNodeId\":1}," +
+                "{\"properties\":{\"k1\":\"v2\",\"k2\":4},\"type\":\"R2\",\"id\":1,\"startNodeId\":0,\"endNodeId\":1}]}", json(), false);
+    }
+
+    @Test
+    public void shouldSkipDuplicates() throws Exception {
+        try (Transaction tx = database.beginTx()) {
+            writer.addNode(database.getNodeById(1));
+            writer.addNode(database.getNodeById(1));
+            writer.addNode(new LongIdJsonNode(database.getNodeById(1)));
+            writer.addRelationship(database.getRelationshipById(0));
+            writer.addRelationship(new LongIdJsonRelationship(database.getRelationshipById(0)));
+            tx.success();
+        }
+        writer.close();
+
+        assertEquals(1, writer.getNodeCount());
+        assertEquals(1, writer.getRelationshipCount());
+
+        JSONAssert.assertEquals("{\"nodes\":" +
+                "[{\"properties\":{},\"labels\":[],\"id\":1}]," +
+                "\"relationships\":" +
+                "[{\"properties\":{\"k1\":\"v1\",\"k2\":2},\"type\":\"R\",\"id\":0,\"startNodeId\":0,\"endNodeId\":1}]}", json(), false);
+    }
+
+    @Test
+    public void shouldUseTransformers() throws Exception {
+        try (Transaction tx = database.beginTx()) {
+            writer.addNode(database.getNodeById(0), node -> new LongIdJsonNode(node, new String[]{"k1"}));
+            writer.addRelationship(database.getRelationshipById(1), relationship -> new LongIdJsonRelationship(relationship, new String[]{"k2"}));
+            tx.success();
+        }
+        writer.close();
+
+        JSONAssert.assertEquals("{\"nodes\":" +
+                "[{\"properties\":{\"k1\":\"v1\"},\"labels\":[\"L1\",\"L2\"],\"id\":0}]," +
+                "\"relationships\":" +
+                "[{\"properties\":{\"k2\":4},\"type\":\"R2\",\"id\":1,\"startNodeId\":0,\"endNodeId\":1}]}", json(), false);
+    }
+
+    @Test
+    public void shouldProduceEmptyGraph() throws Exception {
+        writer.close();
+
+        JSONAssert.assertEquals("{\"nodes\":[],\"relationships\":[]}", json(), false);
+    }
+
+    @Test
+    public void shouldProduceGraphWithRelationshipsOnly() throws Exception {
+        try (Transaction tx = database.beginTx()) {
+            writer.addRelationship(database.getRelationshipById(1));
+            tx.success();
+        }
+        writer.close();
+
+        JSONAssert.assertEquals("{\"nodes\":[],\"relationships\":" +
+                "[{\"properties\":{\"k1\":\"v2\",\"k2\":4},\"type\":\"R2\",\"id\":1,\"startNodeId\":0,\"endNodeId\":1}]}", json(), false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nodesShouldNotBeAddedAfterRelationships() throws Exception {
+        try (Transaction tx = database.beginTx()) {
+            writer.addRelationship(database.getRelationshipById(1));
+            writer.addNode(database.getNodeById(0));
+            tx.success();
+        }
+    }
+
+    private String json() {
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
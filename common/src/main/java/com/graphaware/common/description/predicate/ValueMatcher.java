@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.description.predicate;
+
+/**
+ * A {@link Predicate} compiled by {@link ValueMatchers#compile(Predicate)} into a matcher of a single property value.
+ * <p/>
+ * {@link #matches(Object)} returns the same result as {@link Predicate#isMoreGeneralThan(Predicate)} called with
+ * {@link Predicates#equalTo(Object)} of the value, or {@link Predicates#undefined()} if the value is <code>null</code>,
+ * but without allocating any predicates.
+ */
+public interface ValueMatcher {
+
+    /**
+     * Check whether a property value is matched.
+     *
+     * @param value of the property, <code>null</code> if the property is not present.
+     * @return true iff the value is matched.
+     */
+    boolean matches(Object value);
+
+    /**
+     * Get the relative cost of {@link #matches(Object)}, so that cheaper matchers can be evaluated first.
+     *
+     * @return cost.
+     */
+    int getCost();
+}
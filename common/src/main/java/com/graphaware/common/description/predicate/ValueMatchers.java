@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.description.predicate;
+
+import com.graphaware.common.log.LoggerFactory;
+import org.neo4j.logging.Log;
+
+import static com.graphaware.common.util.ArrayUtils.arrayFriendlyEquals;
+import static com.graphaware.common.util.ArrayUtils.isPrimitiveOrStringArray;
+
+/**
+ * Compiles {@link Predicate}s into {@link ValueMatcher}s specialised for each of the built-in predicate types.
+ */
+public final class ValueMatchers {
+
+    private static final Log LOG = LoggerFactory.getLogger(ValueMatchers.class);
+
+    private static final int PRESENCE_COST = 1;
+    private static final int EQUALITY_COST = 2;
+    private static final int COMPARISON_COST = 3;
+    private static final int ARRAY_EQUALITY_COST = 5;
+    private static final int GENERIC_COST = 10;
+
+    private static final ValueMatcher ANY = new ValueMatcher() {
+        @Override
+        public boolean matches(Object value) {
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return 0;
+        }
+    };
+
+    private static final ValueMatcher UNDEFINED = new ValueMatcher() {
+        @Override
+        public boolean matches(Object value) {
+            return value == null;
+        }
+
+        @Override
+        public int getCost() {
+            return PRESENCE_COST;
+        }
+    };
+
+    private ValueMatchers() {
+    }
+
+    /**
+     * Compile a predicate into a value matcher.
+     *
+     * @param predicate to compile.
+     * @return matcher.
+     */
+    public static ValueMatcher compile(Predicate predicate) {
+        if (predicate instanceof Any) {
+            return ANY;
+        }
+
+        if (predicate instanceof Undefined) {
+            return UNDEFINED;
+        }
+
+        if (predicate instanceof EqualTo) {
+            return equalTo(((EqualTo) predicate).getValue());
+        }
+
+        if (predicate instanceof GreaterThan) {
+            return greaterThan(((GreaterThan) predicate).getValue());
+        }
+
+        if (predicate instanceof LessThan) {
+            return lessThan(((LessThan) predicate).getValue());
+        }
+
+        if (predicate instanceof Or) {
+            return or(compile(((Or) predicate).getFirst()), compile(((Or) predicate).getSecond()));
+        }
+
+        return generic(predicate);
+    }
+
+    /**
+     * Check whether a matcher matches any value, including a missing one, and thus needn't be evaluated at all.
+     *
+     * @param matcher to check.
+     * @return true iff the matcher matches anything.
+     */
+    public static boolean matchesAnything(ValueMatcher matcher) {
+        return matcher == ANY;
+    }
+
+    private static ValueMatcher equalTo(final Object expected) {
+        if (isPrimitiveOrStringArray(expected)) {
+            return new ValueMatcher() {
+                @Override
+                public boolean matches(Object value) {
+                    return value != null && arrayFriendlyEquals(expected, value);
+                }
+
+                @Override
+                public int getCost() {
+                    return ARRAY_EQUALITY_COST;
+                }
+            };
+        }
+
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(Object value) {
+                return value != null && expected.equals(value);
+            }
+
+            @Override
+            public int getCost() {
+                return EQUALITY_COST;
+            }
+        };
+    }
+
+    private static ValueMatcher greaterThan(final Comparable bound) {
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(Object value) {
+                return compare(bound, value) < 0;
+            }
+
+            @Override
+            public int getCost() {
+                return COMPARISON_COST;
+            }
+        };
+    }
+
+    private static ValueMatcher lessThan(final Comparable bound) {
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(Object value) {
+                return compare(bound, value) > 0;
+            }
+
+            @Override
+            public int getCost() {
+                return COMPARISON_COST;
+            }
+        };
+    }
+
+    private static ValueMatcher or(final ValueMatcher first, final ValueMatcher second) {
+        if (first == ANY || second == ANY) {
+            return ANY;
+        }
+
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(Object value) {
+                return first.matches(value) || second.matches(value);
+            }
+
+            @Override
+            public int getCost() {
+                return first.getCost() + second.getCost();
+            }
+        };
+    }
+
+    private static ValueMatcher generic(final Predicate predicate) {
+        return new ValueMatcher() {
+            @Override
+            public boolean matches(Object value) {
+                return predicate.isMoreGeneralThan(value == null ? Predicates.undefined() : Predicates.equalTo(value));
+            }
+
+            @Override
+            public int getCost() {
+                return GENERIC_COST;
+            }
+        };
+    }
+
+    /**
+     * Compare a bound to a property value the same way {@link ComparablePredicate} does, with a fast path for values of
+     * the same type as the bound.
+     *
+     * @param bound to compare.
+     * @param value to compare to.
+     * @return result of the comparison, 0 if the value is missing or not comparable to the bound.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compare(Comparable bound, Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        if (value.getClass() == bound.getClass()) {
+            return bound.compareTo(value);
+        }
+
+        if (!(value instanceof Comparable)) {
+            return 0;
+        }
+
+        try {
+            return bound.compareTo(value);
+        } catch (ClassCastException e) {
+            LOG.warn(String.valueOf(bound) + " cannot be compared to " + String.valueOf(value));
+            return 0;
+        }
+    }
+}
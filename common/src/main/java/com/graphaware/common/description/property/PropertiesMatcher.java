@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.description.property;
+
+import com.graphaware.common.description.predicate.ValueMatcher;
+import com.graphaware.common.description.predicate.ValueMatchers;
+import org.neo4j.graphdb.PropertyContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link DetachedPropertiesDescription} compiled into a matcher of {@link PropertyContainer}s.
+ * <p/>
+ * {@link #matches(PropertyContainer)} returns the same result as
+ * {@code new LiteralPropertiesDescription(propertyContainer).isMoreSpecificThan(description)}. For
+ * {@link WildcardPropertiesDescription}s, only the constrained properties are read, cheapest predicates first, and
+ * nothing is copied. Other descriptions constrain every property of the container and are matched the generic way.
+ * <p/>
+ * This class is thread-safe.
+ */
+public abstract class PropertiesMatcher {
+
+    private PropertiesMatcher() {
+    }
+
+    /**
+     * Compile a properties description into a matcher.
+     *
+     * @param description to compile.
+     * @return matcher.
+     */
+    public static PropertiesMatcher compile(DetachedPropertiesDescription description) {
+        if (description.getClass() != WildcardPropertiesDescription.class) {
+            return new GenericPropertiesMatcher(description);
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<ValueMatcher> matchers = new ArrayList<>();
+
+        for (String key : description.getKeys()) {
+            ValueMatcher matcher = ValueMatchers.compile(description.get(key));
+            if (ValueMatchers.matchesAnything(matcher)) {
+                continue;
+            }
+
+            int index = 0;
+            while (index < matchers.size() && matchers.get(index).getCost() <= matcher.getCost()) {
+                index++;
+            }
+
+            keys.add(index, key);
+            matchers.add(index, matcher);
+        }
+
+        return new WildcardPropertiesMatcher(keys.toArray(new String[keys.size()]), matchers.toArray(new ValueMatcher[matchers.size()]));
+    }
+
+    /**
+     * Check whether a property container matches the compiled description.
+     *
+     * @param propertyContainer to check.
+     * @return true iff the most specific description of the property container is more specific than the compiled one.
+     */
+    public abstract boolean matches(PropertyContainer propertyContainer);
+
+    private static final class WildcardPropertiesMatcher extends PropertiesMatcher {
+
+        private final String[] keys;
+        private final ValueMatcher[] matchers;
+
+        private WildcardPropertiesMatcher(String[] keys, ValueMatcher[] matchers) {
+            this.keys = keys;
+            this.matchers = matchers;
+        }
+
+        @Override
+        public boolean matches(PropertyContainer propertyContainer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (!matchers[i].matches(propertyContainer.getProperty(keys[i], null))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static final class GenericPropertiesMatcher extends PropertiesMatcher {
+
+        private final DetachedPropertiesDescription description;
+
+        private GenericPropertiesMatcher(DetachedPropertiesDescription description) {
+            this.description = description;
+        }
+
+        @Override
+        public boolean matches(PropertyContainer propertyContainer) {
+            return new LiteralPropertiesDescription(propertyContainer).isMoreSpecificThan(description);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.kv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A single memory-mapped, pre-allocated file of a {@link MappedKeyValueStore}, holding an append-only log of
+ * operations.
+ * <p/>
+ * The file starts with a header of [magic (int)][transaction ID (long)][reserved (int)]. The magic number is written
+ * last, so a file that hasn't been completely written (e.g. a compaction interrupted by a crash) is recognised as
+ * invalid. Frames follow back to back as [length (int)][crc (int)][operation (byte)][key length (int)][key][value];
+ * the unused tail of the file is zeroed, so a zero length marks the end of data.
+ * <p/>
+ * Appends must be externally synchronized (done by {@link MappedKeyValueStore}). Written bytes are never modified, so
+ * reads are safe from any number of threads.
+ */
+final class MappedKeyValueFile {
+
+    static final int HEADER_SIZE = 16;
+    static final int FRAME_HEADER_SIZE = 4 + 4 + 1 + 4;
+
+    static final byte SET = 1;
+    static final byte REMOVE = 2;
+
+    private static final int MAGIC = 0x47414B56;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int writePosition = HEADER_SIZE;
+
+    /**
+     * Visitor of frames during recovery.
+     */
+    interface FrameVisitor {
+
+        /**
+         * Visit a frame.
+         *
+         * @param operation     {@link #SET} or {@link #REMOVE}.
+         * @param key           of the frame.
+         * @param valuePosition position of the value in the file.
+         * @param valueLength   length of the value.
+         * @param frameSize     total size of the frame in bytes.
+         */
+        void visit(byte operation, String key, int valuePosition, int valueLength, int frameSize);
+    }
+
+    /**
+     * Create a new, empty file. It isn't valid until {@link #seal(long)} is called.
+     *
+     * @param file     to create.
+     * @param capacity size of the file in bytes.
+     * @return new file.
+     * @throws IOException if the file can't be created.
+     */
+    static MappedKeyValueFile create(File file, int capacity) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete stale file " + file);
+        }
+        return new MappedKeyValueFile(file, capacity);
+    }
+
+    /**
+     * Open an existing file.
+     *
+     * @param file to open.
+     * @return the file, <code>null</code> if it isn't a valid (sealed) file.
+     * @throws IOException if the file can't be opened.
+     */
+    static MappedKeyValueFile open(File file) throws IOException {
+        if (file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        MappedKeyValueFile result = new MappedKeyValueFile(file, (int) file.length());
+        if (result.buffer.getInt(0) != MAGIC) {
+            return null;
+        }
+
+        return result;
+    }
+
+    private MappedKeyValueFile(File file, int capacity) throws IOException {
+        if (capacity < HEADER_SIZE) {
+            throw new IllegalArgumentException("Capacity must be at least " + HEADER_SIZE + " bytes");
+        }
+
+        this.file = file;
+        this.capacity = capacity;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    /**
+     * Mark the file as complete and valid, after it has been populated.
+     *
+     * @param transactionId to record in the header, -1 if none.
+     */
+    void seal(long transactionId) {
+        buffer.putLong(4, transactionId);
+        buffer.force();
+        buffer.putInt(0, MAGIC);
+        buffer.force();
+    }
+
+    /**
+     * Replay all frames, stopping at the end of data or the first torn frame.
+     *
+     * @param visitor to visit the frames.
+     */
+    void replay(FrameVisitor visitor) {
+        CRC32 crc = new CRC32();
+        int position = HEADER_SIZE;
+
+        while (position + FRAME_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 5 || position + 8 + length > capacity) {
+                break;
+            }
+
+            byte[] body = read(position + 8, length);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+
+            int keyLength = buffer.getInt(position + 9);
+            if (keyLength < 0 || keyLength > length - 5) {
+                break;
+            }
+
+            String key = new String(body, 5, keyLength, StandardCharsets.UTF_8);
+            int valuePosition = position + FRAME_HEADER_SIZE + keyLength;
+            visitor.visit(body[0], key, valuePosition, length - 5 - keyLength, 8 + length);
+
+            position += 8 + length;
+        }
+
+        writePosition = position;
+
+        //zero out a torn tail, so that it isn't mistaken for data after further appends
+        for (int i = position; i < Math.min(capacity, position + FRAME_HEADER_SIZE); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * @param key   of a frame.
+     * @param value of a frame.
+     * @return total size of the frame in bytes.
+     */
+    static int frameSize(byte[] key, byte[] value) {
+        return FRAME_HEADER_SIZE + key.length + value.length;
+    }
+
+    /**
+     * @param frameSize size of a frame.
+     * @return true iff the frame fits into this file.
+     */
+    boolean hasRoomFor(int frameSize) {
+        return writePosition + frameSize <= capacity;
+    }
+
+    /**
+     * Append a frame. The caller must have checked {@link #hasRoomFor(int)}.
+     *
+     * @param operation {@link #SET} or {@link #REMOVE}.
+     * @param key       of the frame.
+     * @param value     of the frame, empty for {@link #REMOVE}.
+     * @return position of the value in the file.
+     */
+    int append(byte operation, byte[] key, byte[] value) {
+        int length = 1 + 4 + key.length + value.length;
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(writePosition + 8);
+        view.put(operation);
+        view.putInt(key.length);
+        view.put(key);
+        view.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(read(writePosition + 8, length), 0, length);
+
+        buffer.putInt(writePosition + 4, (int) crc.getValue());
+        buffer.putInt(writePosition, length);
+
+        int valuePosition = writePosition + FRAME_HEADER_SIZE + key.length;
+        writePosition += 8 + length;
+        return valuePosition;
+    }
+
+    /**
+     * Read bytes from the file.
+     *
+     * @param position to read from.
+     * @param length   number of bytes.
+     * @return bytes.
+     */
+    byte[] read(int position, int length) {
+        byte[] result = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(result);
+        return result;
+    }
+
+    /**
+     * @return transaction ID recorded in the header, -1 if none.
+     */
+    long getTransactionId() {
+        return buffer.getLong(4);
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
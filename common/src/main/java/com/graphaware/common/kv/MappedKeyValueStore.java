@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.kv;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.serialize.Serializer;
+import com.graphaware.common.util.ArrayUtils;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.logging.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link KeyValueStore} backed by memory-mapped files in a directory, intended for module state that shouldn't live in
+ * graph properties.
+ * <p/>
+ * Values live off-heap in an append-only log in a pre-allocated, memory-mapped file. Only an index of keys to value
+ * locations is kept on heap. Every {@link #set(String, Object)} and {@link #remove(String)} appends a checksummed frame.
+ * The log is compacted into a new file (a new "generation") when it is full or when dead frames outweigh live ones,
+ * or explicitly by {@link #compact()}. After a crash, the newest complete generation is replayed up to the first torn
+ * frame.
+ * <p/>
+ * Snapshots of the whole store can be taken with {@link #snapshot(long)}, tagged with a transaction ID chosen by the
+ * caller (typically the ID of the last transaction the module state reflects), and restored with
+ * {@link #restoreSnapshot(long)}.
+ * <p/>
+ * Reads are lock-free, writes are serialized, so the store can be used from transaction event handlers (e.g.
+ * <code>beforeCommit</code>) and timer threads at the same time. Writes are not forced to disk individually; call
+ * {@link #force()} when durability is required. Values must be primitives, Strings, or arrays thereof, i.e. the same
+ * types as Neo4j properties. A single file is limited to 2 GB.
+ */
+public class MappedKeyValueStore implements KeyValueStore, Closeable {
+
+    private static final Log LOG = LoggerFactory.getLogger(MappedKeyValueStore.class);
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SNAPSHOTS = 2;
+
+    private static final String STORE_PREFIX = "store-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".kv";
+    private static final byte[] NO_VALUE = new byte[0];
+
+    private final File directory;
+    private final int initialCapacity;
+    private final int maxSnapshots;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    private MappedKeyValueFile file;
+    private long generation;
+    private long liveBytes;
+    private volatile boolean closed;
+
+    /**
+     * Location of a value in a file.
+     */
+    private static final class Location {
+        private final MappedKeyValueFile file;
+        private final int position;
+        private final int length;
+        private final int frameSize;
+
+        private Location(MappedKeyValueFile file, int position, int length, int frameSize) {
+            this.file = file;
+            this.position = position;
+            this.length = length;
+            this.frameSize = frameSize;
+        }
+
+        private byte[] read() {
+            return file.read(position, length);
+        }
+    }
+
+    /**
+     * Open a store in the given directory with default settings, creating it if needed.
+     *
+     * @param directory of the store.
+     * @throws IOException if the store can't be opened.
+     */
+    public MappedKeyValueStore(File directory) throws IOException {
+        this(directory, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_SNAPSHOTS);
+    }
+
+    /**
+     * Open a store in the given directory, creating it if needed.
+     *
+     * @param directory       of the store.
+     * @param initialCapacity size of the log file in bytes. The file grows when live data doesn't fit.
+     * @param maxSnapshots    number of most recent snapshots to keep.
+     * @throws IOException if the store can't be opened.
+     */
+    public MappedKeyValueStore(File directory, int initialCapacity, int maxSnapshots) throws IOException {
+        if (initialCapacity < 1024) {
+            throw new IllegalArgumentException("Initial capacity must be at least 1024 bytes");
+        }
+        if (maxSnapshots < 1) {
+            throw new IllegalArgumentException("At least one snapshot must be kept");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+        this.maxSnapshots = maxSnapshots;
+
+        recover();
+    }
+
+    private void recover() throws IOException {
+        List<Long> generations = idsOf(STORE_PREFIX);
+        Collections.reverse(generations);
+
+        for (long candidate : generations) {
+            MappedKeyValueFile existing = MappedKeyValueFile.open(storeFile(candidate));
+            if (existing == null) {
+                LOG.warn("Ignoring incomplete key-value store file " + storeFile(candidate));
+                continue;
+            }
+
+            generation = candidate;
+            file = existing;
+            replay(existing, index);
+            deleteStoreFilesOtherThan(generation);
+            return;
+        }
+
+        generation = 0;
+        file = MappedKeyValueFile.create(storeFile(generation), initialCapacity);
+        file.seal(-1);
+        deleteStoreFilesOtherThan(generation);
+    }
+
+    private void replay(MappedKeyValueFile source, Map<String, Location> target) {
+        liveBytes = 0;
+        source.replay((operation, key, valuePosition, valueLength, frameSize) -> {
+            Location old;
+            if (operation == MappedKeyValueFile.SET) {
+                old = target.put(key, new Location(source, valuePosition, valueLength, frameSize));
+                liveBytes += frameSize;
+            } else {
+                old = target.remove(key);
+            }
+            if (old != null) {
+                liveBytes -= old.frameSize;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasKey(String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            throw new NotFoundException("No value for key " + key);
+        }
+        return Serializer.fromByteArray(location.read());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String key, Object defaultValue) {
+        Location location = index.get(key);
+        if (location == null) {
+            return defaultValue;
+        }
+        return Serializer.fromByteArray(location.read());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void set(String key, Object value) {
+        checkOpen();
+
+        if (!isSupported(value)) {
+            throw new IllegalArgumentException("Unsupported value type " + (value == null ? "null" : value.getClass().getName()));
+        }
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = Serializer.toByteArray(value);
+
+        Location location = append(MappedKeyValueFile.SET, keyBytes, valueBytes);
+        Location old = index.put(key, location);
+
+        liveBytes += location.frameSize - (old == null ? 0 : old.frameSize);
+        compactIfWasteful();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Object remove(String key) {
+        checkOpen();
+
+        Location old = index.get(key);
+        if (old == null) {
+            return null;
+        }
+
+        Object oldValue = Serializer.fromByteArray(old.read());
+
+        append(MappedKeyValueFile.REMOVE, key.getBytes(StandardCharsets.UTF_8), NO_VALUE);
+        index.remove(key);
+
+        liveBytes -= old.frameSize;
+        compactIfWasteful();
+
+        return oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<String> getKeys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    private Location append(byte operation, byte[] key, byte[] value) {
+        int frameSize = MappedKeyValueFile.frameSize(key, value);
+
+        if (!file.hasRoomFor(frameSize)) {
+            compact(frameSize);
+        }
+
+        int position = file.append(operation, key, value);
+        return new Location(file, position, value.length, frameSize);
+    }
+
+    private void compactIfWasteful() {
+        long used = file.getWritePosition() - MappedKeyValueFile.HEADER_SIZE;
+        if (used > initialCapacity / 2 && used - liveBytes > liveBytes) {
+            compact(0);
+        }
+    }
+
+    /**
+     * Rewrite live entries into a new log file, dropping overwritten values and removed keys.
+     */
+    public synchronized void compact() {
+        checkOpen();
+        compact(0);
+    }
+
+    private void compact(int extraBytes) {
+        long required = MappedKeyValueFile.HEADER_SIZE + liveBytes + extraBytes;
+        long capacity = initialCapacity;
+        while (capacity < 2 * required) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            capacity = Integer.MAX_VALUE;
+        }
+        if (required > capacity) {
+            throw new IllegalStateException("Key-value store " + directory + " has exceeded its maximum size");
+        }
+
+        try {
+            MappedKeyValueFile compacted = MappedKeyValueFile.create(storeFile(generation + 1), (int) capacity);
+            Map<String, Location> locations = copyLiveEntries(compacted);
+            compacted.seal(file.getTransactionId());
+
+            //readers holding old locations keep reading the old mapping, which stays valid and unchanged
+            index.putAll(locations);
+
+            MappedKeyValueFile old = file;
+            file = compacted;
+            generation++;
+            delete(old.getFile());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not compact key-value store " + directory, e);
+        }
+    }
+
+    private Map<String, Location> copyLiveEntries(MappedKeyValueFile target) {
+        Map<String, Location> locations = new HashMap<>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = entry.getValue().read();
+            int position = target.append(MappedKeyValueFile.SET, key, value);
+            locations.put(entry.getKey(), new Location(target, position, value.length, MappedKeyValueFile.frameSize(key, value)));
+        }
+        return locations;
+    }
+
+    /**
+     * Write a consistent snapshot of the whole store, tagged with the given transaction ID. An existing snapshot with
+     * the same ID is replaced. Only the {@link #DEFAULT_MAX_SNAPSHOTS configured} number of most recent snapshots is kept.
+     *
+     * @param transactionId ID of the transaction the current state of the store corresponds to. Must not be negative.
+     */
+    public synchronized void snapshot(long transactionId) {
+        checkOpen();
+
+        if (transactionId < 0) {
+            throw new IllegalArgumentException("Transaction ID must not be negative");
+        }
+
+        File target = snapshotFile(transactionId);
+        File temp = new File(directory, target.getName() + ".tmp");
+
+        try {
+            MappedKeyValueFile snapshot = MappedKeyValueFile.create(temp, (int) Math.min(Integer.MAX_VALUE, MappedKeyValueFile.HEADER_SIZE + liveBytes));
+            copyLiveEntries(snapshot);
+            snapshot.seal(transactionId);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(temp);
+            throw new IllegalStateException("Could not snapshot key-value store " + directory, e);
+        }
+
+        List<Long> snapshots = getSnapshotTransactionIds();
+        for (int i = 0; i < snapshots.size() - maxSnapshots; i++) {
+            delete(snapshotFile(snapshots.get(i)));
+        }
+    }
+
+    /**
+     * @return transaction IDs of available snapshots, in ascending order.
+     */
+    public List<Long> getSnapshotTransactionIds() {
+        return idsOf(SNAPSHOT_PREFIX);
+    }
+
+    /**
+     * Replace the contents of the store by the contents of a snapshot. Readers running concurrently with the restore
+     * may observe a mix of the old and the restored state.
+     *
+     * @param transactionId ID of the snapshot to restore.
+     * @throws IllegalArgumentException if there's no such snapshot.
+     */
+    public synchronized void restoreSnapshot(long transactionId) {
+        checkOpen();
+
+        File source = snapshotFile(transactionId);
+        if (!source.isFile()) {
+            throw new IllegalArgumentException("There is no snapshot for transaction " + transactionId);
+        }
+
+        try {
+            File target = storeFile(generation + 1);
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            MappedKeyValueFile restored = MappedKeyValueFile.open(target);
+            if (restored == null) {
+                delete(target);
+                throw new IllegalStateException("Snapshot " + source + " is corrupt");
+            }
+
+            Map<String, Location> locations = new HashMap<>();
+            replay(restored, locations);
+
+            index.keySet().retainAll(locations.keySet());
+            index.putAll(locations);
+
+            MappedKeyValueFile old = file;
+            file = restored;
+            generation++;
+            delete(old.getFile());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not restore snapshot " + source, e);
+        }
+
+        //a restored snapshot is sized to its contents; make room for further writes
+        compact(initialCapacity / 2);
+    }
+
+    /**
+     * @return transaction ID of the snapshot the store was last restored from, or -1 if none.
+     */
+    public long getRestoredTransactionId() {
+        return file.getTransactionId();
+    }
+
+    /**
+     * Force all writes to disk.
+     */
+    public synchronized void force() {
+        checkOpen();
+        file.force();
+    }
+
+    /**
+     * Force all writes to disk and stop accepting writes. Reads remain possible until the store is garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        file.force();
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Key-value store " + directory + " has been closed");
+        }
+    }
+
+    private static boolean isSupported(Object value) {
+        return value instanceof String
+                || value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte
+                || value instanceof Double
+                || value instanceof Float
+                || value instanceof Boolean
+                || value instanceof Character
+                || ArrayUtils.isPrimitiveOrStringArray(value);
+    }
+
+    private List<Long> idsOf(String prefix) {
+        List<Long> result = new ArrayList<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return result;
+        }
+
+        for (String name : names) {
+            if (name.startsWith(prefix) && name.endsWith(SUFFIX)) {
+                try {
+                    result.add(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    //not ours
+                }
+            }
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    private void deleteStoreFilesOtherThan(long keep) {
+        for (long other : idsOf(STORE_PREFIX)) {
+            if (other != keep) {
+                delete(storeFile(other));
+            }
+        }
+    }
+
+    private void delete(File toDelete) {
+        if (toDelete.exists() && !toDelete.delete()) {
+            LOG.warn("Could not delete " + toDelete);
+        }
+    }
+
+    private File storeFile(long generation) {
+        return new File(directory, STORE_PREFIX + generation + SUFFIX);
+    }
+
+    private File snapshotFile(long transactionId) {
+        return new File(directory, SNAPSHOT_PREFIX + transactionId + SUFFIX);
+    }
+}
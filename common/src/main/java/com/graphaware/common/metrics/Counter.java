@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free {@link Metric} counting events. Updates are allocation-free and scale with the number of threads.
+ */
+public class Counter implements Metric {
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Increment the counter by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increment the counter.
+     *
+     * @param delta to add, can be negative.
+     */
+    public void increment(long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * Decrement the counter by one.
+     */
+    public void decrement() {
+        count.decrement();
+    }
+
+    /**
+     * @return current count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Number> getStatistics() {
+        return Collections.singletonMap("count", getCount());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-size histogram of latencies in nanoseconds, in the spirit of HdrHistogram.
+ * <p/>
+ * Values are counted in log-linear buckets: each power of two is split into {@link #SUB_BUCKETS} equal sub-buckets, so
+ * that the relative error of reported percentiles is at most 1/{@link #SUB_BUCKETS} (about 6%). Values above
+ * {@link #MAX_VALUE} (about 18 minutes) are counted in the last bucket. The whole histogram takes about 5 kB.
+ * <p/>
+ * {@link #record(long)} is allocation-free and safe to call from any number of threads concurrently. Reads are not
+ * atomic with respect to concurrent writes, which is fine for monitoring purposes.
+ */
+public class LatencyHistogram implements Metric {
+
+    public static final int SUB_BUCKET_BITS = 4;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int MAX_EXPONENT = 63 - Long.numberOfLeadingZeros(MAX_VALUE);
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param nanos value to record. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return mean of recorded values in ns, 0 if none have been recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return maximum recorded value in ns.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile of recorded values.
+     *
+     * @param percentile between 0 and 100.
+     * @return value in ns below which the given percentage of recorded values falls, 0 if none have been recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, was " + percentile);
+        }
+
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Get a percentile of recorded values in a specific unit.
+     *
+     * @param percentile between 0 and 100.
+     * @param unit       of the result.
+     * @return percentile, as a fraction of the unit.
+     */
+    public double getPercentile(double percentile, TimeUnit unit) {
+        return (double) getPercentile(percentile) / unit.toNanos(1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Count, and mean, p50, p90, p99, p999 and max in ms.
+     */
+    @Override
+    public Map<String, Number> getStatistics() {
+        Map<String, Number> result = new LinkedHashMap<>();
+        result.put("count", getCount());
+        result.put("mean", getMean() / TimeUnit.MILLISECONDS.toNanos(1));
+        result.put("p50", getPercentile(50, TimeUnit.MILLISECONDS));
+        result.put("p90", getPercentile(90, TimeUnit.MILLISECONDS));
+        result.put("p99", getPercentile(99, TimeUnit.MILLISECONDS));
+        result.put("p999", getPercentile(99.9, TimeUnit.MILLISECONDS));
+        result.put("max", (double) getMax() / TimeUnit.MILLISECONDS.toNanos(1));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
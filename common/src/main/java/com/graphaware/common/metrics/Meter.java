@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free {@link Metric} measuring the rate of events, as a mean rate and 1-, 5- and 15-minute exponentially
+ * weighted moving averages (the same as Unix load averages).
+ * <p/>
+ * Events are counted in {@link LongAdder}s and folded into the averages every {@link #TICK_SECONDS} seconds, by
+ * whichever thread first notices the interval has elapsed, be it a writer or a reader. {@link #mark(long)} is
+ * allocation-free and costs a clock read on top of the counting. Idle intervals are accounted for in closed form, so a
+ * meter that hasn't been touched for a long time doesn't need to catch up tick by tick.
+ */
+public class Meter implements Metric {
+
+    public static final int TICK_SECONDS = 5;
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(TICK_SECONDS);
+    private static final double M1_ALPHA = alpha(1);
+    private static final double M5_ALPHA = alpha(5);
+    private static final double M15_ALPHA = alpha(15);
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder uncounted = new LongAdder();
+    private final AtomicLong lastTick;
+
+    private volatile long startTime;
+    private volatile boolean initialized;
+    private volatile double m1Rate;
+    private volatile double m5Rate;
+    private volatile double m15Rate;
+
+    /**
+     * Create a new meter.
+     */
+    public Meter() {
+        startTime = nanoTime();
+        lastTick = new AtomicLong(startTime);
+    }
+
+    private static double alpha(int minutes) {
+        return 1 - Math.exp(-TICK_SECONDS / 60.0 / minutes);
+    }
+
+    /**
+     * Mark the occurrence of an event.
+     */
+    public void mark() {
+        mark(1);
+    }
+
+    /**
+     * Mark the occurrence of a number of events.
+     *
+     * @param events number of events.
+     */
+    public void mark(long events) {
+        tickIfNecessary();
+        count.add(events);
+        uncounted.add(events);
+    }
+
+    /**
+     * @return total number of events.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return mean rate of events per second since the meter has been created or reset.
+     */
+    public double getMeanRate() {
+        long elapsed = nanoTime() - startTime;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (double) getCount() / elapsed * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * @return one-minute moving average rate of events per second.
+     */
+    public double getOneMinuteRate() {
+        tickIfNecessary();
+        return m1Rate;
+    }
+
+    /**
+     * @return five-minute moving average rate of events per second.
+     */
+    public double getFiveMinuteRate() {
+        tickIfNecessary();
+        return m5Rate;
+    }
+
+    /**
+     * @return fifteen-minute moving average rate of events per second.
+     */
+    public double getFifteenMinuteRate() {
+        tickIfNecessary();
+        return m15Rate;
+    }
+
+    private void tickIfNecessary() {
+        long previous = lastTick.get();
+        long age = nanoTime() - previous;
+        if (age < TICK_NANOS) {
+            return;
+        }
+
+        long ticks = age / TICK_NANOS;
+        if (lastTick.compareAndSet(previous, previous + ticks * TICK_NANOS)) {
+            tick(ticks);
+        }
+    }
+
+    private void tick(long ticks) {
+        double instantRate = (double) uncounted.sumThenReset() / TICK_SECONDS;
+
+        if (initialized) {
+            m1Rate += M1_ALPHA * (instantRate - m1Rate);
+            m5Rate += M5_ALPHA * (instantRate - m5Rate);
+            m15Rate += M15_ALPHA * (instantRate - m15Rate);
+        } else {
+            m1Rate = instantRate;
+            m5Rate = instantRate;
+            m15Rate = instantRate;
+            initialized = true;
+        }
+
+        if (ticks > 1) {
+            m1Rate *= Math.pow(1 - M1_ALPHA, ticks - 1);
+            m5Rate *= Math.pow(1 - M5_ALPHA, ticks - 1);
+            m15Rate *= Math.pow(1 - M15_ALPHA, ticks - 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Number> getStatistics() {
+        Map<String, Number> result = new LinkedHashMap<>();
+        result.put("count", getCount());
+        result.put("meanRate", getMeanRate());
+        result.put("m1Rate", getOneMinuteRate());
+        result.put("m5Rate", getFiveMinuteRate());
+        result.put("m15Rate", getFifteenMinuteRate());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        long now = nanoTime();
+        count.reset();
+        uncounted.reset();
+        initialized = false;
+        m1Rate = 0;
+        m5Rate = 0;
+        m15Rate = 0;
+        startTime = now;
+        lastTick.set(now);
+    }
+
+    /**
+     * @return current time in ns, overridable for testing.
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import com.graphaware.common.log.LoggerFactory;
+import org.neo4j.logging.Log;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A registry of {@link Metric}s, keyed by module ID and metric name, shared by everything that wants to report
+ * metrics, e.g. modules, writers, schedulers, and executors.
+ * <p/>
+ * Metrics are created on first access by {@link #counter(String, String)}, {@link #meter(String, String)} and
+ * {@link #histogram(String, String)}, or registered by {@link #gauge(String, String, Gauge)}. Looking a metric up
+ * involves hash map lookups, so callers on hot paths (like the commit path) should look their metrics up once and keep
+ * the references; recording into the metrics themselves is lock-free and allocation-free.
+ * <p/>
+ * Metrics are exposed over JMX (see {@link MetricRegistryMXBean}) and by {@link #getReport()}, intended for REST.
+ */
+public class MetricRegistry implements MetricRegistryMXBean {
+
+    private static final Log LOG = LoggerFactory.getLogger(MetricRegistry.class);
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Metric>> metrics = new ConcurrentHashMap<>();
+
+    private volatile ObjectName objectName;
+
+    /**
+     * Get or create a counter.
+     *
+     * @param moduleId ID of the module the metric belongs to.
+     * @param name     of the metric, unique within the module.
+     * @return counter.
+     * @throws IllegalArgumentException if a metric of a different type is registered under the same name.
+     */
+    public Counter counter(String moduleId, String name) {
+        return getOrCreate(moduleId, name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Get or create a meter.
+     *
+     * @param moduleId ID of the module the metric belongs to.
+     * @param name     of the metric, unique within the module.
+     * @return meter.
+     * @throws IllegalArgumentException if a metric of a different type is registered under the same name.
+     */
+    public Meter meter(String moduleId, String name) {
+        return getOrCreate(moduleId, name, Meter.class, Meter::new);
+    }
+
+    /**
+     * Get or create a latency histogram.
+     *
+     * @param moduleId ID of the module the metric belongs to.
+     * @param name     of the metric, unique within the module.
+     * @return histogram.
+     * @throws IllegalArgumentException if a metric of a different type is registered under the same name.
+     */
+    public LatencyHistogram histogram(String moduleId, String name) {
+        return getOrCreate(moduleId, name, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * Register a gauge. A gauge previously registered under the same name is replaced, so that e.g. a restarted module
+     * can register a gauge referring to its new state.
+     *
+     * @param moduleId ID of the module the metric belongs to.
+     * @param name     of the metric, unique within the module.
+     * @param gauge    to register.
+     * @param <G>      type of the gauge.
+     * @return the gauge.
+     * @throws IllegalArgumentException if a metric other than a gauge is registered under the same name.
+     */
+    public <G extends Gauge> G gauge(String moduleId, String name, G gauge) {
+        if (gauge == null) {
+            throw new IllegalArgumentException("Gauge must not be null");
+        }
+
+        Metric existing = moduleMetrics(moduleId).merge(name, gauge, (old, replacement) -> old instanceof Gauge ? replacement : old);
+        if (existing != gauge) {
+            throw conflict(moduleId, name, existing, Gauge.class);
+        }
+
+        return gauge;
+    }
+
+    private <M extends Metric> M getOrCreate(String moduleId, String name, Class<M> type, Supplier<M> factory) {
+        ConcurrentMap<String, Metric> module = moduleMetrics(moduleId);
+
+        Metric metric = module.get(name);
+        if (metric == null) {
+            metric = module.computeIfAbsent(name, n -> factory.get());
+        }
+
+        if (!type.isInstance(metric)) {
+            throw conflict(moduleId, name, metric, type);
+        }
+
+        return type.cast(metric);
+    }
+
+    private ConcurrentMap<String, Metric> moduleMetrics(String moduleId) {
+        if (moduleId == null) {
+            throw new IllegalArgumentException("Module ID must not be null");
+        }
+
+        ConcurrentMap<String, Metric> module = metrics.get(moduleId);
+        if (module == null) {
+            module = metrics.computeIfAbsent(moduleId, id -> new ConcurrentHashMap<>());
+        }
+        return module;
+    }
+
+    private static IllegalArgumentException conflict(String moduleId, String name, Metric existing, Class<?> requested) {
+        return new IllegalArgumentException("Metric " + name + " of module " + moduleId + " is a " + existing.getClass().getSimpleName() + ", not a " + requested.getSimpleName());
+    }
+
+    /**
+     * Get a metric.
+     *
+     * @param moduleId ID of the module.
+     * @param name     of the metric.
+     * @return metric, <code>null</code> if there's no such metric.
+     */
+    public Metric getMetric(String moduleId, String name) {
+        Map<String, Metric> module = metrics.get(moduleId);
+        return module == null ? null : module.get(name);
+    }
+
+    /**
+     * @return IDs of modules with at least one metric, sorted.
+     */
+    public Set<String> getModuleIds() {
+        Set<String> result = new TreeSet<>();
+        for (Map.Entry<String, ConcurrentMap<String, Metric>> module : metrics.entrySet()) {
+            if (!module.getValue().isEmpty()) {
+                result.add(module.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove a metric.
+     *
+     * @param moduleId ID of the module.
+     * @param name     of the metric.
+     */
+    public void remove(String moduleId, String name) {
+        Map<String, Metric> module = metrics.get(moduleId);
+        if (module != null) {
+            module.remove(name);
+        }
+    }
+
+    /**
+     * Remove all metrics of a module, e.g. when it shuts down.
+     *
+     * @param moduleId ID of the module.
+     */
+    public void removeAll(String moduleId) {
+        metrics.remove(moduleId);
+    }
+
+    /**
+     * Produce a report of all metrics of a module, as nested maps: metric name, statistic.
+     *
+     * @param moduleId ID of the module.
+     * @return report, empty if the module has no metrics.
+     */
+    public Map<String, Map<String, Number>> getReport(String moduleId) {
+        Map<String, Metric> module = metrics.get(moduleId);
+        if (module == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Map<String, Number>> report = new TreeMap<>();
+        for (Map.Entry<String, Metric> metric : module.entrySet()) {
+            report.put(metric.getKey(), metric.getValue().getStatistics());
+        }
+        return report;
+    }
+
+    /**
+     * Produce a report of all metrics, as nested maps: module ID, metric name, statistic.
+     *
+     * @return report.
+     */
+    public Map<String, Map<String, Map<String, Number>>> getReport() {
+        Map<String, Map<String, Map<String, Number>>> report = new TreeMap<>();
+        for (String moduleId : getModuleIds()) {
+            report.put(moduleId, getReport(moduleId));
+        }
+        return report;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Double> getStatistics() {
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Map<String, Number>>> module : getReport().entrySet()) {
+            for (Map.Entry<String, Map<String, Number>> metric : module.getValue().entrySet()) {
+                for (Map.Entry<String, Number> statistic : metric.getValue().entrySet()) {
+                    result.put(module.getKey() + "." + metric.getKey() + "." + statistic.getKey(), statistic.getValue().doubleValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        for (Map<String, Metric> module : metrics.values()) {
+            for (Metric metric : module.values()) {
+                metric.reset();
+            }
+        }
+    }
+
+    /**
+     * Register this registry with the platform MBean server, under
+     * <code>com.graphaware:type=Metrics,database=&lt;name&gt;</code>. Failures are logged, not thrown.
+     *
+     * @param name of the database.
+     */
+    public void registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.graphaware:type=Metrics,database=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            LOG.warn("Could not register metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister this registry from the platform MBean server, if it has been registered.
+     */
+    public void unregisterMBean() {
+        ObjectName objectName = this.objectName;
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not unregister metrics from JMX: " + e.getMessage());
+        }
+        this.objectName = null;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.policy.inclusion;
+
+/**
+ * Interface for {@link InclusionPolicy}s whose decisions can be pure functions of the state of the evaluated object
+ * (its properties, labels, type, relationships). Decisions of policies for which {@link #isDeterministic()} returns
+ * <code>true</code> may be memoized by the framework while a single module looks at a transaction, so that an
+ * expensive policy is evaluated at most once per entity.
+ * <p/>
+ * Policies that depend on anything else (time, external state, randomness, mutable configuration) must not implement
+ * this interface, or must return <code>false</code> from {@link #isDeterministic()}.
+ */
+public interface DeterministicInclusionPolicy extends InclusionPolicy {
+
+    /**
+     * Are decisions of this policy pure functions of the state of the evaluated object?
+     *
+     * @return true iff decisions can be memoized.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * Check whether decisions of the given policy can be memoized.
+     *
+     * @param policy to check.
+     * @return true iff the policy is a {@link DeterministicInclusionPolicy} that {@link #isDeterministic()}.
+     */
+    static boolean isDeterministic(InclusionPolicy policy) {
+        return policy instanceof DeterministicInclusionPolicy && ((DeterministicInclusionPolicy) policy).isDeterministic();
+    }
+}
@@ -19,7 +19,9 @@ package com.graphaware.common.policy.inclusion.fluent;
 import com.graphaware.common.description.predicate.Predicate;
 import com.graphaware.common.description.property.DetachedPropertiesDescription;
 import com.graphaware.common.description.property.LiteralPropertiesDescription;
+import com.graphaware.common.description.property.PropertiesMatcher;
 import com.graphaware.common.policy.inclusion.BasePropertyContainerInclusionPolicy;
+import com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy;
 import com.graphaware.common.policy.inclusion.PropertyContainerInclusionPolicy;
 import org.neo4j.graphdb.PropertyContainer;
 
@@ -28,9 +30,10 @@ import org.neo4j.graphdb.PropertyContainer;
  * value {@link Predicate}s. In other words, the implementations can be used to specify, which {@link PropertyContainer}s
  * to include based on the presence and/or value of their properties.
  */
-public abstract class IncludePropertyContainers<C extends IncludePropertyContainers<?, T>, T extends PropertyContainer> extends BasePropertyContainerInclusionPolicy<T> implements PropertyContainerInclusionPolicy<T> {
+public abstract class IncludePropertyContainers<C extends IncludePropertyContainers<?, T>, T extends PropertyContainer> extends BasePropertyContainerInclusionPolicy<T> implements PropertyContainerInclusionPolicy<T>, DeterministicInclusionPolicy {
 
     private final DetachedPropertiesDescription propertiesDescription;
+    private transient volatile PropertiesMatcher matcher;
 
     /**
      * Construct a new policy.
@@ -76,7 +79,36 @@ public abstract class IncludePropertyContainers<C extends IncludePropertyContain
      */
     @Override
     public boolean include(T propertyContainer) {
-        return new LiteralPropertiesDescription(propertyContainer).isMoreSpecificThan(propertiesDescription);
+        PropertiesMatcher matcher = this.matcher;
+        if (matcher == null) {
+            //compiled lazily, as policies deserialized from metadata bypass constructors
+            matcher = PropertiesMatcher.compile(propertiesDescription);
+            this.matcher = matcher;
+        }
+
+        return matcher.matches(propertyContainer);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only policies provided by the framework and configured with the framework's own {@link Predicate}s (see
+     * {@link com.graphaware.common.description.predicate.Predicates}) are known to be deterministic. Subclasses and
+     * custom predicates may depend on anything.
+     */
+    @Override
+    public boolean isDeterministic() {
+        if (getClass().getPackage() != IncludePropertyContainers.class.getPackage()) {
+            return false;
+        }
+
+        for (String key : propertiesDescription.getKeys()) {
+            if (propertiesDescription.get(key).getClass().getPackage() != Predicate.class.getPackage()) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     /**
@@ -16,19 +16,47 @@
 
 package com.graphaware.common.policy.inclusion.spel;
 
+import com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy;
 import com.graphaware.common.policy.inclusion.ObjectInclusionPolicy;
 import org.springframework.expression.Expression;
 import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.Assign;
+import org.springframework.expression.spel.ast.BeanReference;
+import org.springframework.expression.spel.ast.ConstructorReference;
+import org.springframework.expression.spel.ast.FunctionReference;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.OpDec;
+import org.springframework.expression.spel.ast.OpInc;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.TypeReference;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Abstract base-class for {@link ObjectInclusionPolicy} implementations that are based on
  * SPEL expressions.
+ * <p/>
+ * A policy is {@link #isDeterministic() deterministic} only if its expression provably is: it may only call the
+ * methods of the expression roots (e.g. {@link com.graphaware.common.expression.AttachedNodeExpressions}) and a few
+ * side-effect-free methods on values, and must not reference types, classes, beans, functions, or constructors, or
+ * assign. This also makes deterministic expressions safe to evaluate when they come from untrusted sources.
  */
-public abstract class SpelInclusionPolicy {
+public abstract class SpelInclusionPolicy implements DeterministicInclusionPolicy {
+
+    private static final Set<String> PURE_METHODS = new HashSet<>(Arrays.asList(
+            //expression roots
+            "getDegree", "getStartNode", "getEndNode", "getOtherNode", "pointOfView", "isOutgoing", "isIncoming",
+            "getLabels", "hasLabel", "getType", "isType", "getProperties", "hasProperty", "getProperty", "getGraphId",
+            //values
+            "equals", "compareTo", "toString", "startsWith", "endsWith", "contains", "containsKey", "length", "size",
+            "isEmpty", "toLowerCase", "toUpperCase", "trim", "substring", "indexOf", "matches"));
 
     protected transient final Expression exp;
     protected transient final SpelNode expressionNode;
+    private transient volatile Boolean deterministic;
 
     private final String expression;
 
@@ -39,6 +67,44 @@ public abstract class SpelInclusionPolicy {
         this.exp = parser.parseExpression(expression);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDeterministic() {
+        Boolean result = deterministic;
+        if (result == null) {
+            //computed lazily, as policies deserialized from metadata bypass constructors
+            result = isPure(new SpelExpressionParser().parseRaw(expression).getAST());
+            deterministic = result;
+        }
+        return result;
+    }
+
+    private static boolean isPure(SpelNode node) {
+        if (node instanceof TypeReference || node instanceof BeanReference || node instanceof ConstructorReference
+                || node instanceof FunctionReference || node instanceof Assign || node instanceof OpInc || node instanceof OpDec) {
+            return false;
+        }
+
+        if (node instanceof MethodReference && !PURE_METHODS.contains(((MethodReference) node).getName())) {
+            return false;
+        }
+
+        //would give access to reflection
+        if (node instanceof PropertyOrFieldReference && "class".equals(((PropertyOrFieldReference) node).getName())) {
+            return false;
+        }
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (!isPure(node.getChild(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
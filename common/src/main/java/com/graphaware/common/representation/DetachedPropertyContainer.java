@@ -61,16 +61,10 @@ public abstract class DetachedPropertyContainer<ID, T extends PropertyContainer>
         this(PropertyContainerUtils.id(pc));
 
         initPropsIfNeeded();
-        if (properties != null) {
-            for (String property : properties) {
-                if (pc.hasProperty(property)) {
-                    putProperty(property, pc.getProperty(property));
-                }
-            }
-        } else {
-            for (String property : pc.getPropertyKeys()) {
-                putProperty(property, pc.getProperty(property));
-            }
+        //a single bulk read per container, rather than a lookup (or two) per property
+        Map<String, Object> values = properties != null ? pc.getProperties(properties) : pc.getAllProperties();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            putProperty(entry.getKey(), entry.getValue());
         }
     }
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An immutable alias table (Vose's alias method) for sampling indices with probabilities proportional to given weights.
+ * Construction is O(n), each sample is O(1), which makes it useful when sampling from the same weighted distribution
+ * repeatedly. Thread-safe.
+ */
+public class AliasTable {
+
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * Construct a new alias table.
+     *
+     * @param weights non-negative weights of the indices. Must not be empty and at least one weight must be positive.
+     */
+    public AliasTable(double[] weights) {
+        if (weights == null || weights.length == 0) {
+            throw new IllegalArgumentException("Weights must not be empty");
+        }
+
+        int n = weights.length;
+        double sum = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be non-negative finite numbers");
+            }
+            sum += weight;
+        }
+
+        if (sum <= 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        probabilities = new double[n];
+        aliases = new int[n];
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+
+        //whatever remains is (up to rounding errors) exactly 1
+        while (largeSize > 0) {
+            probabilities[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0) {
+            probabilities[small[--smallSize]] = 1;
+        }
+    }
+
+    /**
+     * Sample an index using a thread-local random number generator.
+     *
+     * @return index, with probability proportional to its weight.
+     */
+    public int sample() {
+        return sample(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Sample an index.
+     *
+     * @param random random number generator to use.
+     * @return index, with probability proportional to its weight.
+     */
+    public int sample(Random random) {
+        int column = random.nextInt(probabilities.length);
+        return random.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+
+    /**
+     * Get the number of indices in this table.
+     *
+     * @return size.
+     */
+    public int size() {
+        return probabilities.length;
+    }
+}
@@ -40,8 +40,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  *
  * @param <T> type of the stored items.
  * @param <C> type of the quantities associated with the items.
+ * @deprecated every insert takes a global lock and re-sorts the whole list; use {@link ConcurrentTopK} instead.
  */
-//todo allow finding values of items
+@Deprecated
 public class BoundedSortedList<T, C extends Comparable<C>> {
 
     private final List<ComparableItem<T, C>> items = new ArrayList<>();
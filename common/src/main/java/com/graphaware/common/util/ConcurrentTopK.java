@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe, bounded collection of the K items with the highest associated quantities. Intended as a concurrent
+ * replacement of {@link BoundedSortedList} for frequent writes from many threads, e.g. top-N lists maintained per node
+ * by recommendation modules.
+ * <p/>
+ * Items are kept in a skip list ordered by quantity (highest first, ties in the order of addition) and indexed by a
+ * hash map, so that adding or updating an item costs O(log K) and finding an item's quantity costs O(1). Quantities
+ * are primitive doubles; to keep the lowest quantities instead, negate them.
+ * <p/>
+ * Adding an item that already exists updates its quantity. Adding a new item when the collection is full and its
+ * quantity is not higher than the lowest retained one has no effect; such additions (the vast majority once the
+ * collection has warmed up) are rejected without taking any lock. Additions that change the collection are serialized
+ * by a lock private to this instance. Reads never block and see a weakly consistent view, as per
+ * {@link ConcurrentSkipListSet}.
+ * <p/>
+ * Capacity and maxCapacity have the same meaning as in {@link BoundedSortedList}: up to maxCapacity items are
+ * remembered, but only capacity items are returned by {@link #getItems()}.
+ *
+ * @param <T> type of the stored items.
+ */
+public class ConcurrentTopK<T> {
+
+    private final ConcurrentSkipListSet<Entry<T>> entries = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<T, Entry<T>> index = new ConcurrentHashMap<>();
+    private final Lock lock = new ReentrantLock();
+    private final int capacity;
+    private final int maxCapacity;
+
+    private long sequence = 0;
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Construct a new collection.
+     *
+     * @param capacity capacity (and maxCapacity) of the collection. Must be positive.
+     */
+    public ConcurrentTopK(int capacity) {
+        this(capacity, capacity);
+    }
+
+    /**
+     * Construct a new collection.
+     *
+     * @param capacity    capacity of the collection, i.e. the maximum number of items returned by {@link #getItems()}.
+     *                    Must be positive.
+     * @param maxCapacity maximum number of items remembered. Must not be smaller than capacity.
+     */
+    public ConcurrentTopK(int capacity, int maxCapacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        if (maxCapacity < capacity) {
+            throw new IllegalArgumentException("Max capacity must not be smaller than capacity, was " + maxCapacity);
+        }
+
+        this.capacity = capacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Add an item and its associated quantity, or update the quantity of an existing item.
+     *
+     * @param item     to add. Must not be <code>null</code>.
+     * @param quantity of the item. Must not be NaN.
+     * @return true iff the collection has changed as a result.
+     */
+    public boolean add(T item, double quantity) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item must not be null");
+        }
+        if (Double.isNaN(quantity)) {
+            throw new IllegalArgumentException("Quantity must not be NaN");
+        }
+
+        if (quantity <= threshold && !index.containsKey(item)) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            Entry<T> existing = index.get(item);
+
+            if (existing == null && index.size() >= maxCapacity && quantity <= entries.last().quantity) {
+                return false;
+            }
+
+            if (existing != null) {
+                entries.remove(existing);
+            }
+
+            Entry<T> entry = new Entry<>(item, quantity, sequence++);
+            entries.add(entry);
+            index.put(item, entry);
+
+            while (index.size() > maxCapacity) {
+                index.remove(entries.pollLast().item);
+            }
+
+            updateThreshold();
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove an item.
+     *
+     * @param item to remove.
+     * @return true iff the item was present.
+     */
+    public boolean remove(T item) {
+        lock.lock();
+        try {
+            Entry<T> existing = index.remove(item);
+            if (existing == null) {
+                return false;
+            }
+
+            entries.remove(existing);
+            updateThreshold();
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateThreshold() {
+        threshold = index.size() >= maxCapacity ? entries.last().quantity : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Get the quantity associated with an item.
+     *
+     * @param item to find.
+     * @return quantity, <code>null</code> if the item is not remembered.
+     */
+    public Double getQuantity(T item) {
+        Entry<T> entry = index.get(item);
+        return entry == null ? null : entry.quantity;
+    }
+
+    /**
+     * Get the number of items remembered, which can be up to maxCapacity.
+     *
+     * @return number of items.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Get the items with the highest quantities.
+     *
+     * @return a list of at most capacity items, highest quantity first.
+     */
+    public List<T> getItems() {
+        List<T> result = new ArrayList<>(Math.min(capacity, index.size()));
+        for (Entry<T> entry : entries) {
+            if (result.size() >= capacity) {
+                break;
+            }
+            result.add(entry.item);
+        }
+        return result;
+    }
+
+    /**
+     * Get the items with the highest quantities, along with the quantities.
+     *
+     * @return a list of at most capacity items, highest quantity first.
+     */
+    public List<ComparableItem<T, Double>> getEntries() {
+        List<ComparableItem<T, Double>> result = new ArrayList<>(Math.min(capacity, index.size()));
+        for (Entry<T> entry : entries) {
+            if (result.size() >= capacity) {
+                break;
+            }
+            result.add(new ComparableItem<>(entry.item, entry.quantity));
+        }
+        return result;
+    }
+
+    /**
+     * Merge several collections, typically computed in parallel over partitions of the data, into a new one. The
+     * collections are merged K-way, so only as many of their items are visited as needed to fill the result. If an
+     * item is present in more than one collection, its highest quantity is kept.
+     *
+     * @param capacity    capacity of the result.
+     * @param maxCapacity max capacity of the result.
+     * @param topKs       collections to merge. They can be concurrently modified, but the result then reflects a
+     *                    weakly consistent view of them.
+     * @param <T>         type of the items.
+     * @return merged collection.
+     */
+    public static <T> ConcurrentTopK<T> merge(int capacity, int maxCapacity, Iterable<ConcurrentTopK<T>> topKs) {
+        ConcurrentTopK<T> result = new ConcurrentTopK<>(capacity, maxCapacity);
+
+        PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<>();
+        for (ConcurrentTopK<T> topK : topKs) {
+            Iterator<Entry<T>> iterator = topK.entries.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new PeekingIterator<>(iterator));
+            }
+        }
+
+        while (!heads.isEmpty() && result.size() < maxCapacity) {
+            PeekingIterator<T> head = heads.poll();
+            Entry<T> entry = head.next();
+
+            if (!result.index.containsKey(entry.item)) {
+                result.add(entry.item, entry.quantity);
+            }
+
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Merge several collections into a new one, whose capacity and max capacity are the same.
+     *
+     * @param capacity of the result.
+     * @param topKs    collections to merge.
+     * @param <T>      type of the items.
+     * @return merged collection.
+     * @see #merge(int, int, Iterable)
+     */
+    public static <T> ConcurrentTopK<T> merge(int capacity, Iterable<ConcurrentTopK<T>> topKs) {
+        return merge(capacity, capacity, topKs);
+    }
+
+    private static final class Entry<T> implements Comparable<Entry<T>> {
+
+        private final T item;
+        private final double quantity;
+        private final long sequence;
+
+        private Entry(T item, double quantity, long sequence) {
+            this.item = item;
+            this.quantity = quantity;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry<T> o) {
+            int result = Double.compare(o.quantity, quantity);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+
+    private static final class PeekingIterator<T> implements Comparable<PeekingIterator<T>> {
+
+        private final Iterator<Entry<T>> iterator;
+        private Entry<T> next;
+
+        private PeekingIterator(Iterator<Entry<T>> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.next();
+        }
+
+        private boolean hasNext() {
+            return next != null;
+        }
+
+        private Entry<T> next() {
+            Entry<T> result = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return result;
+        }
+
+        @Override
+        public int compareTo(PeekingIterator<T> o) {
+            return Double.compare(o.next.quantity, next.quantity);
+        }
+    }
+}
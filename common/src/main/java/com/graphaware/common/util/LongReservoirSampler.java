@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A {@link ReservoirSampler} specialised for primitive longs, typically node or relationship IDs, which avoids boxing
+ * every offered value.
+ */
+public class LongReservoirSampler {
+
+    private final long[] reservoir;
+    private int size = 0;
+    private final ReservoirSlots slots;
+
+    /**
+     * Create a new sampler with a certain reservoir size.
+     *
+     * @param numberOfSamples Maximum number of samples to retain in the reservoir. Must be positive.
+     */
+    public LongReservoirSampler(int numberOfSamples) {
+        this.slots = new ReservoirSlots(numberOfSamples, new SplittableRandom());
+        this.reservoir = new long[numberOfSamples];
+    }
+
+    /**
+     * Sample a value and store in the reservoir if needed.
+     *
+     * @param value to sample.
+     */
+    public synchronized void sample(long value) {
+        int slot = slots.offer();
+        if (slot == ReservoirSlots.SKIP) {
+            return;
+        }
+
+        reservoir[slot] = value;
+        if (slot == size) {
+            size++;
+        }
+    }
+
+    /**
+     * Merge this sampler with another one, which has sampled a different stream of values. The result is a uniform
+     * sample of both streams combined. Neither this nor the other sampler is modified.
+     *
+     * @param other sampler to merge with. Must have the same reservoir size.
+     * @return a new sampler, which can be used for further sampling.
+     */
+    public LongReservoirSampler merge(LongReservoirSampler other) {
+        if (other.reservoir.length != reservoir.length) {
+            throw new IllegalArgumentException("Only samplers with the same reservoir size can be merged");
+        }
+
+        long[] first;
+        long firstSeen;
+        synchronized (this) {
+            first = Arrays.copyOf(reservoir, size);
+            firstSeen = slots.getSeen();
+        }
+
+        long[] second;
+        long secondSeen;
+        synchronized (other) {
+            second = Arrays.copyOf(other.reservoir, other.size);
+            secondSeen = other.slots.getSeen();
+        }
+
+        LongReservoirSampler result = new LongReservoirSampler(reservoir.length);
+        result.slots.merged(firstSeen + secondSeen);
+
+        int firstSize = first.length, secondSize = second.length;
+        long firstRemaining = firstSeen, secondRemaining = secondSeen;
+        while (result.size < reservoir.length && firstRemaining + secondRemaining > 0) {
+            if (result.slots.takeFromFirst(firstRemaining, secondRemaining)) {
+                result.reservoir[result.size++] = removeRandom(first, firstSize--, result.slots);
+                firstRemaining--;
+            } else {
+                result.reservoir[result.size++] = removeRandom(second, secondSize--, result.slots);
+                secondRemaining--;
+            }
+        }
+
+        return result;
+    }
+
+    private static long removeRandom(long[] values, int size, ReservoirSlots slots) {
+        int index = slots.nextIndex(size);
+        long result = values[index];
+        values[index] = values[size - 1];
+        return result;
+    }
+
+    /**
+     * Get samples collected in the reservoir.
+     *
+     * @return a copy of the samples.
+     */
+    public synchronized long[] getSamples() {
+        return Arrays.copyOf(reservoir, size);
+    }
+
+    /**
+     * Get the number of values offered to this sampler (or the samplers merged into it).
+     *
+     * @return number of values seen.
+     */
+    public synchronized long getNumberOfItemsSeen() {
+        return slots.getSeen();
+    }
+
+    /**
+     * Is the reservoir empty?
+     *
+     * @return true iff empty.
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -128,13 +128,29 @@ public final class PropertyContainerUtils {
      * @return converted properties.
      */
     public static Map<String, Object> propertiesToMap(PropertyContainer propertyContainer, ObjectInclusionPolicy<String> propertyInclusionPolicy) {
-        Map<String, Object> result = new HashMap<>();
-        for (String key : propertyContainer.getPropertyKeys()) {
-            if (propertyInclusionPolicy.include(key)) {
-                result.put(key, propertyContainer.getProperty(key));
+        return propertiesToMap(propertyContainer, propertyInclusionPolicy, new HashMap<String, Object>());
+    }
+
+    /**
+     * Convert selected properties from a {@link org.neo4j.graphdb.PropertyContainer} into a given {@link java.util.Map},
+     * where the key is the property key and value is the property value. All properties are read from the container
+     * at once and filtered in memory.
+     * <p/>
+     * Intended for serializing many containers in a batch, where a single map can be cleared and re-used for each
+     * container, rather than allocating a new one.
+     *
+     * @param propertyContainer       to convert properties from.
+     * @param propertyInclusionPolicy policy to select which properties to include. Decides based on the property key.
+     * @param target                  map to put the properties into. Existing entries are kept, unless overwritten.
+     * @return the target map.
+     */
+    public static Map<String, Object> propertiesToMap(PropertyContainer propertyContainer, ObjectInclusionPolicy<String> propertyInclusionPolicy, Map<String, Object> target) {
+        for (Map.Entry<String, Object> entry : propertyContainer.getAllProperties().entrySet()) {
+            if (propertyInclusionPolicy.include(entry.getKey())) {
+                target.put(entry.getKey(), entry.getValue());
             }
         }
-        return result;
+        return target;
     }
 
     /**
@@ -215,25 +231,21 @@ public final class PropertyContainerUtils {
      * @return propertyContainer as String.
      */
     public static String propertiesToString(PropertyContainer propertyContainer) {
-        if (!propertyContainer.getPropertyKeys().iterator().hasNext()) {
+        Map<String, Object> properties = new TreeMap<>(propertyContainer.getAllProperties());
+
+        if (properties.isEmpty()) {
             return "";
         }
 
         StringBuilder string = new StringBuilder("{");
 
-        List<String> propertyKeys = new LinkedList<>();
-        for (String key : propertyContainer.getPropertyKeys()) {
-            propertyKeys.add(key);
-        }
-        Collections.sort(propertyKeys);
-
         boolean first = true;
-        for (String key : propertyKeys) {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
             if (!first) {
                 string.append(", ");
             }
             first = false;
-            string.append(key).append(": ").append(valueToString(propertyContainer.getProperty(key)));
+            string.append(entry.getKey()).append(": ").append(valueToString(entry.getValue()));
         }
 
         string.append("}");
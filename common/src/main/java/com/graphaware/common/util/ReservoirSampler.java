@@ -16,21 +16,27 @@
 
 package com.graphaware.common.util;
 
-import java.util.Random;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collector;
 
 /**
  * Sampler that uses the reservoir sampling algorithm, which is useful when the total number of items from which the sample
  * is being taken is unknown in advance.
+ * <p/>
+ * The sampler skips over items between replacements (Algorithm L), so it calls the random number generator far less
+ * often than once per item on large streams. It is thread-safe, but for sampling large inputs in parallel, it is better
+ * to give each thread its own sampler and {@link #merge(ReservoirSampler)} them at the end, e.g. using
+ * {@link #collector(int)} with a parallel stream.
  *
  * @param <T> type of sampled item.
  */
 public class ReservoirSampler<T> {
 
-    private final Vector<T> reservoir = new Vector<>();
+    private final List<T> reservoir = new ArrayList<>();
     private final int numberOfSamples;
-    private final Random random = new Random();
-    private int numberOfItemsSeen = 0;
+    private final ReservoirSlots slots;
 
     /**
      * Create a new sampler with a certain reservoir size.
@@ -38,9 +44,7 @@ public class ReservoirSampler<T> {
      * @param numberOfSamples Maximum number of samples to retain in the reservoir. Must be positive.
      */
     public ReservoirSampler(int numberOfSamples) {
-        if (numberOfSamples <= 0) {
-            throw new IllegalArgumentException("Reservoir must be bigger than 0");
-        }
+        this.slots = new ReservoirSlots(numberOfSamples, new SplittableRandom());
         this.numberOfSamples = numberOfSamples;
     }
 
@@ -49,20 +53,83 @@ public class ReservoirSampler<T> {
      *
      * @param item The item to sample. Must not be null.
      */
-    public void sample(T item) {
+    public synchronized void sample(T item) {
         if (item == null) {
             throw new IllegalArgumentException("Item to random must not be null");
         }
 
-        if (reservoir.size() < numberOfSamples) {
+        int slot = slots.offer();
+        if (slot == ReservoirSlots.SKIP) {
+            return;
+        }
+
+        if (slot == reservoir.size()) {
             reservoir.add(item);
         } else {
-            int index = random.nextInt(numberOfItemsSeen + 1);
-            if (index < numberOfSamples) {
-                reservoir.set(index, item);
+            reservoir.set(slot, item);
+        }
+    }
+
+    /**
+     * Merge this sampler with another one, which has sampled a different stream of items. The result is a uniform
+     * sample of both streams combined. Neither this nor the other sampler is modified.
+     *
+     * @param other sampler to merge with. Must have the same reservoir size.
+     * @return a new sampler, which can be used for further sampling.
+     */
+    public ReservoirSampler<T> merge(ReservoirSampler<T> other) {
+        if (other.numberOfSamples != numberOfSamples) {
+            throw new IllegalArgumentException("Only samplers with the same reservoir size can be merged");
+        }
+
+        List<T> first;
+        long firstSeen;
+        synchronized (this) {
+            first = new ArrayList<>(reservoir);
+            firstSeen = slots.getSeen();
+        }
+
+        List<T> second;
+        long secondSeen;
+        synchronized (other) {
+            second = new ArrayList<>(other.reservoir);
+            secondSeen = other.slots.getSeen();
+        }
+
+        ReservoirSampler<T> result = new ReservoirSampler<>(numberOfSamples);
+        result.slots.merged(firstSeen + secondSeen);
+
+        long firstRemaining = firstSeen, secondRemaining = secondSeen;
+        while (result.reservoir.size() < numberOfSamples && firstRemaining + secondRemaining > 0) {
+            if (result.slots.takeFromFirst(firstRemaining, secondRemaining)) {
+                result.reservoir.add(removeRandom(first, result.slots));
+                firstRemaining--;
+            } else {
+                result.reservoir.add(removeRandom(second, result.slots));
+                secondRemaining--;
             }
         }
-        numberOfItemsSeen++;
+
+        return result;
+    }
+
+    private static <T> T removeRandom(List<T> items, ReservoirSlots slots) {
+        int index = slots.nextIndex(items.size());
+        T result = items.get(index);
+        items.set(index, items.get(items.size() - 1));
+        items.remove(items.size() - 1);
+        return result;
+    }
+
+    /**
+     * Create a {@link Collector} that samples a (potentially parallel) stream.
+     *
+     * @param numberOfSamples Maximum number of samples to retain in the reservoir. Must be positive.
+     * @param <T>             type of sampled item.
+     * @return collector.
+     */
+    public static <T> Collector<T, ?, ReservoirSampler<T>> collector(int numberOfSamples) {
+        return Collector.of(() -> new ReservoirSampler<T>(numberOfSamples), ReservoirSampler::sample, ReservoirSampler::merge);
     }
 
     /**
@@ -70,8 +137,17 @@ public class ReservoirSampler<T> {
      *
      * @return A list of the samples.
      */
-    public Iterable<T> getSamples() {
-        return reservoir;
+    public synchronized Iterable<T> getSamples() {
+        return new ArrayList<>(reservoir);
+    }
+
+    /**
+     * Get the number of items offered to this sampler (or the samplers merged into it).
+     *
+     * @return number of items seen.
+     */
+    public synchronized long getNumberOfItemsSeen() {
+        return slots.getSeen();
     }
 
     /**
@@ -79,7 +155,7 @@ public class ReservoirSampler<T> {
      *
      * @return true iff empty.
      */
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return reservoir.isEmpty();
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Decides which slot of a uniform reservoir of a fixed size, if any, each offered item should be stored in.
+ * <p/>
+ * Uses Li's Algorithm L, which computes how many items to skip before the next replacement, so that the random number
+ * generator is called O(k(1 + log(N/k))) times for a stream of N items, rather than once per item. Once
+ * {@link #merged(long)} has been called, the skip distribution is no longer known and the classic Algorithm R (one
+ * random number per item) is used instead.
+ * <p/>
+ * This class is not thread-safe.
+ */
+final class ReservoirSlots {
+
+    static final int SKIP = -1;
+
+    private final int size;
+    private final SplittableRandom random;
+    private long seen = 0;
+    private boolean skipping = true;
+    private double w;
+    private long next;
+
+    ReservoirSlots(int size, SplittableRandom random) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Reservoir must be bigger than 0");
+        }
+
+        this.size = size;
+        this.random = random;
+    }
+
+    /**
+     * Offer the next item.
+     *
+     * @return index of the reservoir slot the item should be stored in, {@link #SKIP} if the item should be ignored.
+     */
+    int offer() {
+        long index = seen++;
+
+        if (index < size) {
+            if (index == size - 1) {
+                w = Math.exp(Math.log(nextOpenDouble()) / size);
+                next = size + skip();
+            }
+            return (int) index;
+        }
+
+        if (!skipping) {
+            long slot = random.nextLong(index + 1);
+            return slot < size ? (int) slot : SKIP;
+        }
+
+        if (index < next) {
+            return SKIP;
+        }
+
+        w *= Math.exp(Math.log(nextOpenDouble()) / size);
+        next = index + 1 + skip();
+        return random.nextInt(size);
+    }
+
+    private long skip() {
+        double skip = Math.floor(Math.log(nextOpenDouble()) / Math.log(1 - w));
+        return skip >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) skip;
+    }
+
+    private double nextOpenDouble() {
+        double result;
+        do {
+            result = random.nextDouble();
+        } while (result == 0.0);
+        return result;
+    }
+
+    /**
+     * Record that the reservoir now represents a merge of several streams.
+     *
+     * @param totalSeen total number of items seen in the merged streams.
+     */
+    void merged(long totalSeen) {
+        seen = totalSeen;
+        skipping = false;
+    }
+
+    /**
+     * Choose, for the next item of a merged reservoir, which of two reservoirs to take it from. Both reservoirs are
+     * uniform samples of their streams, so the number of items taken from each must be hypergeometrically distributed.
+     *
+     * @param firstRemaining  number of items of the first stream not yet accounted for.
+     * @param secondRemaining number of items of the second stream not yet accounted for.
+     * @return true iff the item should be taken from the first reservoir.
+     */
+    boolean takeFromFirst(long firstRemaining, long secondRemaining) {
+        return random.nextDouble() * (firstRemaining + secondRemaining) < firstRemaining;
+    }
+
+    /**
+     * Get a uniformly distributed random index.
+     *
+     * @param bound exclusive upper bound.
+     * @return index.
+     */
+    int nextIndex(int bound) {
+        return random.nextInt(bound);
+    }
+
+    long getSeen() {
+        return seen;
+    }
+
+    int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongLongMap;
+
+/**
+ * A thread-safe set of counters keyed by primitive longs (typically node or relationship IDs). Intended for very
+ * frequent increments from many threads and occasional draining by a single thread.
+ * <p/>
+ * Keys are spread over a number of stripes, each guarded by its own lock, so that concurrent writers rarely contend.
+ */
+public class StripedCounters {
+
+    private final PrimitiveLongLongMap[] stripes;
+    private final Object[] locks;
+    private final int mask;
+
+    /**
+     * Construct new counters with a number of stripes derived from the number of available processors.
+     */
+    public StripedCounters() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct new counters.
+     *
+     * @param concurrencyLevel expected number of concurrently writing threads. Rounded up to the nearest power of two.
+     *                         Must be positive.
+     */
+    public StripedCounters(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Concurrency level must be positive, was " + concurrencyLevel);
+        }
+
+        int size = Integer.highestOneBit(concurrencyLevel);
+        if (size < concurrencyLevel) {
+            size <<= 1;
+        }
+
+        stripes = new PrimitiveLongLongMap[size];
+        locks = new Object[size];
+        mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            stripes[i] = Primitive.longLongMap();
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Increment the counter for the given key by one.
+     *
+     * @param key to increment the counter for.
+     */
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * Add a delta to the counter for the given key.
+     *
+     * @param key   to add to.
+     * @param delta to add, can be negative.
+     */
+    public void add(long key, long delta) {
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            PrimitiveLongLongMap map = stripes[stripe];
+            map.put(key, valueOf(map, key) + delta);
+        }
+    }
+
+    /**
+     * Get the current count for the given key.
+     *
+     * @param key to get the count for.
+     * @return count, 0 if the key has never been counted (or has been drained since).
+     */
+    public long get(long key) {
+        int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            return valueOf(stripes[stripe], key);
+        }
+    }
+
+    /**
+     * Get the number of distinct keys currently counted.
+     *
+     * @return number of keys.
+     */
+    public int size() {
+        int result = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (locks[i]) {
+                result += stripes[i].size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Atomically (per stripe) take all counts accumulated so far and reset the counters.
+     *
+     * @return map of keys to their accumulated counts. Owned by the caller.
+     */
+    public PrimitiveLongLongMap drain() {
+        PrimitiveLongLongMap result = Primitive.longLongMap();
+
+        for (int i = 0; i < stripes.length; i++) {
+            PrimitiveLongLongMap drained;
+            synchronized (locks[i]) {
+                drained = stripes[i];
+                stripes[i] = Primitive.longLongMap();
+            }
+
+            PrimitiveLongIterator keys = drained.iterator();
+            while (keys.hasNext()) {
+                long key = keys.next();
+                result.put(key, drained.get(key));
+            }
+        }
+
+        return result;
+    }
+
+    private int stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long valueOf(PrimitiveLongLongMap map, long key) {
+        return map.containsKey(key) ? map.get(key) : 0;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Sampler that takes a weighted random sample without replacement from a stream of unknown length, i.e. an item's
+ * chance of being in the sample is proportional to its weight.
+ * <p/>
+ * Uses the A-ExpJ algorithm by Efraimidis and Spirakis: every retained item carries a random key derived from its
+ * weight and the items with the highest keys are kept. Instead of drawing a key for every item, the sampler draws an
+ * exponential jump, i.e. the total weight of items to skip before the next one enters the reservoir, so the random
+ * number generator is only called O(k log(N/k)) times. Keys are kept as logarithms to avoid underflow.
+ * <p/>
+ * As the sample is defined by the keys, merging samplers of different streams is exact: the merged sampler keeps the
+ * items with the highest keys of both.
+ *
+ * @param <T> type of sampled item.
+ */
+public class WeightedReservoirSampler<T> {
+
+    private final PriorityQueue<Keyed<T>> reservoir = new PriorityQueue<>();
+    private final int numberOfSamples;
+    private final SplittableRandom random = new SplittableRandom();
+    private long numberOfItemsSeen = 0;
+    private double jump;
+
+    /**
+     * Create a new sampler with a certain reservoir size.
+     *
+     * @param numberOfSamples Maximum number of samples to retain in the reservoir. Must be positive.
+     */
+    public WeightedReservoirSampler(int numberOfSamples) {
+        if (numberOfSamples <= 0) {
+            throw new IllegalArgumentException("Reservoir must be bigger than 0");
+        }
+        this.numberOfSamples = numberOfSamples;
+    }
+
+    /**
+     * Sample an item and store in the reservoir if needed.
+     *
+     * @param item   The item to sample. Must not be null.
+     * @param weight of the item. Must be positive and finite.
+     */
+    public synchronized void sample(T item, double weight) {
+        if (item == null) {
+            throw new IllegalArgumentException("Item to random must not be null");
+        }
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight must be positive and finite, was " + weight);
+        }
+
+        numberOfItemsSeen++;
+
+        if (reservoir.size() < numberOfSamples) {
+            reservoir.add(new Keyed<>(item, Math.log(nextOpenDouble()) / weight));
+            if (reservoir.size() == numberOfSamples) {
+                newJump();
+            }
+            return;
+        }
+
+        jump -= weight;
+        if (jump > 0) {
+            return;
+        }
+
+        //the item replaces the one with the lowest key; its key is drawn from (threshold^weight, 1)
+        double threshold = Math.exp(reservoir.poll().logKey * weight);
+        double key = threshold + (1 - threshold) * nextOpenDouble();
+        reservoir.add(new Keyed<>(item, Math.log(key) / weight));
+        newJump();
+    }
+
+    private void newJump() {
+        jump = Math.log(nextOpenDouble()) / reservoir.peek().logKey;
+    }
+
+    private double nextOpenDouble() {
+        double result;
+        do {
+            result = random.nextDouble();
+        } while (result == 0.0);
+        return result;
+    }
+
+    /**
+     * Merge this sampler with another one, which has sampled a different stream of items. Neither this nor the other
+     * sampler is modified.
+     *
+     * @param other sampler to merge with. Must have the same reservoir size.
+     * @return a new sampler, which can be used for further sampling.
+     */
+    public WeightedReservoirSampler<T> merge(WeightedReservoirSampler<T> other) {
+        if (other.numberOfSamples != numberOfSamples) {
+            throw new IllegalArgumentException("Only samplers with the same reservoir size can be merged");
+        }
+
+        WeightedReservoirSampler<T> result = new WeightedReservoirSampler<>(numberOfSamples);
+
+        for (WeightedReservoirSampler<T> sampler : Arrays.asList(this, other)) {
+            synchronized (sampler) {
+                result.numberOfItemsSeen += sampler.numberOfItemsSeen;
+                for (Keyed<T> keyed : sampler.reservoir) {
+                    result.reservoir.add(keyed);
+                    if (result.reservoir.size() > numberOfSamples) {
+                        result.reservoir.poll();
+                    }
+                }
+            }
+        }
+
+        if (result.reservoir.size() == numberOfSamples) {
+            result.newJump();
+        }
+
+        return result;
+    }
+
+    /**
+     * Get samples collected in the reservoir.
+     *
+     * @return A list of the samples, in no particular order.
+     */
+    public synchronized List<T> getSamples() {
+        List<T> result = new ArrayList<>(reservoir.size());
+        for (Keyed<T> keyed : reservoir) {
+            result.add(keyed.item);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of items offered to this sampler (or the samplers merged into it).
+     *
+     * @return number of items seen.
+     */
+    public synchronized long getNumberOfItemsSeen() {
+        return numberOfItemsSeen;
+    }
+
+    /**
+     * Is the reservoir empty?
+     *
+     * @return true iff empty.
+     */
+    public synchronized boolean isEmpty() {
+        return reservoir.isEmpty();
+    }
+
+    private static final class Keyed<T> implements Comparable<Keyed<T>> {
+
+        private final T item;
+        private final double logKey;
+
+        private Keyed(T item, double logKey) {
+            this.item = item;
+            this.logKey = logKey;
+        }
+
+        @Override
+        public int compareTo(Keyed<T> o) {
+            return Double.compare(logKey, o.logKey);
+        }
+    }
+}
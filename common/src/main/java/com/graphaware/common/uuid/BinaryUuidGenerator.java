@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+/**
+ * A {@link UuidGenerator} that can produce UUIDs in their binary form, i.e. as a pair of longs, without allocating
+ * a {@link String} (or any other object) per UUID.
+ */
+public interface BinaryUuidGenerator extends UuidGenerator {
+
+    /**
+     * Generate UUIDs and write them into an array as pairs of longs: most significant bits, then least significant bits.
+     *
+     * @param target array to write to. Must have room for 2 * count longs from the offset.
+     * @param offset index in the array to write the first UUID's most significant bits to.
+     * @param count  number of UUIDs to generate.
+     */
+    void generateUuids(long[] target, int offset, int count);
+}
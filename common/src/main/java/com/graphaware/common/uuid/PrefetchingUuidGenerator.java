@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+/**
+ * A {@link BinaryUuidGenerator} decorator that generates UUIDs in batches and hands them out from a thread-local
+ * buffer, so that threads generating many UUIDs (e.g. a module assigning a UUID to every node created in a large
+ * transaction) only touch the shared state of the underlying generator once per batch.
+ * <p/>
+ * Note that a prefetched UUID may be handed out some time after it was generated. For time-ordered generators, this
+ * means UUIDs are ordered per thread, but not necessarily across threads.
+ */
+public class PrefetchingUuidGenerator implements BinaryUuidGenerator {
+
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    private final BinaryUuidGenerator delegate;
+    private final int batchSize;
+    private final ThreadLocal<Buffer> buffers;
+
+    /**
+     * Create a new generator with {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param delegate to generate batches of UUIDs.
+     */
+    public PrefetchingUuidGenerator(BinaryUuidGenerator delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a new generator.
+     *
+     * @param delegate  to generate batches of UUIDs.
+     * @param batchSize number of UUIDs to prefetch per thread. Must be positive.
+     */
+    public PrefetchingUuidGenerator(BinaryUuidGenerator delegate, final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+        }
+
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.buffers = ThreadLocal.withInitial(() -> new Buffer(batchSize));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generateUuid() {
+        Buffer buffer = buffers.get();
+        if (buffer.isEmpty()) {
+            buffer.refill(delegate);
+        }
+
+        int index = 2 * buffer.position++;
+        return UuidUtils.toString(buffer.uuids[index], buffer.uuids[index + 1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Requests for more UUIDs than the batch size bypass the buffer.
+     */
+    @Override
+    public void generateUuids(long[] target, int offset, int count) {
+        if (count > batchSize) {
+            delegate.generateUuids(target, offset, count);
+            return;
+        }
+
+        Buffer buffer = buffers.get();
+        for (int i = 0; i < count; i++) {
+            if (buffer.isEmpty()) {
+                buffer.refill(delegate);
+            }
+            int index = 2 * buffer.position++;
+            target[offset + 2 * i] = buffer.uuids[index];
+            target[offset + 2 * i + 1] = buffer.uuids[index + 1];
+        }
+    }
+
+    private static final class Buffer {
+
+        private final long[] uuids;
+        private int position;
+
+        private Buffer(int size) {
+            this.uuids = new long[2 * size];
+            this.position = size;
+        }
+
+        private boolean isEmpty() {
+            return 2 * position >= uuids.length;
+        }
+
+        private void refill(BinaryUuidGenerator generator) {
+            generator.generateUuids(uuids, 0, uuids.length / 2);
+            position = 0;
+        }
+    }
+}
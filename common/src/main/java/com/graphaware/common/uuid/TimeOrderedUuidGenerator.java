@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BinaryUuidGenerator} producing time-ordered, version 7 UUIDs as per RFC 9562.
+ * <p/>
+ * The most significant 48 bits are the Unix timestamp in milliseconds, followed by the version and a 12-bit counter,
+ * which makes UUIDs generated by one instance strictly increasing (in both binary and String form), even within the
+ * same millisecond. If more than 4096 UUIDs are requested within a millisecond, the counter carries into the timestamp,
+ * which then runs slightly ahead of the clock. The least significant bits are the variant and 62 random bits, which
+ * keep UUIDs generated by different instances (e.g. in a cluster) unique.
+ * <p/>
+ * Because consecutive UUIDs share prefixes, inserting them into a B-tree index touches only its rightmost pages,
+ * unlike random UUIDs, which fragment the index.
+ * <p/>
+ * This class is thread-safe and lock-free. Generating a batch of UUIDs using {@link #generateUuids(long[], int, int)}
+ * reserves all their counter values at once.
+ */
+public class TimeOrderedUuidGenerator implements BinaryUuidGenerator {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    /**
+     * Timestamp in milliseconds shifted left by 12 bits, plus counter, of the last generated UUID.
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String generateUuid() {
+        long sequence = reserve(1);
+        return UuidUtils.toString(mostSignificantBits(sequence), leastSignificantBits());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void generateUuids(long[] target, int offset, int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        long sequence = reserve(count);
+        for (int i = 0; i < count; i++) {
+            target[offset + 2 * i] = mostSignificantBits(sequence + i);
+            target[offset + 2 * i + 1] = leastSignificantBits();
+        }
+    }
+
+    /**
+     * Reserve a range of consecutive sequence values.
+     *
+     * @param count number of values.
+     * @return first value of the range.
+     */
+    private long reserve(int count) {
+        long now = currentTimeMillis() << 12;
+
+        while (true) {
+            long previous = last.get();
+            long first = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, first + count - 1)) {
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Get the current time. Protected for testing.
+     *
+     * @return current time in milliseconds.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static long mostSignificantBits(long sequence) {
+        return (sequence >>> 12) << 16 | VERSION | (sequence & 0xFFF);
+    }
+
+    private static long leastSignificantBits() {
+        return VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+    }
+}
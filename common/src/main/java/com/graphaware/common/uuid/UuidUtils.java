@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+/**
+ * Utility methods for UUIDs represented as pairs of longs.
+ */
+public final class UuidUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private UuidUtils() {
+    }
+
+    /**
+     * Format a UUID in the canonical 8-4-4-4-12 form, e.g. "01890a5d-ac96-774b-bcce-b302099a8057". Equivalent to
+     * {@code new java.util.UUID(mostSignificantBits, leastSignificantBits).toString()}, but allocates nothing but the
+     * resulting String.
+     *
+     * @param mostSignificantBits  of the UUID.
+     * @param leastSignificantBits of the UUID.
+     * @return formatted UUID.
+     */
+    public static String toString(long mostSignificantBits, long leastSignificantBits) {
+        char[] result = new char[36];
+
+        writeHex(result, 0, mostSignificantBits >>> 32, 8);
+        result[8] = '-';
+        writeHex(result, 9, mostSignificantBits >>> 16, 4);
+        result[13] = '-';
+        writeHex(result, 14, mostSignificantBits, 4);
+        result[18] = '-';
+        writeHex(result, 19, leastSignificantBits >>> 48, 4);
+        result[23] = '-';
+        writeHex(result, 24, leastSignificantBits, 12);
+
+        return new String(result);
+    }
+
+    private static void writeHex(char[] target, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            target[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Get the Unix timestamp in milliseconds of a time-ordered (version 7) UUID.
+     *
+     * @param mostSignificantBits of the UUID.
+     * @return timestamp.
+     */
+    public static long timestamp(long mostSignificantBits) {
+        return mostSignificantBits >>> 16;
+    }
+}
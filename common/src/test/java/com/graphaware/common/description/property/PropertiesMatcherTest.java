@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.description.property;
+
+import org.junit.Test;
+
+import static com.graphaware.common.description.predicate.Predicates.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for {@link PropertiesMatcher}.
+ */
+public class PropertiesMatcherTest extends PropertiesDescriptionTest {
+
+    @Test
+    public void compiledWildcardDescriptionsShouldMatchLikeLiteralDescriptions() {
+        verify(wildcard());
+        verify(wildcard("two", any()));
+        verify(wildcard("two", equalTo(2)));
+        verify(wildcard("two", equalTo(2L)));
+        verify(wildcard("two", equalTo(3)));
+        verify(wildcard("two", greaterThan(1)));
+        verify(wildcard("two", greaterThan(2)));
+        verify(wildcard("two", greaterThan(1L)));
+        verify(wildcard("two", lessThan(3)));
+        verify(wildcard("two", lessThan(2)));
+        verify(wildcard("two", greaterThanOrEqualTo(2)));
+        verify(wildcard("two", lessThanOrEqualTo(1)));
+        verify(wildcard("two", undefined()));
+        verify(wildcard("three", equalTo("3")));
+        verify(wildcard("three", greaterThan(2)));
+        verify(wildcard("array", equalTo(new int[]{4, 5})));
+        verify(wildcard("array", equalTo(new int[]{4})));
+        verify(wildcard("array", greaterThan(2)));
+        verify(wildcard("non-existing", undefined()));
+        verify(wildcard("non-existing", equalTo(2)));
+        verify(wildcard("non-existing", lessThan(2)));
+        verify(wildcard("non-existing", any()));
+        verify(wildcard("two", equalTo(2), "three", equalTo("3"), "non-existing", undefined()));
+        verify(wildcard("two", equalTo(2), "three", equalTo("4")));
+    }
+
+    @Test
+    public void compiledLiteralDescriptionsShouldMatchLikeLiteralDescriptions() {
+        verify(literal());
+        verify(literal("two", equalTo(2)));
+        verify(literal("two", equalTo(2), "three", equalTo("3"), "array", equalTo(new int[]{4, 5})));
+        verify(literal("two", any(), "three", any(), "array", any()));
+    }
+
+    private void verify(DetachedPropertiesDescription description) {
+        assertEquals(description.toString(), literal().isMoreSpecificThan(description), PropertiesMatcher.compile(description).matches(propertyContainer));
+    }
+}
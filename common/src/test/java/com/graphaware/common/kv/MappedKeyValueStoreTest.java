@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.kv;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.NotFoundException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link MappedKeyValueStore}.
+ */
+public class MappedKeyValueStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private MappedKeyValueStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.getRoot();
+        store = open();
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    private MappedKeyValueStore open() throws IOException {
+        return new MappedKeyValueStore(directory, 4096, 2);
+    }
+
+    private MappedKeyValueStore reopen() throws IOException {
+        store.close();
+        store = open();
+        return store;
+    }
+
+    @Test
+    public void valuesShouldBeStoredAndRemoved() {
+        assertFalse(store.hasKey("a"));
+        assertEquals("default", store.get("a", "default"));
+
+        store.set("a", 1L);
+        store.set("b", "two");
+        store.set("c", new int[]{3, 4});
+        store.set("a", 5L);
+
+        assertTrue(store.hasKey("a"));
+        assertEquals(5L, store.get("a"));
+        assertEquals("two", store.get("b", "default"));
+        assertArrayEquals(new int[]{3, 4}, (int[]) store.get("c"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), toSet(store.getKeys()));
+
+        assertEquals("two", store.remove("b"));
+        assertNull(store.remove("b"));
+        assertFalse(store.hasKey("b"));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void gettingNonExistingKeyShouldThrowException() {
+        store.get("missing");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedValuesShouldBeRejected() {
+        store.set("a", new Object());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValuesShouldBeRejected() {
+        store.set("a", null);
+    }
+
+    @Test
+    public void valuesShouldSurviveReopening() throws IOException {
+        store.set("a", 1L);
+        store.set("b", "two");
+        store.remove("a");
+
+        reopen();
+
+        assertFalse(store.hasKey("a"));
+        assertEquals("two", store.get("b"));
+    }
+
+    @Test
+    public void logShouldBeCompactedWhenFull() throws IOException {
+        for (int i = 0; i < 10_000; i++) {
+            store.set("key" + (i % 50), i);
+        }
+
+        assertEquals(50, toSet(store.getKeys()).size());
+        assertEquals(9999, store.get("key49"));
+        assertEquals(1, storeFiles().size());
+
+        reopen();
+
+        assertEquals(50, toSet(store.getKeys()).size());
+        assertEquals(9950, store.get("key0"));
+    }
+
+    @Test
+    public void logShouldGrowWhenLiveDataDoesNotFit() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            store.set("key" + i, "value" + i);
+        }
+
+        reopen();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value" + i, store.get("key" + i));
+        }
+    }
+
+    @Test
+    public void explicitCompactionShouldPreserveValues() {
+        store.set("a", 1L);
+        store.set("a", 2L);
+        store.set("b", true);
+
+        store.compact();
+
+        assertEquals(2L, store.get("a"));
+        assertEquals(true, store.get("b"));
+    }
+
+    @Test
+    public void tornWriteShouldBeDiscardedOnRecovery() throws IOException {
+        store.set("a", "1");
+        store.set("b", "2");
+        store.close();
+
+        File file = storeFiles().get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int position = MappedKeyValueFile.HEADER_SIZE;
+            int last = position;
+            int length;
+            while ((length = readInt(raf, position)) != 0) {
+                last = position;
+                position += 8 + length;
+            }
+            raf.seek(last + MappedKeyValueFile.FRAME_HEADER_SIZE);
+            raf.write(0x7F);
+        }
+
+        store = open();
+
+        assertEquals("1", store.get("a"));
+        assertFalse(store.hasKey("b"));
+
+        store.set("c", "3");
+        reopen();
+
+        assertEquals("1", store.get("a"));
+        assertEquals("3", store.get("c"));
+        assertFalse(store.hasKey("b"));
+    }
+
+    @Test
+    public void snapshotShouldBeRestored() throws IOException {
+        store.set("a", "before");
+        store.set("b", 1);
+        store.snapshot(10);
+
+        store.set("a", "after");
+        store.remove("b");
+        store.set("c", 2);
+
+        reopen();
+
+        assertEquals(Arrays.asList(10L), store.getSnapshotTransactionIds());
+        assertEquals(-1, store.getRestoredTransactionId());
+
+        store.restoreSnapshot(10);
+
+        assertEquals("before", store.get("a"));
+        assertEquals(1, store.get("b"));
+        assertFalse(store.hasKey("c"));
+        assertEquals(10, store.getRestoredTransactionId());
+
+        store.set("c", 3);
+        reopen();
+
+        assertEquals("before", store.get("a"));
+        assertEquals(3, store.get("c"));
+        assertEquals(10, store.getRestoredTransactionId());
+    }
+
+    @Test
+    public void onlyMostRecentSnapshotsShouldBeKept() {
+        store.set("a", 1);
+        store.snapshot(1);
+        store.snapshot(3);
+        store.snapshot(2);
+        store.snapshot(4);
+
+        assertEquals(Arrays.asList(3L, 4L), store.getSnapshotTransactionIds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restoringNonExistingSnapshotShouldFail() {
+        store.restoreSnapshot(42);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedStoreShouldRejectWrites() {
+        store.close();
+        store.set("a", 1);
+    }
+
+    @Test
+    public void concurrentWritesAndReadsShouldBeSafe() throws Exception {
+        store.set("shared", "value");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    store.set("thread" + thread + "-" + (i % 20), (long) i);
+                    assertEquals("value", store.get("shared"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        reopen();
+
+        for (int t = 0; t < 8; t++) {
+            assertEquals(1999L, store.get("thread" + t + "-19"));
+        }
+        assertEquals(8 * 20 + 1, toSet(store.getKeys()).size());
+    }
+
+    private List<File> storeFiles() {
+        List<File> result = new ArrayList<>();
+        for (File file : directory.listFiles()) {
+            if (file.getName().startsWith("store-")) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static int readInt(RandomAccessFile raf, int position) throws IOException {
+        raf.seek(position);
+        return raf.readInt();
+    }
+
+    private static HashSet<String> toSet(Iterable<String> keys) {
+        HashSet<String> result = new HashSet<>();
+        for (String key : keys) {
+            result.add(key);
+        }
+        return result;
+    }
+}
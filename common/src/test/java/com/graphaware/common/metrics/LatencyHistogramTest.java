@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramShouldReportZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void bucketsShouldCoverAllValuesWithBoundedError() {
+        for (long value = 0; value < 100_000; value++) {
+            assertBucketContains(value);
+        }
+        for (long value = 100_000; value < LatencyHistogram.MAX_VALUE; value = value * 3 / 2 + 7) {
+            assertBucketContains(value);
+        }
+    }
+
+    private void assertBucketContains(long value) {
+        long highest = LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(value));
+        assertTrue(highest >= value);
+        assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void percentilesShouldBeAccurateWithinBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_500, histogram.getMean(), 1);
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+        assertEquals(9.9, histogram.getPercentile(99, TimeUnit.MILLISECONDS), 9.9 / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void hugeAndNegativeValuesShouldBeClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void resetShouldClearHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void concurrentRecordingShouldNotLoseValues() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(99_999, histogram.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentileShouldFail() {
+        new LatencyHistogram().getPercentile(101);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link Meter}.
+ */
+public class MeterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private Meter meter;
+
+    @Before
+    public void setUp() {
+        clock.set(TimeUnit.HOURS.toNanos(1));
+        meter = new Meter() {
+            @Override
+            protected long nanoTime() {
+                return clock.get();
+            }
+        };
+    }
+
+    @Test
+    public void newMeterShouldReportZeros() {
+        assertEquals(0, meter.getCount());
+        assertEquals(0, meter.getMeanRate(), 0);
+        assertEquals(0, meter.getOneMinuteRate(), 0);
+        assertEquals(0, meter.getFifteenMinuteRate(), 0);
+    }
+
+    @Test
+    public void meanRateShouldBeComputed() {
+        meter.mark(100);
+        advance(10);
+
+        assertEquals(100, meter.getCount());
+        assertEquals(10, meter.getMeanRate(), 0.001);
+    }
+
+    @Test
+    public void ratesShouldBeInitializedByFirstTick() {
+        meter.mark(50);
+        advance(Meter.TICK_SECONDS);
+
+        assertEquals(10, meter.getOneMinuteRate(), 0.001);
+        assertEquals(10, meter.getFiveMinuteRate(), 0.001);
+        assertEquals(10, meter.getFifteenMinuteRate(), 0.001);
+    }
+
+    @Test
+    public void ratesShouldConvergeToSteadyRate() {
+        for (int i = 0; i < 24 * 60; i++) {
+            meter.mark(i == 0 ? 0 : 100);
+            advance(Meter.TICK_SECONDS);
+        }
+
+        assertEquals(20, meter.getOneMinuteRate(), 0.01);
+        assertEquals(20, meter.getFiveMinuteRate(), 0.01);
+        assertEquals(20, meter.getFifteenMinuteRate(), 0.1);
+    }
+
+    @Test
+    public void ratesShouldDecayWhenIdle() {
+        meter.mark(50);
+        advance(Meter.TICK_SECONDS);
+        assertEquals(10, meter.getOneMinuteRate(), 0.001);
+
+        advance(60);
+        double decayed = meter.getOneMinuteRate();
+        assertEquals(10 / Math.E, decayed, 0.01);
+        assertTrue(meter.getFifteenMinuteRate() > decayed);
+
+        advance(TimeUnit.DAYS.toSeconds(1));
+        assertEquals(0, meter.getOneMinuteRate(), 0.001);
+    }
+
+    @Test
+    public void resetShouldForgetEverything() {
+        meter.mark(50);
+        advance(Meter.TICK_SECONDS);
+        meter.reset();
+
+        assertEquals(0, meter.getCount());
+        assertEquals(0, meter.getOneMinuteRate(), 0);
+        assertEquals(0, meter.getMeanRate(), 0);
+    }
+
+    @Test
+    public void concurrentMarksShouldAllBeCounted() throws InterruptedException {
+        Meter realMeter = new Meter();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    realMeter.mark();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(800_000, realMeter.getCount());
+    }
+
+    private void advance(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link MetricRegistry}.
+ */
+public class MetricRegistryTest {
+
+    private final MetricRegistry registry = new MetricRegistry();
+
+    @Test
+    public void metricsShouldBeCreatedOnceAndReturnedAgain() {
+        Counter counter = registry.counter("module", "counter");
+        counter.increment();
+        counter.increment(4);
+        counter.decrement();
+
+        assertSame(counter, registry.counter("module", "counter"));
+        assertSame(registry.meter("module", "meter"), registry.meter("module", "meter"));
+        assertSame(registry.histogram("module", "histogram"), registry.histogram("module", "histogram"));
+        assertNotSame(counter, registry.counter("other", "counter"));
+
+        assertEquals(4, registry.counter("module", "counter").getCount());
+        assertSame(counter, registry.getMetric("module", "counter"));
+        assertNull(registry.getMetric("module", "unknown"));
+        assertNull(registry.getMetric("unknown", "counter"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentTypesShouldNotShareName() {
+        registry.counter("module", "metric");
+        registry.meter("module", "metric");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gaugeShouldNotReplaceOtherMetric() {
+        registry.counter("module", "metric");
+        registry.gauge("module", "metric", () -> 1);
+    }
+
+    @Test
+    public void gaugeShouldBeReplaceable() {
+        AtomicInteger value = new AtomicInteger(5);
+        registry.gauge("module", "gauge", () -> 1);
+        Gauge gauge = registry.gauge("module", "gauge", value::get);
+
+        assertSame(gauge, registry.getMetric("module", "gauge"));
+        assertEquals(5, registry.getReport("module").get("gauge").get("value").doubleValue(), 0);
+
+        value.set(7);
+        assertEquals(7, registry.getReport("module").get("gauge").get("value").doubleValue(), 0);
+    }
+
+    @Test
+    public void reportShouldContainAllMetrics() {
+        registry.counter("b", "counter").increment(3);
+        registry.meter("a", "meter").mark(2);
+        registry.histogram("a", "latency").record(2_000_000);
+
+        Map<String, Map<String, Map<String, Number>>> report = registry.getReport();
+
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(report.keySet().toArray()));
+        assertEquals(3L, report.get("b").get("counter").get("count"));
+        assertEquals(2L, report.get("a").get("meter").get("count"));
+        assertEquals(1L, report.get("a").get("latency").get("count"));
+        assertEquals(2.0, report.get("a").get("latency").get("max").doubleValue(), 0.001);
+
+        Map<String, Double> statistics = registry.getStatistics();
+        assertEquals(3.0, statistics.get("b.counter.count"), 0);
+        assertTrue(statistics.containsKey("a.latency.p99"));
+        assertTrue(statistics.containsKey("a.meter.m1Rate"));
+    }
+
+    @Test
+    public void resetShouldResetAllMetrics() {
+        registry.counter("module", "counter").increment(3);
+        registry.histogram("module", "latency").record(100);
+        registry.gauge("module", "gauge", () -> 1);
+
+        registry.reset();
+
+        assertEquals(0, registry.counter("module", "counter").getCount());
+        assertEquals(0, registry.histogram("module", "latency").getCount());
+        assertEquals(1, registry.getReport("module").get("gauge").get("value").doubleValue(), 0);
+    }
+
+    @Test
+    public void metricsShouldBeRemovable() {
+        registry.counter("module", "a");
+        registry.counter("module", "b");
+        registry.counter("other", "a");
+
+        registry.remove("module", "a");
+        assertEquals(new HashSet<>(Arrays.asList("b")), registry.getReport("module").keySet());
+
+        registry.removeAll("module");
+        assertEquals(new HashSet<>(Arrays.asList("other")), registry.getModuleIds());
+        assertTrue(registry.getReport("module").isEmpty());
+    }
+}
@@ -55,6 +55,19 @@ public class SpelNodeInclusionPolicyTest extends SpelInclusionPolicyTest {
         policy7 = new SpelNodeInclusionPolicy("hasLabel('Intern') || hasLabel('Employee')");
     }
 
+    @Test
+    public void onlyProvablyPureExpressionsShouldBeDeterministic() {
+        assertTrue(((SpelNodeInclusionPolicy) policy1).isDeterministic());
+        assertTrue(((SpelNodeInclusionPolicy) policy5).isDeterministic());
+        assertTrue(new SpelNodeInclusionPolicy("getProperty('name', '').toLowerCase().startsWith('m')").isDeterministic());
+
+        assertFalse(new SpelNodeInclusionPolicy("T(java.lang.Math).random() > 0.5").isDeterministic());
+        assertFalse(new SpelNodeInclusionPolicy("hasLabel('Employee') && T(System).currentTimeMillis() > 0").isDeterministic());
+        assertFalse(new SpelNodeInclusionPolicy("new java.util.Random().nextBoolean()").isDeterministic());
+        assertFalse(new SpelNodeInclusionPolicy("getProperties().put('x', 1) == null").isDeterministic());
+        assertFalse(new SpelNodeInclusionPolicy("getProperty('name', '').class.name == 'java.lang.String'").isDeterministic());
+    }
+
     @Test
     public void shouldIncludeCorrectNodes() {
         try (Transaction tx = database.beginTx()) {
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link AliasTable}.
+ */
+public class AliasTableTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyWeightsShouldBeRejected() {
+        new AliasTable(new double[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWeightsShouldBeRejected() {
+        new AliasTable(new double[]{1, -1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allZeroWeightsShouldBeRejected() {
+        new AliasTable(new double[]{0, 0});
+    }
+
+    @Test
+    public void zeroWeightIndexShouldNeverBeSampled() {
+        AliasTable table = new AliasTable(new double[]{0, 1, 0});
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1, table.sample());
+        }
+    }
+
+    @Test
+    public void samplesShouldBeProportionalToWeights() {
+        AliasTable table = new AliasTable(new double[]{1, 2, 7});
+        Random random = new Random(42);
+
+        int[] counts = new int[3];
+        int total = 100_000;
+        for (int i = 0; i < total; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        assertEquals(0.1, counts[0] / (double) total, 0.01);
+        assertEquals(0.2, counts[1] / (double) total, 0.01);
+        assertEquals(0.7, counts[2] / (double) total, 0.01);
+        assertEquals(3, table.size());
+    }
+}
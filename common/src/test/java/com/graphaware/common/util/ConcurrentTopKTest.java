@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ConcurrentTopK}.
+ */
+public class ConcurrentTopKTest {
+
+    @Test
+    public void emptyTopKShouldProduceEmptyList() {
+        assertTrue(new ConcurrentTopK<String>(10).getItems().isEmpty());
+    }
+
+    @Test
+    public void itemsShouldBeCorrectlySorted() {
+        ConcurrentTopK<String> topK = new ConcurrentTopK<>(3);
+
+        topK.add("one", 10);
+        topK.add("two", 1);
+        topK.add("three", 2);
+        topK.add("four", 4);
+
+        assertEquals(Arrays.asList("one", "four", "three"), topK.getItems());
+
+        topK.add("five", 1);
+        topK.add("two", 3);
+        topK.add("three", 5);
+        topK.add("two", 6);
+        topK.add("two", 7);
+
+        assertEquals(Arrays.asList("one", "two", "three"), topK.getItems());
+        assertEquals(7.0, topK.getQuantity("two"), 0.0);
+        assertNull(topK.getQuantity("four"));
+    }
+
+    @Test
+    public void maxCapacityShouldRememberMoreItemsThanReturned() {
+        ConcurrentTopK<String> topK = new ConcurrentTopK<>(3, 4);
+
+        topK.add("a", 100);
+        topK.add("b", 90);
+        topK.add("c", 80);
+        topK.add("d", 79);
+        assertFalse(topK.add("e", 78));
+
+        assertEquals(Arrays.asList("a", "b", "c"), topK.getItems());
+        assertEquals(4, topK.size());
+
+        topK.add("c", 70);
+
+        assertEquals(Arrays.asList("a", "b", "d"), topK.getItems());
+    }
+
+    @Test
+    public void tiesShouldBeOrderedByAddition() {
+        ConcurrentTopK<String> topK = new ConcurrentTopK<>(2);
+
+        topK.add("one", 1);
+        topK.add("two", 1);
+        assertFalse(topK.add("three", 1));
+
+        assertEquals(Arrays.asList("one", "two"), topK.getItems());
+    }
+
+    @Test
+    public void removedItemsShouldMakeRoomForNewOnes() {
+        ConcurrentTopK<String> topK = new ConcurrentTopK<>(2);
+
+        topK.add("one", 10);
+        topK.add("two", 5);
+        assertTrue(topK.remove("one"));
+        assertFalse(topK.remove("one"));
+        assertTrue(topK.add("three", 1));
+
+        assertEquals(Arrays.asList("two", "three"), topK.getItems());
+    }
+
+    @Test
+    public void topKsShouldBeMerged() {
+        ConcurrentTopK<String> first = new ConcurrentTopK<>(3);
+        first.add("a", 10);
+        first.add("b", 5);
+        first.add("c", 1);
+
+        ConcurrentTopK<String> second = new ConcurrentTopK<>(3);
+        second.add("d", 8);
+        second.add("b", 7);
+        second.add("e", 6);
+
+        ConcurrentTopK<String> merged = ConcurrentTopK.merge(3, Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList("a", "d", "b"), merged.getItems());
+        assertEquals(7.0, merged.getQuantity("b"), 0.0);
+    }
+
+    @Test
+    public void concurrentAdditionsShouldKeepTheHighestQuantities() throws InterruptedException {
+        final ConcurrentTopK<Integer> topK = new ConcurrentTopK<>(10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 100000; j++) {
+                    int item = ThreadLocalRandom.current().nextInt(1000000);
+                    topK.add(item, item);
+                }
+                topK.add(1000000 + 1, 1000000 + 1);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        List<Integer> items = topK.getItems();
+        assertEquals(10, items.size());
+        assertEquals(10, topK.size());
+        assertEquals(1000001, (int) items.get(0));
+        for (int i = 1; i < items.size(); i++) {
+            assertTrue(items.get(i - 1) > items.get(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nanQuantitiesShouldBeRejected() {
+        new ConcurrentTopK<String>(3).add("one", Double.NaN);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+
+import static com.graphaware.common.util.ReservoirSamplerTest.assertRoughlyUniform;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for {@link LongReservoirSampler}.
+ */
+public class LongReservoirSamplerTest {
+
+    @Test
+    public void smallStreamShouldBeSampledCompletely() {
+        LongReservoirSampler sampler = new LongReservoirSampler(10);
+
+        sampler.sample(3);
+        sampler.sample(7);
+
+        assertArrayEquals(new long[]{3, 7}, sampler.getSamples());
+    }
+
+    @Test
+    public void mergedSamplesShouldBeUniform() {
+        int[] counts = new int[100];
+
+        for (int run = 0; run < 20000; run++) {
+            LongReservoirSampler first = new LongReservoirSampler(5);
+            LongReservoirSampler second = new LongReservoirSampler(5);
+            for (int i = 0; i < 60; i++) {
+                first.sample(i);
+            }
+            for (int i = 60; i < 100; i++) {
+                second.sample(i);
+            }
+
+            long[] samples = first.merge(second).getSamples();
+            assertEquals(5, samples.length);
+
+            for (long sample : samples) {
+                counts[(int) sample]++;
+            }
+        }
+
+        assertRoughlyUniform(counts, 1000);
+    }
+}
@@ -17,6 +17,7 @@
 package com.graphaware.common.util;
 
 import com.graphaware.common.policy.inclusion.ObjectInclusionPolicy;
+import com.graphaware.common.policy.inclusion.all.IncludeAll;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,12 +28,12 @@ import org.neo4j.test.TestGraphDatabaseFactory;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
 import static com.graphaware.common.util.PropertyContainerUtils.*;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 import static org.neo4j.graphdb.Direction.OUTGOING;
 import static org.neo4j.graphdb.RelationshipType.*;
 
@@ -132,6 +133,20 @@ public class PropertyContainerUtilsTest {
         }
     }
 
+    @Test
+    public void verifyPropertiesToReusedMap() {
+        try (Transaction tx = database.beginTx()) {
+            Map<String, Object> target = new HashMap<>();
+
+            assertSame(target, propertiesToMap(database.getNodeById(2), new IncludeAll<String>(), target));
+            assertEquals(Collections.singletonMap("key", (Object) "value"), target);
+
+            target.clear();
+            propertiesToMap(database.getNodeById(1).getSingleRelationship(withName("test"), OUTGOING), new IncludeAll<String>(), target);
+            assertTrue(target.isEmpty());
+        }
+    }
+
     @Test
     public void shouldDeleteNodeWithAllRelationships() {
         database = new TestGraphDatabaseFactory().newImpermanentDatabase();
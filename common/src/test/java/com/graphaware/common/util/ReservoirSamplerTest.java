@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ReservoirSampler}.
+ */
+public class ReservoirSamplerTest {
+
+    @Test
+    public void smallStreamShouldBeSampledCompletely() {
+        ReservoirSampler<Integer> sampler = new ReservoirSampler<>(10);
+        assertTrue(sampler.isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            sampler.sample(i);
+        }
+
+        assertEquals(5, IterableUtils.count(sampler.getSamples()));
+        assertEquals(5, sampler.getNumberOfItemsSeen());
+    }
+
+    @Test
+    public void samplesShouldBeUniform() {
+        int[] counts = new int[100];
+
+        for (int run = 0; run < 20000; run++) {
+            ReservoirSampler<Integer> sampler = new ReservoirSampler<>(5);
+            for (int i = 0; i < 100; i++) {
+                sampler.sample(i);
+            }
+            for (int sample : sampler.getSamples()) {
+                counts[sample]++;
+            }
+        }
+
+        assertRoughlyUniform(counts, 1000);
+    }
+
+    @Test
+    public void mergedSamplesShouldBeUniform() {
+        int[] counts = new int[100];
+
+        for (int run = 0; run < 20000; run++) {
+            ReservoirSampler<Integer> first = new ReservoirSampler<>(5);
+            ReservoirSampler<Integer> second = new ReservoirSampler<>(5);
+            for (int i = 0; i < 3; i++) {
+                first.sample(i);
+            }
+            for (int i = 3; i < 100; i++) {
+                second.sample(i);
+            }
+
+            ReservoirSampler<Integer> merged = first.merge(second);
+            assertEquals(100, merged.getNumberOfItemsSeen());
+            assertEquals(5, IterableUtils.count(merged.getSamples()));
+
+            for (int sample : merged.getSamples()) {
+                counts[sample]++;
+            }
+        }
+
+        assertRoughlyUniform(counts, 1000);
+    }
+
+    @Test
+    public void parallelStreamShouldBeSampled() {
+        ReservoirSampler<Integer> sampler = IntStream.range(0, 100000).boxed().parallel().collect(ReservoirSampler.<Integer>collector(10));
+
+        assertEquals(100000, sampler.getNumberOfItemsSeen());
+        assertEquals(10, IterableUtils.count(sampler.getSamples()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samplersOfDifferentSizesShouldNotBeMerged() {
+        new ReservoirSampler<Integer>(5).merge(new ReservoirSampler<Integer>(6));
+    }
+
+    static void assertRoughlyUniform(int[] counts, int expected) {
+        for (int count : counts) {
+            assertTrue("Count " + count + " too far from " + expected, Math.abs(count - expected) < expected / 5);
+        }
+    }
+}
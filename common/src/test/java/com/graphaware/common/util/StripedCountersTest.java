@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+import org.neo4j.collection.primitive.PrimitiveLongLongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link StripedCounters}.
+ */
+public class StripedCountersTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveConcurrencyLevelShouldBeRejected() {
+        new StripedCounters(0);
+    }
+
+    @Test
+    public void shouldCountAndDrain() {
+        StripedCounters counters = new StripedCounters(3);
+
+        counters.increment(1);
+        counters.increment(1);
+        counters.add(2, 5);
+        counters.add(2, -1);
+
+        assertEquals(2, counters.get(1));
+        assertEquals(4, counters.get(2));
+        assertEquals(0, counters.get(3));
+        assertEquals(2, counters.size());
+
+        PrimitiveLongLongMap drained = counters.drain();
+        assertEquals(2, drained.size());
+        assertEquals(2, drained.get(1));
+        assertEquals(4, drained.get(2));
+
+        assertEquals(0, counters.size());
+        assertEquals(0, counters.get(1));
+    }
+
+    @Test
+    public void shouldCountCorrectlyFromMultipleThreads() throws Exception {
+        final StripedCounters counters = new StripedCounters(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10_000; i++) {
+                        counters.increment(i % 100);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(400, counters.get(i));
+        }
+    }
+}
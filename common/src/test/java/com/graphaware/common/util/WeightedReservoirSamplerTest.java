@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for {@link WeightedReservoirSampler}.
+ */
+public class WeightedReservoirSamplerTest {
+
+    @Test
+    public void itemsShouldBeSampledProportionallyToTheirWeight() {
+        int[] counts = new int[4];
+
+        for (int run = 0; run < 20000; run++) {
+            WeightedReservoirSampler<Integer> sampler = new WeightedReservoirSampler<>(1);
+            for (int i = 0; i < 400; i++) {
+                sampler.sample(i % 4, 1 + i % 4);
+            }
+            counts[sampler.getSamples().get(0)]++;
+        }
+
+        for (int i = 0; i < 4; i++) {
+            int expected = 2000 * (i + 1);
+            assertTrue(Math.abs(counts[i] - expected) < expected / 5);
+        }
+    }
+
+    @Test
+    public void mergedSamplesShouldBeWeighted() {
+        int[] counts = new int[2];
+
+        for (int run = 0; run < 20000; run++) {
+            WeightedReservoirSampler<Integer> first = new WeightedReservoirSampler<>(1);
+            WeightedReservoirSampler<Integer> second = new WeightedReservoirSampler<>(1);
+            first.sample(0, 1);
+            second.sample(1, 3);
+
+            WeightedReservoirSampler<Integer> merged = first.merge(second);
+            assertEquals(2, merged.getNumberOfItemsSeen());
+            counts[merged.getSamples().get(0)]++;
+        }
+
+        assertTrue(Math.abs(counts[0] - 5000) < 1000);
+        assertTrue(Math.abs(counts[1] - 15000) < 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveWeightsShouldBeRejected() {
+        new WeightedReservoirSampler<String>(1).sample("one", 0);
+    }
+}
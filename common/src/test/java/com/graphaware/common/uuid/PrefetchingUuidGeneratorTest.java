@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for {@link PrefetchingUuidGenerator}.
+ */
+public class PrefetchingUuidGeneratorTest {
+
+    @Test
+    public void shouldBeNoDuplicatesWithConcurrentAccess() throws InterruptedException {
+        final Set<String> uuids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final UuidGenerator generator = new PrefetchingUuidGenerator(new TimeOrderedUuidGenerator(), 10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 10; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    uuids.add(generator.generateUuid());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(10000, uuids.size());
+    }
+
+    @Test
+    public void uuidsShouldBeIncreasingWithinThread() {
+        BinaryUuidGenerator generator = new PrefetchingUuidGenerator(new TimeOrderedUuidGenerator(), 7);
+
+        long[] uuids = new long[2 * 30];
+        generator.generateUuids(uuids, 0, 5);
+        generator.generateUuids(uuids, 10, 25);
+
+        String previous = generator.generateUuid();
+        for (int i = 0; i < 100; i++) {
+            String next = generator.generateUuid();
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+
+        for (int i = 2; i < uuids.length; i += 2) {
+            assertTrue(uuids[i] > uuids[i - 2]);
+        }
+    }
+}
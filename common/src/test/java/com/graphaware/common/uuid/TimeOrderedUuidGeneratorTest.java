@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.common.uuid;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link TimeOrderedUuidGenerator}.
+ */
+public class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    public void uuidsShouldBeValidVersion7() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(new TimeOrderedUuidGenerator().generateUuid());
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        long timestamp = UuidUtils.timestamp(uuid.getMostSignificantBits());
+        assertTrue(timestamp >= before && timestamp <= after);
+    }
+
+    @Test
+    public void uuidsShouldBeStrictlyIncreasingWithinTheSameMillisecond() {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator() {
+            @Override
+            protected long currentTimeMillis() {
+                return 1500000000000L;
+            }
+        };
+
+        String previous = generator.generateUuid();
+        for (int i = 0; i < 10000; i++) {
+            String next = generator.generateUuid();
+            assertTrue(next.compareTo(previous) > 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void batchesShouldBeStrictlyIncreasing() {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+
+        long[] uuids = new long[2 * 100];
+        generator.generateUuids(uuids, 0, 50);
+        generator.generateUuids(uuids, 100, 50);
+
+        for (int i = 2; i < uuids.length; i += 2) {
+            assertTrue(uuids[i] > uuids[i - 2]);
+        }
+    }
+
+    @Test
+    public void binaryUuidsShouldBeFormattedLikeJavaUuids() {
+        long[] uuids = new long[2];
+        new TimeOrderedUuidGenerator().generateUuids(uuids, 0, 1);
+
+        assertEquals(new UUID(uuids[0], uuids[1]).toString(), UuidUtils.toString(uuids[0], uuids[1]));
+        assertEquals(new UUID(-1L, 0L).toString(), UuidUtils.toString(-1L, 0L));
+    }
+}
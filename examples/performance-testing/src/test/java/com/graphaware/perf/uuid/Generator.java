@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.perf.uuid;
+
+import com.graphaware.common.uuid.EaioUuidGenerator;
+import com.graphaware.common.uuid.PrefetchingUuidGenerator;
+import com.graphaware.common.uuid.TimeOrderedUuidGenerator;
+import com.graphaware.common.uuid.UuidGenerator;
+
+/**
+ * UUID generators compared by the UUID performance tests.
+ */
+enum Generator {
+
+    EAIO {
+        @Override
+        UuidGenerator create() {
+            return new EaioUuidGenerator();
+        }
+    },
+    TIME_ORDERED {
+        @Override
+        UuidGenerator create() {
+            return new TimeOrderedUuidGenerator();
+        }
+    },
+    TIME_ORDERED_PREFETCHING {
+        @Override
+        UuidGenerator create() {
+            return new PrefetchingUuidGenerator(new TimeOrderedUuidGenerator());
+        }
+    };
+
+    abstract UuidGenerator create();
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.perf.uuid;
+
+import com.graphaware.common.uuid.BinaryUuidGenerator;
+import com.graphaware.common.uuid.UuidGenerator;
+import com.graphaware.test.performance.EnumParameter;
+import com.graphaware.test.performance.ExponentialParameter;
+import com.graphaware.test.performance.ObjectParameter;
+import com.graphaware.test.performance.Parameter;
+import com.graphaware.test.performance.PerformanceTest;
+import com.graphaware.test.util.TestUtils;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performance test measuring the cost of generating UUIDs by different {@link Generator}s, concurrently and without
+ * touching the database. Generators capable of it can be asked for binary UUIDs, which avoids String allocation.
+ */
+public class UuidGenerationPerformanceTest implements PerformanceTest {
+
+    private static final int NUMBER_OF_UUIDS = 1_000_000;
+
+    private static final String GENERATOR = "generator";
+    private static final String NUMBER_OF_THREADS = "numberOfThreads";
+    private static final String BINARY = "binary";
+
+    @Override
+    public String shortName() {
+        return "uuidGeneration";
+    }
+
+    @Override
+    public String longName() {
+        return "Generate " + NUMBER_OF_UUIDS + " UUIDs";
+    }
+
+    @Override
+    public List<Parameter> parameters() {
+        List<Parameter> result = new LinkedList<>();
+
+        result.add(new EnumParameter(GENERATOR, Generator.class));
+        result.add(new ExponentialParameter(NUMBER_OF_THREADS, 2, 0, 3, 1));
+        result.add(new ObjectParameter<>(BINARY, false, true));
+
+        return result;
+    }
+
+    @Override
+    public int dryRuns(Map<String, Object> params) {
+        return 2;
+    }
+
+    @Override
+    public int measuredRuns() {
+        return 10;
+    }
+
+    @Override
+    public Map<String, String> databaseParameters(Map<String, Object> params) {
+        return null;
+    }
+
+    @Override
+    public void prepare(GraphDatabaseService database, Map<String, Object> params) {
+    }
+
+    @Override
+    public long run(GraphDatabaseService database, Map<String, Object> params) {
+        final UuidGenerator generator = ((Generator) params.get(GENERATOR)).create();
+        final int numberOfThreads = (Integer) params.get(NUMBER_OF_THREADS);
+        final boolean binary = (Boolean) params.get(BINARY) && generator instanceof BinaryUuidGenerator;
+        final int perThread = NUMBER_OF_UUIDS / numberOfThreads;
+
+        return TestUtils.time(() -> {
+            ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+            for (int t = 0; t < numberOfThreads; t++) {
+                executor.submit(() -> {
+                    if (binary) {
+                        long[] uuids = new long[2];
+                        for (int i = 0; i < perThread; i++) {
+                            ((BinaryUuidGenerator) generator).generateUuids(uuids, 0, 1);
+                        }
+                    } else {
+                        for (int i = 0; i < perThread; i++) {
+                            generator.generateUuid();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Override
+    public RebuildDatabase rebuildDatabase() {
+        return RebuildDatabase.NEVER;
+    }
+
+    @Override
+    public boolean rebuildDatabase(Map<String, Object> params) {
+        return false;
+    }
+}
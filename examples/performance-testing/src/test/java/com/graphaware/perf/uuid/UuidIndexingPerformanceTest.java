@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.perf.uuid;
+
+import com.graphaware.test.performance.EnumParameter;
+import com.graphaware.test.performance.ExponentialParameter;
+import com.graphaware.test.performance.Parameter;
+import com.graphaware.test.performance.PerformanceTest;
+import com.graphaware.test.util.TestUtils;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performance test measuring the throughput of creating nodes with UUIDs looked up by a schema index, for different
+ * {@link Generator}s.
+ */
+public class UuidIndexingPerformanceTest implements PerformanceTest {
+
+    private static final Label LABEL = Label.label("Item");
+    private static final String UUID = "uuid";
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String GENERATOR = "generator";
+    private static final String NUMBER_OF_NODES = "numberOfNodes";
+
+    @Override
+    public String shortName() {
+        return "uuidIndexing";
+    }
+
+    @Override
+    public String longName() {
+        return "Create nodes with indexed UUID properties";
+    }
+
+    @Override
+    public List<Parameter> parameters() {
+        List<Parameter> result = new LinkedList<>();
+
+        result.add(new EnumParameter(GENERATOR, Generator.class));
+        result.add(new ExponentialParameter(NUMBER_OF_NODES, 10, 4, 5, 1));
+
+        return result;
+    }
+
+    @Override
+    public int dryRuns(Map<String, Object> params) {
+        return 1;
+    }
+
+    @Override
+    public int measuredRuns() {
+        return 5;
+    }
+
+    @Override
+    public Map<String, String> databaseParameters(Map<String, Object> params) {
+        return null;
+    }
+
+    @Override
+    public void prepare(GraphDatabaseService database, Map<String, Object> params) {
+        try (Transaction tx = database.beginTx()) {
+            database.schema().indexFor(LABEL).on(UUID).create();
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.schema().awaitIndexesOnline(1, TimeUnit.MINUTES);
+            tx.success();
+        }
+    }
+
+    @Override
+    public long run(final GraphDatabaseService database, Map<String, Object> params) {
+        final UuidGenerator generator = ((Generator) params.get(GENERATOR)).create();
+        final int numberOfNodes = (Integer) params.get(NUMBER_OF_NODES);
+
+        return TestUtils.time(() -> {
+            for (int created = 0; created < numberOfNodes; created += BATCH_SIZE) {
+                try (Transaction tx = database.beginTx()) {
+                    for (int i = created; i < Math.min(created + BATCH_SIZE, numberOfNodes); i++) {
+                        database.createNode(LABEL).setProperty(UUID, generator.generateUuid());
+                    }
+                    tx.success();
+                }
+            }
+        });
+    }
+
+    @Override
+    public RebuildDatabase rebuildDatabase() {
+        return RebuildDatabase.AFTER_EVERY_RUN;
+    }
+
+    @Override
+    public boolean rebuildDatabase(Map<String, Object> params) {
+        return false;
+    }
+}
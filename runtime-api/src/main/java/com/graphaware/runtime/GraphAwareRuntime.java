@@ -16,8 +16,10 @@
 
 package com.graphaware.runtime;
 
+import com.graphaware.common.metrics.MetricRegistry;
 import com.graphaware.runtime.config.RuntimeConfiguration;
 import com.graphaware.runtime.module.RuntimeModule;
+import com.graphaware.runtime.profile.CommitProfiler;
 import com.graphaware.writer.neo4j.Neo4jWriter;
 import org.neo4j.graphdb.NotFoundException;
 
@@ -98,4 +100,19 @@ public interface GraphAwareRuntime {
      * @return writer associated with this runtime.
      */
     Neo4jWriter getDatabaseWriter();
+
+    /**
+     * Get the profiler of the time this runtime adds to the commit path of transactions.
+     *
+     * @return profiler.
+     */
+    CommitProfiler getCommitProfiler();
+
+    /**
+     * Get the registry of metrics reported by this runtime, its modules, and other components running with it.
+     * Metrics of the runtime itself are registered under the {@link CommitProfiler#RUNTIME} module ID.
+     *
+     * @return metric registry.
+     */
+    MetricRegistry getMetricRegistry();
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.config;
+
+/**
+ * What happens to a {@link com.graphaware.runtime.module.TxDrivenModule} when its circuit breaker trips, i.e. when it
+ * keeps exceeding its {@link CommitBudget} or keeps throwing exceptions.
+ */
+public enum CircuitBreakerAction {
+
+    /**
+     * Stop calling the module's synchronous <code>beforeCommit</code>. Modules implementing
+     * {@link com.graphaware.runtime.module.DegradableTxDrivenModule} are called in their cheaper, degraded mode
+     * instead, and the breaker periodically lets a single transaction through to check whether the module has
+     * recovered. Other modules are treated as with {@link #REINITIALIZE}.
+     */
+    DEGRADE,
+
+    /**
+     * Stop calling the module until the database restarts, and mark it for re-initialization, so that it catches up
+     * with the changes it missed on the next start.
+     */
+    REINITIALIZE
+}
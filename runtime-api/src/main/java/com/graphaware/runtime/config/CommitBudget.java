@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable latency budget of a {@link com.graphaware.runtime.module.TxDrivenModule}'s <code>beforeCommit</code>
+ * with fluent interface.
+ * <p/>
+ * A module that exceeds its budget {@link #getTripAfterViolations()} times in a row, or throws an exception
+ * {@link #getTripAfterFailures()} times in a row, trips its circuit breaker. What happens then is determined by the
+ * {@link CircuitBreakerAction}.
+ */
+public final class CommitBudget {
+
+    private static final CommitBudget UNLIMITED = new CommitBudget(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, CircuitBreakerAction.REINITIALIZE);
+
+    private static final int DEFAULT_TRIP_AFTER_VIOLATIONS = 10;
+    private static final int DEFAULT_TRIP_AFTER_FAILURES = 5;
+    private static final long DEFAULT_OPEN_MILLIS = 30_000;
+
+    private final long budgetNanos;
+    private final int tripAfterViolations;
+    private final int tripAfterFailures;
+    private final long openMillis;
+    private final CircuitBreakerAction action;
+
+    /**
+     * Get a budget that is never exceeded and never trips. Modules with such a budget are not timed at all.
+     *
+     * @return unlimited budget.
+     */
+    public static CommitBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Create a budget with default settings: trip after 10 consecutive violations or 5 consecutive exceptions,
+     * {@link CircuitBreakerAction#REINITIALIZE}, re-try degraded modules after 30 seconds.
+     *
+     * @param budgetMillis maximum time a module's <code>beforeCommit</code> should take, in ms. Must be positive.
+     * @return budget.
+     */
+    public static CommitBudget millis(long budgetMillis) {
+        return new CommitBudget(TimeUnit.MILLISECONDS.toNanos(budgetMillis), DEFAULT_TRIP_AFTER_VIOLATIONS, DEFAULT_TRIP_AFTER_FAILURES, DEFAULT_OPEN_MILLIS, CircuitBreakerAction.REINITIALIZE);
+    }
+
+    private CommitBudget(long budgetNanos, int tripAfterViolations, int tripAfterFailures, long openMillis, CircuitBreakerAction action) {
+        if (budgetNanos < 1) {
+            throw new IllegalArgumentException("Budget must be positive, was " + budgetNanos + " ns");
+        }
+        if (tripAfterViolations < 1 || tripAfterFailures < 1) {
+            throw new IllegalArgumentException("Trip thresholds must be positive");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("Open time must not be negative, was " + openMillis);
+        }
+        if (action == null) {
+            throw new IllegalArgumentException("Action must not be null");
+        }
+
+        this.budgetNanos = budgetNanos;
+        this.tripAfterViolations = tripAfterViolations;
+        this.tripAfterFailures = tripAfterFailures;
+        this.openMillis = openMillis;
+        this.action = action;
+    }
+
+    public CommitBudget withTripAfterViolations(int tripAfterViolations) {
+        return new CommitBudget(budgetNanos, tripAfterViolations, tripAfterFailures, openMillis, action);
+    }
+
+    public CommitBudget withTripAfterFailures(int tripAfterFailures) {
+        return new CommitBudget(budgetNanos, tripAfterViolations, tripAfterFailures, openMillis, action);
+    }
+
+    public CommitBudget withOpenMillis(long openMillis) {
+        return new CommitBudget(budgetNanos, tripAfterViolations, tripAfterFailures, openMillis, action);
+    }
+
+    public CommitBudget withAction(CircuitBreakerAction action) {
+        return new CommitBudget(budgetNanos, tripAfterViolations, tripAfterFailures, openMillis, action);
+    }
+
+    /**
+     * @return true iff this is the {@link #unlimited()} budget.
+     */
+    public boolean isUnlimited() {
+        return this.equals(UNLIMITED);
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public int getTripAfterViolations() {
+        return tripAfterViolations;
+    }
+
+    public int getTripAfterFailures() {
+        return tripAfterFailures;
+    }
+
+    /**
+     * @return how long a tripped breaker of a degraded module stays open before a trial call is let through, in ms.
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public CircuitBreakerAction getAction() {
+        return action;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CommitBudget that = (CommitBudget) o;
+
+        if (budgetNanos != that.budgetNanos) return false;
+        if (tripAfterViolations != that.tripAfterViolations) return false;
+        if (tripAfterFailures != that.tripAfterFailures) return false;
+        if (openMillis != that.openMillis) return false;
+        return action == that.action;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = (int) (budgetNanos ^ (budgetNanos >>> 32));
+        result = 31 * result + tripAfterViolations;
+        result = 31 * result + tripAfterFailures;
+        result = 31 * result + (int) (openMillis ^ (openMillis >>> 32));
+        result = 31 * result + action.hashCode();
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return isUnlimited() ? "unlimited" : TimeUnit.NANOSECONDS.toMillis(budgetNanos) + " ms (trip after " + tripAfterViolations
+                + " violations or " + tripAfterFailures + " failures, " + action + ")";
+    }
+}
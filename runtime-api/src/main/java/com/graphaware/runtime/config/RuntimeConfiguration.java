@@ -68,4 +68,12 @@ public interface RuntimeConfiguration {
      * @return statistics collector.
      */
     StatsCollector getStatsCollector();
+
+    /**
+     * Retrieves the {@link CommitBudget} of a {@link com.graphaware.runtime.module.TxDrivenModule}.
+     *
+     * @param moduleId ID of the module.
+     * @return budget, {@link CommitBudget#unlimited()} if none has been configured for the module.
+     */
+    CommitBudget getCommitBudget(String moduleId);
 }
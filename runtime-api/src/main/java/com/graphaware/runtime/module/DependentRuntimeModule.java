@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module;
+
+import java.util.Set;
+
+/**
+ * Specialisation of {@link RuntimeModule} that must only be started once some other modules have started. Modules that
+ * don't implement this interface are treated as independent of all other modules and may be started concurrently with
+ * them.
+ */
+public interface DependentRuntimeModule extends RuntimeModule {
+
+    /**
+     * Get the IDs of modules that must have started before this module starts. Dependencies on modules that aren't
+     * registered, or that are started by a different part of the runtime (e.g. timer-driven modules, which always start
+     * after transaction-driven ones), are ignored.
+     *
+     * @return IDs of modules this module depends on.
+     */
+    Set<String> getDependencies();
+}
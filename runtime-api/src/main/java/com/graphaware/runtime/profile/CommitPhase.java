@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.profile;
+
+/**
+ * Phase of the commit path measured by {@link CommitProfiler}.
+ */
+public enum CommitPhase {
+
+    /**
+     * Wrapping Neo4j's transaction data for the runtime (recorded for {@link CommitProfiler#RUNTIME} only).
+     */
+    SNAPSHOT,
+
+    /**
+     * Building a module's filtered view of the transaction and finding out whether any relevant mutations occurred,
+     * excluding the evaluation of inclusion policies.
+     */
+    FILTERING,
+
+    /**
+     * Evaluating a module's inclusion policies, both while filtering and lazily during the module's
+     * <code>beforeCommit</code>. Decisions memoized for deterministic policies aren't counted.
+     */
+    INCLUSION_POLICIES,
+
+    /**
+     * A module's <code>beforeCommit</code>, including any lazy filtering and snapshotting it triggers, excluding the
+     * evaluation of inclusion policies. Recorded for {@link CommitProfiler#RUNTIME} as the total time the runtime
+     * added before commit.
+     */
+    BEFORE_COMMIT,
+
+    /**
+     * A module's <code>afterCommit</code>. Recorded for {@link CommitProfiler#RUNTIME} as the total time the runtime
+     * added after commit.
+     */
+    AFTER_COMMIT
+}
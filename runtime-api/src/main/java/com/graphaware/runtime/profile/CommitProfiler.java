@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.runtime.profile;
+
+import com.graphaware.common.metrics.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * Profiler of the time the GraphAware runtime adds to the commit path, per module, {@link CommitPhase} and transaction
+ * size. Only a fraction of transactions ({@link #getSampleRate()}) is profiled.
+ */
+public interface CommitProfiler extends CommitProfilerMXBean {
+
+    /**
+     * Module ID under which timings of the runtime as a whole are recorded.
+     */
+    String RUNTIME = "_runtime";
+
+    double DEFAULT_SAMPLE_RATE = 0.01;
+
+    /**
+     * Get a histogram.
+     *
+     * @param moduleId ID of the module, or {@link #RUNTIME}.
+     * @param phase    of the commit path.
+     * @param size     label of the transaction size bucket, e.g. "1-9".
+     * @return histogram, <code>null</code> if nothing has been recorded for the module.
+     */
+    LatencyHistogram getHistogram(String moduleId, CommitPhase phase, String size);
+
+    /**
+     * Produce a report of all non-empty histograms, as nested maps: module ID, phase, transaction size, statistic
+     * (count, mean, p50, p90, p99, p999, max; all but count in ms).
+     *
+     * @return report.
+     */
+    Map<String, Map<String, Map<String, Map<String, Number>>>> getReport();
+}
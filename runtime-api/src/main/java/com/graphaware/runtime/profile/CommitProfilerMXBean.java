@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.profile;
+
+import java.util.Map;
+
+/**
+ * JMX interface of {@link CommitProfiler}.
+ */
+public interface CommitProfilerMXBean {
+
+    /**
+     * @return fraction of transactions that are profiled, between 0 and 1.
+     */
+    double getSampleRate();
+
+    /**
+     * @param sampleRate fraction of transactions to profile, between 0 (off) and 1 (all).
+     */
+    void setSampleRate(double sampleRate);
+
+    /**
+     * @return statistics in ms (count as plain number), keyed by <code>module.phase.size.statistic</code>.
+     */
+    Map<String, Double> getStatistics();
+
+    /**
+     * Forget all recorded timings.
+     */
+    void reset();
+}
@@ -17,15 +17,23 @@
 package com.graphaware.runtime;
 
 import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.metrics.MetricRegistry;
 import com.graphaware.runtime.config.RuntimeConfiguration;
 import com.graphaware.runtime.module.RuntimeModule;
+import com.graphaware.runtime.profile.CommitProfiler;
+import com.graphaware.runtime.profile.DefaultCommitProfiler;
 import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import com.graphaware.writer.service.QueueBackedScheduledService;
 import org.neo4j.graphdb.event.ErrorState;
 import org.neo4j.graphdb.event.KernelEventHandler;
 import org.neo4j.logging.Log;
 
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract base-class for {@link GraphAwareRuntime} implementations. Handles lifecycle of the runtime and basic
@@ -43,8 +51,11 @@ public abstract class BaseGraphAwareRuntime implements GraphAwareRuntime, Kernel
     };
 
     private final RuntimeConfiguration configuration;
+    private final DefaultCommitProfiler commitProfiler = new DefaultCommitProfiler();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     private volatile State state = State.NONE;
+    private volatile ExecutorService startupExecutor;
 
     private enum State {
         NONE,
@@ -77,6 +88,31 @@ public abstract class BaseGraphAwareRuntime implements GraphAwareRuntime, Kernel
         return configuration;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DefaultCommitProfiler getCommitProfiler() {
+        return commitProfiler;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Get the name under which this runtime's {@link CommitProfiler} and {@link MetricRegistry} are exposed over JMX.
+     *
+     * @return name, unique within the JVM.
+     */
+    protected String getProfilerName() {
+        return String.valueOf(System.identityHashCode(this));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -131,14 +167,68 @@ public abstract class BaseGraphAwareRuntime implements GraphAwareRuntime, Kernel
         state = State.STARTING;
 
         startStatsCollector();
-        startModules();
+        startupExecutor = createStartupExecutor();
+        try {
+            startModules();
+        } finally {
+            stopStartupExecutor();
+        }
         startWriter();
+        commitProfiler.registerMBean(getProfilerName());
+        metricRegistry.registerMBean(getProfilerName());
 
         state = State.STARTED;
         LOG.info("GraphAware started.");
         startingThread.set(false);
     }
 
+    /**
+     * Create an executor for starting modules concurrently. Its threads are treated like the thread starting the runtime,
+     * i.e. transactions they run while the runtime is starting don't wait for the runtime to start.
+     *
+     * @return executor.
+     */
+    private ExecutorService createStartupExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(() -> {
+                startingThread.set(true);
+                runnable.run();
+            }, "GraphAware Startup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stop the executor for starting modules and wait until the modules it may still be starting (after a failure) have
+     * started, so that no module is started after the runtime has finished (or failed) starting.
+     */
+    private void stopStartupExecutor() {
+        ExecutorService executor = startupExecutor;
+        startupExecutor = null;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Modules are still being started a minute after GraphAware has finished starting.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the executor for starting modules concurrently. Only available during {@link #startModules()}.
+     *
+     * @return executor.
+     */
+    protected final Executor getStartupExecutor() {
+        if (startupExecutor == null) {
+            throw new IllegalStateException("Startup executor is only available while modules are being started");
+        }
+        return startupExecutor;
+    }
+
     /**
      * Start stats collector.
      */
@@ -161,6 +251,11 @@ public abstract class BaseGraphAwareRuntime implements GraphAwareRuntime, Kernel
      */
     private void startWriter() {
         getDatabaseWriter().start();
+
+        if (getDatabaseWriter() instanceof QueueBackedScheduledService) {
+            QueueBackedScheduledService<?> writer = (QueueBackedScheduledService<?>) getDatabaseWriter();
+            metricRegistry.gauge(CommitProfiler.RUNTIME, "writer.queueSize", writer::getQueueSize);
+        }
     }
 
     /**
@@ -246,6 +341,8 @@ public abstract class BaseGraphAwareRuntime implements GraphAwareRuntime, Kernel
         state = State.SHUTDOWN;
         shutdownModules();
         stopWriter();
+        commitProfiler.unregisterMBean();
+        metricRegistry.unregisterMBean();
         afterShutdown();
         LOG.info("GraphAware Runtime shut down.");
     }
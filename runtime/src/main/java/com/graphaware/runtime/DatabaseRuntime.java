@@ -20,6 +20,8 @@ import com.graphaware.common.log.LoggerFactory;
 import com.graphaware.runtime.config.RuntimeConfiguration;
 import com.graphaware.runtime.listener.TopologyChangeEventListener;
 import com.graphaware.runtime.listener.TopologyListenerAdapter;
+import com.graphaware.runtime.manager.ModuleCircuitBreaker;
+import com.graphaware.runtime.manager.OnlineInitializer;
 import com.graphaware.runtime.manager.TxDrivenModuleManager;
 import com.graphaware.runtime.module.RuntimeModule;
 import com.graphaware.runtime.module.TxDrivenModule;
@@ -28,6 +30,7 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 
+import java.util.Map;
 
 /**
  * {@link com.graphaware.runtime.TxDrivenRuntime} backed by a {@link GraphDatabaseService}.
@@ -118,6 +121,17 @@ public class DatabaseRuntime extends TxDrivenRuntime<TxDrivenModule> {
         //for subclasses
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getProfilerName() {
+        if (database instanceof GraphDatabaseAPI) {
+            return ((GraphDatabaseAPI) database).getStoreDir() + "@" + System.identityHashCode(this);
+        }
+        return super.getProfilerName();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -125,4 +139,34 @@ public class DatabaseRuntime extends TxDrivenRuntime<TxDrivenModule> {
     public Neo4jWriter getDatabaseWriter() {
         return writer;
     }
+
+    /**
+     * Get the circuit breakers of transaction-driven modules that have a {@link com.graphaware.runtime.config.CommitBudget},
+     * which expose metrics about the modules' before-commit latency, budget violations, failures, and trips.
+     *
+     * @return circuit breakers keyed by module ID.
+     */
+    public Map<String, ModuleCircuitBreaker> getCircuitBreakers() {
+        return txDrivenModuleManager.getCircuitBreakers();
+    }
+
+    /**
+     * Get the background jobs initializing {@link com.graphaware.runtime.module.OnlineInitializedTxDrivenModule}s online,
+     * which expose the progress of the initializations.
+     *
+     * @return initializers keyed by module ID.
+     */
+    public Map<String, OnlineInitializer> getOnlineInitializers() {
+        return txDrivenModuleManager.getOnlineInitializers();
+    }
+
+    /**
+     * Get the time it took to start each module the last time the runtime started, including loading its metadata
+     * and (re-)initializing it.
+     *
+     * @return startup times in milliseconds, keyed by module ID.
+     */
+    public Map<String, Long> getModuleStartupMillis() {
+        return txDrivenModuleManager.getStartupMillis();
+    }
 }
@@ -27,6 +27,8 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.NotFoundException;
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -71,6 +73,16 @@ public class ProductionRuntime extends DatabaseRuntime {
         timerDrivenModuleManager.startModules();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getModuleStartupMillis() {
+        Map<String, Long> result = new LinkedHashMap<>(super.getModuleStartupMillis());
+        result.putAll(timerDrivenModuleManager.getStartupMillis());
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -20,6 +20,9 @@ import com.graphaware.runtime.config.RuntimeConfiguration;
 import com.graphaware.runtime.manager.TxDrivenModuleManager;
 import com.graphaware.runtime.module.RuntimeModule;
 import com.graphaware.runtime.module.TxDrivenModule;
+import com.graphaware.runtime.profile.CommitPhase;
+import com.graphaware.runtime.profile.CommitProfiler;
+import com.graphaware.runtime.profile.CommitSample;
 import com.graphaware.tx.event.improved.api.LazyTransactionData;
 import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.event.TransactionData;
@@ -38,6 +41,13 @@ import java.util.Set;
  */
 public abstract class TxDrivenRuntime<T extends TxDrivenModule> extends BaseGraphAwareRuntime implements TransactionEventHandler<Map<String, Object>> {
 
+    /**
+     * {@link CommitSample} of the profiled transaction being committed by the current thread, travelling from before to
+     * after commit. Kept apart from module states, so that modules never see it. Neo4j calls before and after commit
+     * handlers on the committing thread.
+     */
+    private final ThreadLocal<CommitSample> commitSample = new ThreadLocal<>();
+
     /**
      * Create a new instance.
      *
@@ -67,13 +77,30 @@ public abstract class TxDrivenRuntime<T extends TxDrivenModule> extends BaseGrap
      */
     @Override
     public Map<String, Object> beforeCommit(TransactionData data) throws Exception {
+        CommitSample sample = getCommitProfiler().startSample(data);
+        if (sample == null) {
+            LazyTransactionData transactionData = new LazyTransactionData(data);
+
+            if (!isStarted(transactionData)) {
+                return null;
+            }
+
+            return getTxDrivenModuleManager().beforeCommit(transactionData);
+        }
+
+        long start = System.nanoTime();
         LazyTransactionData transactionData = new LazyTransactionData(data);
+        sample.record(CommitProfiler.RUNTIME, CommitPhase.SNAPSHOT, System.nanoTime() - start);
 
         if (!isStarted(transactionData)) {
             return null;
         }
 
-        return getTxDrivenModuleManager().beforeCommit(transactionData);
+        Map<String, Object> states = getTxDrivenModuleManager().beforeCommit(transactionData, sample);
+        sample.record(CommitProfiler.RUNTIME, CommitPhase.BEFORE_COMMIT, System.nanoTime() - start);
+
+        commitSample.set(sample);
+        return states;
     }
 
     /**
@@ -85,7 +112,16 @@ public abstract class TxDrivenRuntime<T extends TxDrivenModule> extends BaseGrap
             return;
         }
 
-        getTxDrivenModuleManager().afterCommit(states);
+        CommitSample sample = commitSample.get();
+        if (sample == null) {
+            getTxDrivenModuleManager().afterCommit(states);
+            return;
+        }
+
+        commitSample.remove();
+        long start = System.nanoTime();
+        getTxDrivenModuleManager().afterCommit(states, sample);
+        sample.record(CommitProfiler.RUNTIME, CommitPhase.AFTER_COMMIT, System.nanoTime() - start);
     }
 
     /**
@@ -97,6 +133,7 @@ public abstract class TxDrivenRuntime<T extends TxDrivenModule> extends BaseGrap
             return;
         }
 
+        commitSample.remove();
         getTxDrivenModuleManager().afterRollback(states);
     }
 
@@ -144,7 +181,7 @@ public abstract class TxDrivenRuntime<T extends TxDrivenModule> extends BaseGrap
     @Override
     protected void startModules() {
         super.startModules();
-        getTxDrivenModuleManager().startModules();
+        getTxDrivenModuleManager().startModules(getStartupExecutor());
     }
 
     /**
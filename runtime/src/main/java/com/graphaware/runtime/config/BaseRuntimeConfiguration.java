@@ -20,6 +20,9 @@ import com.graphaware.common.ping.StatsCollector;
 import com.graphaware.runtime.schedule.TimingStrategy;
 import com.graphaware.runtime.write.WritingConfig;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Base-class for {@link RuntimeConfiguration} implementations.
  */
@@ -28,11 +31,17 @@ public abstract class BaseRuntimeConfiguration implements RuntimeConfiguration {
     private final TimingStrategy timingStrategy;
     private final WritingConfig writingConfig;
     private final StatsCollector statsCollector;
+    private final Map<String, CommitBudget> commitBudgets;
 
     protected BaseRuntimeConfiguration(TimingStrategy timingStrategy, WritingConfig writingConfig, StatsCollector statsCollector) {
+        this(timingStrategy, writingConfig, statsCollector, Collections.<String, CommitBudget>emptyMap());
+    }
+
+    protected BaseRuntimeConfiguration(TimingStrategy timingStrategy, WritingConfig writingConfig, StatsCollector statsCollector, Map<String, CommitBudget> commitBudgets) {
         this.timingStrategy = timingStrategy;
         this.writingConfig = writingConfig;
         this.statsCollector = statsCollector;
+        this.commitBudgets = Collections.unmodifiableMap(commitBudgets);
     }
 
     /**
@@ -59,6 +68,21 @@ public abstract class BaseRuntimeConfiguration implements RuntimeConfiguration {
         return statsCollector;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommitBudget getCommitBudget(String moduleId) {
+        return commitBudgets.getOrDefault(moduleId, CommitBudget.unlimited());
+    }
+
+    /**
+     * @return all configured commit budgets, keyed by module ID.
+     */
+    protected Map<String, CommitBudget> getCommitBudgets() {
+        return commitBudgets;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -80,6 +104,7 @@ public abstract class BaseRuntimeConfiguration implements RuntimeConfiguration {
         if (!writingConfig.equals(that.writingConfig)) return false;
         if (!timingStrategy.equals(that.timingStrategy)) return false;
         if (!statsCollector.equals(that.statsCollector)) return false;
+        if (!commitBudgets.equals(that.commitBudgets)) return false;
 
         return true;
     }
@@ -92,6 +117,7 @@ public abstract class BaseRuntimeConfiguration implements RuntimeConfiguration {
         int result = timingStrategy.hashCode();
         result = 31 * result + writingConfig.hashCode();
         result = 31 * result + statsCollector.hashCode();
+        result = 31 * result + commitBudgets.hashCode();
         return result;
     }
 }
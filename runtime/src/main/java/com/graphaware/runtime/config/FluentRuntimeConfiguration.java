@@ -24,6 +24,10 @@ import com.graphaware.runtime.write.FluentWritingConfig;
 import com.graphaware.runtime.write.WritingConfig;
 import org.neo4j.graphdb.GraphDatabaseService;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * {@link RuntimeConfiguration} for {@link com.graphaware.runtime.GraphAwareRuntime} with fluent interface.
  * Intended for users of Neo4j in embedded mode to programatically configure the runtime.
@@ -36,11 +40,11 @@ public final class FluentRuntimeConfiguration extends BaseRuntimeConfiguration {
      * @return The {@link FluentRuntimeConfiguration} instance.
      */
     public static FluentRuntimeConfiguration defaultConfiguration(GraphDatabaseService database) {
-        return new FluentRuntimeConfiguration(AdaptiveTimingStrategy.defaultConfiguration(), FluentWritingConfig.defaultConfiguration(), new GoogleAnalyticsStatsCollector(database));
+        return new FluentRuntimeConfiguration(AdaptiveTimingStrategy.defaultConfiguration(), FluentWritingConfig.defaultConfiguration(), new GoogleAnalyticsStatsCollector(database), Collections.<String, CommitBudget>emptyMap());
     }
 
-    private FluentRuntimeConfiguration(TimingStrategy timingStrategy, WritingConfig writingConfig, StatsCollector statsCollector) {
-        super(timingStrategy, writingConfig, statsCollector);
+    private FluentRuntimeConfiguration(TimingStrategy timingStrategy, WritingConfig writingConfig, StatsCollector statsCollector, Map<String, CommitBudget> commitBudgets) {
+        super(timingStrategy, writingConfig, statsCollector, commitBudgets);
     }
 
     /**
@@ -50,7 +54,7 @@ public final class FluentRuntimeConfiguration extends BaseRuntimeConfiguration {
      * @return new instance.
      */
     public FluentRuntimeConfiguration withTimingStrategy(TimingStrategy timingStrategy) {
-        return new FluentRuntimeConfiguration(timingStrategy, getWritingConfig(), getStatsCollector());
+        return new FluentRuntimeConfiguration(timingStrategy, getWritingConfig(), getStatsCollector(), getCommitBudgets());
     }
 
     /**
@@ -60,7 +64,7 @@ public final class FluentRuntimeConfiguration extends BaseRuntimeConfiguration {
      * @return new instance.
      */
     public FluentRuntimeConfiguration withWritingConfig(WritingConfig writingConfig) {
-        return new FluentRuntimeConfiguration(getTimingStrategy(), writingConfig, getStatsCollector());
+        return new FluentRuntimeConfiguration(getTimingStrategy(), writingConfig, getStatsCollector(), getCommitBudgets());
     }
 
     /**
@@ -70,6 +74,19 @@ public final class FluentRuntimeConfiguration extends BaseRuntimeConfiguration {
      * @return new instance.
      */
     public FluentRuntimeConfiguration withStatsCollector(StatsCollector statsCollector) {
-        return new FluentRuntimeConfiguration(getTimingStrategy(), getWritingConfig(), statsCollector);
+        return new FluentRuntimeConfiguration(getTimingStrategy(), getWritingConfig(), statsCollector, getCommitBudgets());
+    }
+
+    /**
+     * Create an instance with a {@link CommitBudget} for a transaction-driven module.
+     *
+     * @param moduleId     ID of the module.
+     * @param commitBudget of the module.
+     * @return new instance.
+     */
+    public FluentRuntimeConfiguration withCommitBudget(String moduleId, CommitBudget commitBudget) {
+        Map<String, CommitBudget> commitBudgets = new HashMap<>(getCommitBudgets());
+        commitBudgets.put(moduleId, commitBudget);
+        return new FluentRuntimeConfiguration(getTimingStrategy(), getWritingConfig(), getStatsCollector(), commitBudgets);
     }
 }
@@ -34,6 +34,10 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.kernel.configuration.Config;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.neo4j.kernel.configuration.Settings.*;
 
 /**
@@ -89,6 +93,17 @@ import static org.neo4j.kernel.configuration.Settings.*;
  *     com.graphaware.runtime.stats.disable=true
  * </pre>
  * With this setting in place, {@link NullStatsCollector} will be used.
+ * <p>
+ * {@link CommitBudget}s of transaction-driven modules are configured per module ID, all but the first setting are optional:
+ * <pre>
+ *     com.graphaware.runtime.budget.UIDM=5
+ *     com.graphaware.runtime.budget.UIDM.violations=10
+ *     com.graphaware.runtime.budget.UIDM.failures=5
+ *     com.graphaware.runtime.budget.UIDM.open=30000
+ *     com.graphaware.runtime.budget.UIDM.action=reinitialize
+ * </pre>
+ * where the first value is the budget in ms, and the action is either <code>reinitialize</code> or <code>degrade</code>
+ * (see {@link CircuitBreakerAction}). Modules with no budget configured are not timed.
  */
 public final class Neo4jConfigBasedRuntimeConfiguration extends BaseRuntimeConfiguration {
 
@@ -118,13 +133,22 @@ public final class Neo4jConfigBasedRuntimeConfiguration extends BaseRuntimeConfi
     private static final Setting<Boolean> STATS_DISABLE_SETTING_LEGACY = setting("com.graphaware.runtime.stats.disable", BOOLEAN, "false");
     private static final Setting<Boolean> STATS_DISABLE_SETTING = setting("com.graphaware.runtime.stats.disabled", BOOLEAN, "false");
 
+    //commit budgets
+    private static final String BUDGET_PREFIX = "com.graphaware.runtime.budget.";
+    private static final String BUDGET_VIOLATIONS = ".violations";
+    private static final String BUDGET_FAILURES = ".failures";
+    private static final String BUDGET_OPEN = ".open";
+    private static final String BUDGET_ACTION = ".action";
+    //larger budgets would overflow when converted to nanoseconds
+    private static final long MAX_BUDGET_MILLIS = Long.MAX_VALUE / 1_000_000;
+
     /**
      * Constructs a new {@link Neo4jConfigBasedRuntimeConfiguration} based on the given Neo4j {@link Config}.
      *
      * @param config The {@link Config} containing the settings used to configure the runtime
      */
     public Neo4jConfigBasedRuntimeConfiguration(GraphDatabaseService database, Config config) {
-        super(createTimingStrategy(config), createWritingConfig(config), createStatsCollector(database, config));
+        super(createTimingStrategy(config), createWritingConfig(config), createStatsCollector(database, config), createCommitBudgets(config));
     }
 
     private static TimingStrategy createTimingStrategy(Config config) {
@@ -212,4 +236,66 @@ public final class Neo4jConfigBasedRuntimeConfiguration extends BaseRuntimeConfi
 
         return new GoogleAnalyticsStatsCollector(database);
     }
+
+    private static Map<String, CommitBudget> createCommitBudgets(Config config) {
+        Map<String, String> raw = config.getRaw();
+        Map<String, CommitBudget> result = new HashMap<>();
+
+        for (Map.Entry<String, String> entry : raw.entrySet()) {
+            if (!entry.getKey().startsWith(BUDGET_PREFIX)) {
+                continue;
+            }
+
+            String moduleId = entry.getKey().substring(BUDGET_PREFIX.length());
+            if (moduleId.contains(".")) {
+                continue;
+            }
+
+            String key = entry.getKey();
+            CommitBudget budget = CommitBudget.millis(longValue(key, entry.getValue(), 1, MAX_BUDGET_MILLIS));
+
+            if (raw.containsKey(key + BUDGET_VIOLATIONS)) {
+                budget = budget.withTripAfterViolations((int) longValue(key + BUDGET_VIOLATIONS, raw.get(key + BUDGET_VIOLATIONS), 1, Integer.MAX_VALUE));
+            }
+
+            if (raw.containsKey(key + BUDGET_FAILURES)) {
+                budget = budget.withTripAfterFailures((int) longValue(key + BUDGET_FAILURES, raw.get(key + BUDGET_FAILURES), 1, Integer.MAX_VALUE));
+            }
+
+            if (raw.containsKey(key + BUDGET_OPEN)) {
+                budget = budget.withOpenMillis(longValue(key + BUDGET_OPEN, raw.get(key + BUDGET_OPEN), 0, Long.MAX_VALUE));
+            }
+
+            if (raw.containsKey(key + BUDGET_ACTION)) {
+                budget = budget.withAction(action(key + BUDGET_ACTION, raw.get(key + BUDGET_ACTION)));
+            }
+
+            result.put(moduleId, budget);
+        }
+
+        return result;
+    }
+
+    private static long longValue(String key, String value, long min, long max) {
+        long result;
+        try {
+            result = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Value of " + key + " must be a number, was '" + value + "'", e);
+        }
+
+        if (result < min || result > max) {
+            throw new IllegalStateException("Value of " + key + " must be between " + min + " and " + max + ", was " + result);
+        }
+
+        return result;
+    }
+
+    private static CircuitBreakerAction action(String key, String value) {
+        try {
+            return CircuitBreakerAction.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Value of " + key + " must be one of " + Arrays.toString(CircuitBreakerAction.values()) + " (case insensitive), was '" + value + "'", e);
+        }
+    }
 }
@@ -18,7 +18,6 @@ package com.graphaware.runtime.manager;
 
 import com.graphaware.common.log.LoggerFactory;
 import com.graphaware.common.ping.StatsCollector;
-import com.graphaware.runtime.metadata.CorruptMetadataException;
 import com.graphaware.runtime.metadata.ModuleMetadata;
 import com.graphaware.runtime.metadata.ModuleMetadataRepository;
 import com.graphaware.runtime.module.RuntimeModule;
@@ -28,6 +27,8 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base-class for {@link ModuleManager} implementations.
@@ -39,6 +40,7 @@ public abstract class BaseModuleManager<M extends ModuleMetadata, T extends Runt
     protected final Map<String, T> modules = new LinkedHashMap<>();
     protected final ModuleMetadataRepository metadataRepository;
     private final StatsCollector statsCollector;
+    private final Map<String, Long> startupNanos = new ConcurrentHashMap<>();
 
     /**
      * Construct a new manager.
@@ -118,11 +120,14 @@ public abstract class BaseModuleManager<M extends ModuleMetadata, T extends Runt
     @Override
     public final Set<String> loadMetadata() {
         final Set<String> moduleIds = new HashSet<>();
+        final Map<String, M> allMetadata = metadataRepository.getModuleMetadata(modules.keySet());
 
         for (final T module : modules.values()) {
             moduleIds.add(module.getId());
             LOG.info("Loading metadata for module " + module.getId());
-            loadMetadata(module);
+            long start = System.nanoTime();
+            loadMetadata(module, allMetadata);
+            recordStartupTime(module, System.nanoTime() - start);
         }
 
         return moduleIds;
@@ -132,21 +137,19 @@ public abstract class BaseModuleManager<M extends ModuleMetadata, T extends Runt
      * Load module metadata from wherever they are stored in between database restarts and do whatever is necessary
      * to do with this metadata before the module can be used.
      *
-     * @param module to load metadata for.
-     */
-    private void loadMetadata(T module) {
-        M moduleMetadata = null;
-        try {
-            moduleMetadata = metadataRepository.getModuleMetadata(module);
-            if (moduleMetadata == null) {
-                LOG.info("Module " + module.getId() + " seems to have been registered for the first time.");
-                handleNoMetadata(module);
-            } else {
-                LOG.info("Module " + module.getId() + " seems to have been registered before, metadata loaded successfully.");
-            }
-        } catch (CorruptMetadataException e) {
+     * @param module      to load metadata for.
+     * @param allMetadata metadata of all modules, loaded in one go by {@link ModuleMetadataRepository#getModuleMetadata(java.util.Collection)}.
+     */
+    private void loadMetadata(T module, Map<String, M> allMetadata) {
+        M moduleMetadata = allMetadata.get(module.getId());
+        if (moduleMetadata != null) {
+            LOG.info("Module " + module.getId() + " seems to have been registered before, metadata loaded successfully.");
+        } else if (allMetadata.containsKey(module.getId())) {
             LOG.info("Module " + module.getId() + " seems to have corrupted metadata.");
             handleCorruptMetadata(module);
+        } else {
+            LOG.info("Module " + module.getId() + " seems to have been registered for the first time.");
+            handleNoMetadata(module);
         }
 
         if (moduleMetadata == null) {
@@ -158,6 +161,28 @@ public abstract class BaseModuleManager<M extends ModuleMetadata, T extends Runt
         persistMetadata(module, moduleMetadata);
     }
 
+    /**
+     * Record time spent starting a module, which includes loading its metadata and (re-)initializing it.
+     *
+     * @param module that took the time.
+     * @param nanos  time spent.
+     */
+    protected final void recordStartupTime(T module, long nanos) {
+        startupNanos.merge(module.getId(), nanos, Long::sum);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getStartupMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (String moduleId : modules.keySet()) {
+            result.put(moduleId, TimeUnit.NANOSECONDS.toMillis(startupNanos.getOrDefault(moduleId, 0L)));
+        }
+        return result;
+    }
+
     /**
      * Handle the fact that metadata for a module has been corrupted. This could be because somebody has manually messed
      * with the storage of module metadata, or because the implementation of the module metadata has changed and the class
@@ -17,21 +17,37 @@
 package com.graphaware.runtime.manager;
 
 import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.policy.inclusion.InclusionPolicies;
 import com.graphaware.common.ping.StatsCollector;
+import com.graphaware.runtime.config.CircuitBreakerAction;
+import com.graphaware.runtime.config.CommitBudget;
 import com.graphaware.runtime.config.util.InstanceRoleUtils;
 import com.graphaware.runtime.metadata.DefaultTxDrivenModuleMetadata;
+import com.graphaware.runtime.metadata.InitializingTxDrivenModuleMetadata;
 import com.graphaware.runtime.metadata.ModuleMetadataRepository;
 import com.graphaware.runtime.metadata.TxDrivenModuleMetadata;
+import com.graphaware.runtime.module.DegradableTxDrivenModule;
 import com.graphaware.runtime.module.DeliberateTransactionRollbackException;
 import com.graphaware.runtime.module.NeedsInitializationException;
+import com.graphaware.runtime.module.OnlineInitializedTxDrivenModule;
+import com.graphaware.runtime.module.StreamingTxDrivenModule;
 import com.graphaware.runtime.module.TxDrivenModule;
+import com.graphaware.runtime.profile.CommitPhase;
+import com.graphaware.runtime.profile.CommitSample;
+import com.graphaware.runtime.profile.TimedInclusionPolicies;
 import com.graphaware.tx.event.improved.api.FilteredTransactionData;
 import com.graphaware.tx.event.improved.data.TransactionDataContainer;
 import org.neo4j.logging.Log;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * {@link BaseModuleManager} for {@link TxDrivenModule}s.
@@ -41,17 +57,35 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
     private static final Log LOG = LoggerFactory.getLogger(BaseTxDrivenModuleManager.class);
 
     private final InstanceRoleUtils instanceRoleUtils;
+    private final Function<String, CommitBudget> commitBudgets;
+    private final Map<String, ModuleCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Set<String> preparedForOnlineInitialization = new HashSet<>();
+    private final Map<String, InitializingTxDrivenModuleMetadata> pendingOnlineInitializations = new HashMap<>();
+    private final Map<String, OnlineInitializer> onlineInitializers = new ConcurrentHashMap<>();
 
     /**
-     * Construct a new manager.
+     * Construct a new manager with no {@link CommitBudget}s.
      *
      * @param metadataRepository repository for storing module metadata.
      * @param statsCollector     stats collector.
      * @param instanceRoleUtils  instance role utils.
      */
     protected BaseTxDrivenModuleManager(ModuleMetadataRepository metadataRepository, StatsCollector statsCollector, InstanceRoleUtils instanceRoleUtils) {
+        this(metadataRepository, statsCollector, instanceRoleUtils, moduleId -> CommitBudget.unlimited());
+    }
+
+    /**
+     * Construct a new manager.
+     *
+     * @param metadataRepository repository for storing module metadata.
+     * @param statsCollector     stats collector.
+     * @param instanceRoleUtils  instance role utils.
+     * @param commitBudgets      provider of {@link CommitBudget}s by module ID.
+     */
+    protected BaseTxDrivenModuleManager(ModuleMetadataRepository metadataRepository, StatsCollector statsCollector, InstanceRoleUtils instanceRoleUtils, Function<String, CommitBudget> commitBudgets) {
         super(metadataRepository, statsCollector);
         this.instanceRoleUtils = instanceRoleUtils;
+        this.commitBudgets = commitBudgets;
     }
 
     /**
@@ -88,31 +122,111 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
         if (metadata.needsInitialization()) {
             LOG.info("Module " + module.getId() + " has been marked for re-initialization on " + new Date(metadata.problemTimestamp()).toString() + ". Will try to re-initialize...");
             reinitializeIfAllowed(module, metadata);
-            return createFreshMetadata(module);
+            return metadataAfterInitialization(module);
         }
 
         if (!metadata.getConfig().equals(module.getConfiguration())) {
             LOG.info("Module " + module.getId() + " seems to have changed configuration since last run, will try to re-initialize...");
             reinitializeIfAllowed(module, metadata);
-            return createFreshMetadata(module);
+            return metadataAfterInitialization(module);
+        }
+
+        if (metadata instanceof InitializingTxDrivenModuleMetadata) {
+            return resumeOnlineInitialization(module, (InitializingTxDrivenModuleMetadata) metadata);
+        }
+
+        if (preparedForOnlineInitialization.contains(module.getId())) {
+            return metadataAfterInitialization(module);
         }
 
         LOG.info("Module " + module.getId() + " has not changed configuration since last run, already initialized.");
         return metadata;
     }
 
+    private TxDrivenModuleMetadata metadataAfterInitialization(T module) {
+        if (!preparedForOnlineInitialization.remove(module.getId())) {
+            return createFreshMetadata(module);
+        }
+
+        InitializingTxDrivenModuleMetadata metadata = new InitializingTxDrivenModuleMetadata(module.getConfiguration());
+        pendingOnlineInitializations.put(module.getId(), metadata);
+        return metadata;
+    }
+
+    private TxDrivenModuleMetadata resumeOnlineInitialization(T module, InitializingTxDrivenModuleMetadata metadata) {
+        if (!(module instanceof OnlineInitializedTxDrivenModule)) {
+            LOG.info("Module " + module.getId() + " has not finished its online initialization, but is no longer initialized online. Will try to re-initialize...");
+            reinitializeIfAllowed(module, metadata);
+            return createFreshMetadata(module);
+        }
+
+        if (instanceRoleUtils.getInstanceRole().isReadOnly()) {
+            LOG.info("Module " + module.getId() + " has not finished its online initialization, but instance not writable. Will NOT resume.");
+            return metadata;
+        }
+
+        LOG.info("Module " + module.getId() + " has not finished its online initialization, will resume from node ID " + (metadata.getLastNodeId() + 1) + ".");
+        pendingOnlineInitializations.put(module.getId(), metadata);
+        return metadata;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void startModules() {
+        startModules(Runnable::run);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void startModules(Executor executor) {
         super.startModules();
 
         LOG.info("Starting transaction-driven modules...");
         for (T module : modules.values()) {
-            start(module);
+            createCircuitBreaker(module);
+        }
+
+        Map<String, Long> startTimes = new ParallelModuleStarter<>(modules).start(this::start, executor);
+        for (T module : modules.values()) {
+            recordStartupTime(module, startTimes.getOrDefault(module.getId(), 0L));
+        }
+        LOG.info("Transaction-driven modules started. Startup times in ms: " + getStartupMillis());
+
+        startOnlineInitializations();
+    }
+
+    private void startOnlineInitializations() {
+        for (Map.Entry<String, InitializingTxDrivenModuleMetadata> pending : pendingOnlineInitializations.entrySet()) {
+            T module = modules.get(pending.getKey());
+            OnlineInitializer initializer = createOnlineInitializer(module, pending.getValue());
+            onlineInitializers.put(module.getId(), initializer);
+            LOG.info("Starting online initialization of module " + module.getId() + " in the background...");
+            initializer.start();
         }
-        LOG.info("Transaction-driven modules started.");
+        pendingOnlineInitializations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdownModules() {
+        for (OnlineInitializer initializer : onlineInitializers.values()) {
+            initializer.stop();
+        }
+        super.shutdownModules();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, OnlineInitializer> getOnlineInitializers() {
+        return Collections.unmodifiableMap(onlineInitializers);
     }
 
     /**
@@ -125,16 +239,30 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
 
     private void initializeIfAllowed(T module) {
         if (allowedToInitialize(module, "initialize")) {
-            initialize(module);
+            if (module instanceof OnlineInitializedTxDrivenModule) {
+                prepareOnlineInitialization(module, null);
+            } else {
+                initialize(module);
+            }
         }
     }
 
     private void reinitializeIfAllowed(T module, TxDrivenModuleMetadata metadata) {
         if (allowedToInitialize(module, "re-initialize")) {
-            reinitialize(module, metadata);
+            if (module instanceof OnlineInitializedTxDrivenModule) {
+                prepareOnlineInitialization(module, metadata);
+            } else {
+                reinitialize(module, metadata);
+            }
         }
     }
 
+    private void prepareOnlineInitialization(T module, TxDrivenModuleMetadata metadata) {
+        LOG.info("Module " + module.getId() + " will be initialized online, in the background.");
+        prepareForOnlineInitialization(module, metadata);
+        preparedForOnlineInitialization.add(module.getId());
+    }
+
     private boolean allowedToInitialize(T module, String logMessage) {
         if (instanceRoleUtils.getInstanceRole().isReadOnly()) {
             LOG.info("Instance not writable. Will NOT " + logMessage + ".");
@@ -184,42 +312,177 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
      */
     protected abstract void reinitialize(T module, TxDrivenModuleMetadata oldMetadata);
 
+    /**
+     * Prepare an {@link OnlineInitializedTxDrivenModule} for online (re-)initialization, which then runs in the background
+     * once all modules have started.
+     *
+     * @param module      to prepare, guaranteed to be an {@link OnlineInitializedTxDrivenModule}.
+     * @param oldMetadata metadata stored for this module from its previous run. Can be <code>null</code> in case metadata
+     *                    was corrupt or there was no metadata.
+     */
+    protected abstract void prepareForOnlineInitialization(T module, TxDrivenModuleMetadata oldMetadata);
+
+    /**
+     * Create a (not yet started) background job performing the online initialization of a module.
+     *
+     * @param module   to initialize, guaranteed to be an {@link OnlineInitializedTxDrivenModule}.
+     * @param metadata to start or resume the initialization from.
+     * @return initializer.
+     */
+    protected abstract OnlineInitializer createOnlineInitializer(T module, InitializingTxDrivenModuleMetadata metadata);
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Map<String, Object> beforeCommit(TransactionDataContainer transactionData) {
+        return beforeCommit(transactionData, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> beforeCommit(TransactionDataContainer transactionData, CommitSample sample) {
         Map<String, Object> result = new HashMap<>();
 
+        //modules with equal inclusion policies share the same (memoizing) filtered view of the transaction only while
+        //they are being checked for relevant mutations; any module that runs discards all views, so the view a module
+        //runs with is never shared with a module that follows
+        Map<InclusionPolicies, FilteredTransactionData> filteredViews = new HashMap<>();
+
         for (T module : modules.values()) {
-            FilteredTransactionData filteredTransactionData = new FilteredTransactionData(transactionData, module.getConfiguration().getInclusionPolicies());
+            long filteringStart = sample != null ? System.nanoTime() : 0;
+
+            FilteredTransactionData filteredTransactionData = filteredViews.computeIfAbsent(module.getConfiguration().getInclusionPolicies(), policies -> new FilteredTransactionData(transactionData, sample != null ? TimedInclusionPolicies.timed(policies, sample) : policies));
+            boolean mutationsOccurred = mutationsOccurred(module, filteredTransactionData);
+
+            long inclusionPolicyNanos = 0;
+            if (sample != null) {
+                inclusionPolicyNanos = sample.takeInclusionPolicyNanos();
+                sample.record(module.getId(), CommitPhase.FILTERING, System.nanoTime() - filteringStart - inclusionPolicyNanos);
+            }
 
-            if (!filteredTransactionData.mutationsOccurred()) {
+            if (!mutationsOccurred) {
+                if (sample != null) {
+                    sample.record(module.getId(), CommitPhase.INCLUSION_POLICIES, inclusionPolicyNanos);
+                }
+                continue;
+            }
+
+            //the module is about to run and may change entities, which would make decisions and filtered collections
+            //memoized so far stale, so the views it sees are never handed to the modules that follow
+            filteredViews.clear();
+
+            ModuleCircuitBreaker breaker = circuitBreakers.get(module.getId());
+
+            if (breaker != null && !breaker.allowsCall()) {
+                if (isDegradable(module, breaker)) {
+                    result.put(module.getId(), beforeCommitDegraded(module, filteredTransactionData));
+                }
+                if (sample != null) {
+                    sample.record(module.getId(), CommitPhase.INCLUSION_POLICIES, inclusionPolicyNanos + sample.takeInclusionPolicyNanos());
+                }
                 continue;
             }
 
             Object state = null;
+            long start = breaker != null || sample != null ? System.nanoTime() : 0;
 
             try {
                 state = module.beforeCommit(filteredTransactionData);
             } catch (NeedsInitializationException e) {
                 LOG.warn("Module " + module.getId() + " seems to have a problem and will be re-initialized next time the database is started. ");
-                TxDrivenModuleMetadata moduleMetadata = metadataRepository.getModuleMetadata(module);
-                metadataRepository.persistModuleMetadata(module, moduleMetadata.markedNeedingInitialization());
+                markNeedingInitialization(module);
             } catch (DeliberateTransactionRollbackException e) {
                 LOG.debug("Module " + module.getId() + " threw an exception indicating that the transaction should be rolled back.", e);
+                //vetoing a transaction is a completed call, which must also resolve a half-open breaker's trial
+                if (breaker != null && breaker.recordCall(System.nanoTime() - start)) {
+                    tripped(module, breaker);
+                }
                 return handleException(result, module, state, e);
             } catch (RuntimeException e) {
                 LOG.warn("Module " + module.getId() + " threw an exception", e);
+                if (breaker != null && breaker.recordFailure()) {
+                    tripped(module, breaker);
+                }
                 return handleException(result, module, state, e);
             }
 
+            if (breaker != null || sample != null) {
+                long duration = System.nanoTime() - start;
+
+                if (sample != null) {
+                    long beforeCommitPolicyNanos = sample.takeInclusionPolicyNanos();
+                    sample.record(module.getId(), CommitPhase.INCLUSION_POLICIES, inclusionPolicyNanos + beforeCommitPolicyNanos);
+                    sample.record(module.getId(), CommitPhase.BEFORE_COMMIT, duration - beforeCommitPolicyNanos);
+                }
+
+                if (breaker != null && breaker.recordCall(duration)) {
+                    tripped(module, breaker);
+                }
+            }
+
             result.put(module.getId(), state);
         }
 
         return result;
     }
 
+    private void createCircuitBreaker(T module) {
+        CommitBudget budget = commitBudgets.apply(module.getId());
+        if (budget == null || budget.isUnlimited()) {
+            return;
+        }
+
+        ModuleCircuitBreaker breaker = new ModuleCircuitBreaker(budget, budget.getAction() == CircuitBreakerAction.DEGRADE && module instanceof DegradableTxDrivenModule);
+        circuitBreakers.put(module.getId(), breaker);
+        LOG.info("Module " + module.getId() + " has a commit budget of " + budget);
+    }
+
+    private boolean isDegradable(T module, ModuleCircuitBreaker breaker) {
+        return breaker.getBudget().getAction() == CircuitBreakerAction.DEGRADE && module instanceof DegradableTxDrivenModule;
+    }
+
+    private Object beforeCommitDegraded(T module, FilteredTransactionData transactionData) {
+        try {
+            return ((DegradableTxDrivenModule) module).beforeCommitDegraded(transactionData);
+        } catch (RuntimeException e) {
+            LOG.warn("Module " + module.getId() + " threw an exception in degraded mode, transaction will commit anyway", e);
+            return null;
+        }
+    }
+
+    private void tripped(T module, ModuleCircuitBreaker breaker) {
+        if (isDegradable(module, breaker)) {
+            LOG.warn("Circuit breaker of module " + module.getId() + " tripped, module degraded for at least " + breaker.getBudget().getOpenMillis() + " ms. " + breaker);
+            return;
+        }
+
+        LOG.warn("Circuit breaker of module " + module.getId() + " tripped, module will be skipped and re-initialized next time the database is started. " + breaker);
+        markNeedingInitialization(module);
+    }
+
+    private void markNeedingInitialization(T module) {
+        TxDrivenModuleMetadata moduleMetadata = metadataRepository.getModuleMetadata(module);
+        metadataRepository.persistModuleMetadata(module, moduleMetadata.markedNeedingInitialization());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ModuleCircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
+    }
+
+    private boolean mutationsOccurred(T module, FilteredTransactionData transactionData) {
+        if (module instanceof StreamingTxDrivenModule) {
+            return transactionData.stream().mutationsOccurred();
+        }
+        return transactionData.mutationsOccurred();
+    }
+
     private Map<String, Object> handleException(Map<String, Object> result, T module, Object state, RuntimeException e) {
         result.put(module.getId(), state);      //just so the module gets afterRollback called as well
         afterRollback(result); //remove this when https://github.com/neo4j/neo4j/issues/2660 is resolved (todo this is fixed in 3.3)
@@ -231,12 +494,27 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
      */
     @Override
     public void afterCommit(Map<String, Object> states) {
+        afterCommit(states, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCommit(Map<String, Object> states, CommitSample sample) {
         for (T module : modules.values()) {
             if (!states.containsKey(module.getId())) {
-                return; //perhaps module wasn't interested, or threw RuntimeException
+                continue; //perhaps module wasn't interested, or was skipped by its circuit breaker
+            }
+
+            if (sample == null) {
+                module.afterCommit(states.get(module.getId()));
+                continue;
             }
 
+            long start = System.nanoTime();
             module.afterCommit(states.get(module.getId()));
+            sample.record(module.getId(), CommitPhase.AFTER_COMMIT, System.nanoTime() - start);
         }
     }
 
@@ -247,7 +525,7 @@ public abstract class BaseTxDrivenModuleManager<T extends TxDrivenModule> extend
     public void afterRollback(Map<String, Object> states) {
         for (T module : modules.values()) {
             if (!states.containsKey(module.getId())) {
-                return; //rollback happened before this module had a go
+                continue; //perhaps module wasn't interested, or rollback happened before this module had a go
             }
 
             module.afterRollback(states.get(module.getId()));
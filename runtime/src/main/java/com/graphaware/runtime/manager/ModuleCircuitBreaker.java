@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.runtime.config.CommitBudget;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker guarding the <code>beforeCommit</code> of a single {@link com.graphaware.runtime.module.TxDrivenModule}
+ * against a {@link CommitBudget}, which also serves as the source of the module's commit-path metrics.
+ * <p/>
+ * The breaker starts {@link State#CLOSED}. It trips ({@link State#OPEN}) after the budget's number of consecutive
+ * budget violations or consecutive failures. A recoverable breaker lets a single trial call through
+ * ({@link State#HALF_OPEN}) once it has been open for the budget's open time, and closes again if that call is within
+ * budget. A breaker that isn't recoverable stays open until the database restarts.
+ * <p/>
+ * All methods are lock-free and safe to call from concurrently committing threads.
+ */
+public class ModuleCircuitBreaker {
+
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CommitBudget budget;
+    private final boolean recoverable;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveViolations = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong violations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Construct a new breaker.
+     *
+     * @param budget      to enforce. Must not be <code>null</code>.
+     * @param recoverable whether the breaker should periodically try to close again after it trips.
+     */
+    public ModuleCircuitBreaker(CommitBudget budget, boolean recoverable) {
+        if (budget == null) {
+            throw new IllegalArgumentException("Budget must not be null");
+        }
+
+        this.budget = budget;
+        this.recoverable = recoverable;
+    }
+
+    /**
+     * Decide whether the module should be called. If not, the call is counted as rejected.
+     *
+     * @return true iff the module should be called.
+     */
+    public boolean allowsCall() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        if (current == State.OPEN && recoverable
+                && System.currentTimeMillis() - openedAt >= budget.getOpenMillis()
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return true;
+        }
+
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Record a completed call.
+     *
+     * @param elapsedNanos time the call took.
+     * @return true iff this call tripped the breaker.
+     */
+    public boolean recordCall(long elapsedNanos) {
+        calls.incrementAndGet();
+        totalNanos.addAndGet(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+
+        if (elapsedNanos <= budget.getBudgetNanos()) {
+            consecutiveViolations.set(0);
+            consecutiveFailures.set(0);
+            state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+            return false;
+        }
+
+        violations.incrementAndGet();
+        if (reopenIfTrial()) {
+            return false;
+        }
+        return consecutiveViolations.incrementAndGet() >= budget.getTripAfterViolations() && trip();
+    }
+
+    /**
+     * Record a call that failed with an exception.
+     *
+     * @return true iff this call tripped the breaker.
+     */
+    public boolean recordFailure() {
+        failures.incrementAndGet();
+        if (reopenIfTrial()) {
+            return false;
+        }
+        return consecutiveFailures.incrementAndGet() >= budget.getTripAfterFailures() && trip();
+    }
+
+    private boolean reopenIfTrial() {
+        if (state.get() == State.HALF_OPEN) {
+            openedAt = System.currentTimeMillis();
+            state.set(State.OPEN);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean trip() {
+        if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            trips.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public CommitBudget getBudget() {
+        return budget;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return number of completed (not failed) calls.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return mean duration of completed calls in ms.
+     */
+    public double getMeanMillis() {
+        long count = calls.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return maximum duration of a completed call in ms.
+     */
+    public double getMaxMillis() {
+        return (double) maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return number of calls that exceeded the budget.
+     */
+    public long getViolations() {
+        return violations.get();
+    }
+
+    /**
+     * @return number of calls that threw an exception.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return number of times the breaker tripped.
+     */
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * @return number of calls rejected while the breaker was open.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ModuleCircuitBreaker{state=" + getState() + ", budget=" + budget + ", calls=" + getCalls()
+                + ", violations=" + getViolations() + ", failures=" + getFailures() + ", trips=" + getTrips()
+                + ", rejected=" + getRejected() + "}";
+    }
+}
@@ -18,6 +18,7 @@ package com.graphaware.runtime.manager;
 
 import com.graphaware.runtime.module.RuntimeModule;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -83,6 +84,14 @@ public interface ModuleManager<T extends RuntimeModule> {
      */
     void startModules();
 
+    /**
+     * Get the time it took to start each module the last time the modules were started, including loading its metadata
+     * and (re-)initializing it.
+     *
+     * @return startup times in milliseconds, keyed by module ID.
+     */
+    Map<String, Long> getStartupMillis();
+
     /**
      * Bring all modules to an orderly shutdown, when the database is stopped.
      */
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.runtime.metadata.DefaultTxDrivenModuleMetadata;
+import com.graphaware.runtime.metadata.InitializingTxDrivenModuleMetadata;
+import com.graphaware.runtime.metadata.ModuleMetadata;
+import com.graphaware.runtime.metadata.ModuleMetadataRepository;
+import com.graphaware.runtime.metadata.TxDrivenModuleMetadata;
+import com.graphaware.runtime.module.OnlineInitializedTxDrivenModule;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.core.NodeManager;
+import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job performing the online initialization of an {@link OnlineInitializedTxDrivenModule}. It walks node IDs
+ * in ascending order up to the highest node ID in use when the initialization first started (nodes created later are
+ * handled by the module as transaction events), one transaction per batch, and checkpoints its progress in the module's
+ * {@link InitializingTxDrivenModuleMetadata} in the same transaction as the batch, so that a batch is never repeated
+ * or skipped after a restart.
+ * <p/>
+ * Also exposes the progress of the initialization for monitoring.
+ */
+public class OnlineInitializer {
+
+    private static final Log LOG = LoggerFactory.getLogger(OnlineInitializer.class);
+
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED, STOPPED
+    }
+
+    private final OnlineInitializedTxDrivenModule<?> module;
+    private final GraphDatabaseService database;
+    private final ModuleMetadataRepository metadataRepository;
+
+    private volatile InitializingTxDrivenModuleMetadata metadata;
+    private volatile State state = State.PENDING;
+    private volatile Thread thread;
+
+    /**
+     * Create a new initializer.
+     *
+     * @param module             to initialize.
+     * @param database           to initialize the module for.
+     * @param metadataRepository to checkpoint progress in.
+     * @param metadata           to start or resume from.
+     */
+    public OnlineInitializer(OnlineInitializedTxDrivenModule<?> module, GraphDatabaseService database, ModuleMetadataRepository metadataRepository, InitializingTxDrivenModuleMetadata metadata) {
+        this.module = module;
+        this.database = database;
+        this.metadataRepository = metadataRepository;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Start the initialization in a background thread.
+     */
+    public synchronized void start() {
+        if (state != State.PENDING) {
+            throw new IllegalStateException("Online initialization of module " + module.getId() + " has already been started");
+        }
+
+        state = State.RUNNING;
+        thread = new Thread(this::run, "GraphAware Online Initialization - " + module.getId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the initialization and wait for the transaction in progress to finish. The initialization resumes from the last
+     * checkpoint the next time the database starts.
+     */
+    public void stop() {
+        Thread current = thread;
+        if (current == null) {
+            return;
+        }
+
+        if (state == State.RUNNING) {
+            state = State.STOPPED;
+        }
+
+        current.interrupt();
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            if (metadata.getHighestNodeId() < 0) {
+                metadata = metadata.withCheckpoint(-1, highestNodeIdInUse(), 0);
+                if (!checkpoint()) {
+                    return;
+                }
+            }
+
+            LOG.info("Online initialization of module " + module.getId() + " running from node ID " + (metadata.getLastNodeId() + 1) + " to " + metadata.getHighestNodeId());
+
+            while (state == State.RUNNING && metadata.getLastNodeId() < metadata.getHighestNodeId()) {
+                if (!initializeBatch()) {
+                    return;
+                }
+
+                pause();
+            }
+
+            if (state != State.RUNNING) {
+                LOG.info("Online initialization of module " + module.getId() + " stopped at node ID " + metadata.getLastNodeId() + ", will resume next time the database starts.");
+                return;
+            }
+
+            if (!persistIfStillInitializing(new DefaultTxDrivenModuleMetadata(module.getConfiguration()))) {
+                return;
+            }
+
+            module.onlineInitializationFinished(database);
+            state = State.COMPLETED;
+            LOG.info("Online initialization of module " + module.getId() + " completed, " + metadata.getProcessedNodes() + " nodes initialized.");
+        } catch (RuntimeException e) {
+            if (state == State.STOPPED) {
+                LOG.info("Online initialization of module " + module.getId() + " stopped at node ID " + metadata.getLastNodeId() + ", will resume next time the database starts.");
+                return;
+            }
+            state = State.FAILED;
+            LOG.error("Online initialization of module " + module.getId() + " failed at node ID " + metadata.getLastNodeId() + ", will resume next time the database starts.", e);
+        }
+    }
+
+    /**
+     * Initialize the next batch of nodes and checkpoint the progress in the same transaction. If the module has in the
+     * meantime been marked as needing (full) re-initialization, the transaction is rolled back.
+     *
+     * @return <code>true</code> iff the batch has been committed and the initialization should continue.
+     */
+    private boolean initializeBatch() {
+        long from = metadata.getLastNodeId() + 1;
+        long to = Math.min(metadata.getHighestNodeId(), from + module.getOnlineInitializationBatchSize() - 1);
+        InitializingTxDrivenModuleMetadata checkpoint;
+
+        try (Transaction tx = database.beginTx()) {
+            long processed = 0;
+            for (long id = from; id <= to; id++) {
+                try {
+                    module.initializeNode(database.getNodeById(id));
+                    processed++;
+                } catch (NotFoundException e) {
+                    //deleted or never used
+                }
+            }
+
+            checkpoint = metadata.withCheckpoint(to, metadata.getHighestNodeId(), metadata.getProcessedNodes() + processed);
+            if (!persistIfStillInitializing(tx, checkpoint)) {
+                return false;
+            }
+
+            tx.success();
+        }
+
+        metadata = checkpoint;
+        return true;
+    }
+
+    /**
+     * Persist current progress, unless the module has in the meantime been marked as needing (full) re-initialization.
+     *
+     * @return <code>true</code> iff the initialization should continue.
+     */
+    private boolean checkpoint() {
+        return persistIfStillInitializing(metadata);
+    }
+
+    /**
+     * Persist metadata in a new transaction, unless the module has in the meantime been marked as needing (full)
+     * re-initialization.
+     *
+     * @param newMetadata to persist.
+     * @return <code>true</code> iff the metadata has been persisted and the initialization should continue.
+     */
+    private boolean persistIfStillInitializing(TxDrivenModuleMetadata newMetadata) {
+        try (Transaction tx = database.beginTx()) {
+            if (!persistIfStillInitializing(tx, newMetadata)) {
+                return false;
+            }
+
+            tx.success();
+            return true;
+        }
+    }
+
+    /**
+     * Persist metadata in the given transaction, unless the module has in the meantime been marked as needing (full)
+     * re-initialization. The current metadata is read, checked, and replaced while holding an exclusive lock on the
+     * graph properties, where metadata is stored. Marking a module as needing initialization writes the same graph
+     * properties and thus takes the same lock, so it can't be overwritten by this method.
+     *
+     * @param tx          to persist the metadata in. The caller must only mark it successful if this method returns
+     *                    <code>true</code>.
+     * @param newMetadata to persist.
+     * @return <code>true</code> iff the metadata has been persisted and the initialization should continue.
+     */
+    private boolean persistIfStillInitializing(Transaction tx, TxDrivenModuleMetadata newMetadata) {
+        tx.acquireWriteLock(((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(NodeManager.class).newGraphProperties());
+
+        ModuleMetadata current = metadataRepository.getModuleMetadata(module);
+        if (!(current instanceof InitializingTxDrivenModuleMetadata) || ((TxDrivenModuleMetadata) current).needsInitialization()) {
+            state = State.STOPPED;
+            LOG.warn("Module " + module.getId() + " has been marked for re-initialization, online initialization abandoned.");
+            return false;
+        }
+
+        metadataRepository.persistModuleMetadata(module, newMetadata);
+        return true;
+    }
+
+    private void pause() {
+        long pause = module.getOnlineInitializationPauseMillis();
+        if (pause <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (state == State.RUNNING) {
+                state = State.STOPPED;
+            }
+        }
+    }
+
+    private long highestNodeIdInUse() {
+        return ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(RecordStorageEngine.class).testAccessNeoStores().getNodeStore().getHighestPossibleIdInUse();
+    }
+
+    /**
+     * @return state of the initialization.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return highest ID of a node that has been initialized, -1 if none has been.
+     */
+    public long getLastNodeId() {
+        return metadata.getLastNodeId();
+    }
+
+    /**
+     * @return highest node ID the initialization will process, -1 if it hasn't been determined yet.
+     */
+    public long getHighestNodeId() {
+        return metadata.getHighestNodeId();
+    }
+
+    /**
+     * @return number of nodes initialized so far.
+     */
+    public long getProcessedNodes() {
+        return metadata.getProcessedNodes();
+    }
+
+    /**
+     * @return fraction of the node ID space processed so far, between 0 and 1.
+     */
+    public double getProgress() {
+        if (state == State.COMPLETED) {
+            return 1;
+        }
+
+        InitializingTxDrivenModuleMetadata current = metadata;
+        if (current.getHighestNodeId() < 0) {
+            return 0;
+        }
+
+        return (double) (current.getLastNodeId() + 1) / (current.getHighestNodeId() + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "OnlineInitializer{" +
+                "module=" + module.getId() +
+                ", state=" + state +
+                ", lastNodeId=" + getLastNodeId() +
+                ", highestNodeId=" + getHighestNodeId() +
+                ", processedNodes=" + getProcessedNodes() +
+                '}';
+    }
+}
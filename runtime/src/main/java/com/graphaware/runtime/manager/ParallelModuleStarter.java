@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.runtime.module.DependentRuntimeModule;
+import com.graphaware.runtime.module.RuntimeModule;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Starts modules concurrently on an {@link Executor}, respecting {@link DependentRuntimeModule#getDependencies()}: a
+ * module is only started once all the modules it depends on have started. Dependencies on modules not known to the
+ * starter are ignored. With a direct executor (<code>Runnable::run</code>), modules are started one by one, in an order
+ * that respects the dependencies and is otherwise the order in which they were given.
+ *
+ * @param <T> type of the started modules.
+ */
+final class ParallelModuleStarter<T extends RuntimeModule> {
+
+    private static final Log LOG = LoggerFactory.getLogger(ParallelModuleStarter.class);
+
+    private final Map<String, T> modules;
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+    /**
+     * Create a new starter.
+     *
+     * @param modules to start, keyed by ID.
+     */
+    ParallelModuleStarter(Map<String, T> modules) {
+        this.modules = modules;
+
+        for (T module : modules.values()) {
+            Set<String> known = new HashSet<>();
+            for (String dependency : dependenciesOf(module)) {
+                if (modules.containsKey(dependency)) {
+                    known.add(dependency);
+                } else {
+                    LOG.info("Module " + module.getId() + " depends on " + dependency + ", which isn't started together with it. Ignoring the dependency.");
+                }
+            }
+            dependencies.put(module.getId(), known);
+        }
+    }
+
+    private static Set<String> dependenciesOf(RuntimeModule module) {
+        if (module instanceof DependentRuntimeModule) {
+            return ((DependentRuntimeModule) module).getDependencies();
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Start all modules and wait until they have started. Once a module fails to start, no more modules are started, but
+     * modules already being started are waited for before the failure is thrown.
+     *
+     * @param starter  starting a single module.
+     * @param executor to start modules on.
+     * @return time in nanoseconds it took to start each module, keyed by module ID.
+     * @throws IllegalStateException if the modules' dependencies contain a cycle.
+     * @throws RuntimeException      thrown by the starter for the first module that failed to start.
+     */
+    Map<String, Long> start(Consumer<T> starter, Executor executor) {
+        Map<String, Long> result = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (T module : inStartOrder()) {
+            CompletableFuture<?>[] startedDependencies = dependencies.get(module.getId()).stream().map(futures::get).toArray(CompletableFuture[]::new);
+
+            futures.put(module.getId(), CompletableFuture.allOf(startedDependencies).thenRunAsync(() -> {
+                if (failure.get() != null) {
+                    return; //another module failed to start, don't start any more
+                }
+
+                long start = System.nanoTime();
+                try {
+                    starter.accept(module);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                }
+                result.put(module.getId(), System.nanoTime() - start);
+            }, executor));
+        }
+
+        try {
+            //completes only when all modules have either started, failed, or been skipped
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()])).join();
+        } catch (CompletionException e) {
+            if (failure.get() == null) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * Order modules so that every module comes after all the modules it depends on.
+     *
+     * @return modules in start order.
+     * @throws IllegalStateException if the modules' dependencies contain a cycle.
+     */
+    List<T> inStartOrder() {
+        List<T> result = new ArrayList<>(modules.size());
+        Set<String> visited = new HashSet<>();
+        Map<String, Boolean> path = new LinkedHashMap<>();
+
+        for (T module : modules.values()) {
+            visit(module, visited, path, result);
+        }
+
+        return result;
+    }
+
+    private void visit(T module, Set<String> visited, Map<String, Boolean> path, List<T> result) {
+        if (visited.contains(module.getId())) {
+            return;
+        }
+
+        if (path.containsKey(module.getId())) {
+            throw new IllegalStateException("Modules " + path.keySet() + " have cyclic dependencies on each other");
+        }
+
+        path.put(module.getId(), true);
+        for (String dependency : dependencies.get(module.getId())) {
+            visit(modules.get(dependency), visited, path, result);
+        }
+        path.remove(module.getId());
+
+        visited.add(module.getId());
+        result.add(module);
+    }
+}
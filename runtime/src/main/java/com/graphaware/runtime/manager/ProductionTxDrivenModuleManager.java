@@ -17,9 +17,12 @@
 package com.graphaware.runtime.manager;
 
 import com.graphaware.common.ping.StatsCollector;
+import com.graphaware.runtime.config.RuntimeConfiguration;
 import com.graphaware.runtime.config.util.InstanceRoleUtils;
+import com.graphaware.runtime.metadata.InitializingTxDrivenModuleMetadata;
 import com.graphaware.runtime.metadata.ModuleMetadataRepository;
 import com.graphaware.runtime.metadata.TxDrivenModuleMetadata;
+import com.graphaware.runtime.module.OnlineInitializedTxDrivenModule;
 import com.graphaware.runtime.module.TxDrivenModule;
 import org.neo4j.graphdb.GraphDatabaseService;
 
@@ -41,6 +44,18 @@ public class ProductionTxDrivenModuleManager extends BaseTxDrivenModuleManager<T
         this.database = database;
     }
 
+    /**
+     * Construct a new manager.
+     *
+     * @param database           storing graph data.
+     * @param metadataRepository for storing module metadata.
+     * @param configuration      of the runtime, providing {@link com.graphaware.runtime.config.CommitBudget}s of modules.
+     */
+    public ProductionTxDrivenModuleManager(GraphDatabaseService database, ModuleMetadataRepository metadataRepository, RuntimeConfiguration configuration) {
+        super(metadataRepository, configuration.getStatsCollector(), new InstanceRoleUtils(database), configuration::getCommitBudget);
+        this.database = database;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -64,4 +79,20 @@ public class ProductionTxDrivenModuleManager extends BaseTxDrivenModuleManager<T
     protected void reinitialize(TxDrivenModule module, TxDrivenModuleMetadata oldMetadata) {
         module.reinitialize(database, oldMetadata);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void prepareForOnlineInitialization(TxDrivenModule module, TxDrivenModuleMetadata oldMetadata) {
+        ((OnlineInitializedTxDrivenModule) module).prepareOnlineInitialization(database, oldMetadata);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected OnlineInitializer createOnlineInitializer(TxDrivenModule module, InitializingTxDrivenModuleMetadata metadata) {
+        return new OnlineInitializer((OnlineInitializedTxDrivenModule) module, database, metadataRepository, metadata);
+    }
 }
@@ -17,15 +17,26 @@
 package com.graphaware.runtime.manager;
 
 import com.graphaware.runtime.module.TxDrivenModule;
+import com.graphaware.runtime.profile.CommitSample;
 import com.graphaware.tx.event.improved.data.TransactionDataContainer;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * {@link ModuleManager} for {@link TxDrivenModule}s.
  */
 public interface TxDrivenModuleManager<T extends TxDrivenModule> extends ModuleManager<T> {
 
+    /**
+     * Perform work needed to make modules start doing their job, starting modules that don't depend on each other
+     * (see {@link com.graphaware.runtime.module.DependentRuntimeModule}) concurrently. Called exactly once each
+     * time the database is started, instead of {@link #startModules()}.
+     *
+     * @param executor to start modules on.
+     */
+    void startModules(Executor executor);
+
     /**
      * Delegate work to modules before a transaction is committed.
      *
@@ -34,6 +45,15 @@ public interface TxDrivenModuleManager<T extends TxDrivenModule> extends ModuleM
      */
     Map<String, Object> beforeCommit(TransactionDataContainer transactionData);
 
+    /**
+     * Delegate work to modules before a transaction is committed, recording per-module timings into a sample.
+     *
+     * @param transactionData about-to-be-committed transaction data.
+     * @param sample          to record timings into, <code>null</code> if the transaction isn't being profiled.
+     * @return map of objects (states) returned by the modules, keyed by {@link com.graphaware.runtime.module.TxDrivenModule#getId()}.
+     */
+    Map<String, Object> beforeCommit(TransactionDataContainer transactionData, CommitSample sample);
+
     /**
      * Delegate work to modules after a transaction is committed.
      *
@@ -41,10 +61,34 @@ public interface TxDrivenModuleManager<T extends TxDrivenModule> extends ModuleM
      */
     void afterCommit(Map<String, Object> states);
 
+    /**
+     * Delegate work to modules after a transaction is committed, recording per-module timings into a sample.
+     *
+     * @param states returned by {@link #beforeCommit(com.graphaware.tx.event.improved.data.TransactionDataContainer)}.
+     * @param sample to record timings into, <code>null</code> if the transaction isn't being profiled.
+     */
+    void afterCommit(Map<String, Object> states, CommitSample sample);
+
     /**
      * Delegate work to modules after a transaction is rolled back.
      *
      * @param states returned by {@link #beforeCommit(com.graphaware.tx.event.improved.data.TransactionDataContainer)}.
      */
     void afterRollback(Map<String, Object> states);
+
+    /**
+     * Get the circuit breakers of modules that have a {@link com.graphaware.runtime.config.CommitBudget}, which also
+     * provide metrics about their before-commit latency, budget violations, failures, and trips.
+     *
+     * @return circuit breakers keyed by module ID.
+     */
+    Map<String, ModuleCircuitBreaker> getCircuitBreakers();
+
+    /**
+     * Get the background jobs initializing {@link com.graphaware.runtime.module.OnlineInitializedTxDrivenModule}s, which
+     * expose the progress of the initializations. Completed initializations remain until the database is restarted.
+     *
+     * @return initializers keyed by module ID.
+     */
+    Map<String, OnlineInitializer> getOnlineInitializers();
 }
@@ -28,6 +28,7 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
 import com.graphaware.common.log.LoggerFactory;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -90,6 +91,33 @@ public class GraphPropertiesMetadataRepository implements ModuleMetadataReposito
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <M extends ModuleMetadata> Map<String, M> getModuleMetadata(Collection<String> moduleIds) {
+        Map<String, Object> internalProperties = getInternalProperties();
+        Map<String, M> result = new HashMap<>();
+
+        for (String moduleId : moduleIds) {
+            byte[] serializedMetadata = (byte[]) internalProperties.get(moduleKey(moduleId));
+
+            if (serializedMetadata == null) {
+                continue;
+            }
+
+            try {
+                result.put(moduleId, Serializer.fromByteArray(serializedMetadata));
+            } catch (Exception e) {
+                removeModuleMetadata(moduleId);
+                LOG.error("Could not deserialize metadata for module ID " + moduleId);
+                result.put(moduleId, null);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.metadata;
+
+import com.graphaware.runtime.config.TxDrivenModuleConfiguration;
+
+/**
+ * {@link TxDrivenModuleMetadata} of an {@link com.graphaware.runtime.module.OnlineInitializedTxDrivenModule} whose
+ * online initialization is in progress, holding the checkpoint from which it resumes after a restart. Replaced by
+ * {@link DefaultTxDrivenModuleMetadata} once the initialization completes.
+ */
+public class InitializingTxDrivenModuleMetadata implements TxDrivenModuleMetadata {
+
+    private final TxDrivenModuleConfiguration configuration;
+    private final long lastNodeId;
+    private final long highestNodeId;
+    private final long processedNodes;
+
+    /**
+     * Construct new metadata for an initialization that hasn't processed any nodes yet.
+     *
+     * @param configuration module configuration held by the metadata.
+     */
+    public InitializingTxDrivenModuleMetadata(TxDrivenModuleConfiguration configuration) {
+        this(configuration, -1, -1, 0);
+    }
+
+    private InitializingTxDrivenModuleMetadata(TxDrivenModuleConfiguration configuration, long lastNodeId, long highestNodeId, long processedNodes) {
+        this.configuration = configuration;
+        this.lastNodeId = lastNodeId;
+        this.highestNodeId = highestNodeId;
+        this.processedNodes = processedNodes;
+    }
+
+    /**
+     * Create a new instance of this class with an advanced checkpoint.
+     *
+     * @param lastNodeId     highest ID of a node that has been initialized.
+     * @param highestNodeId  highest node ID the initialization will process.
+     * @param processedNodes number of nodes initialized so far.
+     * @return new metadata.
+     */
+    public InitializingTxDrivenModuleMetadata withCheckpoint(long lastNodeId, long highestNodeId, long processedNodes) {
+        return new InitializingTxDrivenModuleMetadata(configuration, lastNodeId, highestNodeId, processedNodes);
+    }
+
+    /**
+     * @return highest ID of a node that has been initialized, -1 if none has been.
+     */
+    public long getLastNodeId() {
+        return lastNodeId;
+    }
+
+    /**
+     * @return highest node ID the initialization will process, -1 if it hasn't been determined yet.
+     */
+    public long getHighestNodeId() {
+        return highestNodeId;
+    }
+
+    /**
+     * @return number of nodes initialized so far.
+     */
+    public long getProcessedNodes() {
+        return processedNodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TxDrivenModuleConfiguration getConfig() {
+        return configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsInitialization() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long problemTimestamp() {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The initialization in progress is abandoned and will start from scratch.
+     */
+    @Override
+    public TxDrivenModuleMetadata markedNeedingInitialization() {
+        return new DefaultTxDrivenModuleMetadata(configuration).markedNeedingInitialization();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        InitializingTxDrivenModuleMetadata that = (InitializingTxDrivenModuleMetadata) o;
+
+        if (lastNodeId != that.lastNodeId) return false;
+        if (highestNodeId != that.highestNodeId) return false;
+        if (processedNodes != that.processedNodes) return false;
+        return configuration.equals(that.configuration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = configuration.hashCode();
+        result = 31 * result + (int) (lastNodeId ^ (lastNodeId >>> 32));
+        result = 31 * result + (int) (highestNodeId ^ (highestNodeId >>> 32));
+        result = 31 * result + (int) (processedNodes ^ (processedNodes >>> 32));
+        return result;
+    }
+}
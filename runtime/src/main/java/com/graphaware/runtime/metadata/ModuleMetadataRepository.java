@@ -18,6 +18,9 @@ package com.graphaware.runtime.metadata;
 
 import com.graphaware.runtime.module.RuntimeModule;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -45,6 +48,33 @@ public interface ModuleMetadataRepository {
      */
     <M extends ModuleMetadata> M getModuleMetadata(String moduleId);
 
+    /**
+     * Get the metadata of multiple modules at once. By default, metadata is looked up one module at a time;
+     * implementations that can read it in bulk more cheaply should override this method.
+     *
+     * @param moduleIds to get metadata for.
+     * @param <M>       type of the metadata.
+     * @return module metadata keyed by module ID. Modules with no metadata are absent from the result. Modules whose
+     * metadata could not be deserialized are present, mapped to <code>null</code>; their metadata is removed, as it
+     * would be by {@link #getModuleMetadata(String)}.
+     */
+    default <M extends ModuleMetadata> Map<String, M> getModuleMetadata(Collection<String> moduleIds) {
+        Map<String, M> result = new HashMap<>();
+
+        for (String moduleId : moduleIds) {
+            try {
+                M metadata = getModuleMetadata(moduleId);
+                if (metadata != null) {
+                    result.put(moduleId, metadata);
+                }
+            } catch (CorruptMetadataException e) {
+                result.put(moduleId, null);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Persist metadata of a module.
      *
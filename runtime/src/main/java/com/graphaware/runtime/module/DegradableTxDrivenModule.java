@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module;
+
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+
+/**
+ * Specialisation of {@link TxDrivenModule} that can keep working in a cheaper, degraded mode when its circuit breaker
+ * trips because it keeps exceeding its {@link com.graphaware.runtime.config.CommitBudget} or keeps throwing exceptions
+ * (see {@link com.graphaware.runtime.config.CircuitBreakerAction#DEGRADE}).
+ * <p/>
+ * In degraded mode, {@link #beforeCommitDegraded(ImprovedTransactionData)} is called instead of
+ * {@link #beforeCommit(ImprovedTransactionData)}. It should only capture what is needed (e.g. IDs of changed
+ * entities) cheaply and defer the heavy work to {@link #afterCommit(Object)}, or to a background thread, for instance
+ * by extending {@link com.graphaware.runtime.module.async.AsyncTxDrivenModule}. Exceptions thrown in degraded mode are
+ * logged and never roll back the transaction.
+ *
+ * @param <T> The type of a state object that the module can use to pass information from the before-commit methods
+ *            to the {@link #afterCommit(Object)} method.
+ */
+public interface DegradableTxDrivenModule<T> extends TxDrivenModule<T> {
+
+    /**
+     * Capture the state needed to process a transaction after it commits, as cheaply as possible.
+     *
+     * @param transactionData data about the soon-to-be-committed transaction. It is already filtered based on {@link #getConfiguration()}.
+     * @return a state object (or <code>null</code>) that will be passed on to {@link #afterCommit(Object)} of this object.
+     */
+    T beforeCommitDegraded(ImprovedTransactionData transactionData);
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module;
+
+import com.graphaware.runtime.metadata.TxDrivenModuleMetadata;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+
+/**
+ * Specialisation of {@link TxDrivenModule} that is (re-)initialized online, i.e. without blocking the start of the
+ * {@link com.graphaware.runtime.GraphAwareRuntime}.
+ * <p/>
+ * Instead of {@link #initialize(GraphDatabaseService)} or {@link #reinitialize(GraphDatabaseService, TxDrivenModuleMetadata)},
+ * {@link #prepareOnlineInitialization(GraphDatabaseService, TxDrivenModuleMetadata)} is called when the runtime starts.
+ * The module then starts receiving transaction events straight away, while a background job calls
+ * {@link #initializeNode(Node)} for every node that existed when the job started, in batches of
+ * {@link #getOnlineInitializationBatchSize()} nodes per transaction, pausing {@link #getOnlineInitializationPauseMillis()}
+ * between batches. Progress is checkpointed in the module's metadata after every batch, so the job resumes where it left
+ * off when the database is restarted. Once all nodes have been processed, {@link #onlineInitializationFinished(GraphDatabaseService)}
+ * is called.
+ * <p/>
+ * Because a node can be changed by a transaction at the same time it is being initialized, {@link #initializeNode(Node)}
+ * must be idempotent and derive the node's state from the graph alone (i.e. recompute rather than increment), so that
+ * it gives the same result no matter whether it runs before or after the module has handled a transaction touching the
+ * node. Implementations that write to the graph should acquire a write lock on the node first.
+ *
+ * @param <T> The type of a state object that the module can use to pass information from the
+ *            {@link #beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)} method to the
+ *            {@link #afterCommit(Object)} method.
+ */
+public interface OnlineInitializedTxDrivenModule<T> extends TxDrivenModule<T> {
+
+    /**
+     * Prepare for online (re-)initialization, for instance by removing data written to the graph by a previous run. Called
+     * synchronously while the runtime starts, so it should be quick. Not called when resuming an interrupted initialization.
+     *
+     * @param database    to initialize this module for.
+     * @param oldMetadata metadata stored for this module from its previous run. <code>null</code> in case the module has
+     *                    never been registered before, or its metadata was corrupt.
+     */
+    void prepareOnlineInitialization(GraphDatabaseService database, TxDrivenModuleMetadata oldMetadata);
+
+    /**
+     * Initialize a single node. Called from a background thread, within a transaction. Must be idempotent.
+     *
+     * @param node to initialize.
+     */
+    void initializeNode(Node node);
+
+    /**
+     * Called once all nodes have been initialized.
+     *
+     * @param database the module has been initialized for.
+     */
+    void onlineInitializationFinished(GraphDatabaseService database);
+
+    /**
+     * @return number of nodes to initialize in a single transaction.
+     */
+    default int getOnlineInitializationBatchSize() {
+        return 1000;
+    }
+
+    /**
+     * @return milliseconds to pause between transactions, which throttles the background job.
+     */
+    default long getOnlineInitializationPauseMillis() {
+        return 10;
+    }
+}
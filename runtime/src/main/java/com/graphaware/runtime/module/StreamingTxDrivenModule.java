@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module;
+
+/**
+ * Specialisation of {@link TxDrivenModule} that only consumes {@link com.graphaware.tx.event.improved.api.ImprovedTransactionData#stream()}
+ * in its {@link #beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)} method.
+ * <p/>
+ * For such modules, the runtime decides whether any relevant mutations occurred using the conservative, constant-memory
+ * {@link com.graphaware.tx.event.improved.api.StreamingTransactionData#mutationsOccurred()}, so that no part of the
+ * transaction data is materialized on the module's behalf. This allows very large transactions to be processed without
+ * holding all changes in memory.
+ *
+ * @param <T> The type of a state object that the module can use to pass information from the
+ *            {@link #beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)} method to the
+ *            {@link #afterCommit(Object)} method.
+ */
+public interface StreamingTxDrivenModule<T> extends TxDrivenModule<T> {
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.async;
+
+import com.graphaware.common.log.LoggerFactory;
+import org.neo4j.logging.Log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only, file-based journal of records produced by an {@link AsyncTxDrivenModule}, with a durable cursor
+ * pointing to the last delivered record.
+ * <p/>
+ * Records are written by committing threads and read back, in the order in which they were written, by a single
+ * delivery thread. A record is normally written in two phases: {@link #prepare(byte[])} writes it before the
+ * transaction commits, {@link #confirm(long)} makes it deliverable once the transaction has committed and
+ * {@link #discard(long)} drops it if the transaction rolls back. Delivery never overtakes a prepared record. A record
+ * that is still prepared after {@link #IN_DOUBT_TIMEOUT_MS}, or when the journal is recovered, is in doubt and is
+ * delivered, because the transaction may have committed without the confirmation being written. {@link #append(byte[])}
+ * writes a record that is deliverable straight away.
+ * <p/>
+ * Prepared, discarded and appended records are forced to disk before the respective method returns. Concurrent callers
+ * share a single force (group commit), so the cost of forcing is amortised over all records written in the meantime.
+ * Confirmations are not forced, since a lost confirmation only makes a record in doubt. Every entry carries a sequence
+ * number and a checksum, so that a torn write at the end of the journal is detected and discarded on recovery. The
+ * cursor is persisted every {@link #CURSOR_FLUSH_INTERVAL} deliveries and on close, which means that up to that many
+ * records can be delivered again after a crash (at-least-once delivery). Once all records have been delivered and the
+ * journal has grown beyond {@link #TRUNCATE_THRESHOLD} bytes, it is truncated.
+ */
+final class AsyncJournal implements Closeable {
+
+    private static final Log LOG = LoggerFactory.getLogger(AsyncJournal.class);
+
+    private static final byte PREPARED = 1;
+    private static final byte COMMITTED = 2;
+    private static final byte CONFIRMED = 3;
+    private static final byte DISCARDED = 4;
+
+    private static final int HEADER_SIZE = 1 + 8 + 4 + 8; //type, sequence, length, checksum
+    static final int CURSOR_FLUSH_INTERVAL = 100;
+    static final long TRUNCATE_THRESHOLD = 1024 * 1024;
+    static final long IN_DOUBT_TIMEOUT_MS = 60_000;
+
+    private final FileChannel log;
+    private final FileChannel cursor;
+
+    private final TreeMap<Long, Record> undelivered = new TreeMap<>();
+
+    private long lastAppended;
+    private long delivered;
+    private long writePosition;
+    private long written = 0;
+    private long forced = 0;
+    private boolean forcing = false;
+    private int unflushedDeliveries = 0;
+    private boolean closed = false;
+
+    /**
+     * Open (and recover) a journal.
+     *
+     * @param directory in which the journal files live. Created if it doesn't exist.
+     * @param name      of the journal, typically module ID.
+     * @throws IOException in case the journal can't be opened.
+     */
+    AsyncJournal(File directory, String name) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory.getAbsolutePath());
+        }
+
+        log = FileChannel.open(new File(directory, name + ".journal").toPath(), CREATE, READ, WRITE);
+        cursor = FileChannel.open(new File(directory, name + ".cursor").toPath(), CREATE, READ, WRITE);
+
+        delivered = readCursor();
+        lastAppended = delivered;
+        recover();
+    }
+
+    /**
+     * Write a record of a transaction that is about to commit and force it to disk. The record isn't delivered until it
+     * is confirmed, or until it is in doubt.
+     *
+     * @param data serialized record.
+     * @return sequence number of the record, to be passed to {@link #confirm(long)} or {@link #discard(long)}.
+     * @throws IOException in case the record can't be written.
+     */
+    long prepare(byte[] data) throws IOException {
+        long sequence;
+        long target;
+
+        synchronized (this) {
+            sequence = lastAppended + 1;
+            target = write(PREPARED, sequence, data);
+            lastAppended = sequence;
+        }
+
+        try {
+            force(target);
+        } catch (IOException e) {
+            synchronized (this) {
+                undelivered.remove(sequence);
+                notifyAll();
+            }
+            throw e;
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Make a prepared record deliverable, because its transaction has committed.
+     *
+     * @param sequence of the record, as returned by {@link #prepare(byte[])}.
+     * @throws IOException in case the confirmation can't be written. The record is delivered anyway.
+     */
+    synchronized void confirm(long sequence) throws IOException {
+        Record record = undelivered.get(sequence);
+        if (record == null || record.type != PREPARED) {
+            return; //already delivered as in doubt
+        }
+
+        record.type = COMMITTED;
+        notifyAll();
+
+        write(CONFIRMED, sequence, new byte[0]);
+    }
+
+    /**
+     * Drop a prepared record, because its transaction has rolled back.
+     *
+     * @param sequence of the record, as returned by {@link #prepare(byte[])}.
+     * @throws IOException in case the record can't be discarded durably. It will then be delivered after a restart.
+     */
+    void discard(long sequence) throws IOException {
+        long target;
+
+        synchronized (this) {
+            Record record = undelivered.get(sequence);
+            if (record == null || record.type != PREPARED) {
+                LOG.warn("Record " + sequence + " has been treated as in doubt and delivered, although its transaction rolled back");
+                return;
+            }
+            target = write(DISCARDED, sequence, new byte[0]);
+        }
+
+        try {
+            force(target);
+        } finally {
+            synchronized (this) {
+                undelivered.remove(sequence);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Write a record that is deliverable straight away and force it to disk.
+     *
+     * @param data serialized record.
+     * @return sequence number of the record.
+     * @throws IOException in case the record can't be written.
+     */
+    long append(byte[] data) throws IOException {
+        long sequence;
+        long target;
+
+        synchronized (this) {
+            sequence = lastAppended + 1;
+            target = write(COMMITTED, sequence, data);
+            lastAppended = sequence;
+        }
+
+        force(target);
+
+        return sequence;
+    }
+
+    /**
+     * Wait until the number of undelivered records drops to the given capacity.
+     *
+     * @param capacity maximum number of undelivered records.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    synchronized void awaitCapacity(long capacity) throws InterruptedException {
+        while (!closed && undelivered.size() > capacity) {
+            wait(1000);
+        }
+    }
+
+    /**
+     * Get the next deliverable record, waiting for one to become deliverable if necessary. Must only be called by the
+     * single delivery thread, which must then call {@link #markDelivered(Entry)} before asking for the next record.
+     *
+     * @param timeoutMillis maximum time to wait.
+     * @return next record, <code>null</code> if none became deliverable within the timeout.
+     * @throws IOException          in case the journal can't be read.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    Entry next(long timeoutMillis) throws IOException, InterruptedException {
+        Map.Entry<Long, Record> next;
+
+        synchronized (this) {
+            checkOpen();
+            next = nextDeliverable();
+            if (next == null) {
+                wait(timeoutMillis);
+                next = closed ? null : nextDeliverable();
+            }
+            if (next == null) {
+                return null;
+            }
+        }
+
+        //reading outside the lock is safe: written entries never change and only the delivery thread truncates
+        Record record = next.getValue();
+        ByteBuffer data = read(record.position + HEADER_SIZE, record.length);
+
+        return new Entry(next.getKey(), data.array());
+    }
+
+    /**
+     * Mark a record returned by {@link #next(long)} as delivered, advancing the cursor.
+     *
+     * @param entry delivered record.
+     * @throws IOException in case the cursor can't be persisted.
+     */
+    synchronized void markDelivered(Entry entry) throws IOException {
+        checkOpen();
+
+        undelivered.remove(entry.getSequence());
+        delivered = entry.getSequence();
+
+        if (undelivered.isEmpty() && writePosition >= TRUNCATE_THRESHOLD) {
+            writeCursor();
+            log.truncate(0);
+            writePosition = 0;
+        } else if (++unflushedDeliveries >= CURSOR_FLUSH_INTERVAL) {
+            writeCursor();
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * @return number of written but not yet delivered (or discarded) records.
+     */
+    synchronized long pending() {
+        return undelivered.size();
+    }
+
+    /**
+     * @param sequence of a record.
+     * @return true iff the record has been prepared and neither confirmed, discarded, nor found to be in doubt.
+     */
+    synchronized boolean isPrepared(long sequence) {
+        Record record = undelivered.get(sequence);
+        return record != null && record.type == PREPARED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            writeCursor();
+        } finally {
+            closed = true;
+            notifyAll();
+            log.close();
+            cursor.close();
+        }
+    }
+
+    private Map.Entry<Long, Record> nextDeliverable() {
+        Map.Entry<Long, Record> first = undelivered.firstEntry();
+        if (first == null) {
+            return null;
+        }
+
+        Record record = first.getValue();
+        if (record.type == PREPARED) {
+            if (System.currentTimeMillis() - record.preparedAt < IN_DOUBT_TIMEOUT_MS) {
+                return null;
+            }
+            LOG.warn("Record " + first.getKey() + " has been neither confirmed nor discarded for " + IN_DOUBT_TIMEOUT_MS + " ms, delivering it");
+            record.type = COMMITTED;
+        }
+
+        return first;
+    }
+
+    private long write(byte type, long sequence, byte[] data) throws IOException {
+        checkOpen();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length);
+        buffer.put(type).putLong(sequence).putInt(data.length).putLong(checksum(type, sequence, data)).put(data);
+        buffer.flip();
+
+        writeFully(buffer, writePosition);
+
+        if (type == PREPARED || type == COMMITTED) {
+            undelivered.put(sequence, new Record(type, writePosition, data.length, System.currentTimeMillis()));
+        }
+
+        writePosition += HEADER_SIZE + data.length;
+        return ++written;
+    }
+
+    /**
+     * Force everything written so far to disk, unless a force that started after the given write completes first.
+     * Only one thread forces at a time, other threads wait for it and usually find their writes forced by it.
+     */
+    private void force(long target) throws IOException {
+        boolean interrupted = false;
+
+        try {
+            while (true) {
+                long upTo;
+
+                synchronized (this) {
+                    while (forcing && forced < target) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+
+                    if (forced >= target) {
+                        return;
+                    }
+
+                    checkOpen();
+                    forcing = true;
+                    upTo = written;
+                }
+
+                boolean success = false;
+                try {
+                    log.force(false);
+                    success = true;
+                } finally {
+                    synchronized (this) {
+                        forcing = false;
+                        if (success) {
+                            forced = Math.max(forced, upTo);
+                        }
+                        notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long size = log.size();
+        long position = 0;
+
+        while (position + HEADER_SIZE <= size) {
+            ByteBuffer header = read(position, HEADER_SIZE);
+            byte type = header.get();
+            long sequence = header.getLong();
+            int length = header.getInt();
+            long checksum = header.getLong();
+
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            byte[] data = read(position + HEADER_SIZE, length).array();
+            if (checksum(type, sequence, data) != checksum) {
+                break;
+            }
+
+            if (sequence > delivered) {
+                recover(type, sequence, position, length);
+            }
+
+            lastAppended = Math.max(lastAppended, sequence);
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            LOG.warn("Discarding " + (size - position) + " bytes of incomplete records at the end of the journal");
+            log.truncate(position);
+        }
+
+        writePosition = position;
+
+        int inDoubt = 0;
+        for (Record record : undelivered.values()) {
+            if (record.type == PREPARED) {
+                record.type = COMMITTED;
+                inDoubt++;
+            }
+        }
+
+        if (inDoubt > 0) {
+            LOG.warn("Recovered " + inDoubt + " records that were neither confirmed nor discarded, delivering them");
+        }
+
+        if (!undelivered.isEmpty()) {
+            LOG.info("Recovered " + undelivered.size() + " undelivered records from the journal");
+        }
+    }
+
+    private void recover(byte type, long sequence, long position, int length) {
+        switch (type) {
+            case PREPARED:
+            case COMMITTED:
+                undelivered.put(sequence, new Record(type, position, length, 0));
+                break;
+            case CONFIRMED:
+                Record record = undelivered.get(sequence);
+                if (record != null) {
+                    record.type = COMMITTED;
+                }
+                break;
+            case DISCARDED:
+                undelivered.remove(sequence);
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal entry type " + type);
+        }
+    }
+
+    private long readCursor() throws IOException {
+        if (cursor.size() < 8) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        readFully(cursor, buffer, 0);
+        buffer.flip();
+        return buffer.getLong();
+    }
+
+    private void writeCursor() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(delivered);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            cursor.write(buffer, buffer.position());
+        }
+        cursor.force(false);
+        unflushedDeliveries = 0;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(log, buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += log.write(buffer, offset);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at position " + offset);
+            }
+            offset += read;
+        }
+    }
+
+    private static long checksum(byte type, long sequence, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(1 + 8 + 4).put(type).putLong(sequence).putInt(data.length).array());
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal has been closed");
+        }
+    }
+
+    /**
+     * Location and state of an undelivered record.
+     */
+    private static final class Record {
+
+        private byte type;
+        private final long position;
+        private final int length;
+        private final long preparedAt;
+
+        private Record(byte type, long position, int length, long preparedAt) {
+            this.type = type;
+            this.position = position;
+            this.length = length;
+            this.preparedAt = preparedAt;
+        }
+    }
+
+    /**
+     * A journaled record.
+     */
+    static final class Entry {
+
+        private final long sequence;
+        private final byte[] data;
+
+        private Entry(long sequence, byte[] data) {
+            this.sequence = sequence;
+            this.data = data;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        byte[] getData() {
+            return data;
+        }
+    }
+}
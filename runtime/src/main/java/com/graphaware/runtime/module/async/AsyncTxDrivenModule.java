@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.async;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.serialize.Serializer;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.runtime.module.DeliberateTransactionRollbackException;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Base class for {@link com.graphaware.runtime.module.TxDrivenModule}s that do their (potentially heavy) post-commit
+ * work asynchronously, so that it doesn't add to the latency experienced by clients.
+ * <p/>
+ * Subclasses capture a compact, serializable (by {@link Serializer}) change record in
+ * {@link #createRecord(ImprovedTransactionData)}. Before the transaction commits, the record is written to a journal
+ * on disk. Once the transaction has committed, the record is confirmed and later handed to
+ * {@link #afterCommitAsync(Object)} by a single delivery thread managed by this class, in the order in which the
+ * records were journaled. If the transaction rolls back, the record is discarded. Records are journaled in
+ * beforeCommit, so for transactions committing concurrently this order can differ from the order in which they
+ * committed.
+ * <p/>
+ * Delivery is at-least-once: records survive restarts of the database, and a record may be delivered again if the
+ * database stops before its delivery has been recorded. {@link #afterCommitAsync(Object)} should therefore be
+ * idempotent. A record of a transaction that was committing when the database stopped is delivered after restart,
+ * because there is no telling whether the transaction committed, so {@link #afterCommitAsync(Object)} must also
+ * tolerate a record of a transaction that, rarely, didn't commit. The same applies to a record that hasn't been
+ * confirmed or discarded within {@link AsyncJournal#IN_DOUBT_TIMEOUT_MS}. A record whose delivery keeps failing is retried {@link #MAX_ATTEMPTS} times and then skipped with an
+ * error logged, so that a single poisonous record doesn't stop the module forever. A record that can't even be
+ * deserialized is skipped straight away.
+ * <p/>
+ * The number of records that have been journaled but not yet delivered is bounded by a capacity when the
+ * {@link BackpressurePolicy} is {@link BackpressurePolicy#BLOCK} (the default); committing threads wait in afterCommit,
+ * once their transaction no longer holds any locks. With {@link BackpressurePolicy#SPILL}, the capacity is merely a
+ * threshold for logging warnings. Records are never buffered in memory, only their position in the journal is, so the
+ * module's memory footprint stays small regardless of the policy.
+ *
+ * @param <T> type of the change record.
+ */
+public abstract class AsyncTxDrivenModule<T> extends BaseTxDrivenModule<T> {
+
+    private static final Log LOG = LoggerFactory.getLogger(AsyncTxDrivenModule.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int MAX_ATTEMPTS = 3;
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long RETRY_DELAY_MS = 100;
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+    private static final long SPILL_WARNING_INTERVAL_MS = 5000;
+
+    private final int capacity;
+    private final BackpressurePolicy backpressurePolicy;
+
+    private volatile AsyncJournal journal;
+    private volatile Thread deliveryThread;
+    private volatile boolean running = false;
+    private volatile long lastSpillWarning = 0;
+
+    //records journaled in beforeCommit by the current thread, awaiting afterCommit or afterRollback; a stack, because
+    //an afterCommit callback may run another transaction on the same thread
+    private final ThreadLocal<Deque<Prepared>> prepared = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Construct a new module with {@link #DEFAULT_CAPACITY} and {@link BackpressurePolicy#BLOCK}.
+     *
+     * @param moduleId ID of this module. Must not be <code>null</code> or empty.
+     */
+    protected AsyncTxDrivenModule(String moduleId) {
+        this(moduleId, DEFAULT_CAPACITY, BackpressurePolicy.BLOCK);
+    }
+
+    /**
+     * Construct a new module.
+     *
+     * @param moduleId           ID of this module. Must not be <code>null</code> or empty.
+     * @param capacity           maximum number of journaled but undelivered records before the back-pressure
+     *                           policy kicks in. Must be positive.
+     * @param backpressurePolicy what to do when capacity is reached. Must not be <code>null</code>.
+     */
+    protected AsyncTxDrivenModule(String moduleId, int capacity, BackpressurePolicy backpressurePolicy) {
+        super(moduleId);
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+
+        if (backpressurePolicy == null) {
+            throw new IllegalArgumentException("Back-pressure policy must not be null");
+        }
+
+        this.capacity = capacity;
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    /**
+     * Capture a change record for the soon-to-be-committed transaction. Called in place of
+     * {@link #beforeCommit(ImprovedTransactionData)}, with the same semantics.
+     *
+     * @param transactionData data about the soon-to-be-committed transaction. It is already filtered based on {@link #getConfiguration()}.
+     * @return change record to be delivered to {@link #afterCommitAsync(Object)} once the transaction commits, or
+     * <code>null</code> if there is nothing to do.
+     * @throws DeliberateTransactionRollbackException if the module wants to prevent the transaction from committing.
+     */
+    protected abstract T createRecord(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException;
+
+    /**
+     * Do the post-commit work for a single change record. Called by a single delivery thread, in journal order, with no
+     * transaction running.
+     *
+     * @param state change record produced by {@link #beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)}.
+     */
+    protected abstract void afterCommitAsync(T state);
+
+    /**
+     * Get the directory in which the journal of this module lives. By default, a <code>graphaware-async</code>
+     * directory inside the database store directory. Intended to be overridden.
+     *
+     * @param database the module runs against.
+     * @return directory.
+     */
+    protected File journalDirectory(GraphDatabaseService database) {
+        return new File(((GraphDatabaseAPI) database).getStoreDir(), "graphaware-async");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Subclasses overriding this method must call super.
+     * </p>
+     */
+    @Override
+    public void start(GraphDatabaseService database) {
+        super.start(database);
+
+        try {
+            journal = new AsyncJournal(journalDirectory(database), getId());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open journal of module " + getId(), e);
+        }
+
+        running = true;
+        deliveryThread = new Thread(this::deliver, "GraphAware-" + getId() + "-async");
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Creates a change record by calling {@link #createRecord(ImprovedTransactionData)} and journals it, to be
+     * confirmed or discarded once the transaction outcome is known.
+     * </p>
+     */
+    @Override
+    public final T beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+        T state = createRecord(transactionData);
+
+        AsyncJournal journal = this.journal;
+        if (state == null || journal == null) {
+            return state;
+        }
+
+        Deque<Prepared> stack = prepared.get();
+        stack.removeIf(p -> !journal.isPrepared(p.sequence)); //left behind by transactions whose outcome never arrived
+
+        try {
+            stack.push(new Prepared(state, journal.prepare(Serializer.toByteArray(state))));
+        } catch (IOException e) {
+            LOG.error("Could not journal a change record of module " + getId() + ", will journal it after commit", e);
+        }
+
+        return state;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Confirms the change record journaled before commit, or journals it now if that failed (e.g. because the record
+     * was produced in degraded mode). If the journal is not available, the record is handled synchronously.
+     * </p>
+     */
+    @Override
+    public final void afterCommit(T state) {
+        if (state == null) {
+            return;
+        }
+
+        AsyncJournal journal = this.journal;
+        if (journal == null) {
+            LOG.warn("Module " + getId() + " has not been started, handling change record synchronously");
+            afterCommitAsync(state);
+            return;
+        }
+
+        Long sequence = takePrepared(state);
+
+        try {
+            if (sequence != null) {
+                journal.confirm(sequence);
+            } else {
+                journal.append(Serializer.toByteArray(state));
+            }
+        } catch (IOException e) {
+            if (sequence != null) {
+                LOG.warn("Could not confirm change record " + sequence + " of module " + getId() + ", it will be delivered once in doubt", e);
+            } else {
+                LOG.error("Could not journal a change record of module " + getId() + ", handling it synchronously", e);
+                afterCommitAsync(state);
+                return;
+            }
+        }
+
+        applyBackpressure(journal);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Discards the change record journaled before commit. Subclasses overriding this method must call super.
+     * </p>
+     */
+    @Override
+    public void afterRollback(T state) {
+        if (state == null) {
+            return;
+        }
+
+        Long sequence = takePrepared(state);
+        if (sequence == null) {
+            return;
+        }
+
+        try {
+            journal.discard(sequence);
+        } catch (IOException e) {
+            LOG.error("Could not discard change record " + sequence + " of module " + getId() + ", it may be delivered after restart", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Subclasses overriding this method must call super.
+     * </p>
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+
+        Thread thread = deliveryThread;
+        if (thread != null) {
+            try {
+                thread.join(SHUTDOWN_WAIT_MS);
+                if (thread.isAlive()) {
+                    thread.interrupt();
+                    thread.join(SHUTDOWN_WAIT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        AsyncJournal journal = this.journal;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close journal of module " + getId(), e);
+            }
+        }
+
+        super.shutdown();
+    }
+
+    /**
+     * @return number of change records that have been journaled but not yet delivered.
+     */
+    public long getPending() {
+        AsyncJournal journal = this.journal;
+        return journal == null ? 0 : journal.pending();
+    }
+
+    private Long takePrepared(T state) {
+        Iterator<Prepared> iterator = prepared.get().iterator();
+        while (iterator.hasNext()) {
+            Prepared candidate = iterator.next();
+            if (candidate.state == state) {
+                iterator.remove();
+                return candidate.sequence;
+            }
+        }
+        return null;
+    }
+
+    private void applyBackpressure(AsyncJournal journal) {
+        if (journal.pending() <= capacity) {
+            return;
+        }
+
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            try {
+                journal.awaitCapacity(capacity);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastSpillWarning > SPILL_WARNING_INTERVAL_MS) {
+            lastSpillWarning = now;
+            LOG.warn("Module " + getId() + " is falling behind, " + journal.pending() + " change records pending");
+        }
+    }
+
+    private void deliver() {
+        while (running) {
+            AsyncJournal.Entry entry;
+
+            try {
+                entry = journal.next(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.error("Could not read journal of module " + getId(), e);
+                sleep(POLL_INTERVAL_MS);
+                continue;
+            }
+
+            if (entry == null) {
+                continue;
+            }
+
+            deliver(entry);
+
+            try {
+                journal.markDelivered(entry);
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                //the entry will be delivered again, which is fine with at-least-once semantics
+                LOG.error("Could not record delivery of change record " + entry.getSequence() + " of module " + getId(), e);
+                sleep(POLL_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void deliver(AsyncJournal.Entry entry) {
+        T state;
+
+        try {
+            state = Serializer.fromByteArray(entry.getData());
+        } catch (RuntimeException e) {
+            LOG.error("Could not deserialize change record " + entry.getSequence() + " of module " + getId() + ", skipping it", e);
+            return;
+        }
+
+        deliver(state, entry.getSequence());
+    }
+
+    private void deliver(T state, long sequence) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                afterCommitAsync(state);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    LOG.error("Module " + getId() + " failed to handle change record " + sequence + " " + MAX_ATTEMPTS + " times, skipping it", e);
+                } else {
+                    LOG.warn("Module " + getId() + " failed to handle change record " + sequence + ", will retry", e);
+                    sleep(RETRY_DELAY_MS * attempt);
+                }
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A change record journaled before commit.
+     */
+    private static final class Prepared {
+
+        private final Object state;
+        private final long sequence;
+
+        private Prepared(Object state, long sequence) {
+            this.state = state;
+            this.sequence = sequence;
+        }
+    }
+}
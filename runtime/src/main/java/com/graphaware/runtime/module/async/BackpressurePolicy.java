@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.async;
+
+/**
+ * What an {@link AsyncTxDrivenModule} does when the number of committed but not yet delivered records reaches its
+ * configured capacity.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * Make the committing thread wait until there is capacity again. This slows writers down to the speed of the
+     * module, keeping the journal on disk bounded. This is the default.
+     */
+    BLOCK,
+
+    /**
+     * Never block the committing thread; let the journal on disk grow and log a warning. With this policy, the capacity
+     * is only a warning threshold and does not bound anything. Memory used by the module stays bounded either way,
+     * because undelivered records are read back from the journal.
+     */
+    SPILL
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import com.graphaware.common.log.LoggerFactory;
+import org.neo4j.logging.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A local, append-only, segment-rolling log of {@link ChangeRecord}s, one per committed transaction.
+ * <p/>
+ * Records are appended to memory-mapped, pre-allocated segment files ({@link ChangeLogSegment}); when the active
+ * segment is full, a new one is rolled. Every record gets an offset, unique and strictly increasing in the order in
+ * which records are appended. {@link ChangeLogModule} appends after commit, so concurrent transactions may be appended
+ * in a different order than they committed in. Appends are serialized, reads are lock-free with respect to appends and
+ * safe from any number of threads, so that many {@link ChangeLogConsumer}s can read the log in parallel.
+ * <p/>
+ * Old segments are deleted by {@link #enforceRetention()} once the records exceed the configured size in bytes or the
+ * segments exceed the configured age, but never before every consumer that has ever committed an offset has committed
+ * one past them, so a slow
+ * consumer makes the log grow beyond the configured retention rather than lose records. A consumer that is no longer
+ * used must be removed by {@link #removeConsumer(String)}, otherwise it holds retention back forever.
+ * {@link #compact()} rewrites all but the active segment so that every node and relationship appears in them at most
+ * once, with all its changes merged into a single change at the position of the latest one. Compaction preserves
+ * offsets, so offsets of compacted logs have gaps. Retention and compaction never block appends.
+ * <p/>
+ * Written records become visible to readers immediately; they are flushed to disk by {@link #force()}, which is called
+ * periodically by {@link ChangeLogModule} and when the log is closed.
+ */
+public class ChangeLog implements Closeable {
+
+    private static final Log LOG = LoggerFactory.getLogger(ChangeLog.class);
+
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final String OFFSET_SUFFIX = ".offset";
+
+    private final File directory;
+    private final ChangeLogConfiguration configuration;
+    private final ConcurrentSkipListMap<Long, ChangeLogSegment> segments = new ConcurrentSkipListMap<>();
+
+    //serializes retention and compaction, which delete and replace sealed segments; appends only touch the active
+    //segment and synchronize on this log, so they never wait for either
+    private final Object maintenanceLock = new Object();
+
+    private volatile ChangeLogSegment active;
+    private long nextOffset;
+
+    /**
+     * Open a log, creating it if it doesn't exist.
+     *
+     * @param directory     of the log. Must not be <code>null</code>.
+     * @param configuration of the log. Must not be <code>null</code>.
+     * @throws IOException if the log can't be opened.
+     */
+    public ChangeLog(File directory, ChangeLogConfiguration configuration) throws IOException {
+        if (directory == null || configuration == null) {
+            throw new IllegalArgumentException("Directory and configuration must not be null");
+        }
+
+        this.directory = directory;
+        this.configuration = configuration;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(ChangeLogSegment.SUFFIX) || name.endsWith(COMPACTED_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(COMPACTED_SUFFIX)) {
+                    //compaction interrupted before the segment was replaced
+                    Files.delete(file.toPath());
+                    continue;
+                }
+                ChangeLogSegment segment = ChangeLogSegment.open(file);
+                segments.put(segment.getBaseOffset(), segment);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            active = ChangeLogSegment.create(directory, 0, configuration.getSegmentSize());
+            segments.put(0L, active);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+
+        nextOffset = active.lastOffset() + 1;
+    }
+
+    /**
+     * Append a record to the log.
+     *
+     * @param record to append. Its offset is ignored.
+     * @return offset assigned to the record.
+     * @throws IOException if a new segment could not be rolled.
+     */
+    public long append(ChangeRecord record) throws IOException {
+        return append(record.encode());
+    }
+
+    /**
+     * Append an encoded record to the log.
+     *
+     * @param payload record encoded by {@link ChangeRecord#encode()}.
+     * @return offset assigned to the record.
+     * @throws IOException if a new segment could not be rolled.
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        long offset = nextOffset;
+        write(offset, payload);
+        nextOffset++;
+        return offset;
+    }
+
+    private void write(long offset, byte[] payload) throws IOException {
+        if (!active.hasRoomFor(payload.length)) {
+            roll(offset, payload.length);
+        }
+        active.append(offset, payload);
+    }
+
+    private void roll(long baseOffset, int payloadLength) throws IOException {
+        active.force();
+        int capacity = Math.max(configuration.getSegmentSize(), ChangeLogSegment.HEADER_SIZE * 2 + payloadLength);
+        ChangeLogSegment segment = ChangeLogSegment.create(directory, baseOffset, capacity);
+        segments.put(baseOffset, segment);
+        active = segment;
+    }
+
+    /**
+     * Read records from the log.
+     *
+     * @param fromOffset offset to read from (inclusive). If the record at that offset has been deleted by retention or
+     *                   compaction, reading starts at the next available record.
+     * @param maxRecords maximum number of records to read.
+     * @return records, in offset order. Empty if there are none.
+     */
+    public List<ChangeRecord> read(long fromOffset, int maxRecords) {
+        List<ChangeRecord> result = new ArrayList<>(Math.min(maxRecords, 1024));
+
+        Map.Entry<Long, ChangeLogSegment> floor = segments.floorEntry(fromOffset);
+        Long start = floor != null ? floor.getKey() : segments.isEmpty() ? null : segments.firstKey();
+        if (start == null) {
+            return result;
+        }
+
+        for (ChangeLogSegment segment : segments.tailMap(start, true).values()) {
+            int size = segment.size();
+            for (int i = segment.indexOf(fromOffset); i < size && result.size() < maxRecords; i++) {
+                result.add(segment.read(i));
+            }
+            if (result.size() >= maxRecords) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return offset of the first record still in the log, or {@link #getNextOffset()} if the log is empty.
+     */
+    public long getFirstOffset() {
+        for (ChangeLogSegment segment : segments.values()) {
+            if (!segment.isEmpty()) {
+                return segment.read(0).getOffset();
+            }
+        }
+        return getNextOffset();
+    }
+
+    /**
+     * @return offset that will be assigned to the next appended record.
+     */
+    public synchronized long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return total size of the records in all segments in bytes, including frame headers. Segment files are
+     * pre-allocated, so the log takes up to one segment more on disk.
+     */
+    public long size() {
+        long size = 0;
+        for (ChangeLogSegment segment : segments.values()) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return number of segments.
+     */
+    public int numberOfSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Create a consumer of this log with persistent offset.
+     *
+     * @param name of the consumer, unique per log. Consumers with the same name share the persisted offset.
+     * @return consumer.
+     * @throws IOException if the consumer's offset can't be read.
+     */
+    public ChangeLogConsumer consumer(String name) throws IOException {
+        return new ChangeLogConsumer(this, offsetFile(name));
+    }
+
+    /**
+     * Remove a consumer's persisted offset, so that it no longer holds back {@link #enforceRetention()}.
+     *
+     * @param name of the consumer.
+     * @throws IOException if the offset can't be removed.
+     */
+    public void removeConsumer(String name) throws IOException {
+        Files.deleteIfExists(offsetFile(name).toPath());
+    }
+
+    private File consumersDirectory() {
+        return new File(directory, "consumers");
+    }
+
+    private File offsetFile(String name) {
+        return new File(consumersDirectory(), name + OFFSET_SUFFIX);
+    }
+
+    /**
+     * Delete the oldest segments (never the active one) while the records in the log take up more bytes than the
+     * configured retention size (see {@link #size()}), and segments whose last record is older than the configured
+     * retention time. A segment is only deleted once all consumers have committed an offset past its last record.
+     *
+     * @return number of deleted segments.
+     */
+    public int enforceRetention() {
+        synchronized (maintenanceLock) {
+            int deleted = 0;
+            long now = System.currentTimeMillis();
+            long size = size();
+            long consumed = minimumConsumerOffset();
+
+            for (ChangeLogSegment segment : new ArrayList<>(segments.values())) {
+                if (segment == active) {
+                    break;
+                }
+
+                boolean tooBig = configuration.getRetentionBytes() != ChangeLogConfiguration.UNLIMITED && size > configuration.getRetentionBytes();
+                boolean tooOld = configuration.getRetentionMillis() != ChangeLogConfiguration.UNLIMITED && now - segment.getLastModified() > configuration.getRetentionMillis();
+                if (!tooBig && !tooOld) {
+                    break;
+                }
+
+                if (segment.lastOffset() >= consumed) {
+                    LOG.warn("Change log exceeds its retention, but a consumer has only committed offset " + consumed + ", keeping segments from offset " + segment.getBaseOffset());
+                    break;
+                }
+
+                segments.remove(segment.getBaseOffset());
+                size -= segment.getSize();
+                deleted++;
+                //readers may still hold the mapping, which remains valid after the file is deleted
+                if (!segment.getFile().delete()) {
+                    LOG.warn("Could not delete change log segment " + segment.getFile());
+                }
+            }
+
+            return deleted;
+        }
+    }
+
+    private long minimumConsumerOffset() {
+        long minimum = Long.MAX_VALUE;
+
+        File[] files = consumersDirectory().listFiles((dir, name) -> name.endsWith(OFFSET_SUFFIX));
+        if (files == null) {
+            return minimum;
+        }
+
+        for (File file : files) {
+            try {
+                minimum = Math.min(minimum, ChangeLogConsumer.readOffset(file));
+            } catch (IOException e) {
+                //removed concurrently, or can't be read; in the latter case, err on the safe side
+                if (file.exists()) {
+                    LOG.warn("Could not read offset of consumer " + file.getName() + ", retention suspended", e);
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+
+        return minimum;
+    }
+
+    /**
+     * Compact all segments but the active one, so that every node and relationship appears in them at most once,
+     * with all its changes merged (see {@link EntityChange#merge(EntityChange)}) at the position of its latest change.
+     * Records left with no changes are dropped. Deletes are kept, so that consumers replaying the log learn about them.
+     * When Neo4j reuses the ID of a deleted entity, the delete and the changes of the new entity are kept as separate
+     * entries (see {@link EntityChange#canMerge(EntityChange)}).
+     * <p/>
+     * Memory needed is proportional to the number of distinct entities in the compacted segments; it is released as
+     * the segments are rewritten. Sealed segments never change, so they are read and rewritten without blocking appends
+     * or readers; a rewritten segment replaces the original atomically.
+     *
+     * @return number of records dropped.
+     * @throws IOException if a segment can't be rewritten.
+     */
+    public int compact() throws IOException {
+        synchronized (maintenanceLock) {
+            return doCompact();
+        }
+    }
+
+    private int doCompact() throws IOException {
+        List<ChangeLogSegment> sealed = new ArrayList<>(segments.headMap(active.getBaseOffset(), false).values());
+        if (sealed.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Merged> nodes = new HashMap<>();
+        Map<Long, Merged> relationships = new HashMap<>();
+        Map<Long, Map<Integer, EntityChange>> superseded = new HashMap<>();
+
+        for (ChangeLogSegment segment : sealed) {
+            for (int i = 0; i < segment.size(); i++) {
+                ChangeRecord record = segment.read(i);
+                List<EntityChange> changes = record.getChanges();
+                for (int index = 0; index < changes.size(); index++) {
+                    EntityChange change = changes.get(index);
+                    Map<Long, Merged> merged = change.getType().isNode() ? nodes : relationships;
+                    Merged previous = merged.get(change.getId());
+                    if (previous == null) {
+                        merged.put(change.getId(), new Merged(change, record.getOffset(), index));
+                    } else if (previous.change.canMerge(change)) {
+                        previous.merge(change, record.getOffset(), index);
+                    } else {
+                        //ID reused after delete, keep the delete where it is
+                        superseded.computeIfAbsent(previous.offset, k -> new HashMap<>()).put(previous.index, previous.change);
+                        merged.put(change.getId(), new Merged(change, record.getOffset(), index));
+                    }
+                }
+            }
+        }
+
+        int dropped = 0;
+        for (ChangeLogSegment segment : sealed) {
+            dropped += rewrite(segment, nodes, relationships, superseded);
+        }
+
+        return dropped;
+    }
+
+    private int rewrite(ChangeLogSegment segment, Map<Long, Merged> nodes, Map<Long, Merged> relationships,
+                        Map<Long, Map<Integer, EntityChange>> superseded) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        int capacity = ChangeLogSegment.HEADER_SIZE;
+        int dropped = 0;
+        boolean changed = false;
+
+        for (int i = 0; i < segment.size(); i++) {
+            ChangeRecord record = segment.read(i);
+            Map<Integer, EntityChange> deletes = superseded.remove(record.getOffset());
+            List<EntityChange> changes = record.getChanges();
+            List<EntityChange> kept = new ArrayList<>();
+            for (int index = 0; index < changes.size(); index++) {
+                EntityChange change = changes.get(index);
+                Map<Long, Merged> merged = change.getType().isNode() ? nodes : relationships;
+                Merged latest = merged.get(change.getId());
+                EntityChange keep = null;
+                if (latest != null && latest.offset == record.getOffset() && latest.index == index) {
+                    keep = latest.change;
+                    merged.remove(change.getId());
+                } else if (deletes != null) {
+                    keep = deletes.get(index);
+                }
+
+                if (keep != null) {
+                    kept.add(keep);
+                    changed |= !keep.equals(change);
+                } else {
+                    changed = true;
+                }
+            }
+
+            if (kept.isEmpty()) {
+                dropped++;
+                continue;
+            }
+
+            byte[] payload = new ChangeRecord(record.getOffset(), record.getTimestamp(), kept).encode();
+            offsets.add(record.getOffset());
+            payloads.add(payload);
+            capacity += ChangeLogSegment.HEADER_SIZE + payload.length;
+        }
+
+        if (!changed) {
+            return 0;
+        }
+
+        if (payloads.isEmpty()) {
+            synchronized (this) {
+                segments.remove(segment.getBaseOffset());
+                Files.delete(segment.getFile().toPath());
+            }
+            return dropped;
+        }
+
+        File target = new File(directory, segment.getFile().getName() + COMPACTED_SUFFIX);
+        ChangeLogSegment compacted = ChangeLogSegment.createAt(target, segment.getBaseOffset(), capacity);
+        for (int i = 0; i < payloads.size(); i++) {
+            compacted.append(offsets.get(i), payloads.get(i));
+        }
+        compacted.close();
+
+        //keep the age of the original, so that compaction doesn't extend retention
+        if (!target.setLastModified(segment.getLastModified())) {
+            LOG.warn("Could not set modification time of " + target);
+        }
+
+        synchronized (this) {
+            Files.move(target.toPath(), segment.getFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            //readers may still hold the original mapping, which remains valid after the file is replaced
+            segments.put(segment.getBaseOffset(), ChangeLogSegment.open(segment.getFile()));
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Flush all written records to disk.
+     */
+    public void force() {
+        active.force();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        for (ChangeLogSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Changes of an entity merged so far during compaction, with the position of the latest of them.
+     */
+    private static final class Merged {
+
+        private EntityChange change;
+        private long offset;
+        private int index;
+
+        private Merged(EntityChange change, long offset, int index) {
+            this.change = change;
+            this.offset = offset;
+            this.index = index;
+        }
+
+        private void merge(EntityChange later, long offset, int index) {
+            this.change = change.merge(later);
+            this.offset = offset;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import com.graphaware.common.policy.inclusion.InclusionPolicies;
+import com.graphaware.runtime.config.BaseTxDrivenModuleConfiguration;
+import com.graphaware.runtime.policy.InclusionPoliciesFactory;
+
+/**
+ * Immutable configuration of {@link ChangeLogModule} and its {@link ChangeLog} with fluent interface.
+ */
+public final class ChangeLogConfiguration extends BaseTxDrivenModuleConfiguration<ChangeLogConfiguration> {
+
+    public static final long UNLIMITED = -1;
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final long DEFAULT_RETENTION_BYTES = 1024L * 1024 * 1024;
+    private static final long DEFAULT_RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final long DEFAULT_MAINTENANCE_INTERVAL_MILLIS = 60_000;
+
+    private final int segmentSize;
+    private final long retentionBytes;
+    private final long retentionMillis;
+    private final boolean compaction;
+    private final long maintenanceIntervalMillis;
+
+    /**
+     * Create a default configuration: {@link InclusionPoliciesFactory#allBusiness()}, 16 MB segments, retention of
+     * 1 GB and 7 days (whichever is hit first), no compaction, maintenance every minute.
+     *
+     * @return default configuration.
+     */
+    public static ChangeLogConfiguration defaultConfiguration() {
+        return new ChangeLogConfiguration(InclusionPoliciesFactory.allBusiness(), ALWAYS, DEFAULT_SEGMENT_SIZE,
+                DEFAULT_RETENTION_BYTES, DEFAULT_RETENTION_MILLIS, false, DEFAULT_MAINTENANCE_INTERVAL_MILLIS);
+    }
+
+    private ChangeLogConfiguration(InclusionPolicies inclusionPolicies, long initializeUntil, int segmentSize,
+                                   long retentionBytes, long retentionMillis, boolean compaction, long maintenanceIntervalMillis) {
+        super(inclusionPolicies, initializeUntil);
+
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1 kB, was " + segmentSize);
+        }
+        if (retentionBytes != UNLIMITED && retentionBytes < 1) {
+            throw new IllegalArgumentException("Retention bytes must be positive or UNLIMITED, was " + retentionBytes);
+        }
+        if (retentionMillis != UNLIMITED && retentionMillis < 1) {
+            throw new IllegalArgumentException("Retention time must be positive or UNLIMITED, was " + retentionMillis);
+        }
+        if (maintenanceIntervalMillis < 1) {
+            throw new IllegalArgumentException("Maintenance interval must be positive, was " + maintenanceIntervalMillis);
+        }
+
+        this.segmentSize = segmentSize;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+        this.compaction = compaction;
+        this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ChangeLogConfiguration newInstance(InclusionPolicies inclusionPolicies, long initializeUntil) {
+        return new ChangeLogConfiguration(inclusionPolicies, initializeUntil, segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public ChangeLogConfiguration withSegmentSize(int segmentSize) {
+        return new ChangeLogConfiguration(getInclusionPolicies(), initializeUntil(), segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public ChangeLogConfiguration withRetentionBytes(long retentionBytes) {
+        return new ChangeLogConfiguration(getInclusionPolicies(), initializeUntil(), segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public ChangeLogConfiguration withRetentionMillis(long retentionMillis) {
+        return new ChangeLogConfiguration(getInclusionPolicies(), initializeUntil(), segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public ChangeLogConfiguration withCompaction(boolean compaction) {
+        return new ChangeLogConfiguration(getInclusionPolicies(), initializeUntil(), segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public ChangeLogConfiguration withMaintenanceIntervalMillis(long maintenanceIntervalMillis) {
+        return new ChangeLogConfiguration(getInclusionPolicies(), initializeUntil(), segmentSize, retentionBytes, retentionMillis, compaction, maintenanceIntervalMillis);
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public long getRetentionBytes() {
+        return retentionBytes;
+    }
+
+    public long getRetentionMillis() {
+        return retentionMillis;
+    }
+
+    public boolean isCompaction() {
+        return compaction;
+    }
+
+    public long getMaintenanceIntervalMillis() {
+        return maintenanceIntervalMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        ChangeLogConfiguration that = (ChangeLogConfiguration) o;
+
+        if (segmentSize != that.segmentSize) return false;
+        if (retentionBytes != that.retentionBytes) return false;
+        if (retentionMillis != that.retentionMillis) return false;
+        if (compaction != that.compaction) return false;
+        return maintenanceIntervalMillis == that.maintenanceIntervalMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + segmentSize;
+        result = 31 * result + (int) (retentionBytes ^ (retentionBytes >>> 32));
+        result = 31 * result + (int) (retentionMillis ^ (retentionMillis >>> 32));
+        result = 31 * result + (compaction ? 1 : 0);
+        result = 31 * result + (int) (maintenanceIntervalMillis ^ (maintenanceIntervalMillis >>> 32));
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * A reader of a {@link ChangeLog} with a persisted offset, so that it can continue where it left off after a restart.
+ * <p/>
+ * {@link #poll(int)} advances the position in memory; {@link #commit()} persists it, typically after the polled
+ * records have been processed, which gives at-least-once processing. A consumer is thread-safe, but is intended to be
+ * used by a single thread; parallel reading is achieved by using multiple consumers, which don't block each other.
+ */
+public class ChangeLogConsumer {
+
+    private final ChangeLog log;
+    private final File offsetFile;
+
+    private long position;
+
+    /**
+     * Construct a new consumer. Starts at the persisted offset, or at the beginning of the log if there is none.
+     *
+     * @param log        to consume.
+     * @param offsetFile file in which the offset is persisted.
+     * @throws IOException if the persisted offset can't be read.
+     */
+    ChangeLogConsumer(ChangeLog log, File offsetFile) throws IOException {
+        this.log = log;
+        this.offsetFile = offsetFile;
+
+        if (offsetFile.exists()) {
+            position = readOffset(offsetFile);
+        } else {
+            position = log.getFirstOffset();
+        }
+    }
+
+    /**
+     * Read a persisted offset.
+     *
+     * @param offsetFile file in which the offset is persisted.
+     * @return offset.
+     * @throws IOException if the offset can't be read.
+     */
+    static long readOffset(File offsetFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(offsetFile))) {
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Read the next records and advance the position past them.
+     *
+     * @param maxRecords maximum number of records to read.
+     * @return records, empty if there are no new records.
+     */
+    public synchronized List<ChangeRecord> poll(int maxRecords) {
+        List<ChangeRecord> records = log.read(position, maxRecords);
+        if (!records.isEmpty()) {
+            position = records.get(records.size() - 1).getOffset() + 1;
+        }
+        return records;
+    }
+
+    /**
+     * Persist the current position.
+     *
+     * @throws IOException if the position can't be persisted.
+     */
+    public synchronized void commit() throws IOException {
+        File directory = offsetFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+
+        File temp = new File(directory, offsetFile.getName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp); DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeLong(position);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Move to a position. Not persisted until {@link #commit()}.
+     *
+     * @param offset of the next record to read.
+     */
+    public synchronized void seek(long offset) {
+        position = offset;
+    }
+
+    /**
+     * @return offset of the next record to read.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return number of records appended to the log after the current position (upper bound, as compaction and
+     * retention may have removed some).
+     */
+    public synchronized long getLag() {
+        return Math.max(0, log.getNextOffset() - position);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.util.Change;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link com.graphaware.runtime.module.TxDrivenModule} that captures the changes of every committed transaction
+ * (created, updated and deleted nodes and relationships, with their label and property deltas) into a
+ * {@link ChangeLog}, from which any number of {@link ChangeLogConsumer}s can read them, in parallel and at their own
+ * pace.
+ * <p/>
+ * The change record is built before commit, while transaction data is available, and appended to the log after
+ * commit, so only committed transactions are logged. Records are appended in the order in which the after-commit
+ * callbacks run; for concurrent transactions this isn't necessarily the order in which they committed. Appending is
+ * a copy into a memory-mapped file, so the module adds very little to commit latency. Flushing to disk, retention and
+ * (optional) compaction are done periodically by a background thread.
+ * <p/>
+ * Neo4j doesn't expose transaction IDs to transaction event handlers, so records are identified by their offset in
+ * the log, which is assigned in append order.
+ */
+public class ChangeLogModule extends BaseTxDrivenModule<byte[]> {
+
+    private static final Log LOG = LoggerFactory.getLogger(ChangeLogModule.class);
+
+    private final ChangeLogConfiguration configuration;
+    private final File directory;
+
+    private volatile ChangeLog changeLog;
+    private ScheduledExecutorService maintenance;
+
+    /**
+     * Construct a new module with {@link ChangeLogConfiguration#defaultConfiguration()}, storing the log in
+     * <code>graphaware-cdc/&lt;moduleId&gt;</code> inside the database store directory.
+     *
+     * @param moduleId ID of this module. Must not be <code>null</code> or empty.
+     */
+    public ChangeLogModule(String moduleId) {
+        this(moduleId, ChangeLogConfiguration.defaultConfiguration(), null);
+    }
+
+    /**
+     * Construct a new module.
+     *
+     * @param moduleId      ID of this module. Must not be <code>null</code> or empty.
+     * @param configuration of the module. Must not be <code>null</code>.
+     * @param directory     to store the log in, <code>null</code> for <code>graphaware-cdc/&lt;moduleId&gt;</code>
+     *                      inside the database store directory.
+     */
+    public ChangeLogModule(String moduleId, ChangeLogConfiguration configuration, File directory) {
+        super(moduleId);
+
+        if (configuration == null) {
+            throw new IllegalArgumentException("Configuration must not be null");
+        }
+
+        this.configuration = configuration;
+        this.directory = directory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ChangeLogConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(GraphDatabaseService database) {
+        super.start(database);
+
+        File logDirectory = directory != null ? directory : new File(new File(((GraphDatabaseAPI) database).getStoreDir(), "graphaware-cdc"), getId());
+
+        try {
+            changeLog = new ChangeLog(logDirectory, configuration);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open change log of module " + getId(), e);
+        }
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GraphAware-" + getId() + "-cdc");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, configuration.getMaintenanceIntervalMillis(), configuration.getMaintenanceIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void maintain() {
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog == null) {
+            return;
+        }
+
+        try {
+            changeLog.force();
+            int deleted = changeLog.enforceRetention();
+            if (deleted > 0) {
+                LOG.info("Deleted " + deleted + " change log segment(s) of module " + getId());
+            }
+            if (configuration.isCompaction()) {
+                changeLog.compact();
+            }
+        } catch (Exception e) {
+            LOG.error("Change log maintenance of module " + getId() + " failed", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] beforeCommit(ImprovedTransactionData transactionData) {
+        List<EntityChange> changes = new ArrayList<>();
+
+        for (Node node : transactionData.getAllCreatedNodes()) {
+            changes.add(EntityChange.nodeChange(EntityChange.Type.NODE_CREATED, node.getId(), names(node.getLabels()),
+                    Collections.<String>emptySet(), new HashMap<>(node.getAllProperties()), Collections.<String>emptySet()));
+        }
+
+        for (Change<Node> change : transactionData.getAllChangedNodes()) {
+            Node node = change.getCurrent();
+            changes.add(EntityChange.nodeChange(EntityChange.Type.NODE_UPDATED, node.getId(),
+                    names(transactionData.assignedLabels(node)), names(transactionData.removedLabels(node)),
+                    setProperties(transactionData.createdProperties(node), transactionData.changedProperties(node)),
+                    new HashSet<>(transactionData.deletedProperties(node).keySet())));
+        }
+
+        for (Node node : transactionData.getAllDeletedNodes()) {
+            changes.add(EntityChange.nodeChange(EntityChange.Type.NODE_DELETED, node.getId(), Collections.<String>emptySet(),
+                    Collections.<String>emptySet(), Collections.<String, Object>emptyMap(), Collections.<String>emptySet()));
+        }
+
+        for (Relationship relationship : transactionData.getAllCreatedRelationships()) {
+            changes.add(relationshipChange(EntityChange.Type.RELATIONSHIP_CREATED, relationship,
+                    new HashMap<>(relationship.getAllProperties()), Collections.<String>emptySet()));
+        }
+
+        for (Change<Relationship> change : transactionData.getAllChangedRelationships()) {
+            Relationship relationship = change.getCurrent();
+            changes.add(relationshipChange(EntityChange.Type.RELATIONSHIP_UPDATED, relationship,
+                    setProperties(transactionData.createdProperties(relationship), transactionData.changedProperties(relationship)),
+                    new HashSet<>(transactionData.deletedProperties(relationship).keySet())));
+        }
+
+        for (Relationship relationship : transactionData.getAllDeletedRelationships()) {
+            changes.add(relationshipChange(EntityChange.Type.RELATIONSHIP_DELETED, relationship,
+                    Collections.<String, Object>emptyMap(), Collections.<String>emptySet()));
+        }
+
+        if (changes.isEmpty()) {
+            return null;
+        }
+
+        return new ChangeRecord(System.currentTimeMillis(), changes).encode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCommit(byte[] state) {
+        if (state == null) {
+            return;
+        }
+
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog == null) {
+            LOG.warn("Module " + getId() + " has not been started, change record discarded");
+            return;
+        }
+
+        try {
+            changeLog.append(state);
+        } catch (IOException e) {
+            LOG.error("Could not append a change record to the change log of module " + getId(), e);
+        }
+    }
+
+    /**
+     * Get the change log of this module.
+     *
+     * @return change log, <code>null</code> if the module hasn't been started.
+     */
+    public ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ChangeLog changeLog = this.changeLog;
+        if (changeLog != null) {
+            changeLog.close();
+            this.changeLog = null;
+        }
+
+        super.shutdown();
+    }
+
+    private static Set<String> names(Iterable<Label> labels) {
+        Set<String> result = new HashSet<>();
+        for (Label label : labels) {
+            result.add(label.name());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> setProperties(Map<String, Object> created, Map<String, Change<Object>> changed) {
+        Map<String, Object> result = new HashMap<>(created);
+        for (Map.Entry<String, Change<Object>> entry : changed.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getCurrent());
+        }
+        return result;
+    }
+
+    private static EntityChange relationshipChange(EntityChange.Type type, Relationship relationship, Map<String, Object> setProperties, Set<String> removedProperties) {
+        return EntityChange.relationshipChange(type, relationship.getId(), relationship.getStartNode().getId(),
+                relationship.getEndNode().getId(), relationship.getType().name(), setProperties, removedProperties);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A single memory-mapped, pre-allocated segment file of a {@link ChangeLog}.
+ * <p/>
+ * Frames are laid out back to back as [offset (long)][length (int)][crc (int)][payload]; the unused tail of the file
+ * is zeroed, so a zero length marks the end of data. A frame whose CRC doesn't match (torn write) ends the segment on
+ * recovery. An in-memory index of offsets and positions makes lookups a binary search.
+ * <p/>
+ * Appends must be externally synchronized (done by {@link ChangeLog}), reads are safe from any number of threads.
+ */
+final class ChangeLogSegment implements Closeable {
+
+    static final int HEADER_SIZE = 8 + 4 + 4;
+    static final String SUFFIX = ".log";
+
+    private final long baseOffset;
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private long[] offsets = new long[256];
+    private int[] positions = new int[256];
+    private int count = 0;
+    private int writePosition = 0;
+    private volatile long lastModified;
+
+    /**
+     * Create a new, empty segment.
+     *
+     * @param directory  to create the segment in.
+     * @param baseOffset offset of the first record the segment will hold.
+     * @param capacity   size of the segment file in bytes.
+     * @return segment.
+     * @throws IOException if the segment can't be created.
+     */
+    static ChangeLogSegment create(File directory, long baseOffset, int capacity) throws IOException {
+        return createAt(new File(directory, fileName(baseOffset)), baseOffset, capacity);
+    }
+
+    /**
+     * Create a new, empty segment in a specific file.
+     *
+     * @param file       of the segment.
+     * @param baseOffset offset of the first record the segment will hold.
+     * @param capacity   size of the segment file in bytes.
+     * @return segment.
+     * @throws IOException if the segment can't be created.
+     */
+    static ChangeLogSegment createAt(File file, long baseOffset, int capacity) throws IOException {
+        return new ChangeLogSegment(file, baseOffset, capacity);
+    }
+
+    /**
+     * Open an existing segment and recover its index.
+     *
+     * @param file of the segment.
+     * @return segment.
+     * @throws IOException if the segment can't be opened.
+     */
+    static ChangeLogSegment open(File file) throws IOException {
+        long baseOffset = Long.parseLong(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+        ChangeLogSegment segment = new ChangeLogSegment(file, baseOffset, (int) file.length());
+        segment.recover();
+        segment.lastModified = file.lastModified();
+        return segment;
+    }
+
+    static String fileName(long baseOffset) {
+        return String.format("%020d%s", baseOffset, SUFFIX);
+    }
+
+    private ChangeLogSegment(File file, long baseOffset, int capacity) throws IOException {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.lastModified = System.currentTimeMillis();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void recover() {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + HEADER_SIZE <= capacity) {
+            long offset = buffer.getLong(position);
+            int length = buffer.getInt(position + 8);
+            if (length <= 0 || position + HEADER_SIZE + length > capacity) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + HEADER_SIZE);
+            view.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 12)) {
+                break;
+            }
+
+            index(offset, position);
+            position += HEADER_SIZE + length;
+        }
+
+        writePosition = position;
+
+        //zero out a torn tail, so that it isn't mistaken for data after further appends
+        for (int i = position; i < Math.min(capacity, position + HEADER_SIZE); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * @param payloadLength length of a payload.
+     * @return true iff a record with the payload fits into this segment.
+     */
+    synchronized boolean hasRoomFor(int payloadLength) {
+        return writePosition + HEADER_SIZE + payloadLength <= capacity;
+    }
+
+    /**
+     * Append a record. The caller must have checked {@link #hasRoomFor(int)}.
+     *
+     * @param offset  of the record, greater than all offsets in this segment.
+     * @param payload of the record.
+     */
+    synchronized void append(long offset, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(writePosition + HEADER_SIZE);
+        view.put(payload);
+        buffer.putLong(writePosition, offset);
+        buffer.putInt(writePosition + 12, (int) crc.getValue());
+        buffer.putInt(writePosition + 8, payload.length);
+
+        index(offset, writePosition);
+        writePosition += HEADER_SIZE + payload.length;
+        lastModified = System.currentTimeMillis();
+    }
+
+    private void index(long offset, int position) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            positions = Arrays.copyOf(positions, count * 2);
+        }
+        offsets[count] = offset;
+        positions[count] = position;
+        count++;
+    }
+
+    /**
+     * Find the index of the first record with offset greater than or equal to the given offset.
+     *
+     * @param offset to look for.
+     * @return index, {@link #size()} if there is no such record.
+     */
+    synchronized int indexOf(long offset) {
+        int index = Arrays.binarySearch(offsets, 0, count, offset);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Read a record.
+     *
+     * @param index of the record, between 0 and {@link #size()} (exclusive).
+     * @return record.
+     */
+    ChangeRecord read(int index) {
+        long offset;
+        int position;
+        synchronized (this) {
+            offset = offsets[index];
+            position = positions[index];
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        int length = view.getInt(position + 8);
+        byte[] payload = new byte[length];
+        view.position(position + HEADER_SIZE);
+        view.get(payload);
+        return ChangeRecord.decode(offset, payload);
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return offset of the last record in this segment, base offset - 1 if empty.
+     */
+    synchronized long lastOffset() {
+        return count == 0 ? baseOffset - 1 : offsets[count - 1];
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of bytes written to this segment, including frame headers.
+     */
+    synchronized int getSize() {
+        return writePosition;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Flush written data to disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        force();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import com.graphaware.common.serialize.Serializer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A record of all changes performed by a single committed transaction, as stored in a {@link ChangeLog}.
+ * <p/>
+ * Records are encoded in a compact binary format: names are written as modified UTF-8, primitive property values
+ * and strings are tagged with a single byte, only other values (arrays) fall back to {@link Serializer}.
+ */
+public final class ChangeRecord {
+
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte OTHER = 10;
+
+    private static final EntityChange.Type[] TYPES = EntityChange.Type.values();
+
+    private final long offset;
+    private final long timestamp;
+    private final List<EntityChange> changes;
+
+    /**
+     * Construct a new record that hasn't been written to a log yet.
+     *
+     * @param timestamp of the commit, in ms since epoch.
+     * @param changes   performed by the transaction. Must not be <code>null</code>.
+     */
+    public ChangeRecord(long timestamp, List<EntityChange> changes) {
+        this(-1, timestamp, changes);
+    }
+
+    /**
+     * Construct a new record.
+     *
+     * @param offset    of the record in the log, -1 if it hasn't been written yet.
+     * @param timestamp of the commit, in ms since epoch.
+     * @param changes   performed by the transaction. Must not be <code>null</code>.
+     */
+    public ChangeRecord(long offset, long timestamp, List<EntityChange> changes) {
+        if (changes == null) {
+            throw new IllegalArgumentException("Changes must not be null");
+        }
+
+        this.offset = offset;
+        this.timestamp = timestamp;
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Get the offset of this record in the log. Offsets are assigned by the log in the order in which records are
+     * appended (after commit, see {@link ChangeLogModule}), are unique and strictly increasing, and serve as the
+     * transaction identifier for consumers.
+     *
+     * @return offset, -1 if the record hasn't been read from a log.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<EntityChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Encode this record (without its offset, which is stored by the log).
+     *
+     * @return encoded record.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + changes.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(timestamp);
+            out.writeInt(changes.size());
+            for (EntityChange change : changes) {
+                writeChange(out, change);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode change record", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a record.
+     *
+     * @param offset of the record in the log.
+     * @param data   encoded by {@link #encode()}.
+     * @return decoded record.
+     */
+    public static ChangeRecord decode(long offset, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            long timestamp = in.readLong();
+            int size = in.readInt();
+            List<EntityChange> changes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                changes.add(readChange(in));
+            }
+            return new ChangeRecord(offset, timestamp, changes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decode change record at offset " + offset, e);
+        }
+    }
+
+    private static void writeChange(DataOutputStream out, EntityChange change) throws IOException {
+        out.writeByte(change.getType().ordinal());
+        out.writeLong(change.getId());
+        if (!change.getType().isNode()) {
+            out.writeLong(change.getStartNodeId());
+            out.writeLong(change.getEndNodeId());
+            out.writeUTF(change.getRelationshipType());
+        } else {
+            writeStrings(out, change.getAssignedLabels());
+            writeStrings(out, change.getRemovedLabels());
+        }
+        out.writeInt(change.getSetProperties().size());
+        for (Map.Entry<String, Object> property : change.getSetProperties().entrySet()) {
+            out.writeUTF(property.getKey());
+            writeValue(out, property.getValue());
+        }
+        writeStrings(out, change.getRemovedProperties());
+    }
+
+    private static EntityChange readChange(DataInputStream in) throws IOException {
+        EntityChange.Type type = TYPES[in.readByte()];
+        long id = in.readLong();
+        long startNodeId = -1, endNodeId = -1;
+        String relationshipType = null;
+        Set<String> assignedLabels = Collections.emptySet(), removedLabels = Collections.emptySet();
+        if (!type.isNode()) {
+            startNodeId = in.readLong();
+            endNodeId = in.readLong();
+            relationshipType = in.readUTF();
+        } else {
+            assignedLabels = readStrings(in);
+            removedLabels = readStrings(in);
+        }
+        int properties = in.readInt();
+        Map<String, Object> setProperties = properties == 0 ? Collections.<String, Object>emptyMap() : new HashMap<>(properties * 2);
+        for (int i = 0; i < properties; i++) {
+            setProperties.put(in.readUTF(), readValue(in));
+        }
+        return new EntityChange(type, id, startNodeId, endNodeId, relationshipType, assignedLabels, removedLabels, setProperties, readStrings(in));
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            result.add(in.readUTF());
+        }
+        return result;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof String) {
+            byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else {
+            byte[] serialized = Serializer.toByteArray(value);
+            out.writeByte(OTHER);
+            out.writeInt(serialized.length);
+            out.write(serialized);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case STRING:
+                byte[] utf8 = new byte[in.readInt()];
+                in.readFully(utf8);
+                return new String(utf8, StandardCharsets.UTF_8);
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case CHAR:
+                return in.readChar();
+            case OTHER:
+                byte[] serialized = new byte[in.readInt()];
+                in.readFully(serialized);
+                return Serializer.fromByteArray(serialized);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ChangeRecord{offset=" + offset + ", timestamp=" + timestamp + ", changes=" + changes + "}";
+    }
+}
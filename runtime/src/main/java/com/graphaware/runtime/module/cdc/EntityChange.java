@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import java.util.*;
+
+/**
+ * A change of a single node or relationship, part of a {@link ChangeRecord}. Carries only the delta: assigned and
+ * removed labels, set (created or updated) and removed properties. Created entities carry all their labels and
+ * properties, deleted entities only their identity.
+ */
+public final class EntityChange {
+
+    /**
+     * Type of the change.
+     */
+    public enum Type {
+        NODE_CREATED, NODE_UPDATED, NODE_DELETED, RELATIONSHIP_CREATED, RELATIONSHIP_UPDATED, RELATIONSHIP_DELETED;
+
+        public boolean isNode() {
+            return this == NODE_CREATED || this == NODE_UPDATED || this == NODE_DELETED;
+        }
+
+        public boolean isCreated() {
+            return this == NODE_CREATED || this == RELATIONSHIP_CREATED;
+        }
+
+        public boolean isDeleted() {
+            return this == NODE_DELETED || this == RELATIONSHIP_DELETED;
+        }
+    }
+
+    private final Type type;
+    private final long id;
+    private final long startNodeId;
+    private final long endNodeId;
+    private final String relationshipType;
+    private final Set<String> assignedLabels;
+    private final Set<String> removedLabels;
+    private final Map<String, Object> setProperties;
+    private final Set<String> removedProperties;
+
+    /**
+     * Construct a new change.
+     *
+     * @param type              of the change. Must not be <code>null</code>.
+     * @param id                of the changed node or relationship.
+     * @param startNodeId       start node ID of a relationship, -1 for nodes.
+     * @param endNodeId         end node ID of a relationship, -1 for nodes.
+     * @param relationshipType  type of a relationship, <code>null</code> for nodes.
+     * @param assignedLabels    labels assigned to a node. Must not be <code>null</code>.
+     * @param removedLabels     labels removed from a node. Must not be <code>null</code>.
+     * @param setProperties     properties created or updated, with their new values. Must not be <code>null</code>.
+     * @param removedProperties keys of removed properties. Must not be <code>null</code>.
+     */
+    public EntityChange(Type type, long id, long startNodeId, long endNodeId, String relationshipType, Set<String> assignedLabels, Set<String> removedLabels, Map<String, Object> setProperties, Set<String> removedProperties) {
+        if (type == null) {
+            throw new IllegalArgumentException("Type must not be null");
+        }
+
+        this.type = type;
+        this.id = id;
+        this.startNodeId = startNodeId;
+        this.endNodeId = endNodeId;
+        this.relationshipType = relationshipType;
+        this.assignedLabels = Collections.unmodifiableSet(assignedLabels);
+        this.removedLabels = Collections.unmodifiableSet(removedLabels);
+        this.setProperties = Collections.unmodifiableMap(setProperties);
+        this.removedProperties = Collections.unmodifiableSet(removedProperties);
+    }
+
+    /**
+     * Create a node change.
+     *
+     * @param type              of the change, must be a node change type.
+     * @param id                of the node.
+     * @param assignedLabels    labels assigned to the node.
+     * @param removedLabels     labels removed from the node.
+     * @param setProperties     properties created or updated, with their new values.
+     * @param removedProperties keys of removed properties.
+     * @return change.
+     */
+    public static EntityChange nodeChange(Type type, long id, Set<String> assignedLabels, Set<String> removedLabels, Map<String, Object> setProperties, Set<String> removedProperties) {
+        if (!type.isNode()) {
+            throw new IllegalArgumentException(type + " is not a node change");
+        }
+        return new EntityChange(type, id, -1, -1, null, assignedLabels, removedLabels, setProperties, removedProperties);
+    }
+
+    /**
+     * Create a relationship change.
+     *
+     * @param type              of the change, must be a relationship change type.
+     * @param id                of the relationship.
+     * @param startNodeId       ID of the start node.
+     * @param endNodeId         ID of the end node.
+     * @param relationshipType  type of the relationship.
+     * @param setProperties     properties created or updated, with their new values.
+     * @param removedProperties keys of removed properties.
+     * @return change.
+     */
+    public static EntityChange relationshipChange(Type type, long id, long startNodeId, long endNodeId, String relationshipType, Map<String, Object> setProperties, Set<String> removedProperties) {
+        if (type.isNode()) {
+            throw new IllegalArgumentException(type + " is not a relationship change");
+        }
+        return new EntityChange(type, id, startNodeId, endNodeId, relationshipType, Collections.<String>emptySet(), Collections.<String>emptySet(), setProperties, removedProperties);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getStartNodeId() {
+        return startNodeId;
+    }
+
+    public long getEndNodeId() {
+        return endNodeId;
+    }
+
+    public String getRelationshipType() {
+        return relationshipType;
+    }
+
+    public Set<String> getAssignedLabels() {
+        return assignedLabels;
+    }
+
+    public Set<String> getRemovedLabels() {
+        return removedLabels;
+    }
+
+    public Map<String, Object> getSetProperties() {
+        return setProperties;
+    }
+
+    public Set<String> getRemovedProperties() {
+        return removedProperties;
+    }
+
+    /**
+     * Check whether a later change of an entity with the same ID can be merged into this one. Nothing can be merged
+     * into a delete: the ID can only appear again when Neo4j reuses it for a new entity, whose changes must not
+     * hide the delete of the old one.
+     *
+     * @param later change of an entity with the same ID that happened after this one.
+     * @return true iff {@link #merge(EntityChange)} can be called with the later change.
+     */
+    public boolean canMerge(EntityChange later) {
+        return !type.isDeleted() && id == later.id && type.isNode() == later.type.isNode();
+    }
+
+    /**
+     * Merge this change with a later change of the same entity into a single change equivalent to applying both in
+     * order. Used by log compaction.
+     *
+     * @param later change of the same entity that happened after this one.
+     * @return merged change.
+     * @throws IllegalArgumentException if the later change can't be merged into this one, see {@link #canMerge(EntityChange)}.
+     */
+    public EntityChange merge(EntityChange later) {
+        if (!canMerge(later)) {
+            throw new IllegalArgumentException("Can't merge " + later + " into " + this);
+        }
+
+        if (later.type.isDeleted()) {
+            return later;
+        }
+
+        Type mergedType = type.isCreated() ? type : later.type;
+
+        Map<String, Object> mergedSet = new HashMap<>(setProperties);
+        mergedSet.keySet().removeAll(later.removedProperties);
+        mergedSet.putAll(later.setProperties);
+
+        Set<String> mergedRemoved = new HashSet<>();
+        if (!mergedType.isCreated()) {
+            mergedRemoved.addAll(removedProperties);
+            mergedRemoved.addAll(later.removedProperties);
+            mergedRemoved.removeAll(later.setProperties.keySet());
+        }
+
+        Set<String> mergedAssignedLabels = new HashSet<>(assignedLabels);
+        mergedAssignedLabels.removeAll(later.removedLabels);
+        mergedAssignedLabels.addAll(later.assignedLabels);
+
+        Set<String> mergedRemovedLabels = new HashSet<>();
+        if (!mergedType.isCreated()) {
+            mergedRemovedLabels.addAll(removedLabels);
+            mergedRemovedLabels.removeAll(later.assignedLabels);
+            mergedRemovedLabels.addAll(later.removedLabels);
+        }
+
+        return new EntityChange(mergedType, id, startNodeId, endNodeId, relationshipType, mergedAssignedLabels, mergedRemovedLabels, mergedSet, mergedRemoved);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        EntityChange that = (EntityChange) o;
+
+        if (id != that.id) return false;
+        if (startNodeId != that.startNodeId) return false;
+        if (endNodeId != that.endNodeId) return false;
+        if (type != that.type) return false;
+        if (relationshipType != null ? !relationshipType.equals(that.relationshipType) : that.relationshipType != null) return false;
+        if (!assignedLabels.equals(that.assignedLabels)) return false;
+        if (!removedLabels.equals(that.removedLabels)) return false;
+        if (!setProperties.equals(that.setProperties)) return false;
+        return removedProperties.equals(that.removedProperties);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + (int) (id ^ (id >>> 32));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return type + "(" + id + ")";
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.counter;
+
+/**
+ * Identifies a single counted property of a single node or relationship.
+ */
+final class CounterKey {
+
+    private final boolean relationship;
+    private final long id;
+    private final String property;
+
+    CounterKey(boolean relationship, long id, String property) {
+        if (property == null) {
+            throw new IllegalArgumentException("Property key must not be null");
+        }
+
+        this.relationship = relationship;
+        this.id = id;
+        this.property = property;
+    }
+
+    boolean isRelationship() {
+        return relationship;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    String getProperty() {
+        return property;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CounterKey that = (CounterKey) o;
+
+        return relationship == that.relationship && id == that.id && property.equals(that.property);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = relationship ? 1 : 0;
+        result = 31 * result + (int) (id ^ (id >>> 32));
+        result = 31 * result + property.hashCode();
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return (relationship ? "relationship " : "node ") + id + "." + property;
+    }
+}
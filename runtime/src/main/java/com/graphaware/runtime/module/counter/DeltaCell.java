@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.counter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free accumulator of deltas for a single {@link CounterKey}. Deltas are spread over a small number of slots
+ * chosen by the adding thread, so that threads hammering the same hot entity do not contend on a single memory location.
+ * <p/>
+ * Unlike {@link java.util.concurrent.atomic.LongAdder#sumThenReset()}, {@link #drain()} atomically takes each slot, so
+ * no delta is ever lost or counted twice when adding and draining happen concurrently. A cell can be {@link #retire()}d
+ * once it has been removed from its map, after which {@link #add(long)} refuses deltas, so that callers holding a stale
+ * reference retry with a fresh cell rather than adding to one that will never be drained again.
+ */
+final class DeltaCell {
+
+    private static final long RETIRED = Long.MIN_VALUE;
+    private static final int SLOTS;
+
+    static {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int slots = Integer.highestOneBit(processors);
+        SLOTS = slots < processors ? slots << 1 : slots;
+    }
+
+    private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+    /**
+     * Add a delta.
+     *
+     * @param delta to add, can be negative.
+     * @return <code>false</code> iff the cell has been retired and the delta has not been added.
+     */
+    boolean add(long delta) {
+        int slot = (int) Thread.currentThread().getId() & (SLOTS - 1);
+        while (true) {
+            long current = slots.get(slot);
+            if (current == RETIRED) {
+                return false;
+            }
+            if (slots.compareAndSet(slot, current, current + delta)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the sum of all deltas added since the last {@link #drain()}, without resetting.
+     *
+     * @return sum.
+     */
+    long sum() {
+        long result = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long value = slots.get(i);
+            if (value != RETIRED) {
+                result += value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Take all deltas added so far and reset the cell.
+     *
+     * @return sum of the taken deltas.
+     */
+    long drain() {
+        return takeAll(0);
+    }
+
+    /**
+     * Take all deltas added so far and stop accepting new ones.
+     *
+     * @return sum of the taken deltas.
+     */
+    long retire() {
+        return takeAll(RETIRED);
+    }
+
+    private long takeAll(long replacement) {
+        long result = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long value = slots.getAndSet(i, replacement);
+            if (value != RETIRED) {
+                result += value;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.counter;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.writer.neo4j.Neo4jWriter;
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contention-free numeric counters stored as properties of nodes and relationships.
+ * <p/>
+ * Intended for {@link com.graphaware.runtime.module.TxDrivenModule}s maintaining aggregates on "hot" entities (e.g. a
+ * total stored on a single root node), where writing the property directly in
+ * {@link com.graphaware.runtime.module.TxDrivenModule#beforeCommit(com.graphaware.tx.event.improved.api.ImprovedTransactionData)}
+ * would make every transaction take a write lock on the same entity. Instead, deltas are accumulated in striped,
+ * lock-free in-memory cells and periodically flushed to the graph in a single transaction submitted to a
+ * {@link Neo4jWriter}. {@link #get(Node, String)} and {@link #get(Relationship, String)} return the persisted value
+ * merged with all deltas not yet flushed.
+ * <p/>
+ * Deltas should only be added once the transaction that produced them has committed, i.e. computed in
+ * {@code beforeCommit} and added in {@code afterCommit}. Otherwise, deltas of rolled back transactions would be flushed.
+ * <p/>
+ * Deltas are kept in memory only, so the ones not yet flushed are lost if the database crashes. Deltas for entities
+ * that have been deleted by the time of a flush are discarded. A flush's deltas remain visible to reads until the
+ * transaction that applies them commits. When a flush fails or its transaction rolls back, its deltas are merged back
+ * into the pending ones and retried with the next flush, so that no delta is ever lost or applied twice. This holds
+ * even when a flush does not complete within the configured timeout, or when the writer commits it later (e.g. in a
+ * batch with other tasks).
+ * <p/>
+ * {@link #start()} must be called to start periodic flushing and {@link #stop()} should be called (typically from
+ * {@link com.graphaware.runtime.module.RuntimeModule#shutdown()}) to flush the remaining deltas, while the writer is
+ * still running.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class PropertyCounters {
+
+    private static final Log LOG = LoggerFactory.getLogger(PropertyCounters.class);
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_FLUSH_TIMEOUT_MILLIS = 10000;
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int APPLIED = 2;
+    private static final int SETTLED = 3;
+
+    private static final ThreadLocal<List<Flush>> APPLIED_FLUSHES = ThreadLocal.withInitial(ArrayList::new);
+
+    private final GraphDatabaseService database;
+    private final Neo4jWriter writer;
+    private final long flushIntervalMillis;
+    private final int flushTimeoutMillis;
+
+    private final ConcurrentMap<CounterKey, DeltaCell> cells = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final Set<Flush> inFlight = ConcurrentHashMap.newKeySet();
+    private final FlushOutcomeHandler outcomeHandler = new FlushOutcomeHandler();
+    private boolean handlerRegistered;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Construct new counters with {@link #DEFAULT_FLUSH_INTERVAL_MILLIS} and {@link #DEFAULT_FLUSH_TIMEOUT_MILLIS}.
+     *
+     * @param database to flush the counters to.
+     * @param writer   to flush the counters with.
+     */
+    public PropertyCounters(GraphDatabaseService database, Neo4jWriter writer) {
+        this(database, writer, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Construct new counters.
+     *
+     * @param database            to flush the counters to.
+     * @param writer              to flush the counters with.
+     * @param flushIntervalMillis delay between the end of one flush and the start of the next one. Must be positive.
+     * @param flushTimeoutMillis  how long to wait for the writer to execute a flush. Must be positive.
+     */
+    public PropertyCounters(GraphDatabaseService database, Neo4jWriter writer, long flushIntervalMillis, int flushTimeoutMillis) {
+        if (database == null || writer == null) {
+            throw new IllegalArgumentException("Database and writer must not be null");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive, was " + flushIntervalMillis);
+        }
+        if (flushTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Flush timeout must be positive, was " + flushTimeoutMillis);
+        }
+
+        this.database = database;
+        this.writer = writer;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushTimeoutMillis = flushTimeoutMillis;
+    }
+
+    /**
+     * Start flushing the counters periodically.
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            throw new IllegalStateException("Counters have already been started");
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GraphAware-PropertyCounters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop flushing the counters periodically and flush all remaining deltas.
+     */
+    public synchronized void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(flushTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+
+        flush();
+
+        synchronized (flushLock) {
+            if (handlerRegistered) {
+                database.unregisterTransactionEventHandler(outcomeHandler);
+                handlerRegistered = false;
+            }
+        }
+    }
+
+    /**
+     * Add a delta to a counter stored as a property of a node.
+     *
+     * @param node     to count on.
+     * @param property key of the property holding the count.
+     * @param delta    to add, can be negative.
+     */
+    public void add(Node node, String property, long delta) {
+        addToNode(node.getId(), property, delta);
+    }
+
+    /**
+     * Add a delta to a counter stored as a property of a relationship.
+     *
+     * @param relationship to count on.
+     * @param property     key of the property holding the count.
+     * @param delta        to add, can be negative.
+     */
+    public void add(Relationship relationship, String property, long delta) {
+        addToRelationship(relationship.getId(), property, delta);
+    }
+
+    /**
+     * Add a delta to a counter stored as a property of a node.
+     *
+     * @param nodeId   ID of the node to count on.
+     * @param property key of the property holding the count.
+     * @param delta    to add, can be negative.
+     */
+    public void addToNode(long nodeId, String property, long delta) {
+        add(new CounterKey(false, nodeId, property), delta);
+    }
+
+    /**
+     * Add a delta to a counter stored as a property of a relationship.
+     *
+     * @param relationshipId ID of the relationship to count on.
+     * @param property       key of the property holding the count.
+     * @param delta          to add, can be negative.
+     */
+    public void addToRelationship(long relationshipId, String property, long delta) {
+        add(new CounterKey(true, relationshipId, property), delta);
+    }
+
+    /**
+     * Increment a counter stored as a property of a node by one.
+     *
+     * @param node     to count on.
+     * @param property key of the property holding the count.
+     */
+    public void increment(Node node, String property) {
+        add(node, property, 1);
+    }
+
+    /**
+     * Increment a counter stored as a property of a relationship by one.
+     *
+     * @param relationship to count on.
+     * @param property     key of the property holding the count.
+     */
+    public void increment(Relationship relationship, String property) {
+        add(relationship, property, 1);
+    }
+
+    private void add(CounterKey key, long delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        while (!cells.computeIfAbsent(key, k -> new DeltaCell()).add(delta)) {
+            //the cell has just been retired, retry with a new one
+        }
+    }
+
+    /**
+     * Get the current value of a counter stored as a property of a node, i.e. the persisted value merged with all
+     * deltas not yet flushed. Must be called within a transaction.
+     *
+     * @param node     to get the count for.
+     * @param property key of the property holding the count.
+     * @return count.
+     */
+    public long get(Node node, String property) {
+        return persistedValue(node, property) + getPending(new CounterKey(false, node.getId(), property));
+    }
+
+    /**
+     * Get the current value of a counter stored as a property of a relationship, i.e. the persisted value merged with
+     * all deltas not yet flushed. Must be called within a transaction.
+     *
+     * @param relationship to get the count for.
+     * @param property     key of the property holding the count.
+     * @return count.
+     */
+    public long get(Relationship relationship, String property) {
+        return persistedValue(relationship, property) + getPending(new CounterKey(true, relationship.getId(), property));
+    }
+
+    /**
+     * Get the sum of deltas for a node's counter that have not yet been flushed.
+     *
+     * @param nodeId   ID of the node.
+     * @param property key of the property holding the count.
+     * @return pending delta.
+     */
+    public long getPendingForNode(long nodeId, String property) {
+        return getPending(new CounterKey(false, nodeId, property));
+    }
+
+    /**
+     * Get the sum of deltas for a relationship's counter that have not yet been flushed.
+     *
+     * @param relationshipId ID of the relationship.
+     * @param property       key of the property holding the count.
+     * @return pending delta.
+     */
+    public long getPendingForRelationship(long relationshipId, String property) {
+        return getPending(new CounterKey(true, relationshipId, property));
+    }
+
+    private long getPending(CounterKey key) {
+        long result = 0;
+
+        for (Flush flush : inFlight) {
+            result += flush.deltas.getOrDefault(key, 0L);
+        }
+
+        DeltaCell cell = cells.get(key);
+        if (cell != null) {
+            result += cell.sum();
+        }
+
+        return result;
+    }
+
+    /**
+     * Flush all deltas accumulated so far to the graph. Blocks until the flush is executed by the writer or until the
+     * flush timeout elapses.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (!handlerRegistered) {
+                database.registerTransactionEventHandler(outcomeHandler);
+                handlerRegistered = true;
+            }
+
+            Map<CounterKey, Long> deltas = drain();
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            Flush flush = new Flush(deltas);
+            inFlight.add(flush);
+
+            try {
+                Boolean result = writer.write(() -> {
+                    if (!flush.state.compareAndSet(PENDING, RUNNING)) {
+                        return false;
+                    }
+                    try {
+                        apply(deltas);
+                    } catch (RuntimeException e) {
+                        if (flush.state.compareAndSet(RUNNING, SETTLED)) {
+                            retry(flush);
+                        }
+                        throw e;
+                    }
+                    flush.state.set(APPLIED);
+                    APPLIED_FLUSHES.get().add(flush);
+                    return true;
+                }, "PropertyCounters", flushTimeoutMillis);
+
+                if (result == null) {
+                    if (flush.state.compareAndSet(PENDING, SETTLED)) {
+                        LOG.warn("Flush of " + deltas.size() + " counter(s) has not been executed by the writer, will retry.");
+                        retry(flush);
+                    } else {
+                        LOG.warn("Flush of " + deltas.size() + " counter(s) did not complete within " + flushTimeoutMillis + "ms, its deltas will be retried if its transaction rolls back.");
+                    }
+                }
+            } catch (RuntimeException e) {
+                //the transaction failed before reaching the outcome handler, so it will never settle the flush
+                APPLIED_FLUSHES.get().remove(flush);
+                if (flush.state.compareAndSet(PENDING, SETTLED) || flush.state.compareAndSet(APPLIED, SETTLED)) {
+                    LOG.warn("Flush of " + deltas.size() + " counter(s) failed, will retry.", e);
+                    retry(flush);
+                }
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.error("Periodic flush of counters failed", e);
+        }
+    }
+
+    /**
+     * Take all deltas accumulated so far. Cells that received no deltas since the previous flush are removed and
+     * retired, so that counters of entities that are no longer being updated do not occupy memory.
+     *
+     * @return non-zero deltas.
+     */
+    private Map<CounterKey, Long> drain() {
+        Map<CounterKey, Long> result = new HashMap<>();
+
+        for (Map.Entry<CounterKey, DeltaCell> entry : cells.entrySet()) {
+            long delta = entry.getValue().drain();
+            if (delta == 0 && cells.remove(entry.getKey(), entry.getValue())) {
+                delta = entry.getValue().retire();
+            }
+            merge(result, entry.getKey(), delta);
+        }
+
+        return result;
+    }
+
+    /**
+     * Merge deltas of a flush that has not been applied back into the pending ones, before they stop being counted as
+     * in flight, so that reads never miss them.
+     *
+     * @param flush to retry.
+     */
+    private void retry(Flush flush) {
+        for (Map.Entry<CounterKey, Long> entry : flush.deltas.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+        inFlight.remove(flush);
+    }
+
+    private void apply(Map<CounterKey, Long> deltas) {
+        for (Map.Entry<CounterKey, Long> entry : deltas.entrySet()) {
+            CounterKey key = entry.getKey();
+
+            PropertyContainer entity;
+            try {
+                entity = key.isRelationship() ? database.getRelationshipById(key.getId()) : database.getNodeById(key.getId());
+            } catch (NotFoundException e) {
+                LOG.debug("Discarding delta for " + key + " as the entity no longer exists");
+                continue;
+            }
+
+            Object current = entity.getProperty(key.getProperty(), 0L);
+            if (!(current instanceof Number)) {
+                LOG.warn("Discarding delta for " + key + " as the property holds a non-numeric value " + current);
+                continue;
+            }
+
+            entity.setProperty(key.getProperty(), ((Number) current).longValue() + entry.getValue());
+        }
+    }
+
+    private static void merge(Map<CounterKey, Long> deltas, CounterKey key, long delta) {
+        if (delta != 0) {
+            deltas.merge(key, delta, Long::sum);
+        }
+    }
+
+    private static long persistedValue(PropertyContainer entity, String property) {
+        Object value = entity.getProperty(property, 0L);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * Deltas being flushed and the progress of their flush.
+     */
+    private static final class Flush {
+
+        private final Map<CounterKey, Long> deltas;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Flush(Map<CounterKey, Long> deltas) {
+            this.deltas = deltas;
+        }
+    }
+
+    /**
+     * Settles flushes applied in a transaction once the transaction has completed: on commit, their deltas stop being
+     * counted as in flight, since they are now part of the persisted values; on rollback, they are retried.
+     * <p/>
+     * Transactions are matched to flushes by thread, as Neo4j calls the handler on the thread that committed the
+     * transaction, which is the thread that applied the flushes.
+     */
+    private final class FlushOutcomeHandler implements TransactionEventHandler<List<Flush>> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<Flush> beforeCommit(TransactionData data) {
+            List<Flush> flushes = APPLIED_FLUSHES.get();
+            if (flushes.isEmpty()) {
+                return null;
+            }
+            APPLIED_FLUSHES.remove();
+            return flushes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void afterCommit(TransactionData data, List<Flush> flushes) {
+            if (flushes == null) {
+                return;
+            }
+            for (Flush flush : flushes) {
+                if (flush.state.compareAndSet(APPLIED, SETTLED)) {
+                    inFlight.remove(flush);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void afterRollback(TransactionData data, List<Flush> flushes) {
+            if (flushes == null) {
+                return;
+            }
+            for (Flush flush : flushes) {
+                if (flush.state.compareAndSet(APPLIED, SETTLED)) {
+                    LOG.warn("Transaction flushing " + flush.deltas.size() + " counter(s) rolled back, will retry.");
+                    retry(flush);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.profile;
+
+/**
+ * A single sampled transaction, through which the commit path records timings into a {@link DefaultCommitProfiler}.
+ * <p/>
+ * Time spent evaluating inclusion policies is accumulated by {@link TimedInclusionPolicies} while the commit path runs,
+ * and taken by whoever records the phase the evaluation happened in. Not thread-safe, used by the committing thread
+ * only.
+ */
+public final class CommitSample {
+
+    private final DefaultCommitProfiler profiler;
+    private final int sizeBucket;
+
+    private long inclusionPolicyNanos;
+
+    CommitSample(DefaultCommitProfiler profiler, int sizeBucket) {
+        this.profiler = profiler;
+        this.sizeBucket = sizeBucket;
+    }
+
+    /**
+     * Record time spent in a phase of the commit path.
+     *
+     * @param moduleId ID of the module, or {@link CommitProfiler#RUNTIME} for the runtime as a whole.
+     * @param phase    of the commit path.
+     * @param nanos    time spent.
+     */
+    public void record(String moduleId, CommitPhase phase, long nanos) {
+        profiler.record(moduleId, phase, sizeBucket, nanos);
+    }
+
+    /**
+     * Add time spent evaluating inclusion policies.
+     *
+     * @param nanos time spent.
+     */
+    void addInclusionPolicyNanos(long nanos) {
+        inclusionPolicyNanos += nanos;
+    }
+
+    /**
+     * Get the time spent evaluating inclusion policies since the last call of this method.
+     *
+     * @return time spent.
+     */
+    public long takeInclusionPolicyNanos() {
+        long result = inclusionPolicyNanos;
+        inclusionPolicyNanos = 0;
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.profile;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.metrics.LatencyHistogram;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.logging.Log;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.neo4j.helpers.collection.Iterables.count;
+
+/**
+ * Always-on, low-overhead {@link CommitProfiler}.
+ * <p/>
+ * Only a fraction of transactions ({@link #getSampleRate()}) is profiled. For all others, the only cost is a random
+ * number generated by {@link #startSample(TransactionData)}. Sampled timings are recorded into lock-free, allocation-free
+ * {@link LatencyHistogram}s, one per module, phase, and transaction size bucket (by number of changes: 1-9, 10-99,
+ * 100-999, 1000-9999, 10000+).
+ * <p/>
+ * Statistics are exposed over JMX (see {@link CommitProfilerMXBean}, implemented directly as JMX doesn't look for
+ * MXBean interfaces among super-interfaces) and by {@link #getReport()}, intended for REST.
+ */
+public class DefaultCommitProfiler implements CommitProfiler, CommitProfilerMXBean {
+
+    private static final Log LOG = LoggerFactory.getLogger(DefaultCommitProfiler.class);
+
+    private static final String[] SIZE_BUCKETS = {"1-9", "10-99", "100-999", "1000-9999", "10000+"};
+    private static final CommitPhase[] PHASES = CommitPhase.values();
+
+    private final Map<String, LatencyHistogram[][]> histograms = new ConcurrentHashMap<>();
+
+    private volatile double sampleRate;
+    private volatile ObjectName objectName;
+
+    /**
+     * Construct a new profiler with {@link #DEFAULT_SAMPLE_RATE}.
+     */
+    public DefaultCommitProfiler() {
+        this(DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Construct a new profiler.
+     *
+     * @param sampleRate fraction of transactions to profile, between 0 (off) and 1 (all).
+     */
+    public DefaultCommitProfiler(double sampleRate) {
+        setSampleRate(sampleRate);
+    }
+
+    /**
+     * Decide whether a transaction should be profiled.
+     *
+     * @param transactionData of the transaction. Its size is only computed when the transaction is sampled.
+     * @return sample to record timings into, <code>null</code> if the transaction should not be profiled.
+     */
+    public CommitSample startSample(TransactionData transactionData) {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+
+        return new CommitSample(this, sizeBucket(sizeOf(transactionData)));
+    }
+
+    private static long sizeOf(TransactionData data) {
+        return count(data.createdNodes()) + count(data.deletedNodes())
+                + count(data.createdRelationships()) + count(data.deletedRelationships())
+                + count(data.assignedNodeProperties()) + count(data.removedNodeProperties())
+                + count(data.assignedRelationshipProperties()) + count(data.removedRelationshipProperties())
+                + count(data.assignedLabels()) + count(data.removedLabels());
+    }
+
+    void record(String moduleId, CommitPhase phase, int sizeBucket, long nanos) {
+        histograms.computeIfAbsent(moduleId, id -> newHistograms())[phase.ordinal()][sizeBucket].record(nanos);
+    }
+
+    private static LatencyHistogram[][] newHistograms() {
+        LatencyHistogram[][] result = new LatencyHistogram[PHASES.length][SIZE_BUCKETS.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            for (int j = 0; j < SIZE_BUCKETS.length; j++) {
+                result[i][j] = new LatencyHistogram();
+            }
+        }
+        return result;
+    }
+
+    private static int sizeBucket(long size) {
+        int bucket = 0;
+        for (long limit = 10; size >= limit && bucket < SIZE_BUCKETS.length - 1; limit *= 10) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1, was " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getHistogram(String moduleId, CommitPhase phase, String size) {
+        LatencyHistogram[][] moduleHistograms = histograms.get(moduleId);
+        if (moduleHistograms == null) {
+            return null;
+        }
+
+        for (int i = 0; i < SIZE_BUCKETS.length; i++) {
+            if (SIZE_BUCKETS[i].equals(size)) {
+                return moduleHistograms[phase.ordinal()][i];
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown transaction size bucket " + size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Map<String, Map<String, Map<String, Number>>>> getReport() {
+        Map<String, Map<String, Map<String, Map<String, Number>>>> report = new TreeMap<>();
+
+        for (Map.Entry<String, LatencyHistogram[][]> module : histograms.entrySet()) {
+            Map<String, Map<String, Map<String, Number>>> phases = new LinkedHashMap<>();
+            for (CommitPhase phase : PHASES) {
+                Map<String, Map<String, Number>> sizes = new LinkedHashMap<>();
+                for (int i = 0; i < SIZE_BUCKETS.length; i++) {
+                    LatencyHistogram histogram = module.getValue()[phase.ordinal()][i];
+                    if (histogram.getCount() > 0) {
+                        sizes.put(SIZE_BUCKETS[i], histogram.getStatistics());
+                    }
+                }
+                if (!sizes.isEmpty()) {
+                    phases.put(phase.name(), sizes);
+                }
+            }
+            if (!phases.isEmpty()) {
+                report.put(module.getKey(), phases);
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Double> getStatistics() {
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Map<String, Map<String, Number>>>> module : getReport().entrySet()) {
+            for (Map.Entry<String, Map<String, Map<String, Number>>> phase : module.getValue().entrySet()) {
+                for (Map.Entry<String, Map<String, Number>> size : phase.getValue().entrySet()) {
+                    for (Map.Entry<String, Number> statistic : size.getValue().entrySet()) {
+                        result.put(module.getKey() + "." + phase.getKey() + "." + size.getKey() + "." + statistic.getKey(), statistic.getValue().doubleValue());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        for (LatencyHistogram[][] moduleHistograms : histograms.values()) {
+            for (LatencyHistogram[] phaseHistograms : moduleHistograms) {
+                for (LatencyHistogram histogram : phaseHistograms) {
+                    histogram.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Register this profiler with the platform MBean server, under
+     * <code>com.graphaware:type=CommitProfiler,database=&lt;name&gt;</code>. Failures are logged, not thrown.
+     *
+     * @param name of the database.
+     */
+    public void registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.graphaware:type=CommitProfiler,database=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            LOG.warn("Could not register commit profiler with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Unregister this profiler from the platform MBean server, if it has been registered.
+     */
+    public void unregisterMBean() {
+        ObjectName objectName = this.objectName;
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOG.warn("Could not unregister commit profiler from JMX: " + e.getMessage());
+        }
+        this.objectName = null;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.graphaware.runtime.profile;
+
+import com.graphaware.common.policy.inclusion.*;
+import com.graphaware.common.policy.inclusion.none.IncludeNoProperties;
+import com.graphaware.common.policy.inclusion.none.IncludeNoPropertyContainers;
+import com.graphaware.common.policy.inclusion.none.IncludeNone;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * Decorators of {@link InclusionPolicy}s that add the time spent evaluating them to a {@link CommitSample}, so that
+ * it can be reported as {@link CommitPhase#INCLUSION_POLICIES}. Only used for sampled transactions.
+ * <p/>
+ * Decorators are {@link DeterministicInclusionPolicy}s iff the decorated policies are, so that they are memoized in
+ * the same way and only evaluations that actually happen are timed. Policies that exclude everything are not
+ * decorated, as the framework recognizes and short-circuits them.
+ */
+public final class TimedInclusionPolicies {
+
+    /**
+     * Decorate inclusion policies with timing ones.
+     *
+     * @param policies to decorate.
+     * @param sample   to add the time spent evaluating the policies to.
+     * @return decorated policies.
+     */
+    public static InclusionPolicies timed(InclusionPolicies policies, CommitSample sample) {
+        NodeInclusionPolicy nodeInclusionPolicy = policies.getNodeInclusionPolicy();
+        NodePropertyInclusionPolicy nodePropertyInclusionPolicy = policies.getNodePropertyInclusionPolicy();
+        RelationshipInclusionPolicy relationshipInclusionPolicy = policies.getRelationshipInclusionPolicy();
+        RelationshipPropertyInclusionPolicy relationshipPropertyInclusionPolicy = policies.getRelationshipPropertyInclusionPolicy();
+
+        if (!excludesAll(nodeInclusionPolicy)) {
+            nodeInclusionPolicy = new TimedNodeInclusionPolicy(nodeInclusionPolicy, sample);
+        }
+
+        if (!excludesAll(nodePropertyInclusionPolicy)) {
+            nodePropertyInclusionPolicy = new TimedNodePropertyInclusionPolicy(nodePropertyInclusionPolicy, sample);
+        }
+
+        if (!excludesAll(relationshipInclusionPolicy)) {
+            relationshipInclusionPolicy = new TimedRelationshipInclusionPolicy(relationshipInclusionPolicy, sample);
+        }
+
+        if (!excludesAll(relationshipPropertyInclusionPolicy)) {
+            relationshipPropertyInclusionPolicy = new TimedRelationshipPropertyInclusionPolicy(relationshipPropertyInclusionPolicy, sample);
+        }
+
+        return new InclusionPolicies(nodeInclusionPolicy, nodePropertyInclusionPolicy, relationshipInclusionPolicy, relationshipPropertyInclusionPolicy);
+    }
+
+    private static boolean excludesAll(InclusionPolicy policy) {
+        return policy instanceof IncludeNone || policy instanceof IncludeNoPropertyContainers || policy instanceof IncludeNoProperties;
+    }
+
+    private TimedInclusionPolicies() {
+    }
+
+    private abstract static class TimedInclusionPolicy<P extends InclusionPolicy> implements DeterministicInclusionPolicy {
+
+        protected final P wrapped;
+        private final CommitSample sample;
+
+        protected TimedInclusionPolicy(P wrapped, CommitSample sample) {
+            this.wrapped = wrapped;
+            this.sample = sample;
+        }
+
+        protected final long start() {
+            return System.nanoTime();
+        }
+
+        protected final void stop(long start) {
+            sample.addInclusionPolicyNanos(System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean isDeterministic() {
+            return DeterministicInclusionPolicy.isDeterministic(wrapped);
+        }
+
+        @Override
+        public String toString() {
+            return "timed(" + wrapped + ")";
+        }
+    }
+
+    private static final class TimedNodeInclusionPolicy extends TimedInclusionPolicy<NodeInclusionPolicy> implements NodeInclusionPolicy {
+
+        private TimedNodeInclusionPolicy(NodeInclusionPolicy wrapped, CommitSample sample) {
+            super(wrapped, sample);
+        }
+
+        @Override
+        public boolean include(Node node) {
+            long start = start();
+            try {
+                return wrapped.include(node);
+            } finally {
+                stop(start);
+            }
+        }
+
+        @Override
+        public Iterable<Node> getAll(GraphDatabaseService database) {
+            return wrapped.getAll(database);
+        }
+    }
+
+    private static final class TimedRelationshipInclusionPolicy extends TimedInclusionPolicy<RelationshipInclusionPolicy> implements RelationshipInclusionPolicy {
+
+        private TimedRelationshipInclusionPolicy(RelationshipInclusionPolicy wrapped, CommitSample sample) {
+            super(wrapped, sample);
+        }
+
+        @Override
+        public boolean include(Relationship relationship) {
+            long start = start();
+            try {
+                return wrapped.include(relationship);
+            } finally {
+                stop(start);
+            }
+        }
+
+        @Override
+        public boolean include(Relationship relationship, Node pointOfView) {
+            long start = start();
+            try {
+                return wrapped.include(relationship, pointOfView);
+            } finally {
+                stop(start);
+            }
+        }
+
+        @Override
+        public Iterable<Relationship> getAll(GraphDatabaseService database) {
+            return wrapped.getAll(database);
+        }
+    }
+
+    private static final class TimedNodePropertyInclusionPolicy extends TimedInclusionPolicy<NodePropertyInclusionPolicy> implements NodePropertyInclusionPolicy {
+
+        private TimedNodePropertyInclusionPolicy(NodePropertyInclusionPolicy wrapped, CommitSample sample) {
+            super(wrapped, sample);
+        }
+
+        @Override
+        public boolean include(String key, Node node) {
+            long start = start();
+            try {
+                return wrapped.include(key, node);
+            } finally {
+                stop(start);
+            }
+        }
+    }
+
+    private static final class TimedRelationshipPropertyInclusionPolicy extends TimedInclusionPolicy<RelationshipPropertyInclusionPolicy> implements RelationshipPropertyInclusionPolicy {
+
+        private TimedRelationshipPropertyInclusionPolicy(RelationshipPropertyInclusionPolicy wrapped, CommitSample sample) {
+            super(wrapped, sample);
+        }
+
+        @Override
+        public boolean include(String key, Relationship relationship) {
+            long start = start();
+            try {
+                return wrapped.include(key, relationship);
+            } finally {
+                stop(start);
+            }
+        }
+    }
+}
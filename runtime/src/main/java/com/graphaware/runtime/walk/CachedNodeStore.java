@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+/**
+ * Lazily resolved, cached handle to the {@link NodeStore} of a database, so that selectors don't have to go through
+ * the dependency resolver every time they need to know the highest node ID. Re-resolved only if used with a different
+ * database.
+ */
+final class CachedNodeStore {
+
+    private volatile GraphDatabaseService database;
+    private volatile NodeStore nodeStore;
+
+    /**
+     * Get the highest possible node ID in use.
+     *
+     * @param database to get the ID for.
+     * @return highest possible ID in use.
+     */
+    long getHighestPossibleIdInUse(GraphDatabaseService database) {
+        return nodeStore(database).getHighestPossibleIdInUse();
+    }
+
+    private NodeStore nodeStore(GraphDatabaseService database) {
+        NodeStore result = nodeStore;
+        if (result == null || this.database != database) {
+            result = ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(RecordStorageEngine.class).testAccessNeoStores().getNodeStore();
+            this.nodeStore = result;
+            this.database = database;
+        }
+        return result;
+    }
+}
@@ -21,8 +21,6 @@ import com.graphaware.runtime.policy.all.IncludeAllBusinessNodes;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
-import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
-import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import com.graphaware.common.log.LoggerFactory;
 
@@ -39,6 +37,7 @@ public class ContinuousNodeSelector implements NodeSelector {
 
     private final NodeInclusionPolicy inclusionPolicy;
     private final AtomicLong lastId;
+    private final CachedNodeStore nodeStore = new CachedNodeStore();
 
     /**
      * Constructs a new {@link com.graphaware.runtime.walk.ContinuousNodeSelector} that selects any node which isn't a
@@ -87,6 +86,7 @@ public class ContinuousNodeSelector implements NodeSelector {
      */
     @Override
     public Node selectNode(GraphDatabaseService database) {
+        long highestId = nodeStore.getHighestPossibleIdInUse(database);
         int attempt = 0;
         while (true) {
             try {
@@ -97,7 +97,7 @@ public class ContinuousNodeSelector implements NodeSelector {
                     LOG.warn("Did not find a suitable node in 1M attempts. Aborting...");
                     return null;
                 }
-                Node node = database.getNodeById(nextId(database));
+                Node node = database.getNodeById(nextId(highestId));
                 if (inclusionPolicy.include(node)) {
                     return node;
                 }
@@ -107,8 +107,17 @@ public class ContinuousNodeSelector implements NodeSelector {
         }
     }
 
-    private long nextId(GraphDatabaseService database) {
-        long highestId = ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(RecordStorageEngine.class).testAccessNeoStores().getNodeStore().getHighestPossibleIdInUse();
+    /**
+     * Get the ID of the last node selected by this selector, so that it can be persisted (e.g. in a
+     * {@link com.graphaware.runtime.metadata.TimerDrivenModuleContext}) and passed to the constructor next time.
+     *
+     * @return ID of the last selected node, -1 if none has been selected yet.
+     */
+    public long getLastNodeId() {
+        return lastId.get();
+    }
+
+    private long nextId(long highestId) {
         long nextId = lastId.incrementAndGet();
 
         if (nextId > highestId) {
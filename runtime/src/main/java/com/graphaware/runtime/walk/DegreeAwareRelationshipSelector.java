@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.description.property.WildcardPropertiesDescription;
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
+import com.graphaware.common.policy.inclusion.all.IncludeAllRelationships;
+import com.graphaware.common.policy.inclusion.fluent.BaseIncludeRelationships;
+import com.graphaware.common.policy.inclusion.fluent.IncludeRelationships;
+import com.graphaware.runtime.config.RuntimeConfiguration;
+import com.graphaware.runtime.policy.all.IncludeAllBusinessRelationships;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link RelationshipSelector} that selects a {@link Relationship} at random from all the given {@link Node}'s
+ * {@link Relationship}s matching the provided {@link RelationshipInclusionPolicy}, without evaluating the policy on
+ * every relationship of the node.
+ * <p/>
+ * The policy is decomposed into relationship type and direction groups. A group is picked with probability proportional
+ * to its degree (obtained by {@link Node#getDegree(RelationshipType, Direction)}, which is cheap even on supernodes),
+ * and the selector then skips to a random position in that group. For {@link IncludeAllRelationships},
+ * {@link IncludeAllBusinessRelationships}, and {@link IncludeRelationships} with no property constraints, the
+ * decomposition is exact and the policy is never evaluated.
+ * <p/>
+ * For other policies, the groups are a superset of the matching relationships, so the selected relationship is verified
+ * against the policy. Only if a few attempts are rejected does the selector fall back to a full scan, performed by
+ * {@link RandomRelationshipSelector}.
+ */
+public class DegreeAwareRelationshipSelector implements RelationshipSelector {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final RelationshipInclusionPolicy relationshipInclusionPolicy;
+    private final RelationshipSelector fallback;
+    private final Direction direction;
+    private final RelationshipType[] types;
+    private final boolean businessOnly;
+    private final boolean exact;
+
+    /**
+     * Constructs a new {@link DegreeAwareRelationshipSelector} that selects any relationship that isn't
+     * framework-internal and doesn't link to a framework-internal node.
+     */
+    public DegreeAwareRelationshipSelector() {
+        this(IncludeAllBusinessRelationships.getInstance());
+    }
+
+    /**
+     * Constructs a new {@link DegreeAwareRelationshipSelector} that chooses relationships in accordance with the given
+     * {@link RelationshipInclusionPolicy}.
+     *
+     * @param relationshipInclusionPolicy The {@link RelationshipInclusionPolicy} used to select relationships to follow.
+     */
+    public DegreeAwareRelationshipSelector(RelationshipInclusionPolicy relationshipInclusionPolicy) {
+        this.relationshipInclusionPolicy = relationshipInclusionPolicy;
+        this.fallback = new RandomRelationshipSelector(relationshipInclusionPolicy);
+
+        if (relationshipInclusionPolicy instanceof BaseIncludeRelationships) {
+            BaseIncludeRelationships<?> fluent = (BaseIncludeRelationships<?>) relationshipInclusionPolicy;
+            this.direction = fluent.getDirection();
+            this.types = toTypes(fluent.getRelationshipTypes());
+            this.businessOnly = false;
+            this.exact = IncludeRelationships.class.equals(fluent.getClass()) && hasNoPropertyConstraints(fluent);
+        } else {
+            this.direction = Direction.BOTH;
+            this.types = null;
+            this.businessOnly = relationshipInclusionPolicy instanceof IncludeAllBusinessRelationships;
+            this.exact = businessOnly || relationshipInclusionPolicy instanceof IncludeAllRelationships;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Relationship selectRelationship(Node node) {
+        RelationshipType[] candidateTypes = candidateTypes(node);
+        int[] degrees = new int[candidateTypes.length];
+        long totalDegree = 0;
+
+        for (int i = 0; i < candidateTypes.length; i++) {
+            degrees[i] = node.getDegree(candidateTypes[i], direction);
+            totalDegree += degrees[i];
+        }
+
+        if (totalDegree == 0) {
+            return null;
+        }
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Relationship candidate = relationshipAt(node, candidateTypes, degrees, ThreadLocalRandom.current().nextLong(totalDegree));
+
+            if (candidate != null && (exact || relationshipInclusionPolicy.include(candidate, node))) {
+                return candidate;
+            }
+        }
+
+        return fallback.selectRelationship(node);
+    }
+
+    /**
+     * Find the relationship at the given position, where positions are counted across all groups.
+     *
+     * @param node           whose relationship to find.
+     * @param candidateTypes groups.
+     * @param degrees        degrees of the groups.
+     * @param position       of the relationship.
+     * @return relationship, null if the node's relationships changed in the meantime and there isn't one at the position.
+     */
+    private Relationship relationshipAt(Node node, RelationshipType[] candidateTypes, int[] degrees, long position) {
+        int group = 0;
+        while (position >= degrees[group]) {
+            position -= degrees[group];
+            group++;
+        }
+
+        Iterator<Relationship> iterator = node.getRelationships(direction, candidateTypes[group]).iterator();
+        for (long i = 0; i < position && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private RelationshipType[] candidateTypes(Node node) {
+        if (types != null && types.length > 0) {
+            return types;
+        }
+
+        List<RelationshipType> result = new ArrayList<>();
+        for (RelationshipType type : node.getRelationshipTypes()) {
+            if (!businessOnly || !type.name().startsWith(RuntimeConfiguration.GA_PREFIX)) {
+                result.add(type);
+            }
+        }
+        return result.toArray(new RelationshipType[result.size()]);
+    }
+
+    private static RelationshipType[] toTypes(String[] typeNames) {
+        RelationshipType[] result = new RelationshipType[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++) {
+            result[i] = RelationshipType.withName(typeNames[i]);
+        }
+        return result;
+    }
+
+    private static boolean hasNoPropertyConstraints(BaseIncludeRelationships<?> policy) {
+        return policy.getPropertiesDescription() instanceof WildcardPropertiesDescription
+                && !policy.getPropertiesDescription().getKeys().iterator().hasNext();
+    }
+}
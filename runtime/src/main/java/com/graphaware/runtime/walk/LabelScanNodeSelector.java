@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.all.IncludeAllNodes;
+import com.graphaware.common.policy.inclusion.fluent.BaseIncludeNodes;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.ResourceIterator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link NodeSelector} that selects a {@link Node} by finding the first node with a given {@link Label} and matching
+ * the provided {@link NodeInclusionPolicy} with ID higher than the last one. When all such nodes are exhausted, the
+ * selector starts from the lowest ID again.
+ * <p/>
+ * Unlike {@link ContinuousNodeSelector}, which probes every possible node ID, this selector iterates the label scan
+ * store, which returns the IDs of nodes with the label without reading any node records. Since a label scan can't be
+ * positioned at a node ID, the IDs are scanned once per pass over all labelled nodes and kept in memory (8 bytes per
+ * labelled node), independently of transactions. Each selection then seeks to the last selected ID in that snapshot
+ * and reads the records of the following candidates only, so it costs close to one record read (plus policy
+ * evaluation) no matter how sparse the matching nodes are, and a full pass is linear in the number of labelled nodes.
+ * Candidates that have been deleted or lost the label since the snapshot was taken are skipped; nodes labelled since
+ * are selected in the next pass.
+ * <p/>
+ * The position of the selector can be persisted by storing {@link #getLastNodeId()} (e.g. in a
+ * {@link com.graphaware.runtime.metadata.TimerDrivenModuleContext}) and passing it to the constructor next time.
+ */
+public class LabelScanNodeSelector implements NodeSelector {
+
+    private final Label label;
+    private final NodeInclusionPolicy inclusionPolicy;
+    private final AtomicLong lastId;
+
+    private GraphDatabaseService database;
+    private long[] ids;
+    private int index;
+
+    /**
+     * Constructs a new {@link LabelScanNodeSelector} that selects all nodes with the given label.
+     *
+     * @param label that selected nodes must have. Must not be <code>null</code>.
+     */
+    public LabelScanNodeSelector(Label label) {
+        this(label, IncludeAllNodes.getInstance(), -1);
+    }
+
+    /**
+     * Constructs a new {@link LabelScanNodeSelector} with the label derived from the given fluent policy.
+     *
+     * @param inclusionPolicy policy that selected nodes must match. Must be configured with a label.
+     * @param lastNodeId      ID of the last node selected by this selector, -1 to start from the beginning.
+     * @throws IllegalArgumentException if the policy has no label.
+     */
+    public LabelScanNodeSelector(BaseIncludeNodes<?> inclusionPolicy, long lastNodeId) {
+        this(labelOf(inclusionPolicy), inclusionPolicy, lastNodeId);
+    }
+
+    /**
+     * Constructs a new {@link LabelScanNodeSelector}.
+     *
+     * @param label           that selected nodes must have. Must not be <code>null</code>.
+     * @param inclusionPolicy The {@link NodeInclusionPolicy} that selected nodes must additionally match.
+     * @param lastNodeId      ID of the last node selected by this selector, -1 to start from the beginning.
+     */
+    public LabelScanNodeSelector(Label label, NodeInclusionPolicy inclusionPolicy, long lastNodeId) {
+        if (label == null) {
+            throw new IllegalArgumentException("Label must not be null");
+        }
+        this.label = label;
+        this.inclusionPolicy = inclusionPolicy;
+        this.lastId = new AtomicLong(lastNodeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Node selectNode(GraphDatabaseService database) {
+        long last = lastId.get();
+
+        if (ids == null || this.database != database || (index > 0 && ids[index - 1] != last)) {
+            //no snapshot yet, or a position not reached by this selector
+            scan(database);
+            index = firstAfter(last);
+        }
+
+        Node result = findNode(ids.length);
+
+        if (result == null) {
+            //wrap around, but first pick up nodes labelled since the snapshot was taken
+            scan(database);
+            int end = firstAfter(last);
+            index = end;
+            result = findNode(ids.length);
+
+            if (result == null) {
+                index = 0;
+                result = findNode(end);
+            }
+        }
+
+        if (result != null) {
+            lastId.set(result.getId());
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the ID of the last node selected by this selector.
+     *
+     * @return ID of the last selected node, -1 if none has been selected yet.
+     */
+    public long getLastNodeId() {
+        return lastId.get();
+    }
+
+    /**
+     * Find the next node from the snapshot, starting at the current index, that still exists, has the label, and
+     * matches the policy.
+     *
+     * @param end index in the snapshot to stop at (exclusive).
+     * @return node, null if there is none.
+     */
+    private Node findNode(int end) {
+        while (index < end) {
+            long id = ids[index++];
+
+            Node candidate;
+            try {
+                candidate = database.getNodeById(id);
+            } catch (NotFoundException e) {
+                continue;
+            }
+
+            if (candidate.hasLabel(label) && inclusionPolicy.include(candidate)) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Take a snapshot of the IDs of all nodes with the label, in ascending order.
+     *
+     * @param database to scan.
+     */
+    private void scan(GraphDatabaseService database) {
+        this.database = database;
+
+        long[] result = new long[ids == null ? 16 : Math.max(16, ids.length)];
+        int size = 0;
+
+        try (ResourceIterator<Node> nodes = database.findNodes(label)) {
+            while (nodes.hasNext()) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = nodes.next().getId();
+            }
+        }
+
+        ids = Arrays.copyOf(result, size);
+        Arrays.sort(ids);
+        index = 0;
+    }
+
+    /**
+     * @return index of the first ID in the snapshot higher than the given one.
+     */
+    private int firstAfter(long id) {
+        int position = Arrays.binarySearch(ids, id);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static Label labelOf(BaseIncludeNodes<?> inclusionPolicy) {
+        if (inclusionPolicy.getLabel() == null) {
+            throw new IllegalArgumentException("Node inclusion policy must be configured with a label for a label scan to be possible");
+        }
+        return Label.label(inclusionPolicy.getLabel());
+    }
+}
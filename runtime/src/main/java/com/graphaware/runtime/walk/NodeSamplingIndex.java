@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe set of node IDs, which supports adding, removing, and uniform random selection of an ID, all in O(1).
+ * <p/>
+ * IDs are kept in a dense array, with a primitive map from ID to its position in the array. Removing an ID moves the
+ * last ID in the array into the freed position, so the array never has holes, no matter how sparse the IDs are.
+ * Intended for frequent reads and less frequent writes.
+ */
+public class NodeSamplingIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NOT_PRESENT = -1;
+
+    private final PrimitiveLongIntMap positions = Primitive.longIntMap(INITIAL_CAPACITY);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Add a node ID to the index. Adding an ID that is already present has no effect.
+     *
+     * @param id to add.
+     * @return <code>true</code> iff the ID wasn't present before.
+     */
+    public boolean add(long id) {
+        lock.writeLock().lock();
+        try {
+            if (positions.get(id) != NOT_PRESENT) {
+                return false;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+
+            ids[size] = id;
+            positions.put(id, size);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a node ID from the index. Removing an ID that isn't present has no effect.
+     *
+     * @param id to remove.
+     * @return <code>true</code> iff the ID was present.
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int position = positions.remove(id);
+            if (position == NOT_PRESENT) {
+                return false;
+            }
+
+            size--;
+            if (position != size) {
+                long last = ids[size];
+                ids[position] = last;
+                positions.put(last, position);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Does the index contain the given node ID?
+     *
+     * @param id to check.
+     * @return <code>true</code> iff present.
+     */
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return positions.get(id) != NOT_PRESENT;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Select a node ID uniformly at random in O(1).
+     *
+     * @return random node ID, -1 if the index is empty.
+     */
+    public long randomId() {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return -1;
+            }
+
+            return ids[ThreadLocalRandom.current().nextInt(size)];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of node IDs in the index.
+     *
+     * @return size.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Is the index empty?
+     *
+     * @return true iff empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Remove all node IDs from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            positions.clear();
+            ids = new long[INITIAL_CAPACITY];
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
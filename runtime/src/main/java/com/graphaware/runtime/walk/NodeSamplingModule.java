@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.none.IncludeNoRelationshipProperties;
+import com.graphaware.common.policy.inclusion.none.IncludeNoRelationships;
+import com.graphaware.common.util.Change;
+import com.graphaware.runtime.config.FluentTxDrivenModuleConfiguration;
+import com.graphaware.runtime.config.TxDrivenModuleConfiguration;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.runtime.module.DeliberateTransactionRollbackException;
+import com.graphaware.runtime.policy.all.IncludeAllBusinessNodes;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import com.graphaware.tx.executor.batch.IterableInputBatchTransactionExecutor;
+import com.graphaware.tx.executor.batch.MultiThreadedBatchTransactionExecutor;
+import com.graphaware.tx.executor.input.AllNodes;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.logging.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link com.graphaware.runtime.module.TxDrivenModule} that maintains a {@link NodeSamplingIndex} of all nodes
+ * matching a {@link NodeInclusionPolicy}.
+ * <p/>
+ * The index is built when the module starts, by scanning all nodes in the database using multiple threads, and is then
+ * kept up to date incrementally from transaction data. Changes are only applied to the index after the transaction
+ * commits. Intended to be used with {@link SamplingIndexNodeSelector} for O(1) uniform random node selection no matter
+ * how selective the policy is.
+ */
+public class NodeSamplingModule extends BaseTxDrivenModule<Map<Long, Boolean>> {
+
+    private static final Log LOG = LoggerFactory.getLogger(NodeSamplingModule.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final NodeInclusionPolicy inclusionPolicy;
+    private final NodeSamplingIndex index = new NodeSamplingIndex();
+    private final TxDrivenModuleConfiguration configuration = FluentTxDrivenModuleConfiguration
+            .defaultConfiguration()
+            .with(IncludeNoRelationships.getInstance())
+            .with(IncludeNoRelationshipProperties.getInstance());
+
+    /**
+     * Construct a new module that indexes all nodes which aren't framework-internal.
+     *
+     * @param moduleId ID of this module. Must not be <code>null</code>.
+     */
+    public NodeSamplingModule(String moduleId) {
+        this(moduleId, IncludeAllBusinessNodes.getInstance());
+    }
+
+    /**
+     * Construct a new module that indexes all nodes matching the given {@link NodeInclusionPolicy}.
+     *
+     * @param moduleId        ID of this module. Must not be <code>null</code>.
+     * @param inclusionPolicy The {@link NodeInclusionPolicy} nodes have to match in order to be indexed.
+     */
+    public NodeSamplingModule(String moduleId, NodeInclusionPolicy inclusionPolicy) {
+        super(moduleId);
+        this.inclusionPolicy = inclusionPolicy;
+    }
+
+    /**
+     * Get the index maintained by this module.
+     *
+     * @return index.
+     */
+    public NodeSamplingIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TxDrivenModuleConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(GraphDatabaseService database) {
+        LOG.info("Building node sampling index for module " + getId() + "...");
+
+        index.clear();
+        new MultiThreadedBatchTransactionExecutor(new IterableInputBatchTransactionExecutor<>(database, BATCH_SIZE, new AllNodes(database, BATCH_SIZE), (db, node, batchNumber, stepNumber) -> {
+            if (inclusionPolicy.include(node)) {
+                index.add(node.getId());
+            }
+        })).execute();
+
+        LOG.info("Node sampling index for module " + getId() + " built, it contains " + index.size() + " nodes.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Long, Boolean> beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+        Map<Long, Boolean> result = new HashMap<>();
+
+        for (Node created : transactionData.getAllCreatedNodes()) {
+            if (inclusionPolicy.include(created)) {
+                result.put(created.getId(), true);
+            }
+        }
+
+        for (Change<Node> changed : transactionData.getAllChangedNodes()) {
+            result.put(changed.getCurrent().getId(), inclusionPolicy.include(changed.getCurrent()));
+        }
+
+        for (Node deleted : transactionData.getAllDeletedNodes()) {
+            result.put(deleted.getId(), false);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCommit(Map<Long, Boolean> state) {
+        if (state == null) {
+            return;
+        }
+
+        for (Map.Entry<Long, Boolean> entry : state.entrySet()) {
+            if (entry.getValue()) {
+                index.add(entry.getKey());
+            } else {
+                index.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void shutdown() {
+        index.clear();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.policy.role.InstanceRolePolicy;
+import com.graphaware.common.policy.role.WritableRole;
+import com.graphaware.runtime.config.BaseTimerDrivenModuleConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+ * Immutable configuration of {@link ParallelWalkerModule} with fluent interface.
+ * <p/>
+ * Node and relationship selectors are configured as factories rather than instances. Every worker thread of the module
+ * creates its own selectors, because most selectors (e.g. {@link RandomNodeSelector}) are stateful and not thread-safe.
+ */
+public final class ParallelWalkerConfiguration extends BaseTimerDrivenModuleConfiguration<ParallelWalkerConfiguration> {
+
+    private static final int DEFAULT_NUMBER_OF_WALKERS = 100;
+    private static final int DEFAULT_STEPS_PER_RUN = 10;
+    private static final double DEFAULT_JUMP_PROBABILITY = 0.15;
+    private static final String DEFAULT_COUNTER_PROPERTY = "_GA_visits";
+    private static final int DEFAULT_FLUSH_BATCH_SIZE = 1000;
+    private static final Supplier<NodeSelector> DEFAULT_NODE_SELECTOR = RandomNodeSelector::new;
+    private static final Supplier<RelationshipSelector> DEFAULT_RELATIONSHIP_SELECTOR = RandomRelationshipSelector::new;
+
+    private final int numberOfWalkers;
+    private final int stepsPerRun;
+    private final int numberOfThreads;
+    private final double jumpProbability;
+    private final Supplier<? extends NodeSelector> nodeSelector;
+    private final Supplier<? extends RelationshipSelector> relationshipSelector;
+    private final String counterProperty;
+    private final int flushBatchSize;
+
+    /**
+     * Create a default configuration: {@link WritableRole}, 100 walkers making 10 steps each per run on as many threads
+     * as there are available processors, random jumps with 0.15 probability using {@link RandomNodeSelector},
+     * {@link RandomRelationshipSelector}, visit counts stored in "_GA_visits" property flushed in batches of 1000.
+     *
+     * @return default configuration.
+     */
+    public static ParallelWalkerConfiguration defaultConfiguration() {
+        return new ParallelWalkerConfiguration(WritableRole.getInstance(), DEFAULT_NUMBER_OF_WALKERS, DEFAULT_STEPS_PER_RUN,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_JUMP_PROBABILITY, DEFAULT_NODE_SELECTOR,
+                DEFAULT_RELATIONSHIP_SELECTOR, DEFAULT_COUNTER_PROPERTY, DEFAULT_FLUSH_BATCH_SIZE);
+    }
+
+    private ParallelWalkerConfiguration(InstanceRolePolicy instanceRolePolicy, int numberOfWalkers, int stepsPerRun,
+                                        int numberOfThreads, double jumpProbability, Supplier<? extends NodeSelector> nodeSelector,
+                                        Supplier<? extends RelationshipSelector> relationshipSelector, String counterProperty, int flushBatchSize) {
+        super(instanceRolePolicy);
+
+        if (numberOfWalkers < 1) {
+            throw new IllegalArgumentException("Number of walkers must be positive, was " + numberOfWalkers);
+        }
+        if (stepsPerRun < 1) {
+            throw new IllegalArgumentException("Steps per run must be positive, was " + stepsPerRun);
+        }
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, was " + numberOfThreads);
+        }
+        if (jumpProbability < 0 || jumpProbability > 1) {
+            throw new IllegalArgumentException("Jump probability must be between 0 and 1, was " + jumpProbability);
+        }
+        if (nodeSelector == null || relationshipSelector == null) {
+            throw new IllegalArgumentException("Node and relationship selector factories must not be null");
+        }
+        if (counterProperty == null || counterProperty.isEmpty()) {
+            throw new IllegalArgumentException("Counter property must not be empty");
+        }
+        if (flushBatchSize < 1) {
+            throw new IllegalArgumentException("Flush batch size must be positive, was " + flushBatchSize);
+        }
+
+        this.numberOfWalkers = numberOfWalkers;
+        this.stepsPerRun = stepsPerRun;
+        this.numberOfThreads = numberOfThreads;
+        this.jumpProbability = jumpProbability;
+        this.nodeSelector = nodeSelector;
+        this.relationshipSelector = relationshipSelector;
+        this.counterProperty = counterProperty;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ParallelWalkerConfiguration newInstance(InstanceRolePolicy instanceRolePolicy) {
+        return new ParallelWalkerConfiguration(instanceRolePolicy, numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withNumberOfWalkers(int numberOfWalkers) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withStepsPerRun(int stepsPerRun) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withNumberOfThreads(int numberOfThreads) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withJumpProbability(double jumpProbability) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    /**
+     * Configure the factory of node selectors. It is called once per worker thread; the selectors it produces are
+     * only ever used by a single thread.
+     *
+     * @param nodeSelector factory of node selectors.
+     * @return new configuration.
+     */
+    public ParallelWalkerConfiguration withNodeSelector(Supplier<? extends NodeSelector> nodeSelector) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    /**
+     * Configure the factory of relationship selectors. It is called once per worker thread; the selectors it produces
+     * are only ever used by a single thread.
+     *
+     * @param relationshipSelector factory of relationship selectors.
+     * @return new configuration.
+     */
+    public ParallelWalkerConfiguration withRelationshipSelector(Supplier<? extends RelationshipSelector> relationshipSelector) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withCounterProperty(String counterProperty) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public ParallelWalkerConfiguration withFlushBatchSize(int flushBatchSize) {
+        return new ParallelWalkerConfiguration(getInstanceRolePolicy(), numberOfWalkers, stepsPerRun, numberOfThreads, jumpProbability, nodeSelector, relationshipSelector, counterProperty, flushBatchSize);
+    }
+
+    public int getNumberOfWalkers() {
+        return numberOfWalkers;
+    }
+
+    public int getStepsPerRun() {
+        return stepsPerRun;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public double getJumpProbability() {
+        return jumpProbability;
+    }
+
+    public Supplier<? extends NodeSelector> getNodeSelector() {
+        return nodeSelector;
+    }
+
+    public Supplier<? extends RelationshipSelector> getRelationshipSelector() {
+        return relationshipSelector;
+    }
+
+    public String getCounterProperty() {
+        return counterProperty;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        ParallelWalkerConfiguration that = (ParallelWalkerConfiguration) o;
+
+        if (numberOfWalkers != that.numberOfWalkers) return false;
+        if (stepsPerRun != that.stepsPerRun) return false;
+        if (numberOfThreads != that.numberOfThreads) return false;
+        if (Double.compare(that.jumpProbability, jumpProbability) != 0) return false;
+        if (flushBatchSize != that.flushBatchSize) return false;
+        if (!nodeSelector.equals(that.nodeSelector)) return false;
+        if (!relationshipSelector.equals(that.relationshipSelector)) return false;
+        return counterProperty.equals(that.counterProperty);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        long temp = Double.doubleToLongBits(jumpProbability);
+        result = 31 * result + numberOfWalkers;
+        result = 31 * result + stepsPerRun;
+        result = 31 * result + numberOfThreads;
+        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        result = 31 * result + nodeSelector.hashCode();
+        result = 31 * result + relationshipSelector.hashCode();
+        result = 31 * result + counterProperty.hashCode();
+        result = 31 * result + flushBatchSize;
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.runtime.metadata.BaseTimerDrivenModuleContext;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.util.Arrays;
+
+/**
+ * {@link com.graphaware.runtime.metadata.TimerDrivenModuleContext} of the {@link ParallelWalkerModule}, holding the
+ * current position (node ID) of each walker, so that walks can be resumed across runs and restarts. A negative
+ * position means the walker hasn't started yet (or has been lost) and will be placed using the configured
+ * {@link NodeSelector}.
+ */
+public class ParallelWalkerContext extends BaseTimerDrivenModuleContext<long[]> {
+
+    private final long[] positions;
+
+    /**
+     * Construct a new context.
+     *
+     * @param positions node IDs of walkers' current positions. Must not be <code>null</code>.
+     */
+    public ParallelWalkerContext(long[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Construct a new context.
+     *
+     * @param positions        node IDs of walkers' current positions. Must not be <code>null</code>.
+     * @param earliestNextCall time in ms since 1/1/1970 when the module wants to be called next at the earliest.
+     */
+    public ParallelWalkerContext(long[] positions, long earliestNextCall) {
+        super(earliestNextCall);
+        this.positions = positions;
+    }
+
+    /**
+     * Create a context with all walkers not yet started.
+     *
+     * @param numberOfWalkers number of walkers.
+     * @return context.
+     */
+    public static ParallelWalkerContext notStarted(int numberOfWalkers) {
+        long[] positions = new long[numberOfWalkers];
+        Arrays.fill(positions, -1);
+        return new ParallelWalkerContext(positions);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return a copy of walkers' positions.
+     */
+    @Override
+    public long[] find(GraphDatabaseService database) {
+        return Arrays.copyOf(positions, positions.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        ParallelWalkerContext that = (ParallelWalkerContext) o;
+
+        return Arrays.equals(positions, that.positions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + Arrays.hashCode(positions);
+        return result;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.util.StripedCounters;
+import com.graphaware.runtime.RuntimeRegistry;
+import com.graphaware.runtime.config.TimerDrivenModuleConfiguration;
+import com.graphaware.runtime.module.BaseTimerDrivenModule;
+import com.graphaware.writer.neo4j.Neo4jWriter;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongLongMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link com.graphaware.runtime.module.TimerDrivenModule} that runs many independent random graph walkers
+ * concurrently, e.g. for approximate PageRank or similarity computations.
+ * <p/>
+ * Every time the module is called by the runtime's scheduler (and thus throttled by its
+ * {@link com.graphaware.runtime.schedule.TimingStrategy}), the walkers are split into slices, each of which is walked
+ * in its own read transaction on a dedicated thread pool. Each walker makes a configured number of steps, following
+ * relationships chosen by a {@link RelationshipSelector} and jumping to a node chosen by a {@link NodeSelector} with
+ * a configured probability (or when stuck). Each worker thread uses its own selectors, created by the factories in
+ * {@link ParallelWalkerConfiguration}. Per-walker state is kept in a primitive array and persisted in
+ * {@link ParallelWalkerContext} after each run, so walks resume where they left off.
+ * <p/>
+ * Visits are aggregated in {@link StripedCounters} and, at the end of each run, added to a node property in batches
+ * through a {@link Neo4jWriter}.
+ */
+public class ParallelWalkerModule extends BaseTimerDrivenModule<ParallelWalkerContext> {
+
+    private static final Log LOG = LoggerFactory.getLogger(ParallelWalkerModule.class);
+
+    private final ParallelWalkerConfiguration configuration;
+    private final StripedCounters visits;
+    private ExecutorService executor;
+    private final ThreadLocal<NodeSelector> nodeSelectors;
+    private final ThreadLocal<RelationshipSelector> relationshipSelectors;
+    private volatile Neo4jWriter writer;
+
+    /**
+     * Construct a new module, which will write visit counts using the {@link Neo4jWriter} of the GraphAware Runtime
+     * the module is registered with.
+     *
+     * @param moduleId      ID of the module.
+     * @param configuration of the module.
+     */
+    public ParallelWalkerModule(String moduleId, ParallelWalkerConfiguration configuration) {
+        this(moduleId, configuration, null);
+    }
+
+    /**
+     * Construct a new module.
+     *
+     * @param moduleId      ID of the module.
+     * @param configuration of the module.
+     * @param writer        to write visit counts with. If <code>null</code>, the writer of the GraphAware Runtime
+     *                      the module is registered with will be used.
+     */
+    public ParallelWalkerModule(String moduleId, ParallelWalkerConfiguration configuration, Neo4jWriter writer) {
+        super(moduleId);
+        this.configuration = configuration;
+        this.writer = writer;
+        this.visits = new StripedCounters(configuration.getNumberOfThreads());
+        this.nodeSelectors = ThreadLocal.withInitial(configuration.getNodeSelector());
+        this.relationshipSelectors = ThreadLocal.withInitial(configuration.getRelationshipSelector());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TimerDrivenModuleConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ParallelWalkerContext createInitialContext(GraphDatabaseService database) {
+        return ParallelWalkerContext.notStarted(configuration.getNumberOfWalkers());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ParallelWalkerContext doSomeWork(ParallelWalkerContext lastContext, GraphDatabaseService database) {
+        long[] positions = positions(lastContext, database);
+
+        int threads = Math.min(configuration.getNumberOfThreads(), positions.length);
+        int sliceSize = (positions.length + threads - 1) / threads;
+
+        ExecutorService executor = getExecutor();
+
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int from = 0; from < positions.length; from += sliceSize) {
+            final int start = from;
+            final int end = Math.min(from + sliceSize, positions.length);
+            futures.add(executor.submit(() -> walk(database, positions, start, end)));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                //slices that are still running may be writing positions, so they are neither used nor flushed; visits
+                //counted by the slices are kept and flushed by the next run
+                for (Future<?> remaining : futures) {
+                    remaining.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted while waiting for walkers to finish, walkers keep their previous positions");
+                return lastContext != null ? lastContext : createInitialContext(database);
+            } catch (ExecutionException e) {
+                LOG.warn("A slice of walkers failed. Walkers that did not finish keep their previous positions, visits counted before the failure will still be flushed", e.getCause());
+            }
+        }
+
+        flush(database);
+
+        return new ParallelWalkerContext(positions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the walker thread pool, created on first use, so that a module that is never run does not hold any threads.
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(configuration.getNumberOfThreads());
+        }
+        return executor;
+    }
+
+    private long[] positions(ParallelWalkerContext lastContext, GraphDatabaseService database) {
+        long[] positions = lastContext == null ? new long[0] : lastContext.find(database);
+
+        int numberOfWalkers = configuration.getNumberOfWalkers();
+        if (positions.length != numberOfWalkers) {
+            int previous = positions.length;
+            positions = Arrays.copyOf(positions, numberOfWalkers);
+            if (previous < numberOfWalkers) {
+                Arrays.fill(positions, previous, numberOfWalkers, -1);
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Walk the given slice of walkers. Each walker's final position is written back to the positions array; slices
+     * are disjoint, so no synchronization is needed beyond waiting for the task to finish.
+     */
+    private void walk(GraphDatabaseService database, long[] positions, int from, int to) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        NodeSelector nodeSelector = nodeSelectors.get();
+        RelationshipSelector relationshipSelector = relationshipSelectors.get();
+
+        try (Transaction tx = database.beginTx()) {
+            for (int i = from; i < to; i++) {
+                Node current = resolve(database, positions[i]);
+
+                for (int step = 0; step < configuration.getStepsPerRun(); step++) {
+                    Node next = null;
+
+                    if (current != null && random.nextDouble() >= configuration.getJumpProbability()) {
+                        Relationship relationship = relationshipSelector.selectRelationship(current);
+                        if (relationship != null) {
+                            next = relationship.getOtherNode(current);
+                        }
+                    }
+
+                    if (next == null) {
+                        next = nodeSelector.selectNode(database);
+                    }
+
+                    if (next == null) {
+                        break; //nothing to walk on
+                    }
+
+                    visits.increment(next.getId());
+                    current = next;
+                }
+
+                positions[i] = current == null ? -1 : current.getId();
+            }
+
+            tx.success();
+        }
+    }
+
+    private Node resolve(GraphDatabaseService database, long nodeId) {
+        if (nodeId < 0) {
+            return null;
+        }
+
+        try {
+            return database.getNodeById(nodeId);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Add visits counted so far to the configured property of visited nodes, in batches.
+     */
+    private void flush(GraphDatabaseService database) {
+        PrimitiveLongLongMap counts = visits.drain();
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        Neo4jWriter writer = getWriter(database);
+        int batchSize = configuration.getFlushBatchSize();
+        String property = configuration.getCounterProperty();
+
+        PrimitiveLongIterator keys = counts.iterator();
+        while (keys.hasNext()) {
+            final long[] ids = new long[Math.min(batchSize, counts.size())];
+            final long[] deltas = new long[ids.length];
+
+            int size = 0;
+            while (size < ids.length && keys.hasNext()) {
+                ids[size] = keys.next();
+                deltas[size] = counts.get(ids[size]);
+                size++;
+            }
+
+            final int batch = size;
+            writer.write(() -> {
+                for (int i = 0; i < batch; i++) {
+                    try {
+                        Node node = database.getNodeById(ids[i]);
+                        node.setProperty(property, ((Number) node.getProperty(property, 0L)).longValue() + deltas[i]);
+                    } catch (NotFoundException e) {
+                        //node deleted since visited, ignore
+                    }
+                }
+            }, getId());
+        }
+    }
+
+    private Neo4jWriter getWriter(GraphDatabaseService database) {
+        if (writer == null) {
+            writer = RuntimeRegistry.getStartedRuntime(database).getDatabaseWriter();
+        }
+        return writer;
+    }
+}
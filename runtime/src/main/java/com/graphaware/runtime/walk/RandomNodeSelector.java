@@ -23,8 +23,6 @@ import org.apache.commons.math3.random.RandomDataGenerator;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.NotFoundException;
-import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
-import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 /**
  * {@link NodeSelector} that selects a {@link Node} at random from all {@link Node}s available in the database that match
@@ -36,6 +34,7 @@ public class RandomNodeSelector implements NodeSelector {
 
     private final NodeInclusionPolicy inclusionPolicy;
     private final RandomDataGenerator random = new RandomDataGenerator();
+    private final CachedNodeStore nodeStore = new CachedNodeStore();
 
     /**
      * Constructs a new {@link RandomNodeSelector} that selects any node which isn't a framework-internal node.
@@ -76,7 +75,7 @@ public class RandomNodeSelector implements NodeSelector {
      * @return random node, null if not successful.
      */
     private Node randomNodeO1(GraphDatabaseService database) {
-        long highestId = ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(RecordStorageEngine.class).testAccessNeoStores().getNodeStore().getHighestPossibleIdInUse();
+        long highestId = nodeStore.getHighestPossibleIdInUse(database);
         if (highestId <= 0) {
             return null;
         }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+
+/**
+ * {@link NodeSelector} that selects a {@link Node} uniformly at random from a {@link NodeSamplingIndex}, typically
+ * maintained by a {@link NodeSamplingModule}. Unlike {@link RandomNodeSelector}, this is an O(1) operation no matter
+ * how sparse the node IDs are or how selective the {@link NodeInclusionPolicy} is.
+ * <p/>
+ * Since the index is only updated after transactions commit, a selected node is verified before it is returned. IDs of
+ * nodes that no longer exist are removed from the index.
+ */
+public class SamplingIndexNodeSelector implements NodeSelector {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final NodeSamplingIndex index;
+    private final NodeInclusionPolicy inclusionPolicy;
+
+    /**
+     * Constructs a new {@link SamplingIndexNodeSelector} that selects nodes from the index maintained by the given module.
+     *
+     * @param module maintaining the index. Must not be <code>null</code>.
+     */
+    public SamplingIndexNodeSelector(NodeSamplingModule module) {
+        this(module.getIndex(), null);
+    }
+
+    /**
+     * Constructs a new {@link SamplingIndexNodeSelector}.
+     *
+     * @param index           from which to select node IDs. Must not be <code>null</code>.
+     * @param inclusionPolicy The {@link NodeInclusionPolicy} selected nodes are verified against. Can be <code>null</code>,
+     *                        in which case all indexed nodes that still exist are selected.
+     */
+    public SamplingIndexNodeSelector(NodeSamplingIndex index, NodeInclusionPolicy inclusionPolicy) {
+        this.index = index;
+        this.inclusionPolicy = inclusionPolicy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Node selectNode(GraphDatabaseService database) {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            long randomId = index.randomId();
+            if (randomId < 0) {
+                return null;
+            }
+
+            try {
+                Node node = database.getNodeById(randomId);
+                if (inclusionPolicy == null || inclusionPolicy.include(node)) {
+                    return node;
+                }
+            } catch (NotFoundException e) {
+                index.remove(randomId);
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
+import com.graphaware.common.util.AliasTable;
+import com.graphaware.common.util.Change;
+import com.graphaware.runtime.policy.all.IncludeAllBusinessRelationships;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RelationshipSelector} that selects a {@link Relationship} at random from all the given {@link Node}'s
+ * {@link Relationship}s matching the provided {@link RelationshipInclusionPolicy}, with probability proportional to the
+ * value of a numeric relationship property (the weight). Relationships without the property, or with a non-numeric or
+ * non-positive value, are never selected.
+ * <p/>
+ * Building the distribution for a node is an O(n) operation, but it is cached in an {@link AliasTable} (one per node,
+ * up to a configurable number of nodes, least recently used evicted first), so subsequent selections for the same node
+ * are O(1). Cached tables hold relationship IDs, which Neo4j reuses, so a selected relationship is only returned if
+ * it still exists and is attached to the node; otherwise, the node's table is rebuilt.
+ * <p/>
+ * Changes of weights, and new relationships, are not detected automatically. Tables affected by a transaction can be
+ * invalidated using {@link #invalidate(ImprovedTransactionData)}, typically from a
+ * {@link com.graphaware.runtime.module.TxDrivenModule#beforeCommit(ImprovedTransactionData)}, or explicitly using
+ * {@link #invalidate(long)}.
+ */
+public class WeightedRandomRelationshipSelector implements RelationshipSelector {
+
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private final RelationshipInclusionPolicy relationshipInclusionPolicy;
+    private final String weightProperty;
+    private final Map<Long, WeightedRelationships> cache;
+
+    /**
+     * Constructs a new {@link WeightedRandomRelationshipSelector} that selects any relationship that isn't
+     * framework-internal, weighted by the given property.
+     *
+     * @param weightProperty key of the relationship property holding the weight. Must not be <code>null</code>.
+     */
+    public WeightedRandomRelationshipSelector(String weightProperty) {
+        this(IncludeAllBusinessRelationships.getInstance(), weightProperty);
+    }
+
+    /**
+     * Constructs a new {@link WeightedRandomRelationshipSelector} that chooses relationships in accordance with the given
+     * {@link RelationshipInclusionPolicy}, weighted by the given property.
+     *
+     * @param relationshipInclusionPolicy The {@link RelationshipInclusionPolicy} used to select relationships to follow.
+     * @param weightProperty              key of the relationship property holding the weight. Must not be <code>null</code>.
+     */
+    public WeightedRandomRelationshipSelector(RelationshipInclusionPolicy relationshipInclusionPolicy, String weightProperty) {
+        this(relationshipInclusionPolicy, weightProperty, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link WeightedRandomRelationshipSelector} that chooses relationships in accordance with the given
+     * {@link RelationshipInclusionPolicy}, weighted by the given property.
+     *
+     * @param relationshipInclusionPolicy The {@link RelationshipInclusionPolicy} used to select relationships to follow.
+     * @param weightProperty              key of the relationship property holding the weight. Must not be <code>null</code>.
+     * @param cacheSize                   maximum number of nodes for which the weight distribution is cached. Must be positive.
+     */
+    public WeightedRandomRelationshipSelector(RelationshipInclusionPolicy relationshipInclusionPolicy, String weightProperty, final int cacheSize) {
+        if (weightProperty == null) {
+            throw new IllegalArgumentException("Weight property must not be null");
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+
+        this.relationshipInclusionPolicy = relationshipInclusionPolicy;
+        this.weightProperty = weightProperty;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Long, WeightedRelationships>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, WeightedRelationships> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Relationship selectRelationship(Node node) {
+        WeightedRelationships relationships = cache.get(node.getId());
+
+        if (relationships != null) {
+            if (relationships.isEmpty()) {
+                return null;
+            }
+
+            Relationship selected = sample(node, relationships);
+            if (selected != null) {
+                return selected;
+            }
+            //stale distribution, rebuild once
+        }
+
+        relationships = build(node);
+        cache.put(node.getId(), relationships);
+
+        if (relationships.isEmpty()) {
+            return null;
+        }
+
+        return sample(node, relationships);
+    }
+
+    /**
+     * Sample a relationship from a distribution of the node's relationships.
+     *
+     * @return sampled relationship, <code>null</code> if the distribution is stale, i.e. the sampled relationship no
+     * longer exists or isn't attached to the node.
+     */
+    private Relationship sample(Node node, WeightedRelationships relationships) {
+        Relationship relationship;
+        try {
+            relationship = node.getGraphDatabase().getRelationshipById(relationships.sample());
+        } catch (NotFoundException e) {
+            return null;
+        }
+
+        //the ID could have been reused by a relationship that isn't attached to the node
+        if (relationship.getStartNode().getId() != node.getId() && relationship.getEndNode().getId() != node.getId()) {
+            return null;
+        }
+
+        return relationship;
+    }
+
+    /**
+     * Invalidate the cached weight distribution of a node.
+     *
+     * @param nodeId ID of the node.
+     */
+    public void invalidate(long nodeId) {
+        cache.remove(nodeId);
+    }
+
+    /**
+     * Invalidate the cached weight distributions of all nodes whose relationships have been created, deleted, or had
+     * their weight changed in a transaction.
+     *
+     * @param transactionData data about the transaction.
+     */
+    public void invalidate(ImprovedTransactionData transactionData) {
+        for (Relationship relationship : transactionData.getAllCreatedRelationships()) {
+            invalidate(relationship);
+        }
+
+        for (Relationship relationship : transactionData.getAllDeletedRelationships()) {
+            invalidate(relationship);
+        }
+
+        for (Change<Relationship> change : transactionData.getAllChangedRelationships()) {
+            Relationship relationship = change.getCurrent();
+            if (transactionData.hasPropertyBeenCreated(relationship, weightProperty)
+                    || transactionData.hasPropertyBeenChanged(relationship, weightProperty)
+                    || transactionData.hasPropertyBeenDeleted(relationship, weightProperty)) {
+                invalidate(relationship);
+            }
+        }
+    }
+
+    private void invalidate(Relationship relationship) {
+        invalidate(relationship.getStartNode().getId());
+        invalidate(relationship.getEndNode().getId());
+    }
+
+    /**
+     * Invalidate all cached weight distributions.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private WeightedRelationships build(Node node) {
+        List<Relationship> relationships = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+
+        for (Relationship relationship : node.getRelationships()) {
+            if (!relationshipInclusionPolicy.include(relationship, node)) {
+                continue;
+            }
+
+            Object weight = relationship.getProperty(weightProperty, null);
+            if (weight instanceof Number && ((Number) weight).doubleValue() > 0) {
+                relationships.add(relationship);
+                weights.add(((Number) weight).doubleValue());
+            }
+        }
+
+        return new WeightedRelationships(relationships, weights);
+    }
+
+    /**
+     * Relationship IDs with an {@link AliasTable} of their weights.
+     */
+    private static final class WeightedRelationships {
+
+        private final long[] relationshipIds;
+        private final AliasTable aliasTable;
+
+        WeightedRelationships(List<Relationship> relationships, List<Double> weights) {
+            relationshipIds = new long[relationships.size()];
+            double[] weightArray = new double[weights.size()];
+
+            for (int i = 0; i < relationshipIds.length; i++) {
+                relationshipIds[i] = relationships.get(i).getId();
+                weightArray[i] = weights.get(i);
+            }
+
+            aliasTable = relationshipIds.length == 0 ? null : new AliasTable(weightArray);
+        }
+
+        boolean isEmpty() {
+            return aliasTable == null;
+        }
+
+        long sample() {
+            return relationshipIds[aliasTable.sample()];
+        }
+    }
+}
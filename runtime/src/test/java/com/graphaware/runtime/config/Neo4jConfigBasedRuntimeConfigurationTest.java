@@ -17,6 +17,8 @@
 package com.graphaware.runtime.config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -112,4 +114,52 @@ public class Neo4jConfigBasedRuntimeConfigurationTest {
         assertEquals(GoogleAnalyticsStatsCollector.class.getName(), new Neo4jConfigBasedRuntimeConfiguration(null, config).getStatsCollector().getClass().getName());
     }
 
+    @Test
+    public void shouldUseBudgetsSpecifiedInConfig() {
+        Map<String, String> parameterMap = new HashMap<>();
+        parameterMap.put("com.graphaware.runtime.budget.UIDM", " 5");
+        parameterMap.put("com.graphaware.runtime.budget.UIDM.violations", "3");
+        parameterMap.put("com.graphaware.runtime.budget.UIDM.failures", "2");
+        parameterMap.put("com.graphaware.runtime.budget.UIDM.open", "0");
+        parameterMap.put("com.graphaware.runtime.budget.UIDM.action", "degrade");
+
+        Config config = Config.empty().with(parameterMap);
+
+        CommitBudget expected = CommitBudget.millis(5).withTripAfterViolations(3).withTripAfterFailures(2).withOpenMillis(0).withAction(CircuitBreakerAction.DEGRADE);
+
+        RuntimeConfiguration configuration = new Neo4jConfigBasedRuntimeConfiguration(null, config);
+        assertEquals(expected, configuration.getCommitBudget("UIDM"));
+        assertEquals(CommitBudget.unlimited(), configuration.getCommitBudget("other"));
+    }
+
+    @Test
+    public void shouldFailWithMalformedBudget() {
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM", "5ms");
+    }
+
+    @Test
+    public void shouldFailWithNegativeBudget() {
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM", "-1");
+    }
+
+    @Test
+    public void shouldFailWithInvalidBudgetSettings() {
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM.violations", "0");
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM.failures", "3000000000");
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM.open", "-5");
+        assertInvalidBudget("com.graphaware.runtime.budget.UIDM.action", "explode");
+    }
+
+    private void assertInvalidBudget(String key, String value) {
+        Map<String, String> parameterMap = new HashMap<>();
+        parameterMap.put("com.graphaware.runtime.budget.UIDM", "5");
+        parameterMap.put(key, value);
+
+        try {
+            new Neo4jConfigBasedRuntimeConfiguration(null, Config.empty().with(parameterMap));
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains(key));
+        }
+    }
 }
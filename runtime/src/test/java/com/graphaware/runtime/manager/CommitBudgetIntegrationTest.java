@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.runtime.DatabaseRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import com.graphaware.runtime.config.CircuitBreakerAction;
+import com.graphaware.runtime.config.CommitBudget;
+import com.graphaware.runtime.config.FluentRuntimeConfiguration;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.runtime.module.DeliberateTransactionRollbackException;
+import com.graphaware.runtime.module.DegradableTxDrivenModule;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Integration test for {@link CommitBudget}s enforced by {@link BaseTxDrivenModuleManager}.
+ */
+public class CommitBudgetIntegrationTest {
+
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void slowModuleShouldBeSkippedOnceBreakerTrips() {
+        SlowModule module = new SlowModule("SLOW");
+        DatabaseRuntime runtime = start(module, CommitBudget.millis(1).withTripAfterViolations(2));
+
+        createNodes(5);
+
+        assertEquals(2, module.calls.get());
+        assertEquals(2, module.afterCommits.get());
+        assertEquals(ModuleCircuitBreaker.State.OPEN, runtime.getCircuitBreakers().get("SLOW").getState());
+        assertEquals(3, runtime.getCircuitBreakers().get("SLOW").getRejected());
+    }
+
+    @Test
+    public void degradableModuleShouldBeDegradedOnceBreakerTrips() {
+        SlowModule module = new SlowModule("SLOW");
+        DatabaseRuntime runtime = start(module, CommitBudget.millis(1).withTripAfterViolations(2).withOpenMillis(60_000).withAction(CircuitBreakerAction.DEGRADE));
+
+        createNodes(5);
+
+        assertEquals(2, module.calls.get());
+        assertEquals(3, module.degradedCalls.get());
+        assertEquals(5, module.afterCommits.get());
+        assertEquals(1, runtime.getCircuitBreakers().get("SLOW").getTrips());
+    }
+
+    @Test
+    public void trialCallRollingBackTransactionShouldCloseBreaker() throws InterruptedException {
+        SlowModule module = new SlowModule("SLOW");
+        DatabaseRuntime runtime = start(module, CommitBudget.millis(10).withTripAfterViolations(1).withOpenMillis(50).withAction(CircuitBreakerAction.DEGRADE));
+        ModuleCircuitBreaker breaker = runtime.getCircuitBreakers().get("SLOW");
+
+        createNodes(1);
+        assertEquals(ModuleCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(100);
+        module.veto = true;
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode();
+            tx.success();
+        } catch (RuntimeException e) {
+            //expected, vetoed
+        }
+
+        assertEquals(ModuleCircuitBreaker.State.CLOSED, breaker.getState());
+
+        module.veto = false;
+        module.slow = false;
+        createNodes(2);
+
+        assertEquals(4, module.calls.get());
+        assertEquals(0, module.degradedCalls.get());
+    }
+
+    @Test
+    public void modulesWithoutBudgetShouldNotBeTimed() {
+        SlowModule module = new SlowModule("SLOW");
+        DatabaseRuntime runtime = start(module, CommitBudget.unlimited());
+
+        createNodes(3);
+
+        assertEquals(3, module.calls.get());
+        assertEquals(0, runtime.getCircuitBreakers().size());
+    }
+
+    private DatabaseRuntime start(SlowModule module, CommitBudget budget) {
+        DatabaseRuntime runtime = (DatabaseRuntime) GraphAwareRuntimeFactory.createRuntime(database,
+                FluentRuntimeConfiguration.defaultConfiguration(database).withCommitBudget(module.getId(), budget));
+        runtime.registerModule(module);
+        runtime.start();
+        runtime.waitUntilStarted();
+        return runtime;
+    }
+
+    private void createNodes(int count) {
+        for (int i = 0; i < count; i++) {
+            try (Transaction tx = database.beginTx()) {
+                database.createNode();
+                tx.success();
+            }
+        }
+    }
+
+    private static class SlowModule extends BaseTxDrivenModule<Object> implements DegradableTxDrivenModule<Object> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger degradedCalls = new AtomicInteger();
+        private final AtomicInteger afterCommits = new AtomicInteger();
+        private volatile boolean slow = true;
+        private volatile boolean veto = false;
+
+        SlowModule(String moduleId) {
+            super(moduleId);
+        }
+
+        @Override
+        public Object beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+            calls.incrementAndGet();
+            if (veto) {
+                throw new DeliberateTransactionRollbackException("Vetoed");
+            }
+            if (slow) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "full";
+        }
+
+        @Override
+        public Object beforeCommitDegraded(ImprovedTransactionData transactionData) {
+            degradedCalls.incrementAndGet();
+            return "degraded";
+        }
+
+        @Override
+        public void afterCommit(Object state) {
+            afterCommits.incrementAndGet();
+        }
+    }
+}
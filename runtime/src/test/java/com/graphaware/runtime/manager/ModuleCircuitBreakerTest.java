@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.runtime.config.CommitBudget;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ModuleCircuitBreaker}.
+ */
+public class ModuleCircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void shouldTripAfterConsecutiveViolations() {
+        ModuleCircuitBreaker breaker = new ModuleCircuitBreaker(CommitBudget.millis(10).withTripAfterViolations(3), false);
+
+        assertFalse(breaker.recordCall(SLOW));
+        assertFalse(breaker.recordCall(SLOW));
+        assertFalse(breaker.recordCall(FAST));
+        assertFalse(breaker.recordCall(SLOW));
+        assertFalse(breaker.recordCall(SLOW));
+        assertTrue(breaker.allowsCall());
+        assertTrue(breaker.recordCall(SLOW));
+
+        assertEquals(ModuleCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowsCall());
+        assertEquals(1, breaker.getTrips());
+        assertEquals(5, breaker.getViolations());
+        assertEquals(1, breaker.getRejected());
+        assertEquals(6, breaker.getCalls());
+    }
+
+    @Test
+    public void shouldTripAfterConsecutiveFailures() {
+        ModuleCircuitBreaker breaker = new ModuleCircuitBreaker(CommitBudget.millis(10).withTripAfterFailures(2), false);
+
+        assertFalse(breaker.recordFailure());
+        assertTrue(breaker.recordFailure());
+        assertFalse(breaker.recordFailure());
+
+        assertEquals(ModuleCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTrips());
+        assertEquals(3, breaker.getFailures());
+    }
+
+    @Test
+    public void unrecoverableBreakerShouldStayOpen() throws InterruptedException {
+        ModuleCircuitBreaker breaker = new ModuleCircuitBreaker(CommitBudget.millis(10).withTripAfterFailures(1).withOpenMillis(0), false);
+
+        assertTrue(breaker.recordFailure());
+        Thread.sleep(5);
+
+        assertFalse(breaker.allowsCall());
+    }
+
+    @Test
+    public void recoverableBreakerShouldLetSingleTrialThroughAndClose() throws InterruptedException {
+        ModuleCircuitBreaker breaker = new ModuleCircuitBreaker(CommitBudget.millis(10).withTripAfterFailures(1).withOpenMillis(20), true);
+
+        assertTrue(breaker.recordFailure());
+        assertFalse(breaker.allowsCall());
+
+        Thread.sleep(50);
+
+        assertTrue(breaker.allowsCall());
+        assertEquals(ModuleCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowsCall());
+
+        assertFalse(breaker.recordCall(SLOW));
+        assertEquals(ModuleCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(50);
+
+        assertTrue(breaker.allowsCall());
+        breaker.recordCall(FAST);
+        assertEquals(ModuleCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowsCall());
+        assertEquals(1, breaker.getTrips());
+    }
+}
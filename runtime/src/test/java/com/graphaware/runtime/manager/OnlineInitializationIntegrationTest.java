@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.runtime.DatabaseRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import com.graphaware.runtime.config.FluentRuntimeConfiguration;
+import com.graphaware.runtime.config.RuntimeConfiguration;
+import com.graphaware.runtime.metadata.DefaultTxDrivenModuleMetadata;
+import com.graphaware.runtime.metadata.GraphPropertiesMetadataRepository;
+import com.graphaware.runtime.metadata.InitializingTxDrivenModuleMetadata;
+import com.graphaware.runtime.metadata.ModuleMetadataRepository;
+import com.graphaware.runtime.metadata.TxDrivenModuleMetadata;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.runtime.module.OnlineInitializedTxDrivenModule;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static com.graphaware.runtime.config.RuntimeConfiguration.TX_MODULES_PROPERTY_PREFIX;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for online initialization of {@link OnlineInitializedTxDrivenModule}s by {@link OnlineInitializer}.
+ */
+public class OnlineInitializationIntegrationTest {
+
+    private GraphDatabaseService database;
+    private RuntimeConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+        configuration = FluentRuntimeConfiguration.defaultConfiguration(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void moduleShouldBeInitializedInBackground() throws InterruptedException {
+        createNodes(250);
+
+        OnlineModule module = new OnlineModule("ONLINE");
+        DatabaseRuntime runtime = start(module);
+        OnlineInitializer initializer = awaitCompletion(runtime, "ONLINE");
+
+        assertEquals(1, module.prepareCalls.get());
+        assertEquals(1, module.finishedCalls.get());
+        assertEquals(250, initializer.getProcessedNodes());
+        assertEquals(1.0, initializer.getProgress(), 0);
+        assertEquals(250, countInitialized());
+        assertTrue(metadataRepository().getModuleMetadata("ONLINE") instanceof DefaultTxDrivenModuleMetadata);
+
+        createNodes(1);
+        assertEquals(1, module.beforeCommits.get());
+    }
+
+    @Test
+    public void interruptedInitializationShouldResumeFromCheckpoint() throws InterruptedException {
+        createNodes(250);
+
+        OnlineModule module = new OnlineModule("ONLINE");
+        TxDrivenModuleMetadata checkpoint = new InitializingTxDrivenModuleMetadata(module.getConfiguration()).withCheckpoint(99, 249, 100);
+        metadataRepository().persistModuleMetadata("ONLINE", checkpoint);
+
+        DatabaseRuntime runtime = start(module);
+        OnlineInitializer initializer = awaitCompletion(runtime, "ONLINE");
+
+        assertEquals(0, module.prepareCalls.get());
+        assertEquals(1, module.finishedCalls.get());
+        assertEquals(250, initializer.getProcessedNodes());
+        assertEquals(150, countInitialized());
+    }
+
+    @Test
+    public void moduleMarkedForReinitializationShouldNotBeMarkedInitialized() throws InterruptedException {
+        createNodes(250);
+
+        OnlineModule module = new OnlineModule("ONLINE", 500);
+        DatabaseRuntime runtime = start(module);
+        OnlineInitializer initializer = runtime.getOnlineInitializers().get("ONLINE");
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (initializer.getLastNodeId() < 249 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //last batch done, the initializer is pausing before marking the module initialized
+        TxDrivenModuleMetadata current = metadataRepository().getModuleMetadata("ONLINE");
+        metadataRepository().persistModuleMetadata("ONLINE", current.markedNeedingInitialization());
+
+        while (initializer.getState() == OnlineInitializer.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(OnlineInitializer.State.STOPPED, initializer.getState());
+        assertEquals(0, module.finishedCalls.get());
+        assertTrue(((TxDrivenModuleMetadata) metadataRepository().getModuleMetadata("ONLINE")).needsInitialization());
+    }
+
+    @Test
+    public void initializedModuleShouldNotBeInitializedAgain() {
+        OnlineModule module = new OnlineModule("ONLINE");
+        metadataRepository().persistModuleMetadata("ONLINE", new DefaultTxDrivenModuleMetadata(module.getConfiguration()));
+
+        DatabaseRuntime runtime = start(module);
+
+        assertEquals(0, module.prepareCalls.get());
+        assertTrue(runtime.getOnlineInitializers().isEmpty());
+    }
+
+    private DatabaseRuntime start(OnlineModule module) {
+        DatabaseRuntime runtime = (DatabaseRuntime) GraphAwareRuntimeFactory.createRuntime(database, configuration);
+        runtime.registerModule(module);
+        runtime.start();
+        runtime.waitUntilStarted();
+        return runtime;
+    }
+
+    private OnlineInitializer awaitCompletion(DatabaseRuntime runtime, String moduleId) throws InterruptedException {
+        OnlineInitializer initializer = runtime.getOnlineInitializers().get(moduleId);
+        assertNotNull(initializer);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (initializer.getState() != OnlineInitializer.State.COMPLETED && System.currentTimeMillis() < deadline) {
+            assertNotEquals(OnlineInitializer.State.FAILED, initializer.getState());
+            Thread.sleep(10);
+        }
+
+        assertEquals(OnlineInitializer.State.COMPLETED, initializer.getState());
+        return initializer;
+    }
+
+    private ModuleMetadataRepository metadataRepository() {
+        return new GraphPropertiesMetadataRepository(database, configuration, TX_MODULES_PROPERTY_PREFIX);
+    }
+
+    private void createNodes(int count) {
+        try (Transaction tx = database.beginTx()) {
+            for (int i = 0; i < count; i++) {
+                database.createNode();
+            }
+            tx.success();
+        }
+    }
+
+    private long countInitialized() {
+        long result = 0;
+        try (Transaction tx = database.beginTx()) {
+            for (Node node : database.getAllNodes()) {
+                if (node.hasProperty("initialized")) {
+                    result++;
+                }
+            }
+            tx.success();
+        }
+        return result;
+    }
+
+    private static class OnlineModule extends BaseTxDrivenModule<Void> implements OnlineInitializedTxDrivenModule<Void> {
+
+        private final AtomicInteger beforeCommits = new AtomicInteger();
+        private final AtomicInteger prepareCalls = new AtomicInteger();
+        private final AtomicInteger finishedCalls = new AtomicInteger();
+        private final long pauseMillis;
+
+        OnlineModule(String moduleId) {
+            this(moduleId, 0);
+        }
+
+        OnlineModule(String moduleId, long pauseMillis) {
+            super(moduleId);
+            this.pauseMillis = pauseMillis;
+        }
+
+        @Override
+        public Void beforeCommit(ImprovedTransactionData transactionData) {
+            if (!transactionData.getAllCreatedNodes().isEmpty()) {
+                beforeCommits.incrementAndGet();
+            }
+            return null;
+        }
+
+        @Override
+        public void prepareOnlineInitialization(GraphDatabaseService database, TxDrivenModuleMetadata oldMetadata) {
+            prepareCalls.incrementAndGet();
+        }
+
+        @Override
+        public void initializeNode(Node node) {
+            node.setProperty("initialized", true);
+        }
+
+        @Override
+        public void onlineInitializationFinished(GraphDatabaseService database) {
+            finishedCalls.incrementAndGet();
+        }
+
+        @Override
+        public int getOnlineInitializationBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public long getOnlineInitializationPauseMillis() {
+            return pauseMillis;
+        }
+    }
+}
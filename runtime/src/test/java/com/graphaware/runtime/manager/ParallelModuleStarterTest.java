@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.manager;
+
+import com.graphaware.runtime.module.DependentRuntimeModule;
+import com.graphaware.runtime.module.RuntimeModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ParallelModuleStarter}.
+ */
+public class ParallelModuleStarterTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void modulesShouldBeOrderedAfterTheirDependencies() {
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("C", "B"), module("A"), module("B", "A"), module("D")));
+
+        assertEquals(Arrays.asList("A", "B", "C", "D"), ids(starter.inStartOrder()));
+    }
+
+    @Test
+    public void unknownDependenciesShouldBeIgnored() {
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("A", "UNKNOWN"), module("B")));
+
+        assertEquals(Arrays.asList("A", "B"), ids(starter.inStartOrder()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cyclicDependenciesShouldBeDetected() {
+        new ParallelModuleStarter<>(modules(module("A", "C"), module("B", "A"), module("C", "B"))).inStartOrder();
+    }
+
+    @Test
+    public void independentModulesShouldStartConcurrently() {
+        CountDownLatch latch = new CountDownLatch(3);
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("A"), module("B"), module("C")));
+
+        Map<String, Long> times = starter.start(module -> {
+            latch.countDown();
+            try {
+                //would time out if modules were started one by one
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, executor);
+
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), times.keySet());
+    }
+
+    @Test
+    public void dependentModulesShouldStartAfterTheirDependencies() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("C", "A", "B"), module("A"), module("B", "A")));
+
+        starter.start(module -> {
+            sleep(20);
+            started.add(module.getId());
+        }, executor);
+
+        assertEquals(Arrays.asList("A", "B", "C"), started);
+    }
+
+    @Test
+    public void directExecutorShouldStartModulesInOrder() {
+        List<String> started = new ArrayList<>();
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("B", "A"), module("A"), module("C")));
+
+        starter.start(module -> started.add(module.getId()), Runnable::run);
+
+        assertEquals(Arrays.asList("A", "B", "C"), started);
+    }
+
+    @Test
+    public void failureShouldBePropagatedAndDependentsNotStarted() {
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch cStarting = new CountDownLatch(1);
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("A"), module("B", "A"), module("C")));
+
+        try {
+            starter.start(module -> {
+                if ("A".equals(module.getId())) {
+                    await(cStarting);
+                    throw new IllegalArgumentException("A failed");
+                }
+                if ("C".equals(module.getId())) {
+                    cStarting.countDown();
+                }
+                started.add(module.getId());
+            }, executor);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A failed", e.getMessage());
+        }
+
+        assertEquals(Collections.singletonList("C"), started);
+    }
+
+    @Test
+    public void failureShouldStopStartingModulesButWaitForModulesBeingStarted() {
+        ExecutorService twoThreads = Executors.newFixedThreadPool(2);
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch bStarting = new CountDownLatch(1);
+        ParallelModuleStarter<RuntimeModule> starter = new ParallelModuleStarter<>(modules(module("A"), module("B"), module("C")));
+
+        try {
+            starter.start(module -> {
+                if ("A".equals(module.getId())) {
+                    await(bStarting);
+                    throw new IllegalArgumentException("A failed");
+                }
+                if ("B".equals(module.getId())) {
+                    bStarting.countDown();
+                    sleep(100);
+                }
+                started.add(module.getId());
+            }, twoThreads);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A failed", e.getMessage());
+        } finally {
+            twoThreads.shutdownNow();
+        }
+
+        //B was being started when A failed, C was queued behind them and must not have been started
+        assertEquals(Collections.singletonList("B"), started);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, RuntimeModule> modules(RuntimeModule... modules) {
+        Map<String, RuntimeModule> result = new LinkedHashMap<>();
+        for (RuntimeModule module : modules) {
+            result.put(module.getId(), module);
+        }
+        return result;
+    }
+
+    private static List<String> ids(List<RuntimeModule> modules) {
+        List<String> result = new ArrayList<>();
+        for (RuntimeModule module : modules) {
+            result.add(module.getId());
+        }
+        return result;
+    }
+
+    private static RuntimeModule module(String id, String... dependencies) {
+        return new DependentRuntimeModule() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public Set<String> getDependencies() {
+                return new HashSet<>(Arrays.asList(dependencies));
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+    }
+}
@@ -26,6 +26,9 @@ import com.graphaware.test.integration.EmbeddedDatabaseIntegrationTest;
 import org.junit.Test;
 import org.neo4j.graphdb.Direction;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 
 public class GraphPropertiesMetadataRepositoryTest extends EmbeddedDatabaseIntegrationTest {
@@ -58,4 +61,20 @@ public class GraphPropertiesMetadataRepositoryTest extends EmbeddedDatabaseInteg
         assertEquals(metadata, repository.getModuleMetadata("TEST"));
     }
 
+    @Test
+    public void shouldRetrieveMetadataOfMultipleModulesAtOnce() {
+        repository = new GraphPropertiesMetadataRepository(getDatabase(), FluentRuntimeConfiguration.defaultConfiguration(getDatabase()), "TEST");
+
+        ModuleMetadata metadata1 = new DefaultTxDrivenModuleMetadata(FluentTxDrivenModuleConfiguration.defaultConfiguration());
+        ModuleMetadata metadata2 = new DefaultTxDrivenModuleMetadata(FluentTxDrivenModuleConfiguration.defaultConfiguration().with(IncludeNodes.all().with("TestLabel")));
+
+        repository.persistModuleMetadata("TEST1", metadata1);
+        repository.persistModuleMetadata("TEST2", metadata2);
+
+        Map<String, ModuleMetadata> result = repository.getModuleMetadata(Arrays.asList("TEST1", "TEST2", "TEST3"));
+
+        assertEquals(2, result.size());
+        assertEquals(metadata1, result.get("TEST1"));
+        assertEquals(metadata2, result.get("TEST2"));
+    }
 }
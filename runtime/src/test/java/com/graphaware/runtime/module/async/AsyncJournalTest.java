@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.async;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link AsyncJournal}.
+ */
+public class AsyncJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recordsShouldBeReadInAppendOrder() throws Exception {
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            assertEquals(1, journal.append(new byte[]{1}));
+            assertEquals(2, journal.append(new byte[]{2, 2}));
+            assertEquals(2, journal.pending());
+
+            AsyncJournal.Entry first = journal.next(0);
+            assertEquals(1, first.getSequence());
+            assertArrayEquals(new byte[]{1}, first.getData());
+            journal.markDelivered(first);
+
+            AsyncJournal.Entry second = journal.next(0);
+            assertEquals(2, second.getSequence());
+            assertArrayEquals(new byte[]{2, 2}, second.getData());
+            journal.markDelivered(second);
+
+            assertEquals(0, journal.pending());
+            assertNull(journal.next(10));
+        }
+    }
+
+    @Test
+    public void undeliveredRecordsShouldSurviveRestart() throws Exception {
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            journal.append(new byte[]{1});
+            journal.append(new byte[]{2});
+            journal.append(new byte[]{3});
+            journal.markDelivered(journal.next(0));
+        }
+
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            assertEquals(2, journal.pending());
+
+            AsyncJournal.Entry entry = journal.next(0);
+            assertEquals(2, entry.getSequence());
+            assertArrayEquals(new byte[]{2}, entry.getData());
+
+            assertEquals(4, journal.append(new byte[]{4}));
+        }
+    }
+
+    @Test
+    public void tornWriteShouldBeDiscardedOnRecovery() throws Exception {
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            journal.append(new byte[]{1});
+        }
+
+        appendGarbage(new File(temporaryFolder.getRoot(), "test.journal"));
+
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            assertEquals(1, journal.pending());
+            journal.markDelivered(journal.next(0));
+            assertNull(journal.next(10));
+            assertEquals(2, journal.append(new byte[]{2}));
+        }
+    }
+
+    @Test
+    public void preparedRecordsShouldOnlyBeDeliveredOnceConfirmed() throws Exception {
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            long first = journal.prepare(new byte[]{1});
+            long second = journal.prepare(new byte[]{2});
+            long third = journal.prepare(new byte[]{3});
+            assertEquals(3, journal.pending());
+
+            journal.confirm(second);
+            assertNull(journal.next(10)); //must not overtake the first record
+
+            journal.discard(first);
+            assertEquals(2, journal.pending());
+
+            AsyncJournal.Entry entry = journal.next(0);
+            assertEquals(second, entry.getSequence());
+            assertArrayEquals(new byte[]{2}, entry.getData());
+            journal.markDelivered(entry);
+
+            assertNull(journal.next(10));
+            assertTrue(journal.isPrepared(third));
+        }
+    }
+
+    @Test
+    public void discardedRecordsShouldNotBeDeliveredAfterRestartButUnresolvedOnesShould() throws Exception {
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            journal.confirm(journal.prepare(new byte[]{1}));
+            journal.discard(journal.prepare(new byte[]{2}));
+            journal.prepare(new byte[]{3}); //database stops before the outcome of the transaction is known
+        }
+
+        try (AsyncJournal journal = new AsyncJournal(temporaryFolder.getRoot(), "test")) {
+            assertEquals(2, journal.pending());
+
+            AsyncJournal.Entry entry = journal.next(0);
+            assertEquals(1, entry.getSequence());
+            journal.markDelivered(entry);
+
+            entry = journal.next(0);
+            assertEquals(3, entry.getSequence());
+            assertArrayEquals(new byte[]{3}, entry.getData());
+            journal.markDelivered(entry);
+
+            assertNull(journal.next(10));
+            assertEquals(4, journal.append(new byte[]{4}));
+        }
+    }
+
+    private void appendGarbage(File file) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file, true)) {
+            stream.write(new byte[]{0, 0, 0, 0, 0, 0, 0, 9, 0, 0});
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.async;
+
+import com.graphaware.runtime.GraphAwareRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.runtime.module.DeliberateTransactionRollbackException;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Integration test for {@link AsyncTxDrivenModule}.
+ */
+public class AsyncTxDrivenModuleTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GraphDatabaseService database;
+    private NameCollectingModule module;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        module = new NameCollectingModule(temporaryFolder.getRoot());
+
+        GraphAwareRuntime runtime = GraphAwareRuntimeFactory.createRuntime(database);
+        runtime.registerModule(module);
+        runtime.registerModule(new VetoingModule());
+        runtime.start();
+        runtime.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void recordsShouldBeDeliveredAsynchronouslyInCommitOrder() throws InterruptedException {
+        for (String name : asList("One", "Two", "Three")) {
+            try (Transaction tx = database.beginTx()) {
+                database.createNode().setProperty("name", name);
+                tx.success();
+            }
+        }
+
+        for (int i = 0; i < 50 && module.getPending() > 0; i++) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(0, module.getPending());
+        assertEquals(asList("One", "Two", "Three"), module.getNames());
+    }
+
+    @Test
+    public void recordsOfRolledBackTransactionsShouldNotBeDelivered() throws InterruptedException {
+        try (Transaction tx = database.beginTx()) {
+            database.createNode().setProperty("name", "One");
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode().setProperty("name", "Rollback");
+            tx.success();
+        } catch (RuntimeException e) {
+            //expected
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode().setProperty("name", "Two");
+            tx.success();
+        }
+
+        for (int i = 0; i < 50 && module.getPending() > 0; i++) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(0, module.getPending());
+        assertEquals(asList("One", "Two"), module.getNames());
+    }
+
+    private static class VetoingModule extends BaseTxDrivenModule<Void> {
+
+        VetoingModule() {
+            super("veto");
+        }
+
+        @Override
+        public Void beforeCommit(ImprovedTransactionData transactionData) throws DeliberateTransactionRollbackException {
+            for (Node node : transactionData.getAllCreatedNodes()) {
+                if ("Rollback".equals(node.getProperty("name"))) {
+                    throw new DeliberateTransactionRollbackException("Vetoed");
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class NameCollectingModule extends AsyncTxDrivenModule<ArrayList<String>> {
+
+        private final File directory;
+        private final List<String> names = Collections.synchronizedList(new ArrayList<>());
+
+        NameCollectingModule(File directory) {
+            super("async", 2, BackpressurePolicy.BLOCK);
+            this.directory = directory;
+        }
+
+        @Override
+        protected ArrayList<String> createRecord(ImprovedTransactionData transactionData) {
+            ArrayList<String> result = new ArrayList<>();
+            for (Node node : transactionData.getAllCreatedNodes()) {
+                result.add(node.getProperty("name").toString());
+            }
+            return result;
+        }
+
+        @Override
+        protected void afterCommitAsync(ArrayList<String> state) {
+            names.addAll(state);
+        }
+
+        @Override
+        protected File journalDirectory(GraphDatabaseService database) {
+            return directory;
+        }
+
+        List<String> getNames() {
+            return new ArrayList<>(names);
+        }
+    }
+}
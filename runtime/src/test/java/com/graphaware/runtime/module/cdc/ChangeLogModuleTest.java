@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import com.graphaware.runtime.GraphAwareRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.*;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for {@link ChangeLogModule}.
+ */
+public class ChangeLogModuleTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GraphDatabaseService database;
+    private ChangeLogModule module;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        module = new ChangeLogModule("CDC", ChangeLogConfiguration.defaultConfiguration(), temporaryFolder.getRoot());
+
+        GraphAwareRuntime runtime = GraphAwareRuntimeFactory.createRuntime(database);
+        runtime.registerModule(module);
+        runtime.start();
+        runtime.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void committedTransactionsShouldBeLogged() throws IOException {
+        long nodeId, relationshipId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode(Label.label("Person"));
+            node.setProperty("name", "Michal");
+            relationshipId = node.createRelationshipTo(database.createNode(), RelationshipType.withName("KNOWS")).getId();
+            nodeId = node.getId();
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            node.setProperty("name", "Adam");
+            node.addLabel(Label.label("Employee"));
+            database.getRelationshipById(relationshipId).delete();
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.createNode();
+            tx.failure();
+        }
+
+        ChangeLogConsumer consumer = module.getChangeLog().consumer("test");
+        List<ChangeRecord> records = consumer.poll(10);
+
+        assertEquals(2, records.size());
+        assertEquals(3, records.get(0).getChanges().size());
+
+        EntityChange created = null;
+        for (EntityChange change : records.get(0).getChanges()) {
+            if (change.getId() == nodeId && change.getType().isNode()) {
+                created = change;
+            }
+        }
+        assertNotNull(created);
+        assertEquals(EntityChange.Type.NODE_CREATED, created.getType());
+        assertEquals(singleton("Person"), created.getAssignedLabels());
+        assertEquals("Michal", created.getSetProperties().get("name"));
+
+        List<EntityChange> changes = records.get(1).getChanges();
+        assertEquals(2, changes.size());
+        assertEquals(EntityChange.Type.NODE_UPDATED, changes.get(0).getType());
+        assertEquals("Adam", changes.get(0).getSetProperties().get("name"));
+        assertEquals(singleton("Employee"), changes.get(0).getAssignedLabels());
+        assertEquals(EntityChange.Type.RELATIONSHIP_DELETED, changes.get(1).getType());
+        assertEquals(relationshipId, changes.get(1).getId());
+        assertEquals(nodeId, changes.get(1).getStartNodeId());
+        assertEquals("KNOWS", changes.get(1).getRelationshipType());
+
+        assertEquals(0, consumer.poll(10).size());
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.cdc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.*;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ChangeLog}.
+ */
+public class ChangeLogTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChangeLogConfiguration configuration;
+    private ChangeLog log;
+
+    @Before
+    public void setUp() throws IOException {
+        configuration = ChangeLogConfiguration.defaultConfiguration()
+                .withSegmentSize(1024)
+                .withRetentionBytes(ChangeLogConfiguration.UNLIMITED)
+                .withRetentionMillis(ChangeLogConfiguration.UNLIMITED);
+        log = new ChangeLog(temporaryFolder.getRoot(), configuration);
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+    }
+
+    @Test
+    public void recordsShouldBeReadBackInOrder() throws IOException {
+        assertEquals(0, log.append(record(updated(1, "name", "One"))));
+        assertEquals(1, log.append(record(updated(2, "name", "Two"))));
+
+        List<ChangeRecord> records = log.read(0, 10);
+
+        assertEquals(2, records.size());
+        assertEquals(0, records.get(0).getOffset());
+        assertEquals(updated(1, "name", "One"), records.get(0).getChanges().get(0));
+        assertEquals(updated(2, "name", "Two"), records.get(1).getChanges().get(0));
+        assertEquals(1, log.read(1, 10).size());
+        assertEquals(0, log.read(2, 10).size());
+    }
+
+    @Test
+    public void allValueTypesShouldSurviveEncoding() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("string", "value");
+        properties.put("int", 1);
+        properties.put("long", 2L);
+        properties.put("double", 3.0);
+        properties.put("boolean", true);
+        properties.put("char", 'c');
+
+        EntityChange change = EntityChange.nodeChange(EntityChange.Type.NODE_CREATED, 1, new HashSet<>(singletonList("Person")), emptySet(), properties, emptySet());
+        EntityChange relationship = EntityChange.relationshipChange(EntityChange.Type.RELATIONSHIP_DELETED, 2, 1, 3, "KNOWS", emptyMap(), emptySet());
+
+        ChangeRecord decoded = ChangeRecord.decode(5, new ChangeRecord(100, Arrays.asList(change, relationship)).encode());
+
+        assertEquals(5, decoded.getOffset());
+        assertEquals(100, decoded.getTimestamp());
+        assertEquals(change, decoded.getChanges().get(0));
+        assertEquals(relationship, decoded.getChanges().get(1));
+
+        String[] array = (String[]) ChangeRecord.decode(0, record(updated(1, "array", new String[]{"a", "b"})).encode()).getChanges().get(0).getSetProperties().get("array");
+        assertArrayEquals(new String[]{"a", "b"}, array);
+    }
+
+    @Test
+    public void segmentsShouldRollAndSurviveRestart() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            log.append(record(updated(i, "name", "Node " + i)));
+        }
+
+        assertTrue(log.numberOfSegments() > 1);
+
+        log.close();
+        log = new ChangeLog(temporaryFolder.getRoot(), configuration);
+
+        assertEquals(100, log.getNextOffset());
+        assertEquals(100, log.read(0, 1000).size());
+        assertEquals(updated(57, "name", "Node 57"), log.read(57, 1).get(0).getChanges().get(0));
+        assertEquals(100, log.append(record(updated(100, "name", "Node 100"))));
+    }
+
+    @Test
+    public void oldSegmentsShouldBeDeletedWhenLogIsTooBig() throws IOException {
+        log.close();
+        log = new ChangeLog(temporaryFolder.getRoot(), configuration.withRetentionBytes(3 * 1024));
+
+        for (int i = 0; i < 100; i++) {
+            log.append(record(updated(i, "name", "Node " + i)));
+        }
+
+        assertTrue(log.enforceRetention() > 0);
+        assertTrue(log.size() <= 3 * 1024);
+        assertTrue(log.getFirstOffset() > 0);
+
+        List<ChangeRecord> records = log.read(log.getFirstOffset(), 1000);
+        assertEquals(99, records.get(records.size() - 1).getOffset());
+    }
+
+    @Test
+    public void retentionShouldNotDeleteRecordsNotYetCommittedByConsumers() throws IOException {
+        log.close();
+        log = new ChangeLog(temporaryFolder.getRoot(), configuration.withRetentionBytes(3 * 1024));
+
+        for (int i = 0; i < 100; i++) {
+            log.append(record(updated(i, "name", "Node " + i)));
+        }
+
+        ChangeLogConsumer slow = log.consumer("slow");
+        slow.poll(5);
+        slow.commit();
+
+        assertEquals(0, log.enforceRetention());
+        assertEquals(0, log.getFirstOffset());
+
+        assertEquals(50, slow.poll(50).size());
+        slow.commit();
+
+        assertTrue(log.enforceRetention() > 0);
+        assertTrue(log.getFirstOffset() > 0);
+        assertTrue(log.getFirstOffset() <= 55);
+        assertTrue(log.size() > 3 * 1024);
+
+        log.removeConsumer("slow");
+
+        assertTrue(log.enforceRetention() > 0);
+        assertTrue(log.size() <= 3 * 1024);
+    }
+
+    @Test
+    public void compactionShouldKeepLatestMergedChangePerEntity() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            log.append(record(updated(1, "count", i), updated(i + 10, "name", "Node")));
+            log.append(record(updated(2, "count" + i, i)));
+        }
+
+        long nextOffset = log.getNextOffset();
+        Map<Long, EntityChange> before = replay();
+
+        assertTrue(log.compact() > 0);
+
+        assertEquals(before, replay());
+        assertEquals(nextOffset, log.getNextOffset());
+        assertEquals(49, before.get(1L).getSetProperties().get("count"));
+        assertEquals(50, before.get(2L).getSetProperties().size());
+        assertEquals(52, before.size());
+    }
+
+    @Test
+    public void compactionShouldKeepDeleteWhenIdIsReused() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            log.append(record(updated(i + 10, "name", "Node")));
+        }
+        log.append(record(updated(1, "name", "Old")));
+        log.append(record(deleted(1)));
+        log.append(record(created(1, "name", "New")));
+        log.append(record(updated(1, "age", 30)));
+        for (int i = 0; i < 50; i++) {
+            log.append(record(updated(i + 100, "name", "Node")));
+        }
+
+        Map<Long, EntityChange> before = replay();
+
+        log.compact();
+
+        List<EntityChange> changes = new ArrayList<>();
+        for (ChangeRecord record : log.read(0, 1000)) {
+            for (EntityChange change : record.getChanges()) {
+                if (change.getId() == 1) {
+                    changes.add(change);
+                }
+            }
+        }
+
+        assertEquals(2, changes.size());
+        assertEquals(deleted(1), changes.get(0));
+        assertEquals(EntityChange.Type.NODE_CREATED, changes.get(1).getType());
+        assertEquals(2, changes.get(1).getSetProperties().size());
+        assertEquals(before, replay());
+
+        log.compact();
+        assertEquals(before, replay());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createShouldNotBeMergedIntoDelete() {
+        deleted(1).merge(created(1, "name", "New"));
+    }
+
+    @Test
+    public void retentionShouldCountBytesOfRecords() throws IOException {
+        log.append(record(updated(1, "name", "One")));
+
+        assertTrue(log.size() > 0);
+        assertTrue(log.size() < configuration.getSegmentSize());
+    }
+
+    @Test
+    public void consumersShouldReadInParallelAndPersistOffsets() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            log.append(record(updated(i, "name", "Node " + i)));
+        }
+
+        ChangeLogConsumer first = log.consumer("first");
+        ChangeLogConsumer second = log.consumer("second");
+
+        assertEquals(3, first.poll(3).size());
+        first.commit();
+        assertEquals(10, second.poll(100).size());
+        assertEquals(7, first.getLag());
+        assertEquals(0, second.getLag());
+
+        assertEquals(3, log.consumer("first").getPosition());
+        assertEquals(0, log.consumer("second").getPosition());
+    }
+
+    private Map<Long, EntityChange> replay() {
+        Map<Long, EntityChange> state = new HashMap<>();
+        Set<Long> offsets = new HashSet<>();
+        for (ChangeRecord record : log.read(0, 1000)) {
+            assertTrue(offsets.add(record.getOffset()));
+            for (EntityChange change : record.getChanges()) {
+                state.merge(change.getId(), change, (previous, later) -> previous.canMerge(later) ? previous.merge(later) : later);
+            }
+        }
+        return state;
+    }
+
+    private static ChangeRecord record(EntityChange... changes) {
+        return new ChangeRecord(System.currentTimeMillis(), Arrays.asList(changes));
+    }
+
+    private static EntityChange created(long nodeId, String key, Object value) {
+        return EntityChange.nodeChange(EntityChange.Type.NODE_CREATED, nodeId, emptySet(), emptySet(), Collections.singletonMap(key, value), emptySet());
+    }
+
+    private static EntityChange deleted(long nodeId) {
+        return EntityChange.nodeChange(EntityChange.Type.NODE_DELETED, nodeId, emptySet(), emptySet(), emptyMap(), emptySet());
+    }
+
+    private static EntityChange updated(long nodeId, String key, Object value) {
+        return EntityChange.nodeChange(EntityChange.Type.NODE_UPDATED, nodeId, emptySet(), emptySet(), Collections.singletonMap(key, value), emptySet());
+    }
+}
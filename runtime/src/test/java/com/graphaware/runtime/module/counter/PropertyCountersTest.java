@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.module.counter;
+
+import com.graphaware.writer.neo4j.DefaultWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for {@link PropertyCounters}.
+ */
+public class PropertyCountersTest {
+
+    private GraphDatabaseService database;
+    private PropertyCounters counters;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        counters = new PropertyCounters(database, new DefaultWriter(database), 60000, 10000);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void readsShouldMergePersistedValuesWithPendingDeltas() {
+        long nodeId = createNode(10L);
+
+        counters.addToNode(nodeId, "count", 5);
+        counters.addToNode(nodeId, "count", -2);
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            assertEquals(10L, node.getProperty("count"));
+            assertEquals(13L, counters.get(node, "count"));
+            tx.success();
+        }
+
+        counters.flush();
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            assertEquals(13L, node.getProperty("count"));
+            assertEquals(13L, counters.get(node, "count"));
+            assertEquals(0L, counters.getPendingForNode(nodeId, "count"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void concurrentDeltasShouldNotBeLost() throws InterruptedException {
+        long nodeId = createNode(null);
+        long relationshipId;
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            relationshipId = node.createRelationshipTo(node, RelationshipType.withName("SELF")).getId();
+            tx.success();
+        }
+
+        counters = new PropertyCounters(database, new DefaultWriter(database), 1, 10000);
+        counters.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counters.addToNode(nodeId, "count", 1);
+                    counters.addToRelationship(relationshipId, "weight", 2);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        counters.stop();
+
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(80000L, database.getNodeById(nodeId).getProperty("count"));
+            assertEquals(160000L, database.getRelationshipById(relationshipId).getProperty("weight"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void deltasForDeletedEntitiesShouldBeDiscarded() {
+        long deletedId = createNode(null);
+        long nodeId = createNode(null);
+
+        counters.addToNode(deletedId, "count", 1);
+        counters.addToNode(nodeId, "count", 1);
+
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(deletedId).delete();
+            tx.success();
+        }
+
+        counters.flush();
+
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(1L, database.getNodeById(nodeId).getProperty("count"));
+            tx.success();
+        }
+        assertEquals(0L, counters.getPendingForNode(deletedId, "count"));
+    }
+
+    @Test
+    public void deltasOfRolledBackFlushShouldBeRetried() {
+        long nodeId = createNode(10L);
+        TransactionEventHandler<Void> failing = new TransactionEventHandler.Adapter<Void>() {
+            @Override
+            public Void beforeCommit(TransactionData data) throws Exception {
+                throw new IllegalStateException("Rolling back");
+            }
+        };
+
+        counters.addToNode(nodeId, "count", 5);
+
+        database.registerTransactionEventHandler(failing);
+        counters.flush();
+        database.unregisterTransactionEventHandler(failing);
+
+        assertEquals(5L, counters.getPendingForNode(nodeId, "count"));
+
+        counters.flush();
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            assertEquals(15L, node.getProperty("count"));
+            assertEquals(15L, counters.get(node, "count"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void deltasShouldBeCountedOnceWhenFlushCommitsAfterTimeout() throws InterruptedException {
+        long nodeId = createNode(10L);
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        //applies the flush, but commits only after the flush has given up waiting for it
+        counters = new PropertyCounters(database, new DefaultWriter(database) {
+            @Override
+            public <T> T write(Callable<T> task, String id, int waitMillis) {
+                executor.submit(() -> {
+                    try (Transaction tx = database.beginTx()) {
+                        task.call();
+                        applied.countDown();
+                        assertTrue(commit.await(5, TimeUnit.SECONDS));
+                        tx.success();
+                    }
+                    return null;
+                });
+                try {
+                    assertTrue(applied.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return null;
+            }
+        }, 60000, 100);
+
+        counters.addToNode(nodeId, "count", 5);
+        counters.flush();
+
+        assertEquals(5L, counters.getPendingForNode(nodeId, "count"));
+
+        commit.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(nodeId);
+            assertEquals(15L, node.getProperty("count"));
+            assertEquals(15L, counters.get(node, "count"));
+            tx.success();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveFlushIntervalShouldBeRejected() {
+        new PropertyCounters(database, new DefaultWriter(database), 0, 10000);
+    }
+
+    private long createNode(Long count) {
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            if (count != null) {
+                node.setProperty("count", count);
+            }
+            tx.success();
+            return node.getId();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.profile;
+
+import com.graphaware.runtime.GraphAwareRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import com.graphaware.runtime.module.BaseTxDrivenModule;
+import com.graphaware.tx.event.improved.api.ImprovedTransactionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.Map;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for {@link CommitProfiler}.
+ */
+public class CommitProfilerTest {
+
+    private GraphDatabaseService database;
+    private GraphAwareRuntime runtime;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        runtime = GraphAwareRuntimeFactory.createRuntime(database);
+        runtime.getCommitProfiler().setSampleRate(0); //keep transactions made while starting out of the profile
+        runtime.registerModule(new NoopModule("NOOP"));
+        runtime.start();
+        runtime.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldRecordAllPhasesWhenEveryTransactionIsSampled() {
+        runtime.getCommitProfiler().setSampleRate(1);
+
+        createNodes(3, 1);
+        createNodes(1, 50);
+
+        CommitProfiler profiler = runtime.getCommitProfiler();
+        assertEquals(3, profiler.getHistogram(CommitProfiler.RUNTIME, CommitPhase.SNAPSHOT, "1-9").getCount());
+        assertEquals(3, profiler.getHistogram(CommitProfiler.RUNTIME, CommitPhase.BEFORE_COMMIT, "1-9").getCount());
+        assertEquals(3, profiler.getHistogram(CommitProfiler.RUNTIME, CommitPhase.AFTER_COMMIT, "1-9").getCount());
+        assertEquals(1, profiler.getHistogram(CommitProfiler.RUNTIME, CommitPhase.BEFORE_COMMIT, "10-99").getCount());
+        assertEquals(3, profiler.getHistogram("NOOP", CommitPhase.FILTERING, "1-9").getCount());
+        assertEquals(3, profiler.getHistogram("NOOP", CommitPhase.INCLUSION_POLICIES, "1-9").getCount());
+        assertEquals(3, profiler.getHistogram("NOOP", CommitPhase.BEFORE_COMMIT, "1-9").getCount());
+        assertEquals(3, profiler.getHistogram("NOOP", CommitPhase.AFTER_COMMIT, "1-9").getCount());
+
+        Map<String, Map<String, Map<String, Map<String, Number>>>> report = profiler.getReport();
+        assertEquals(3L, report.get("NOOP").get("BEFORE_COMMIT").get("1-9").get("count"));
+        assertTrue(profiler.getStatistics().size() > 0);
+    }
+
+    @Test
+    public void shouldRecordNothingWhenSamplingIsOff() {
+        runtime.getCommitProfiler().setSampleRate(0);
+
+        createNodes(3, 1);
+
+        assertNull(runtime.getCommitProfiler().getHistogram("NOOP", CommitPhase.BEFORE_COMMIT, "1-9"));
+        assertTrue(runtime.getCommitProfiler().getReport().isEmpty());
+    }
+
+    @Test
+    public void resetShouldClearRecordedTimings() {
+        runtime.getCommitProfiler().setSampleRate(1);
+        createNodes(1, 1);
+
+        runtime.getCommitProfiler().reset();
+
+        assertTrue(runtime.getCommitProfiler().getReport().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSampleRateShouldFail() {
+        runtime.getCommitProfiler().setSampleRate(1.5);
+    }
+
+    private void createNodes(int transactions, int nodesPerTransaction) {
+        for (int i = 0; i < transactions; i++) {
+            try (Transaction tx = database.beginTx()) {
+                for (int j = 0; j < nodesPerTransaction; j++) {
+                    database.createNode();
+                }
+                tx.success();
+            }
+        }
+    }
+
+    private static class NoopModule extends BaseTxDrivenModule<Void> {
+
+        NoopModule(String moduleId) {
+            super(moduleId);
+        }
+
+        @Override
+        public Void beforeCommit(ImprovedTransactionData transactionData) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.description.predicate.Predicates;
+import com.graphaware.common.policy.inclusion.fluent.IncludeNodes;
+import com.graphaware.test.data.DatabasePopulator;
+import com.graphaware.test.data.SingleTransactionPopulator;
+import com.graphaware.test.integration.EmbeddedDatabaseIntegrationTest;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.neo4j.graphdb.Label.label;
+
+/**
+ *  Test for {@link LabelScanNodeSelector}.
+ */
+public class LabelScanNodeSelectorTest extends EmbeddedDatabaseIntegrationTest {
+
+    @Override
+    protected DatabasePopulator databasePopulator() {
+        return new SingleTransactionPopulator() {
+            @Override
+            protected void doPopulate(GraphDatabaseService database) {
+                database.createNode(label("Person")).setProperty("name", "Michal");
+                database.createNode(label("Person")).setProperty("name", "Daniela");
+                database.createNode(label("Person")).setProperty("name", "Vince");
+                database.createNode(label("Company")).setProperty("name", "GraphAware");
+                database.createNode(label("Company")).setProperty("name", "Neo");
+                database.createNode(label("Person")).setProperty("name", "Adam");
+
+                database.getNodeById(2).delete();
+            }
+        };
+    }
+
+    @Test
+    public void shouldSelectCorrectNodes() {
+        LabelScanNodeSelector selector = new LabelScanNodeSelector(label("Person"));
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Daniela", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals(0, selector.getLastNodeId());
+
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldResumeFromLastNode() {
+        NodeSelector selector = new LabelScanNodeSelector(IncludeNodes.all().with(label("Person")), 2L);
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Daniela", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldContinueInNewTransaction() {
+        LabelScanNodeSelector selector = new LabelScanNodeSelector(label("Person"));
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            tx.success();
+        }
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Daniela", selector.selectNode(getDatabase()).getProperty("name"));
+            tx.success();
+        }
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldSkipNodesThatLostLabelAndPickUpNewOnesInNextPass() {
+        LabelScanNodeSelector selector = new LabelScanNodeSelector(label("Person"));
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            tx.success();
+        }
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            getDatabase().getNodeById(1).removeLabel(label("Person"));
+            getDatabase().getNodeById(3).addLabel(label("Person"));
+            tx.success();
+        }
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Michal", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("GraphAware", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Adam", selector.selectNode(getDatabase()).getProperty("name"));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldApplyPolicyOnTopOfLabel() {
+        NodeSelector selector = new LabelScanNodeSelector(IncludeNodes.all().with(label("Company")).with("name", Predicates.equalTo("Neo")), -1);
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertEquals("Neo", selector.selectNode(getDatabase()).getProperty("name"));
+            assertEquals("Neo", selector.selectNode(getDatabase()).getProperty("name"));
+
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldReturnNullWhenNoSuitableNodesExist() {
+        NodeSelector selector = new LabelScanNodeSelector(label("NonExistent"));
+
+        try (Transaction tx = getDatabase().beginTx()) {
+            assertNull(selector.selectNode(getDatabase()));
+            tx.success();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptPolicyWithoutLabel() {
+        new LabelScanNodeSelector(IncludeNodes.all(), -1);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link NodeSamplingIndex}.
+ */
+public class NodeSamplingIndexTest {
+
+    @Test
+    public void emptyIndexShouldReturnMinusOne() {
+        NodeSamplingIndex index = new NodeSamplingIndex();
+
+        assertTrue(index.isEmpty());
+        assertEquals(-1, index.randomId());
+    }
+
+    @Test
+    public void shouldNotAddTheSameIdTwice() {
+        NodeSamplingIndex index = new NodeSamplingIndex();
+
+        assertTrue(index.add(5));
+        assertFalse(index.add(5));
+        assertEquals(1, index.size());
+        assertEquals(5, index.randomId());
+    }
+
+    @Test
+    public void shouldRemoveIdsAndKeepTheRestSelectable() {
+        NodeSamplingIndex index = new NodeSamplingIndex();
+
+        for (long i = 0; i < 5000; i++) {
+            index.add(i * 1000);
+        }
+
+        for (long i = 0; i < 5000; i++) {
+            if (i != 1234) {
+                assertTrue(index.remove(i * 1000));
+            }
+        }
+
+        assertFalse(index.remove(0));
+        assertEquals(1, index.size());
+        assertTrue(index.contains(1_234_000));
+        assertFalse(index.contains(0));
+        assertEquals(1_234_000, index.randomId());
+    }
+
+    @Test
+    public void shouldEventuallySelectAllIds() {
+        NodeSamplingIndex index = new NodeSamplingIndex();
+        index.add(1);
+        index.add(10);
+        index.add(100);
+
+        Set<Long> selected = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            selected.add(index.randomId());
+        }
+
+        assertEquals(3, selected.size());
+    }
+
+    @Test
+    public void clearedIndexShouldBeEmpty() {
+        NodeSamplingIndex index = new NodeSamplingIndex();
+        index.add(1);
+        index.clear();
+
+        assertTrue(index.isEmpty());
+        assertFalse(index.contains(1));
+        assertTrue(index.add(1));
+    }
+}
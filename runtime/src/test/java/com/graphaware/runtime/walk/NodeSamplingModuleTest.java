@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.common.policy.inclusion.BaseNodeInclusionPolicy;
+import com.graphaware.runtime.GraphAwareRuntime;
+import com.graphaware.runtime.GraphAwareRuntimeFactory;
+import com.graphaware.tx.executor.batch.NoInputBatchTransactionExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test for {@link NodeSamplingModule} and {@link SamplingIndexNodeSelector}.
+ */
+public class NodeSamplingModuleTest {
+
+    private static final Label LABEL = Label.label("Label4");
+
+    private GraphDatabaseService database;
+    private NodeSamplingModule module;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        new NoInputBatchTransactionExecutor(database, 1000, 1000, (db, input, batchNumber, stepNumber) -> db.createNode(Label.label("Label" + (stepNumber % 10)))).execute();
+
+        module = new NodeSamplingModule("sampling", new BaseNodeInclusionPolicy() {
+            @Override
+            public boolean include(Node node) {
+                return node.hasLabel(LABEL);
+            }
+        });
+
+        GraphAwareRuntime runtime = GraphAwareRuntimeFactory.createRuntime(database);
+        runtime.registerModule(module);
+        runtime.start();
+        runtime.waitUntilStarted();
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void indexShouldBeBuiltOnStart() {
+        assertEquals(100, module.getIndex().size());
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = new SamplingIndexNodeSelector(module).selectNode(database);
+            assertNotNull(node);
+            assertTrue(node.hasLabel(LABEL));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void indexShouldBeUpdatedIncrementally() {
+        long created, changed, deleted;
+
+        try (Transaction tx = database.beginTx()) {
+            created = database.createNode(LABEL).getId();
+            Node toChange = database.createNode();
+            changed = toChange.getId();
+            tx.success();
+        }
+
+        assertEquals(101, module.getIndex().size());
+        assertTrue(module.getIndex().contains(created));
+        assertFalse(module.getIndex().contains(changed));
+
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(changed).addLabel(LABEL);
+            database.getNodeById(created).removeLabel(LABEL);
+            tx.success();
+        }
+
+        assertTrue(module.getIndex().contains(changed));
+        assertFalse(module.getIndex().contains(created));
+
+        try (Transaction tx = database.beginTx()) {
+            Node toDelete = database.getNodeById(changed);
+            deleted = toDelete.getId();
+            toDelete.delete();
+            tx.success();
+        }
+
+        assertFalse(module.getIndex().contains(deleted));
+        assertEquals(100, module.getIndex().size());
+    }
+
+    @Test
+    public void shouldReturnNullWhenNothingIsIndexed() {
+        try (Transaction tx = database.beginTx()) {
+            assertNull(new SamplingIndexNodeSelector(new NodeSamplingIndex(), null).selectNode(database));
+            tx.success();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import com.graphaware.test.data.DatabasePopulator;
+import com.graphaware.test.data.SingleTransactionPopulator;
+import com.graphaware.test.integration.EmbeddedDatabaseIntegrationTest;
+import com.graphaware.writer.neo4j.DefaultWriter;
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import static org.junit.Assert.*;
+import static org.neo4j.graphdb.RelationshipType.withName;
+
+/**
+ * Test for {@link ParallelWalkerModule}.
+ */
+public class ParallelWalkerModuleTest extends EmbeddedDatabaseIntegrationTest {
+
+    private ParallelWalkerModule module;
+
+    @Override
+    protected DatabasePopulator databasePopulator() {
+        return new SingleTransactionPopulator() {
+            @Override
+            protected void doPopulate(GraphDatabaseService database) {
+                Node first = database.createNode();
+                Node previous = first;
+                for (int i = 0; i < 9; i++) {
+                    Node next = database.createNode();
+                    previous.createRelationshipTo(next, withName("NEXT"));
+                    previous = next;
+                }
+                previous.createRelationshipTo(first, withName("NEXT"));
+            }
+        };
+    }
+
+    @After
+    public void shutdownModule() {
+        if (module != null) {
+            module.shutdown();
+        }
+    }
+
+    @Test
+    public void walkersShouldCountVisitsAndResume() {
+        module = new ParallelWalkerModule("walker", ParallelWalkerConfiguration.defaultConfiguration()
+                .withNumberOfWalkers(20)
+                .withStepsPerRun(5)
+                .withNumberOfThreads(4)
+                .withJumpProbability(0), new DefaultWriter(getDatabase()));
+
+        ParallelWalkerContext context = module.createInitialContext(getDatabase());
+        for (long position : context.find(getDatabase())) {
+            assertEquals(-1, position);
+        }
+
+        context = run(context);
+        assertEquals(100, totalVisits());
+        for (long position : context.find(getDatabase())) {
+            assertTrue(position >= 0);
+        }
+
+        context = run(context);
+        assertEquals(200, totalVisits());
+        assertEquals(20, context.find(getDatabase()).length);
+    }
+
+    @Test
+    public void shouldAdaptToChangedNumberOfWalkers() {
+        module = new ParallelWalkerModule("walker", ParallelWalkerConfiguration.defaultConfiguration()
+                .withNumberOfWalkers(3)
+                .withStepsPerRun(1)
+                .withNumberOfThreads(2), new DefaultWriter(getDatabase()));
+
+        ParallelWalkerContext context = run(ParallelWalkerContext.notStarted(5));
+
+        assertEquals(3, context.find(getDatabase()).length);
+        assertEquals(3, totalVisits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidJumpProbabilityShouldBeRejected() {
+        ParallelWalkerConfiguration.defaultConfiguration().withJumpProbability(1.5);
+    }
+
+    private ParallelWalkerContext run(ParallelWalkerContext context) {
+        ParallelWalkerContext result;
+        try (Transaction tx = getDatabase().beginTx()) {
+            result = module.doSomeWork(context, getDatabase());
+            tx.success();
+        }
+        return result;
+    }
+
+    private long totalVisits() {
+        long total = 0;
+        try (Transaction tx = getDatabase().beginTx()) {
+            for (Node node : getDatabase().getAllNodes()) {
+                total += (long) node.getProperty("_GA_visits", 0L);
+            }
+            tx.success();
+        }
+        return total;
+    }
+}
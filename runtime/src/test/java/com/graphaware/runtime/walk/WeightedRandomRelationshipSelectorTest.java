@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.runtime.walk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.neo4j.graphdb.Direction.OUTGOING;
+import static org.neo4j.graphdb.RelationshipType.withName;
+
+/**
+ * Unit test for {@link WeightedRandomRelationshipSelector}.
+ */
+public class WeightedRandomRelationshipSelectorTest {
+
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldReturnNullWhenNoRelationshipHasWeight() {
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.createRelationshipTo(database.createNode(), withName("TEST"));
+            node.createRelationshipTo(database.createNode(), withName("TEST")).setProperty("weight", 0);
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            assertNull(new WeightedRandomRelationshipSelector("weight").selectRelationship(database.getNodeById(0)));
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldSelectRelationshipsProportionallyToWeight() {
+        long light, heavy;
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            Relationship r1 = node.createRelationshipTo(database.createNode(), withName("TEST"));
+            r1.setProperty("weight", 1);
+            Relationship r2 = node.createRelationshipTo(database.createNode(), withName("TEST"));
+            r2.setProperty("weight", 9.0);
+            light = r1.getId();
+            heavy = r2.getId();
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            WeightedRandomRelationshipSelector selector = new WeightedRandomRelationshipSelector("weight");
+            Node node = database.getNodeById(0);
+
+            int heavyCount = 0;
+            for (int i = 0; i < 10_000; i++) {
+                long selected = selector.selectRelationship(node).getId();
+                assertTrue(selected == light || selected == heavy);
+                if (selected == heavy) {
+                    heavyCount++;
+                }
+            }
+
+            assertEquals(0.9, heavyCount / 10_000.0, 0.03);
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldRebuildDistributionWhenRelationshipIsDeleted() {
+        long remaining;
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            node.createRelationshipTo(database.createNode(), withName("TEST")).setProperty("weight", 1);
+            tx.success();
+        }
+
+        WeightedRandomRelationshipSelector selector = new WeightedRandomRelationshipSelector("weight");
+
+        try (Transaction tx = database.beginTx()) {
+            assertNotNull(selector.selectRelationship(database.getNodeById(0)));
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(0);
+            node.getSingleRelationship(withName("TEST"), OUTGOING).delete();
+            Relationship r = node.createRelationshipTo(database.createNode(), withName("TEST"));
+            r.setProperty("weight", 5);
+            remaining = r.getId();
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(remaining, selector.selectRelationship(database.getNodeById(0)).getId());
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldNotSelectRelationshipWhoseIdHasBeenReusedElsewhere() {
+        long deleted;
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode();
+            deleted = node.createRelationshipTo(database.createNode(), withName("TEST")).getId();
+            database.getRelationshipById(deleted).setProperty("weight", 1);
+            tx.success();
+        }
+
+        WeightedRandomRelationshipSelector selector = new WeightedRandomRelationshipSelector("weight");
+
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(deleted, selector.selectRelationship(database.getNodeById(0)).getId());
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            database.getRelationshipById(deleted).delete();
+            tx.success();
+        }
+
+        long reused;
+        try (Transaction tx = database.beginTx()) {
+            Relationship elsewhere = database.createNode().createRelationshipTo(database.createNode(), withName("TEST"));
+            elsewhere.setProperty("weight", 1);
+            reused = elsewhere.getId();
+            tx.success();
+        }
+
+        assumeTrue(reused == deleted);
+
+        try (Transaction tx = database.beginTx()) {
+            assertNull(selector.selectRelationship(database.getNodeById(0)));
+            tx.success();
+        }
+    }
+}
@@ -34,6 +34,8 @@ public class GraphAwareWebContextCreator extends BaseWebContextCreator {
 
     private static final String[] GA_API_PACKAGE_SCAN_DEFAULT = new String[]{"com.**.graphaware.**", "org.**.graphaware.**", "net.**.graphaware.**"};
     private static final String GA_STATS_PACKAGE = "com.graphaware.server.foundation.stats";
+    private static final String GA_PROFILE_PACKAGE = "com.graphaware.server.foundation.profile";
+    private static final String GA_EXPORT_PACKAGE = "com.graphaware.server.foundation.export";
 
     @Override
     protected void registerConfigClasses(AnnotationConfigWebApplicationContext context, Config config) {
@@ -43,6 +45,8 @@ public class GraphAwareWebContextCreator extends BaseWebContextCreator {
 
     private String[] addStatsPackage(String[] packagesToScan) {
         packagesToScan = ArrayUtils.add(packagesToScan, GA_STATS_PACKAGE);
+        packagesToScan = ArrayUtils.add(packagesToScan, GA_PROFILE_PACKAGE);
+        packagesToScan = ArrayUtils.add(packagesToScan, GA_EXPORT_PACKAGE);
         return packagesToScan;
     }
 
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.server.foundation.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphaware.api.SerializationSpecification;
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
+import com.graphaware.common.policy.inclusion.all.IncludeAllNodes;
+import com.graphaware.common.policy.inclusion.all.IncludeAllRelationships;
+import com.graphaware.common.policy.inclusion.spel.SpelInclusionPolicy;
+import com.graphaware.common.policy.inclusion.spel.SpelNodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.spel.SpelRelationshipInclusionPolicy;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.logging.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.expression.ParseException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * REST API streaming out all nodes or relationships in the database using a {@link ParallelGraphExporter}.
+ * <p>
+ * The response is <code>{"nodes":[...],"cursor":n}</code> (or <code>"relationships"</code>), with elements in ascending
+ * ID order, flushed after every partition. Elements can be filtered by a SpEL inclusion policy expression
+ * (<code>filter</code> parameter), which may only call the methods of the expression roots and a few side-effect-free
+ * methods on values (see {@link SpelInclusionPolicy}), and projected using {@link SerializationSpecification} parameters
+ * (<code>nodeProperties</code>, <code>relationshipProperties</code>). An export can be resumed using the
+ * <code>from</code> parameter, set either to the returned cursor, or to the ID of the last received element plus one
+ * if the response has been cut short.
+ * <p>
+ * All parameters are validated before the response starts streaming, so that invalid ones result in a 400. The
+ * <code>parallelism</code> parameter is capped at {@link #MAX_PARALLELISM}, since all exports share a pool of that
+ * many threads.
+ */
+@Controller
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final Log LOG = LoggerFactory.getLogger(ExportController.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory(new ObjectMapper());
+
+    public static final int MAX_PARALLELISM = ParallelGraphExporter.DEFAULT_PARALLELISM;
+
+    private final GraphDatabaseService database;
+
+    @Autowired
+    public ExportController(GraphDatabaseService database) {
+        this.database = database;
+    }
+
+    @RequestMapping(value = "/nodes", method = RequestMethod.GET)
+    public StreamingResponseBody exportNodes(@RequestParam(defaultValue = "0") long from,
+                                             @RequestParam(required = false) String filter,
+                                             @RequestParam(required = false) Integer parallelism,
+                                             SerializationSpecification specification) {
+        checkFrom(from);
+        NodeInclusionPolicy policy = filter == null ? IncludeAllNodes.getInstance() : checkFilter(new SpelNodeInclusionPolicy(filter));
+        ParallelGraphExporter exporter = exporter(parallelism);
+
+        return outputStream -> stream(outputStream, "nodes", sink -> exporter.exportNodes(from, policy, specification.getNodeProperties(), sink));
+    }
+
+    @RequestMapping(value = "/relationships", method = RequestMethod.GET)
+    public StreamingResponseBody exportRelationships(@RequestParam(defaultValue = "0") long from,
+                                                     @RequestParam(required = false) String filter,
+                                                     @RequestParam(required = false) Integer parallelism,
+                                                     SerializationSpecification specification) {
+        checkFrom(from);
+        RelationshipInclusionPolicy policy = filter == null ? IncludeAllRelationships.getInstance() : checkFilter(new SpelRelationshipInclusionPolicy(filter));
+        ParallelGraphExporter exporter = exporter(parallelism);
+
+        return outputStream -> stream(outputStream, "relationships", sink -> exporter.exportRelationships(from, policy, specification.getRelationshipProperties(), sink));
+    }
+
+    @ExceptionHandler({IllegalArgumentException.class, ParseException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Map<String, String> handleIllegalArgument(RuntimeException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    private static void checkFrom(long from) {
+        if (from < 0) {
+            throw new IllegalArgumentException("Export must start from a non-negative ID, was " + from);
+        }
+    }
+
+    /**
+     * Reject filters that could do more than read the exported elements, since they come from clients and are evaluated
+     * with full access to the JVM.
+     */
+    private static <P extends SpelInclusionPolicy> P checkFilter(P policy) {
+        if (!policy.isDeterministic()) {
+            throw new IllegalArgumentException("Filter may only call methods of the exported element and side-effect-free methods on values, was " + policy);
+        }
+        return policy;
+    }
+
+    private ParallelGraphExporter exporter(Integer parallelism) {
+        if (parallelism == null) {
+            return new ParallelGraphExporter(database);
+        }
+        if (parallelism > MAX_PARALLELISM) {
+            throw new IllegalArgumentException("Parallelism must be at most " + MAX_PARALLELISM + ", was " + parallelism);
+        }
+        return new ParallelGraphExporter(database, parallelism, ParallelGraphExporter.DEFAULT_PARTITION_SIZE);
+    }
+
+    private void stream(OutputStream outputStream, String fieldName, Export export) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart(fieldName);
+
+        long cursor;
+        try {
+            cursor = export.run(new ExportSink<Object>() {
+                @Override
+                public void accept(Object element) throws IOException {
+                    generator.writeObject(element);
+                }
+
+                @Override
+                public void partitionComplete(long next) throws IOException {
+                    generator.flush();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Export of " + fieldName + " has been aborted: " + e.getMessage());
+            throw e;
+        }
+
+        generator.writeEndArray();
+        generator.writeNumberField("cursor", cursor);
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private interface Export {
+
+        long run(ExportSink<Object> sink) throws IOException;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.server.foundation.export;
+
+import java.io.IOException;
+
+/**
+ * Receiver of elements exported by {@link ParallelGraphExporter}. All methods are called from a single thread, in
+ * ascending ID order of the exported elements.
+ *
+ * @param <T> type of the exported elements.
+ */
+public interface ExportSink<T> {
+
+    /**
+     * Accept an exported element.
+     *
+     * @param element exported element.
+     * @throws IOException if the element cannot be written.
+     */
+    void accept(T element) throws IOException;
+
+    /**
+     * Called once all elements of a partition have been accepted. A good place to flush.
+     *
+     * @param cursor ID to resume the export from should it be interrupted now.
+     * @throws IOException if flushing fails.
+     */
+    void partitionComplete(long cursor) throws IOException;
+}
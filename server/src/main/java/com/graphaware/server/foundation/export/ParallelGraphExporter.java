@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.server.foundation.export;
+
+import com.graphaware.api.json.LongIdJsonNode;
+import com.graphaware.api.json.LongIdJsonRelationship;
+import com.graphaware.common.log.LoggerFactory;
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.logging.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exporter of all nodes or relationships in the database, which splits the ID space into fixed-size partitions and
+ * reads them in parallel, each partition in its own short read transaction.
+ * <p>
+ * Partition results are handed to an {@link ExportSink} strictly in ascending ID order, so the output is deterministic
+ * and an interrupted export can be resumed by passing the ID of the last received element plus one as the starting
+ * ID. At most {@code 2 * parallelism} partitions are read ahead of the sink, so a slow consumer blocks the readers
+ * rather than letting them buffer the whole graph in memory.
+ * <p>
+ * Partitions of all exports are read by a single shared pool of {@link #DEFAULT_PARALLELISM} threads, so concurrent
+ * exports compete for those threads rather than each starting threads of its own; the parallelism of an export only
+ * limits how many of its partitions are queued or read at a time.
+ * <p>
+ * The highest ID is determined when the export starts; elements created with higher IDs during the export are not
+ * exported, but can be picked up by resuming from the cursor returned by the export methods.
+ */
+public class ParallelGraphExporter {
+
+    private static final Log LOG = LoggerFactory.getLogger(ParallelGraphExporter.class);
+
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_PARTITION_SIZE = 1000;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private final GraphDatabaseService database;
+    private final int parallelism;
+    private final int partitionSize;
+
+    /**
+     * Create a new exporter with {@link #DEFAULT_PARALLELISM} and {@link #DEFAULT_PARTITION_SIZE}.
+     *
+     * @param database to export from.
+     */
+    public ParallelGraphExporter(GraphDatabaseService database) {
+        this(database, DEFAULT_PARALLELISM, DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Create a new exporter.
+     *
+     * @param database      to export from.
+     * @param parallelism   maximum number of partitions read concurrently, must be positive.
+     * @param partitionSize number of IDs per partition (and thus per read transaction), must be positive.
+     */
+    public ParallelGraphExporter(GraphDatabaseService database, int parallelism, int partitionSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, was " + parallelism);
+        }
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("Partition size must be positive, was " + partitionSize);
+        }
+
+        this.database = database;
+        this.parallelism = parallelism;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Export nodes.
+     *
+     * @param from       ID of the first node to export (the resume cursor), must not be negative.
+     * @param policy     deciding which nodes to export.
+     * @param properties keys of properties to export, <code>null</code> for all.
+     * @param sink       to receive the exported nodes.
+     * @return cursor to resume the export from, i.e. highest scanned ID plus one.
+     * @throws IOException if the sink fails or the export is interrupted.
+     */
+    public long exportNodes(long from, NodeInclusionPolicy policy, String[] properties, ExportSink<? super LongIdJsonNode> sink) throws IOException {
+        return export(from, neoStores().getNodeStore().getHighestPossibleIdInUse(), (start, end) -> {
+            List<LongIdJsonNode> result = new ArrayList<>();
+            for (long id = start; id < end; id++) {
+                Node node;
+                try {
+                    node = database.getNodeById(id);
+                } catch (NotFoundException e) {
+                    continue;
+                }
+                if (policy.include(node)) {
+                    result.add(new LongIdJsonNode(node, properties));
+                }
+            }
+            return result;
+        }, sink);
+    }
+
+    /**
+     * Export relationships.
+     *
+     * @param from       ID of the first relationship to export (the resume cursor), must not be negative.
+     * @param policy     deciding which relationships to export.
+     * @param properties keys of properties to export, <code>null</code> for all.
+     * @param sink       to receive the exported relationships.
+     * @return cursor to resume the export from, i.e. highest scanned ID plus one.
+     * @throws IOException if the sink fails or the export is interrupted.
+     */
+    public long exportRelationships(long from, RelationshipInclusionPolicy policy, String[] properties, ExportSink<? super LongIdJsonRelationship> sink) throws IOException {
+        return export(from, neoStores().getRelationshipStore().getHighestPossibleIdInUse(), (start, end) -> {
+            List<LongIdJsonRelationship> result = new ArrayList<>();
+            for (long id = start; id < end; id++) {
+                Relationship relationship;
+                try {
+                    relationship = database.getRelationshipById(id);
+                } catch (NotFoundException e) {
+                    continue;
+                }
+                if (policy.include(relationship)) {
+                    result.add(new LongIdJsonRelationship(relationship, properties));
+                }
+            }
+            return result;
+        }, sink);
+    }
+
+    private <T> long export(long from, long highestId, PartitionReader<T> reader, ExportSink<? super T> sink) throws IOException {
+        if (from < 0) {
+            throw new IllegalArgumentException("Export must start from a non-negative ID, was " + from);
+        }
+
+        Deque<Future<List<T>>> inFlight = new ArrayDeque<>();
+        long next = from;
+        long cursor = from;
+
+        try {
+            while (next <= highestId || !inFlight.isEmpty()) {
+                while (next <= highestId && inFlight.size() < 2 * parallelism) {
+                    long start = next;
+                    long end = Math.min(highestId + 1, start + partitionSize);
+                    inFlight.add(EXECUTOR.submit(() -> read(reader, start, end)));
+                    next = end;
+                }
+
+                List<T> partition = await(inFlight.poll());
+                for (T element : partition) {
+                    sink.accept(element);
+                }
+                cursor = Math.min(highestId + 1, cursor + partitionSize);
+                sink.partitionComplete(cursor);
+            }
+        } finally {
+            //only non-empty if the export has been aborted
+            for (Future<List<T>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        return cursor;
+    }
+
+    private <T> List<T> read(PartitionReader<T> reader, long start, long end) {
+        try (Transaction tx = database.beginTx()) {
+            List<T> result = reader.read(start, end);
+            tx.success();
+            return result;
+        }
+    }
+
+    private <T> List<T> await(Future<List<T>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export has been interrupted");
+        } catch (ExecutionException e) {
+            LOG.error("Failed to read export partition", e.getCause());
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(DEFAULT_PARALLELISM, runnable -> {
+            Thread thread = new Thread(runnable, "GraphAware Export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private NeoStores neoStores() {
+        return ((GraphDatabaseAPI) database).getDependencyResolver().resolveDependency(RecordStorageEngine.class).testAccessNeoStores();
+    }
+
+    /**
+     * Reader of a single partition, called within a transaction.
+     */
+    private interface PartitionReader<T> {
+
+        List<T> read(long start, long end);
+    }
+}
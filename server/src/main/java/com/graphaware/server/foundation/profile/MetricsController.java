@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.server.foundation.profile;
+
+import com.graphaware.common.metrics.MetricRegistry;
+import com.graphaware.runtime.RuntimeRegistry;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Map;
+
+/**
+ * REST API exposing the {@link MetricRegistry} of the GraphAware Runtime registered with the database.
+ */
+@Controller
+@RequestMapping("/runtime/metrics")
+public class MetricsController {
+
+    private final GraphDatabaseService database;
+
+    @Autowired
+    public MetricsController(GraphDatabaseService database) {
+        this.database = database;
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Map<String, Map<String, Number>>> getReport() {
+        return metrics().getReport();
+    }
+
+    @RequestMapping(value = "/{moduleId}", method = RequestMethod.GET)
+    @ResponseBody
+    public Map<String, Map<String, Number>> getReport(@PathVariable String moduleId) {
+        return metrics().getReport(moduleId);
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        metrics().reset();
+    }
+
+    private MetricRegistry metrics() {
+        return RuntimeRegistry.getStartedRuntime(database).getMetricRegistry();
+    }
+}
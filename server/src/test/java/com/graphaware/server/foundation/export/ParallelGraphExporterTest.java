@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.server.foundation.export;
+
+import com.graphaware.api.json.LongIdJsonNode;
+import com.graphaware.api.json.LongIdJsonRelationship;
+import com.graphaware.common.policy.inclusion.all.IncludeAllNodes;
+import com.graphaware.common.policy.inclusion.all.IncludeAllRelationships;
+import com.graphaware.common.policy.inclusion.spel.SpelNodeInclusionPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ParallelGraphExporter}.
+ */
+public class ParallelGraphExporterTest {
+
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+
+        try (Transaction tx = database.beginTx()) {
+            Node previous = null;
+            for (int i = 0; i < 100; i++) {
+                Node node = database.createNode(Label.label(i % 2 == 0 ? "Even" : "Odd"));
+                node.setProperty("index", i);
+                node.setProperty("name", "node" + i);
+                if (previous != null) {
+                    previous.createRelationshipTo(node, RelationshipType.withName("NEXT")).setProperty("weight", i);
+                }
+                previous = node;
+            }
+            tx.success();
+        }
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.getNodeById(50);
+            node.getRelationships().forEach(Relationship::delete);
+            node.delete();
+            tx.success();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldExportAllNodesInIdOrder() throws IOException {
+        CollectingSink<LongIdJsonNode> sink = new CollectingSink<>();
+
+        long cursor = new ParallelGraphExporter(database, 4, 7).exportNodes(0, IncludeAllNodes.getInstance(), null, sink);
+
+        assertEquals(99, sink.elements.size());
+        assertEquals(100, cursor);
+        assertEquals(100, (long) sink.cursors.get(sink.cursors.size() - 1));
+        assertEquals(15, sink.cursors.size());
+
+        long previous = -1;
+        for (LongIdJsonNode node : sink.elements) {
+            assertTrue(node.getId() > previous);
+            assertNotEquals(50L, (long) node.getId());
+            assertEquals(2, node.getProperties().size());
+            previous = node.getId();
+        }
+    }
+
+    @Test
+    public void shouldFilterAndProjectNodes() throws IOException {
+        CollectingSink<LongIdJsonNode> sink = new CollectingSink<>();
+
+        new ParallelGraphExporter(database, 3, 10).exportNodes(0, new SpelNodeInclusionPolicy("hasLabel('Odd')"), new String[]{"name"}, sink);
+
+        assertEquals(50, sink.elements.size());
+        for (LongIdJsonNode node : sink.elements) {
+            assertEquals(1, node.getId() % 2);
+            assertEquals(1, node.getProperties().size());
+            assertEquals("node" + node.getId(), node.getProperties().get("name"));
+        }
+    }
+
+    @Test
+    public void shouldResumeFromCursor() throws IOException {
+        CollectingSink<LongIdJsonNode> sink = new CollectingSink<>();
+
+        long cursor = new ParallelGraphExporter(database, 2, 16).exportNodes(90, IncludeAllNodes.getInstance(), null, sink);
+
+        assertEquals(10, sink.elements.size());
+        assertEquals(90L, (long) sink.elements.get(0).getId());
+        assertEquals(100, cursor);
+
+        CollectingSink<LongIdJsonNode> empty = new CollectingSink<>();
+        assertEquals(100, new ParallelGraphExporter(database, 2, 16).exportNodes(cursor, IncludeAllNodes.getInstance(), null, empty));
+        assertTrue(empty.elements.isEmpty());
+    }
+
+    @Test
+    public void shouldExportRelationships() throws IOException {
+        CollectingSink<LongIdJsonRelationship> sink = new CollectingSink<>();
+
+        new ParallelGraphExporter(database, 4, 5).exportRelationships(0, IncludeAllRelationships.getInstance(), new String[]{}, sink);
+
+        assertEquals(97, sink.elements.size());
+        long previous = -1;
+        for (LongIdJsonRelationship relationship : sink.elements) {
+            assertTrue(relationship.getId() > previous);
+            assertEquals("NEXT", relationship.getType());
+            assertEquals(relationship.getStartNodeId() + 1, (long) relationship.getEndNodeId());
+            assertTrue(relationship.getProperties().isEmpty());
+            previous = relationship.getId();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveParallelism() {
+        new ParallelGraphExporter(database, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeCursor() throws IOException {
+        new ParallelGraphExporter(database).exportNodes(-1, IncludeAllNodes.getInstance(), null, new CollectingSink<>());
+    }
+
+    private static class CollectingSink<T> implements ExportSink<T> {
+
+        private final List<T> elements = new ArrayList<>();
+        private final List<Long> cursors = new ArrayList<>();
+
+        @Override
+        public void accept(T element) {
+            elements.add(element);
+        }
+
+        @Override
+        public void partitionComplete(long cursor) {
+            cursors.add(cursor);
+        }
+    }
+}
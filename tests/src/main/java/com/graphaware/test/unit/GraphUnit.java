@@ -730,19 +730,22 @@ public final class GraphUnit {
     }
 
     private static boolean haveSameProperties(PropertyContainer pc1, PropertyContainer pc2, InclusionPolicies inclusionPolicies) {
+        Map<String, Object> pc2Properties = pc2.getAllProperties();
+
         int pc1KeyCount = 0, pc2KeyCount = 0;
-        for (String key : pc1.getPropertyKeys()) {
-            if (isPropertyIncluded(pc1, key, inclusionPolicies)) {
+        for (Map.Entry<String, Object> entry : pc1.getAllProperties().entrySet()) {
+            if (isPropertyIncluded(pc1, entry.getKey(), inclusionPolicies)) {
                 pc1KeyCount++;
-                if (!pc2.hasProperty(key)) {
+                Object pc2Value = pc2Properties.get(entry.getKey());
+                if (pc2Value == null) {
                     return false;
                 }
-                if (!valueToString(pc1.getProperty(key)).equals(valueToString(pc2.getProperty(key)))) {
+                if (!valueToString(entry.getValue()).equals(valueToString(pc2Value))) {
                     return false;
                 }
             }
         }
-        for (String key : pc2.getPropertyKeys()) {
+        for (String key : pc2Properties.keySet()) {
             if (isPropertyIncluded(pc2, key, inclusionPolicies)) {
                 pc2KeyCount++;
             }
@@ -16,7 +16,10 @@
 
 package com.graphaware.tx.event.improved.api;
 
+import com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy;
 import com.graphaware.common.policy.inclusion.InclusionPolicies;
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
 import com.graphaware.common.policy.inclusion.none.IncludeNoNodeProperties;
 import com.graphaware.common.policy.inclusion.none.IncludeNoNodes;
 import com.graphaware.common.policy.inclusion.none.IncludeNoRelationshipProperties;
@@ -27,6 +30,8 @@ import com.graphaware.tx.event.improved.data.RelationshipTransactionData;
 import com.graphaware.tx.event.improved.data.TransactionDataContainer;
 import com.graphaware.tx.event.improved.data.filtered.FilteredNodeTransactionData;
 import com.graphaware.tx.event.improved.data.filtered.FilteredRelationshipTransactionData;
+import com.graphaware.tx.event.improved.data.filtered.MemoizingNodeInclusionPolicy;
+import com.graphaware.tx.event.improved.data.filtered.MemoizingRelationshipInclusionPolicy;
 
 /**
  * {@link ImprovedTransactionData} with filtering capabilities defined by {@link InclusionPolicies}, delegating to
@@ -45,6 +50,7 @@ import com.graphaware.tx.event.improved.data.filtered.FilteredRelationshipTransa
  */
 public class FilteredTransactionData extends BaseImprovedTransactionData implements ImprovedTransactionData, TransactionDataContainer {
 
+    private final InclusionPolicies originalPolicies;
     private final InclusionPolicies inclusionPolicies;
     private final NodeTransactionData nodeTransactionData;
     private final RelationshipTransactionData relationshipTransactionData;
@@ -57,9 +63,41 @@ public class FilteredTransactionData extends BaseImprovedTransactionData impleme
      */
     public FilteredTransactionData(TransactionDataContainer transactionDataContainer, InclusionPolicies inclusionPolicies) {
         super(transactionDataContainer.getWrapped());
-        this.inclusionPolicies = inclusionPolicies;
-        nodeTransactionData = new FilteredNodeTransactionData(transactionDataContainer.getNodeTransactionData(), inclusionPolicies);
-        relationshipTransactionData = new FilteredRelationshipTransactionData(transactionDataContainer.getRelationshipTransactionData(), inclusionPolicies);
+        this.originalPolicies = inclusionPolicies;
+        this.inclusionPolicies = memoizing(inclusionPolicies);
+        nodeTransactionData = new FilteredNodeTransactionData(transactionDataContainer.getNodeTransactionData(), this.inclusionPolicies);
+        relationshipTransactionData = new FilteredRelationshipTransactionData(transactionDataContainer.getRelationshipTransactionData(), this.inclusionPolicies);
+    }
+
+    /**
+     * Decorate deterministic {@link DeterministicInclusionPolicy} node and relationship inclusion policies with
+     * memoizing ones, so that each is evaluated at most once per entity for the lifetime of this object. Decisions are
+     * not invalidated when entities change, so an instance must not be handed to another module once a module that
+     * might have changed entities has used it.
+     *
+     * @param inclusionPolicies to decorate.
+     * @return decorated policies, or the same policies if there is nothing to memoize.
+     */
+    private static InclusionPolicies memoizing(InclusionPolicies inclusionPolicies) {
+        NodeInclusionPolicy nodeInclusionPolicy = inclusionPolicies.getNodeInclusionPolicy();
+        RelationshipInclusionPolicy relationshipInclusionPolicy = inclusionPolicies.getRelationshipInclusionPolicy();
+
+        boolean memoizeNodes = DeterministicInclusionPolicy.isDeterministic(nodeInclusionPolicy);
+        boolean memoizeRelationships = DeterministicInclusionPolicy.isDeterministic(relationshipInclusionPolicy);
+
+        if (!memoizeNodes && !memoizeRelationships) {
+            return inclusionPolicies;
+        }
+
+        if (memoizeNodes) {
+            nodeInclusionPolicy = new MemoizingNodeInclusionPolicy(nodeInclusionPolicy);
+        }
+
+        if (memoizeRelationships) {
+            relationshipInclusionPolicy = new MemoizingRelationshipInclusionPolicy(relationshipInclusionPolicy);
+        }
+
+        return new InclusionPolicies(nodeInclusionPolicy, inclusionPolicies.getNodePropertyInclusionPolicy(), relationshipInclusionPolicy, inclusionPolicies.getRelationshipPropertyInclusionPolicy());
     }
 
     /**
@@ -78,6 +116,15 @@ public class FilteredTransactionData extends BaseImprovedTransactionData impleme
         return relationshipTransactionData;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingTransactionData stream() {
+        //not memoizing, streaming must not accumulate per-entity decisions
+        return new StreamingTransactionData(getWrapped(), originalPolicies);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -387,4 +387,18 @@ public interface ImprovedTransactionData extends TransactionDataWrapper {
      * @return human-readable Strings.
      */
     Set<String> mutationsToStrings();
+
+    /**
+     * Get a streaming, single-pass view of this transaction data (applying the same filtering, if any), which doesn't
+     * materialize any of the collections returned by other methods of this interface. Intended for processing huge
+     * transactions in constant memory.
+     * <p/>
+     * The default implementation streams the wrapped {@link org.neo4j.graphdb.event.TransactionData} without any filtering; implementations
+     * that filter must override it.
+     *
+     * @return streaming view.
+     */
+    default StreamingTransactionData stream() {
+        return new StreamingTransactionData(getWrapped());
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.api;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link PropertyContainerDelta} for {@link Node}s, which also carries label changes.
+ */
+public class NodeDelta extends PropertyContainerDelta<Node> {
+
+    private Set<Label> assignedLabels;
+    private Set<Label> removedLabels;
+
+    /**
+     * Construct a new delta.
+     *
+     * @param id      of the node.
+     * @param node    the node.
+     * @param deleted true iff the node has been deleted in the transaction.
+     */
+    protected NodeDelta(long id, Node node, boolean deleted) {
+        super(id, node, deleted);
+    }
+
+    /**
+     * @return read-only labels assigned to the node in the transaction.
+     */
+    public Set<Label> getAssignedLabels() {
+        return assignedLabels == null ? Collections.<Label>emptySet() : Collections.unmodifiableSet(assignedLabels);
+    }
+
+    /**
+     * @return read-only labels removed from the node in the transaction.
+     */
+    public Set<Label> getRemovedLabels() {
+        return removedLabels == null ? Collections.<Label>emptySet() : Collections.unmodifiableSet(removedLabels);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return super.isEmpty() && assignedLabels == null && removedLabels == null;
+    }
+
+    void labelAssigned(Label label) {
+        if (assignedLabels == null) {
+            assignedLabels = new HashSet<>();
+        }
+        assignedLabels.add(label);
+    }
+
+    void labelRemoved(Label label) {
+        if (removedLabels == null) {
+            removedLabels = new HashSet<>();
+        }
+        removedLabels.add(label);
+    }
+}
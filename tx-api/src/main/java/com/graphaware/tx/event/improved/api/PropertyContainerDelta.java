@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.api;
+
+import com.graphaware.common.util.Change;
+import org.neo4j.graphdb.PropertyContainer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Changes made to a single {@link PropertyContainer} in a transaction, as yielded by {@link StreamingTransactionData}.
+ * <p/>
+ * Note that in order to keep the working set bounded, a single delta only covers a contiguous run of changes reported
+ * by Neo4j, so changes to one container can be split across several deltas (e.g. one for assigned and one for removed
+ * properties). Consumers that need a complete per-container view must use {@link ImprovedTransactionData} instead.
+ *
+ * @param <T> type of the property container.
+ */
+public class PropertyContainerDelta<T extends PropertyContainer> {
+
+    private final long id;
+    private final T entity;
+    private final boolean deleted;
+
+    private Map<String, Object> createdProperties;
+    private Map<String, Change<Object>> changedProperties;
+    private Map<String, Object> deletedProperties;
+
+    /**
+     * Construct a new delta.
+     *
+     * @param id      of the container.
+     * @param entity  the container.
+     * @param deleted true iff the container has been deleted in the transaction.
+     */
+    protected PropertyContainerDelta(long id, T entity, boolean deleted) {
+        this.id = id;
+        this.entity = entity;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return ID of the property container.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the property container. If it has been deleted in the transaction, only its ID can be safely read.
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return true iff the property container has been deleted in the transaction.
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return read-only properties that did not exist before the transaction (including all properties of containers
+     * created in the transaction).
+     */
+    public Map<String, Object> getCreatedProperties() {
+        return readOnly(createdProperties);
+    }
+
+    /**
+     * @return read-only properties whose value has changed, with values before and after the transaction.
+     */
+    public Map<String, Change<Object>> getChangedProperties() {
+        return readOnly(changedProperties);
+    }
+
+    /**
+     * @return read-only properties that have been removed (including all properties of deleted containers), with
+     * values before the transaction.
+     */
+    public Map<String, Object> getDeletedProperties() {
+        return readOnly(deletedProperties);
+    }
+
+    /**
+     * @return true iff this delta contains no changes.
+     */
+    public boolean isEmpty() {
+        return createdProperties == null && changedProperties == null && deletedProperties == null;
+    }
+
+    void propertyCreated(String key, Object value) {
+        if (createdProperties == null) {
+            createdProperties = new HashMap<>();
+        }
+        createdProperties.put(key, value);
+    }
+
+    void propertyChanged(String key, Object previous, Object current) {
+        if (changedProperties == null) {
+            changedProperties = new HashMap<>();
+        }
+        changedProperties.put(key, new Change<>(previous, current));
+    }
+
+    void propertyDeleted(String key, Object previous) {
+        if (deletedProperties == null) {
+            deletedProperties = new HashMap<>();
+        }
+        deletedProperties.put(key, previous);
+    }
+
+    protected static <K, V> Map<K, V> readOnly(Map<K, V> map) {
+        return map == null ? Collections.<K, V>emptyMap() : Collections.unmodifiableMap(map);
+    }
+}
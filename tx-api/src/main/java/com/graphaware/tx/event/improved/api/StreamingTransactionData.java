@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.api;
+
+import com.graphaware.common.policy.inclusion.InclusionPolicies;
+import com.graphaware.common.policy.inclusion.PropertyContainerInclusionPolicy;
+import com.graphaware.common.policy.inclusion.PropertyInclusionPolicy;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.helpers.collection.FilteringIterable;
+import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+
+import java.util.Iterator;
+
+/**
+ * A streaming, single-pass view of {@link TransactionData}, intended for modules that need to process very large
+ * transactions (e.g. imports) in constant memory.
+ * <p/>
+ * Unlike {@link ImprovedTransactionData}, this view builds no whole-transaction indexes or snapshots. Every method
+ * returns a lazy {@link Iterable} that walks Neo4j's own transaction state and yields one entity (or one
+ * {@link PropertyContainerDelta}) at a time, keeping only the entity currently being assembled in memory. The price
+ * for that is a less convenient model:
+ * <ul>
+ * <li>changes to one entity may be split across several deltas (see {@link PropertyContainerDelta}),</li>
+ * <li>properties of created entities are reported as created properties, properties of deleted entities as deleted
+ * properties,</li>
+ * <li>{@link InclusionPolicies} are applied to entities and properties that still exist; entities deleted in the
+ * transaction can't be inspected any more and are always included.</li>
+ * </ul>
+ * Like Neo4j's {@link TransactionData}, the view must only be used by the committing thread before the transaction
+ * finishes.
+ */
+public class StreamingTransactionData {
+
+    private final TransactionData wrapped;
+    private final InclusionPolicies policies;
+
+    /**
+     * Construct a new, unfiltered view.
+     *
+     * @param wrapped transaction data.
+     */
+    public StreamingTransactionData(TransactionData wrapped) {
+        this(wrapped, InclusionPolicies.all());
+    }
+
+    /**
+     * Construct a new, filtered view.
+     *
+     * @param wrapped  transaction data.
+     * @param policies for filtering.
+     */
+    public StreamingTransactionData(TransactionData wrapped, InclusionPolicies policies) {
+        this.wrapped = wrapped;
+        this.policies = policies;
+    }
+
+    /**
+     * @return lazily filtered nodes created in the transaction.
+     */
+    public Iterable<Node> getCreatedNodes() {
+        return new FilteringIterable<>(wrapped.createdNodes(), policies.getNodeInclusionPolicy()::include);
+    }
+
+    /**
+     * @return lazily filtered relationships created in the transaction.
+     */
+    public Iterable<Relationship> getCreatedRelationships() {
+        return new FilteringIterable<>(wrapped.createdRelationships(), policies.getRelationshipInclusionPolicy()::include);
+    }
+
+    /**
+     * @return IDs of all nodes deleted in the transaction (unfiltered).
+     */
+    public Iterable<Long> getDeletedNodeIds() {
+        return Iterables.map(Node::getId, wrapped.deletedNodes());
+    }
+
+    /**
+     * @return IDs of all relationships deleted in the transaction (unfiltered).
+     */
+    public Iterable<Long> getDeletedRelationshipIds() {
+        return Iterables.map(Relationship::getId, wrapped.deletedRelationships());
+    }
+
+    /**
+     * @return lazily assembled property and label changes of nodes.
+     */
+    public Iterable<NodeDelta> getNodeDeltas() {
+        Iterable<NodeDelta> assignedProperties = () -> new NodePropertyDeltaIterator(wrapped.assignedNodeProperties().iterator(), true);
+        Iterable<NodeDelta> removedProperties = () -> new NodePropertyDeltaIterator(wrapped.removedNodeProperties().iterator(), false);
+        Iterable<NodeDelta> assignedLabels = () -> new LabelDeltaIterator(wrapped.assignedLabels().iterator(), true);
+        Iterable<NodeDelta> removedLabels = () -> new LabelDeltaIterator(wrapped.removedLabels().iterator(), false);
+
+        return Iterables.concat(assignedProperties, removedProperties, assignedLabels, removedLabels);
+    }
+
+    /**
+     * @return lazily assembled property changes of relationships.
+     */
+    public Iterable<PropertyContainerDelta<Relationship>> getRelationshipDeltas() {
+        Iterable<PropertyContainerDelta<Relationship>> assignedProperties = () -> new RelationshipPropertyDeltaIterator(wrapped.assignedRelationshipProperties().iterator(), true);
+        Iterable<PropertyContainerDelta<Relationship>> removedProperties = () -> new RelationshipPropertyDeltaIterator(wrapped.removedRelationshipProperties().iterator(), false);
+
+        return Iterables.concat(assignedProperties, removedProperties);
+    }
+
+    /**
+     * Check whether any mutations included by the policies occurred, stopping at the first one found. This is a
+     * conservative check: unlike {@link ImprovedTransactionData#mutationsOccurred()}, it reports property changes
+     * that have been reverted within the transaction and deletions of entities that would otherwise be filtered out.
+     *
+     * @return true iff mutations (may) have occurred.
+     */
+    public boolean mutationsOccurred() {
+        return getCreatedNodes().iterator().hasNext()
+                || getCreatedRelationships().iterator().hasNext()
+                || wrapped.deletedNodes().iterator().hasNext()
+                || wrapped.deletedRelationships().iterator().hasNext()
+                || getNodeDeltas().iterator().hasNext()
+                || getRelationshipDeltas().iterator().hasNext();
+    }
+
+    private boolean include(PropertyContainerInclusionPolicy<?> policy, PropertyContainer container, boolean deleted) {
+        //noinspection unchecked
+        return deleted || ((PropertyContainerInclusionPolicy<PropertyContainer>) policy).include(container);
+    }
+
+    /**
+     * Iterator grouping a contiguous run of entries belonging to the same entity into a single delta.
+     *
+     * @param <E> type of the entries.
+     * @param <T> type of the entity.
+     * @param <D> type of the delta.
+     */
+    private abstract class DeltaIterator<E, T extends PropertyContainer, D extends PropertyContainerDelta<T>> extends PrefetchingIterator<D> {
+
+        private final Iterator<E> entries;
+        private E pending;
+
+        protected DeltaIterator(Iterator<E> entries) {
+            this.entries = entries;
+        }
+
+        protected abstract T entity(E entry);
+
+        protected abstract D newDelta(T entity);
+
+        protected abstract boolean includeEntity(D delta);
+
+        protected abstract void apply(D delta, E entry);
+
+        @Override
+        protected D fetchNextOrNull() {
+            while (pending != null || entries.hasNext()) {
+                D delta = null;
+                boolean included = false;
+
+                while (pending != null || entries.hasNext()) {
+                    E entry = pending != null ? pending : entries.next();
+                    pending = null;
+
+                    T entity = entity(entry);
+                    if (delta == null) {
+                        delta = newDelta(entity);
+                        included = includeEntity(delta);
+                    } else if (entity.getId() != delta.getId()) {
+                        pending = entry;
+                        break;
+                    }
+
+                    if (included) {
+                        apply(delta, entry);
+                    }
+                }
+
+                if (included && !delta.isEmpty()) {
+                    return delta;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private abstract class PropertyDeltaIterator<T extends PropertyContainer, D extends PropertyContainerDelta<T>> extends DeltaIterator<PropertyEntry<T>, T, D> {
+
+        private final PropertyContainerInclusionPolicy<T> containerPolicy;
+        private final PropertyInclusionPolicy<T> propertyPolicy;
+        private final boolean assigned;
+
+        protected PropertyDeltaIterator(Iterator<PropertyEntry<T>> entries, PropertyContainerInclusionPolicy<T> containerPolicy, PropertyInclusionPolicy<T> propertyPolicy, boolean assigned) {
+            super(entries);
+            this.containerPolicy = containerPolicy;
+            this.propertyPolicy = propertyPolicy;
+            this.assigned = assigned;
+        }
+
+        @Override
+        protected T entity(PropertyEntry<T> entry) {
+            return entry.entity();
+        }
+
+        @Override
+        protected boolean includeEntity(D delta) {
+            return include(containerPolicy, delta.getEntity(), delta.isDeleted());
+        }
+
+        @Override
+        protected void apply(D delta, PropertyEntry<T> entry) {
+            if (!delta.isDeleted() && !propertyPolicy.include(entry.key(), delta.getEntity())) {
+                return;
+            }
+
+            Object previous = entry.previouslyCommitedValue();
+
+            if (!assigned) {
+                delta.propertyDeleted(entry.key(), previous);
+            } else if (previous == null) {
+                delta.propertyCreated(entry.key(), entry.value());
+            } else if (!previous.equals(entry.value())) {
+                delta.propertyChanged(entry.key(), previous, entry.value());
+            }
+        }
+    }
+
+    private class NodePropertyDeltaIterator extends PropertyDeltaIterator<Node, NodeDelta> {
+
+        private NodePropertyDeltaIterator(Iterator<PropertyEntry<Node>> entries, boolean assigned) {
+            super(entries, policies.getNodeInclusionPolicy(), policies.getNodePropertyInclusionPolicy(), assigned);
+        }
+
+        @Override
+        protected NodeDelta newDelta(Node node) {
+            return new NodeDelta(node.getId(), node, wrapped.isDeleted(node));
+        }
+    }
+
+    private class RelationshipPropertyDeltaIterator extends PropertyDeltaIterator<Relationship, PropertyContainerDelta<Relationship>> {
+
+        private RelationshipPropertyDeltaIterator(Iterator<PropertyEntry<Relationship>> entries, boolean assigned) {
+            super(entries, policies.getRelationshipInclusionPolicy(), policies.getRelationshipPropertyInclusionPolicy(), assigned);
+        }
+
+        @Override
+        protected PropertyContainerDelta<Relationship> newDelta(Relationship relationship) {
+            return new PropertyContainerDelta<>(relationship.getId(), relationship, wrapped.isDeleted(relationship));
+        }
+    }
+
+    private class LabelDeltaIterator extends DeltaIterator<LabelEntry, Node, NodeDelta> {
+
+        private final boolean assigned;
+
+        private LabelDeltaIterator(Iterator<LabelEntry> entries, boolean assigned) {
+            super(entries);
+            this.assigned = assigned;
+        }
+
+        @Override
+        protected Node entity(LabelEntry entry) {
+            return entry.node();
+        }
+
+        @Override
+        protected NodeDelta newDelta(Node node) {
+            return new NodeDelta(node.getId(), node, wrapped.isDeleted(node));
+        }
+
+        @Override
+        protected boolean includeEntity(NodeDelta delta) {
+            return include(policies.getNodeInclusionPolicy(), delta.getEntity(), delta.isDeleted());
+        }
+
+        @Override
+        protected void apply(NodeDelta delta, LabelEntry entry) {
+            if (assigned) {
+                delta.labelAssigned(entry.label());
+            } else {
+                delta.labelRemoved(entry.label());
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.graphaware.tx.event.improved.data;
 
 import com.graphaware.common.util.Change;
+import com.graphaware.tx.event.improved.api.StreamingTransactionData;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.event.TransactionData;
 
@@ -292,6 +293,13 @@ public abstract class BaseImprovedTransactionData {
         return getRelationshipTransactionData().changedProperties(relationship);
     }
 
+    /**
+     * @see com.graphaware.tx.event.improved.api.ImprovedTransactionData#stream()
+     */
+    public StreamingTransactionData stream() {
+        return new StreamingTransactionData(wrapped);
+    }
+
     /**
      * @see com.graphaware.tx.event.improved.api.ImprovedTransactionData#mutationsOccurred()
      */
@@ -45,11 +45,24 @@ import java.util.*;
  * nodes, properties, and relationships not included by the {@link InclusionPolicies} will be excluded. The only exception
  * to this are relationship start and end nodes - they are returned even if they would normally be filtered out. This is
  * a design decision in order to honor the requirement that relationships must have start and end node.
+ * <p/>
+ * Filtered collections of created, deleted, and changed property containers are computed lazily and memoized, so
+ * repeated calls are free. Instances are intended to be used by a single thread (the one committing the transaction).
+ * <p/>
+ * All returned collections are read-only, as required by {@link com.graphaware.tx.event.improved.api.ImprovedTransactionData}.
+ * They may be handed to more than one module (only while modules with equal {@link InclusionPolicies} are being
+ * checked for relevant mutations; a module that runs gets a view no other module sees), so attempts to modify them
+ * throw an {@link UnsupportedOperationException}. Callers that need to modify the result must copy it first (earlier
+ * versions returned a fresh, modifiable copy on every call).
  */
 public abstract class FilteredPropertyContainerTransactionData<T extends PropertyContainer> {
 
     protected final InclusionPolicies policies;
 
+    private Collection<T> allCreated;
+    private Collection<T> allDeleted;
+    private Collection<Change<T>> allChanged;
+
     /**
      * Construct filtered property container transaction data.
      *
@@ -107,7 +120,10 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
         if (getPropertyContainerInclusionPolicy() instanceof IncludeNone) {
             return Collections.emptySet();
         }
-        return filterPropertyContainers(getWrapped().getAllCreated());
+        if (allCreated == null) {
+            allCreated = filterPropertyContainers(getWrapped().getAllCreated());
+        }
+        return allCreated;
     }
 
     /**
@@ -143,7 +159,10 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
         if (getPropertyContainerInclusionPolicy() instanceof IncludeNone) {
             return Collections.emptySet();
         }
-        return filterPropertyContainers(getWrapped().getAllDeleted());
+        if (allDeleted == null) {
+            allDeleted = filterPropertyContainers(getWrapped().getAllDeleted());
+        }
+        return allDeleted;
     }
 
     /**
@@ -179,7 +198,10 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
         if (getPropertyContainerInclusionPolicy() instanceof IncludeNone) {
             return Collections.emptySet();
         }
-        return filterChangedPropertyContainers(getWrapped().getAllChanged());
+        if (allChanged == null) {
+            allChanged = filterChangedPropertyContainers(getWrapped().getAllChanged());
+        }
+        return allChanged;
     }
 
     /**
@@ -281,16 +303,20 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
      * Filter property containers according to provided {@link PropertyContainerInclusionPolicy}.
      *
      * @param toFilter property containers to filter.
-     * @return filtered property containers.
+     * @return read-only filtered property containers.
      */
     protected final Collection<T> filterPropertyContainers(Collection<T> toFilter) {
+        if (toFilter.isEmpty()) {
+            return Collections.emptySet();
+        }
+
         Collection<T> result = new HashSet<>();
         for (T candidate : toFilter) {
             if (getPropertyContainerInclusionPolicy().include(candidate)) {
                 result.add(filtered(candidate));
             }
         }
-        return result;
+        return Collections.unmodifiableCollection(result);
     }
 
     /**
@@ -299,26 +325,52 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
      * with the provided {@link PropertyInclusionPolicy} will be returned.
      *
      * @param toFilter changed property containers to filter.
-     * @return filtered changed property containers.
+     * @return read-only filtered changed property containers.
      */
     protected final Collection<Change<T>> filterChangedPropertyContainers(Collection<Change<T>> toFilter) {
+        if (toFilter.isEmpty()) {
+            return Collections.emptySet();
+        }
+
         Collection<Change<T>> result = new HashSet<>();
         for (Change<T> candidate : toFilter) {
             if (include(candidate) && hasChanged(candidate)) {
                 result.add(filteredChange(candidate));
             }
         }
-        return result;
+        return Collections.unmodifiableCollection(result);
     }
 
     private boolean include(Change<T> candidate) {
         return getPropertyContainerInclusionPolicy().include(candidate.getPrevious()) || getPropertyContainerInclusionPolicy().include(candidate.getCurrent());
     }
 
+    /**
+     * Check whether at least one property of the given candidate that complies with the provided
+     * {@link PropertyInclusionPolicy} has been created, deleted, or changed. Stops at the first such property and
+     * doesn't allocate any filtered results.
+     *
+     * @param candidate to check.
+     * @return true iff an included property has been changed.
+     */
     protected boolean hasChanged(Change<T> candidate) {
-        return !createdProperties(candidate.getPrevious()).isEmpty()
-                || !deletedProperties(candidate.getPrevious()).isEmpty()
-                || !changedProperties(candidate.getPrevious()).isEmpty();
+        if (getPropertyInclusionPolicy() instanceof IncludeNoProperties) {
+            return false;
+        }
+
+        T container = candidate.getPrevious();
+        return containsIncludedProperty(getWrapped().createdProperties(container), container)
+                || containsIncludedProperty(getWrapped().deletedProperties(container), container)
+                || containsIncludedProperty(getWrapped().changedProperties(container), container);
+    }
+
+    private boolean containsIncludedProperty(Map<String, ?> properties, T container) {
+        for (String key : properties.keySet()) {
+            if (getPropertyInclusionPolicy().include(key, container)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -331,6 +383,10 @@ public abstract class FilteredPropertyContainerTransactionData<T extends Propert
      * @return filtered properties.
      */
     protected final <V> Map<String, V> filterProperties(Map<String, V> properties, T container) {
+        if (properties.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
         Map<String, V> result = new HashMap<>();
         for (Map.Entry<String, V> entry : properties.entrySet()) {
             if (getPropertyInclusionPolicy().include(entry.getKey(), container)) {
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.filtered;
+
+import com.graphaware.common.policy.inclusion.NodeInclusionPolicy;
+import org.neo4j.graphdb.Node;
+
+/**
+ * {@link MemoizingPropertyContainerInclusionPolicy} for {@link Node}s.
+ */
+public class MemoizingNodeInclusionPolicy extends MemoizingPropertyContainerInclusionPolicy<Node, NodeInclusionPolicy> implements NodeInclusionPolicy {
+
+    /**
+     * Construct a new memoizing policy.
+     *
+     * @param wrapped decorated policy. Must be a {@link com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy}.
+     */
+    public MemoizingNodeInclusionPolicy(NodeInclusionPolicy wrapped) {
+        super(wrapped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long getId(Node container) {
+        return container.getId();
+    }
+}
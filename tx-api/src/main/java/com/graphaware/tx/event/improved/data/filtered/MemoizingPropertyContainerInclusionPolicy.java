@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.filtered;
+
+import com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy;
+import com.graphaware.common.policy.inclusion.PropertyContainerInclusionPolicy;
+import com.graphaware.common.wrapper.Wrapper;
+import com.graphaware.tx.event.improved.propertycontainer.snapshot.PropertyContainerSnapshot;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.PropertyContainer;
+
+/**
+ * Transaction-scoped decorator of a {@link DeterministicInclusionPolicy} that remembers the decision made for each
+ * entity (by ID), so that the decorated (potentially expensive) policy is evaluated at most once per entity per
+ * transaction, no matter how many times the entity is encountered while filtering.
+ * <p/>
+ * Snapshots of entities as they were before the transaction started ({@link PropertyContainerSnapshot}s) share IDs
+ * with the current state of the entities, but not their state, so decisions about them are never memoized.
+ * <p/>
+ * Decisions are not invalidated when an entity changes, so instances must only be used while a single module looks at
+ * a transaction; another module may have changed the entities by the time it runs. Instances are not thread-safe.
+ *
+ * @param <T> type of the property container.
+ * @param <P> type of the decorated policy.
+ */
+public abstract class MemoizingPropertyContainerInclusionPolicy<T extends PropertyContainer, P extends PropertyContainerInclusionPolicy<T>> implements PropertyContainerInclusionPolicy<T> {
+
+    private static final int INCLUDED = 1;
+    private static final int EXCLUDED = 0;
+
+    protected final P wrapped;
+    private final PrimitiveLongIntMap decisions = Primitive.longIntMap();
+
+    /**
+     * Construct a new memoizing policy.
+     *
+     * @param wrapped decorated policy. Must be a {@link DeterministicInclusionPolicy} that is deterministic.
+     */
+    protected MemoizingPropertyContainerInclusionPolicy(P wrapped) {
+        if (!DeterministicInclusionPolicy.isDeterministic(wrapped)) {
+            throw new IllegalArgumentException(wrapped + " is not a deterministic " + DeterministicInclusionPolicy.class.getSimpleName() + " and can't be memoized");
+        }
+        this.wrapped = wrapped;
+    }
+
+    /**
+     * Get the ID of a property container.
+     *
+     * @param container to get ID of.
+     * @return ID.
+     */
+    protected abstract long getId(T container);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean include(T container) {
+        if (isSnapshot(container)) {
+            return wrapped.include(container);
+        }
+
+        long id = getId(container);
+        int decision = decisions.get(id);
+        if (decision == INCLUDED) {
+            return true;
+        }
+        if (decision == EXCLUDED) {
+            return false;
+        }
+
+        boolean include = wrapped.include(container);
+        decisions.put(id, include ? INCLUDED : EXCLUDED);
+        return include;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<T> getAll(GraphDatabaseService database) {
+        return wrapped.getAll(database);
+    }
+
+    /**
+     * Get the number of memoized decisions.
+     *
+     * @return number of decisions.
+     */
+    public int size() {
+        return decisions.size();
+    }
+
+    private boolean isSnapshot(Object container) {
+        while (container instanceof Wrapper) {
+            if (container instanceof PropertyContainerSnapshot) {
+                return true;
+            }
+            container = ((Wrapper<?>) container).getWrapped();
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MemoizingPropertyContainerInclusionPolicy that = (MemoizingPropertyContainerInclusionPolicy) o;
+
+        return wrapped.equals(that.wrapped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return wrapped.hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "memoized(" + wrapped + ")";
+    }
+}
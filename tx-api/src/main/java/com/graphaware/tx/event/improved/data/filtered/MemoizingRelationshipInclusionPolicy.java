@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.filtered;
+
+import com.graphaware.common.policy.inclusion.RelationshipInclusionPolicy;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+
+/**
+ * {@link MemoizingPropertyContainerInclusionPolicy} for {@link Relationship}s.
+ */
+public class MemoizingRelationshipInclusionPolicy extends MemoizingPropertyContainerInclusionPolicy<Relationship, RelationshipInclusionPolicy> implements RelationshipInclusionPolicy {
+
+    /**
+     * Construct a new memoizing policy.
+     *
+     * @param wrapped decorated policy. Must be a {@link com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy}.
+     */
+    public MemoizingRelationshipInclusionPolicy(RelationshipInclusionPolicy wrapped) {
+        super(wrapped);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Decisions depending on the point of view are not memoized.
+     */
+    @Override
+    public boolean include(Relationship relationship, Node pointOfView) {
+        return wrapped.include(relationship, pointOfView);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected long getId(Relationship container) {
+        return container.getId();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.lazy;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.graphdb.Label;
+
+import java.util.*;
+
+/**
+ * Compact representation of label changes of nodes in a single transaction: a {@link BitSet} of label indices per
+ * node ID. Label indices are allocated on first sight from a {@link LabelIndex}, which can be shared between multiple
+ * instances, so that membership checks are bit tests rather than hash set lookups.
+ * <p/>
+ * Not thread-safe, intended to be populated and used by the thread committing the transaction.
+ */
+final class LabelBitSets {
+
+    private final LabelIndex labelIndex;
+    private final PrimitiveLongObjectMap<BitSet> bitSets = Primitive.longObjectMap();
+
+    /**
+     * Construct new, empty bit sets.
+     *
+     * @param labelIndex label index, possibly shared.
+     */
+    LabelBitSets(LabelIndex labelIndex) {
+        this.labelIndex = labelIndex;
+    }
+
+    /**
+     * Record a label for a node.
+     *
+     * @param nodeId ID of the node.
+     * @param label  to record.
+     */
+    void add(long nodeId, Label label) {
+        BitSet bits = bitSets.get(nodeId);
+        if (bits == null) {
+            bits = new BitSet();
+            bitSets.put(nodeId, bits);
+        }
+        bits.set(labelIndex.indexOf(label));
+    }
+
+    /**
+     * @param nodeId ID of the node.
+     * @return true iff at least one label has been recorded for the node.
+     */
+    boolean containsNode(long nodeId) {
+        return bitSets.containsKey(nodeId);
+    }
+
+    /**
+     * @param nodeId ID of the node.
+     * @param label  to check.
+     * @return true iff the label has been recorded for the node.
+     */
+    boolean contains(long nodeId, Label label) {
+        int index = labelIndex.existingIndexOf(label);
+        if (index < 0) {
+            return false;
+        }
+
+        BitSet bits = bitSets.get(nodeId);
+        return bits != null && bits.get(index);
+    }
+
+    /**
+     * @param nodeId ID of the node.
+     * @return read-only view of labels recorded for the node, empty if none.
+     */
+    Set<Label> labels(long nodeId) {
+        BitSet bits = bitSets.get(nodeId);
+        if (bits == null) {
+            return Collections.emptySet();
+        }
+        return new LabelSetView(bits);
+    }
+
+    /**
+     * @return iterator over IDs of nodes with at least one label recorded.
+     */
+    PrimitiveLongIterator nodeIds() {
+        return bitSets.iterator();
+    }
+
+    /**
+     * Mapping between {@link Label}s (by name) and dense indices, valid for a single transaction.
+     */
+    static final class LabelIndex {
+
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<Label> labels = new ArrayList<>();
+
+        int indexOf(Label label) {
+            Integer index = indices.get(label.name());
+            if (index == null) {
+                index = labels.size();
+                indices.put(label.name(), index);
+                labels.add(label);
+            }
+            return index;
+        }
+
+        int existingIndexOf(Label label) {
+            Integer index = indices.get(label.name());
+            return index == null ? -1 : index;
+        }
+
+        Label labelAt(int index) {
+            return labels.get(index);
+        }
+    }
+
+    private final class LabelSetView extends AbstractSet<Label> {
+
+        private final BitSet bits;
+
+        private LabelSetView(BitSet bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Label)) {
+                return false;
+            }
+            int index = labelIndex.existingIndexOf((Label) o);
+            return index >= 0 && bits.get(index);
+        }
+
+        @Override
+        public Iterator<Label> iterator() {
+            return new Iterator<Label>() {
+                private int next = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Label next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    Label result = labelIndex.labelAt(next);
+                    next = bits.nextSetBit(next + 1);
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+    }
+}
@@ -19,6 +19,9 @@ package com.graphaware.tx.event.improved.data.lazy;
 import com.graphaware.tx.event.improved.data.NodeTransactionData;
 import com.graphaware.tx.event.improved.data.TransactionDataContainer;
 import com.graphaware.tx.event.improved.propertycontainer.snapshot.NodeSnapshot;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.event.LabelEntry;
@@ -39,9 +42,9 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
     private final TransactionData transactionData;
     private final TransactionDataContainer transactionDataContainer;
 
-    private Map<Long, Set<Label>> assignedLabels = null;
-    private Map<Long, Set<Label>> removedLabels = null;
-    private Map<Long, Set<Label>> deletedNodeLabels = null;
+    private LabelBitSets assignedLabels = null;
+    private LabelBitSets removedLabels = null;
+    private LabelBitSets deletedNodeLabels = null;
 
     /**
      * Construct node transaction data from Neo4j {@link org.neo4j.graphdb.event.TransactionData}.
@@ -114,11 +117,7 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             return false;
         }
 
-        if (!assignedLabels.containsKey(node.getId())) {
-            return false;
-        }
-
-        return assignedLabels.get(node.getId()).contains(label);
+        return assignedLabels.contains(node.getId(), label);
     }
 
     /**
@@ -133,11 +132,7 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             return Collections.emptySet();
         }
 
-        if (!assignedLabels.containsKey(node.getId())) {
-            return Collections.emptySet();
-        }
-
-        return Collections.unmodifiableSet(assignedLabels.get(node.getId()));
+        return assignedLabels.labels(node.getId());
     }
 
     /**
@@ -152,11 +147,7 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             return false;
         }
 
-        if (!removedLabels.containsKey(node.getId())) {
-            return false;
-        }
-
-        return removedLabels.get(node.getId()).contains(label);
+        return removedLabels.contains(node.getId(), label);
     }
 
     /**
@@ -171,11 +162,7 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             return Collections.emptySet();
         }
 
-        if (!removedLabels.containsKey(node.getId())) {
-            return Collections.emptySet();
-        }
-
-        return Collections.unmodifiableSet(removedLabels.get(node.getId()));
+        return removedLabels.labels(node.getId());
     }
 
     /**
@@ -190,20 +177,17 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             throw new IllegalStateException(node + " has not been deleted but the caller thinks it has! This is a bug.");
         }
 
-        if (!deletedNodeLabels.containsKey(node.getId())) {
-            return Collections.emptySet();
-        }
-
-        return Collections.unmodifiableSet(deletedNodeLabels.get(node.getId()));
+        return deletedNodeLabels.labels(node.getId());
     }
 
     @Override
     protected void doInitializeChanged() {
-        assignedLabels = new HashMap<>();
-        removedLabels = new HashMap<>();
-        deletedNodeLabels = new HashMap<>();
+        LabelBitSets.LabelIndex labelIndex = new LabelBitSets.LabelIndex();
+        assignedLabels = new LabelBitSets(labelIndex);
+        removedLabels = new LabelBitSets(labelIndex);
+        deletedNodeLabels = new LabelBitSets(labelIndex);
 
-        Map<Long, Node> potentiallyChangedNodes = new HashMap<>();
+        PrimitiveLongObjectMap<Node> potentiallyChangedNodes = Primitive.longObjectMap();
 
         for (LabelEntry labelEntry : transactionData.assignedLabels()) {
             Node node = labelEntry.node();
@@ -212,11 +196,7 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
                 continue;
             }
 
-            if (!assignedLabels.containsKey(node.getId())) {
-                assignedLabels.put(node.getId(), new HashSet<Label>());
-            }
-
-            assignedLabels.get(node.getId()).add(labelEntry.label());
+            assignedLabels.add(node.getId(), labelEntry.label());
 
             potentiallyChangedNodes.put(node.getId(), node);
         }
@@ -225,27 +205,18 @@ public class LazyNodeTransactionData extends LazyPropertyContainerTransactionDat
             Node node = labelEntry.node();
 
             if (hasBeenDeleted(node)) {
-                if (!deletedNodeLabels.containsKey(node.getId())) {
-                    deletedNodeLabels.put(node.getId(), new HashSet<Label>());
-                }
-                deletedNodeLabels.get(node.getId()).add(labelEntry.label());
+                deletedNodeLabels.add(node.getId(), labelEntry.label());
                 continue;
             }
 
-            if (!removedLabels.containsKey(node.getId())) {
-                removedLabels.put(node.getId(), new HashSet<Label>());
-            }
-            removedLabels.get(node.getId()).add(labelEntry.label());
+            removedLabels.add(node.getId(), labelEntry.label());
 
             potentiallyChangedNodes.put(node.getId(), node);
         }
 
-        for (Long nodeId : assignedLabels.keySet()) {
-            registerChange(potentiallyChangedNodes.get(nodeId));
-        }
-
-        for (Long nodeId : removedLabels.keySet()) {
-            registerChange(potentiallyChangedNodes.get(nodeId));
+        PrimitiveLongIterator nodeIds = potentiallyChangedNodes.iterator();
+        while (nodeIds.hasNext()) {
+            registerChange(potentiallyChangedNodes.get(nodeIds.next()));
         }
     }
 }
@@ -18,10 +18,10 @@ package com.graphaware.tx.event.improved.propertycontainer.snapshot;
 
 import com.graphaware.common.util.IterableUtils;
 import com.graphaware.common.wrapper.NodeWrapper;
+import com.graphaware.tx.event.improved.data.NodeTransactionData;
 import com.graphaware.tx.event.improved.data.PropertyContainerTransactionData;
 import com.graphaware.tx.event.improved.data.TransactionDataContainer;
 import org.neo4j.graphdb.*;
-import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.logging.Log;
 import com.graphaware.common.log.LoggerFactory;
 
@@ -99,7 +99,18 @@ public class NodeSnapshot extends PropertyContainerSnapshot<Node> implements Nod
      */
     @Override
     public boolean hasLabel(Label label) {
-        return IterableUtils.contains(getLabels(), label);
+        NodeTransactionData nodeTransactionData = transactionDataContainer.getNodeTransactionData();
+
+        if (nodeTransactionData.hasBeenDeleted(this)) {
+            return nodeTransactionData.labelsOfDeletedNode(this).contains(label);
+        }
+
+        if (!nodeTransactionData.hasBeenChanged(this)) {
+            return super.hasLabel(label);
+        }
+
+        //removed in the TX => was there before; assigned in the TX => wasn't there before
+        return nodeTransactionData.hasLabelBeenRemoved(this, label) || (super.hasLabel(label) && !nodeTransactionData.hasLabelBeenAssigned(this, label));
     }
 
     /**
@@ -107,9 +118,16 @@ public class NodeSnapshot extends PropertyContainerSnapshot<Node> implements Nod
      */
     @Override
     public Iterable<Label> getLabels() {
-        if (transactionDataContainer.getNodeTransactionData().hasBeenDeleted(this)) {
-            return new LabelSnapshotIterator(this, Iterables.<Label>empty(), transactionDataContainer);
+        NodeTransactionData nodeTransactionData = transactionDataContainer.getNodeTransactionData();
+
+        if (nodeTransactionData.hasBeenDeleted(this)) {
+            return nodeTransactionData.labelsOfDeletedNode(this);
+        }
+
+        if (!nodeTransactionData.hasBeenChanged(this)) {
+            return super.getLabels();
         }
+
         return new LabelSnapshotIterator(this, super.getLabels(), transactionDataContainer);
     }
 
@@ -144,6 +144,47 @@ public class FilteredLazyTransactionDataIntegrationTest {
         assertTrue(mutationsOccurred.get());
     }
 
+    @Test
+    public void filteredCollectionsShouldBeMemoized() {
+        createTestDatabaseForInternalTest();
+
+        mutateGraph(new InternalTestGraphMutation(), new BeforeCommitCallback() {
+            @Override
+            public void doBeforeCommit(ImprovedTransactionData transactionData) {
+                assertSame(transactionData.getAllCreatedNodes(), transactionData.getAllCreatedNodes());
+                assertSame(transactionData.getAllDeletedNodes(), transactionData.getAllDeletedNodes());
+                assertSame(transactionData.getAllChangedNodes(), transactionData.getAllChangedNodes());
+                assertSame(transactionData.getAllCreatedRelationships(), transactionData.getAllCreatedRelationships());
+                assertSame(transactionData.getAllDeletedRelationships(), transactionData.getAllDeletedRelationships());
+                assertSame(transactionData.getAllChangedRelationships(), transactionData.getAllChangedRelationships());
+            }
+        });
+    }
+
+    @Test
+    public void filteredCollectionsShouldBeReadOnly() {
+        createTestDatabaseForInternalTest();
+
+        mutateGraph(new InternalTestGraphMutation(), new BeforeCommitCallback() {
+            @Override
+            public void doBeforeCommit(ImprovedTransactionData transactionData) {
+                try {
+                    transactionData.getAllCreatedNodes().add(null);
+                    fail();
+                } catch (UnsupportedOperationException e) {
+                    //ok
+                }
+
+                try {
+                    transactionData.getAllChangedRelationships().add(null);
+                    fail();
+                } catch (UnsupportedOperationException e) {
+                    //ok
+                }
+            }
+        });
+    }
+
     @Test
     public void removedLabelShouldBePickedUp() {
         database = new TestGraphDatabaseFactory()
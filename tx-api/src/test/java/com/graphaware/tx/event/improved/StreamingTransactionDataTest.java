@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved;
+
+import com.graphaware.common.policy.inclusion.InclusionPolicies;
+import com.graphaware.common.policy.inclusion.fluent.IncludeNodes;
+import com.graphaware.tx.event.improved.api.NodeDelta;
+import com.graphaware.tx.event.improved.api.StreamingTransactionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+import static org.neo4j.graphdb.Label.label;
+
+/**
+ * Unit test for {@link StreamingTransactionData}.
+ */
+public class StreamingTransactionDataTest {
+
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+
+        try (Transaction tx = database.beginTx()) {
+            Node node = database.createNode(label("Person"));
+            node.setProperty("name", "Michal");
+            node.setProperty("age", 30);
+
+            database.createNode(label("Company")).setProperty("name", "GraphAware");
+            tx.success();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void shouldStreamNodeChanges() {
+        final List<NodeDelta> deltas = new ArrayList<>();
+        final List<Node> created = new ArrayList<>();
+
+        database.registerTransactionEventHandler(new TransactionEventHandler.Adapter<Void>() {
+            @Override
+            public Void beforeCommit(TransactionData data) throws Exception {
+                StreamingTransactionData streaming = new StreamingTransactionData(data);
+                assertTrue(streaming.mutationsOccurred());
+
+                for (Node node : streaming.getCreatedNodes()) {
+                    created.add(node);
+                }
+                for (NodeDelta delta : streaming.getNodeDeltas()) {
+                    deltas.add(delta);
+                }
+                return null;
+            }
+        });
+
+        try (Transaction tx = database.beginTx()) {
+            Node michal = database.getNodeById(0);
+            michal.setProperty("name", "Michal Bachman");
+            michal.removeProperty("age");
+            michal.addLabel(label("Developer"));
+
+            database.createNode().setProperty("name", "Daniela");
+            tx.success();
+        }
+
+        assertEquals(1, created.size());
+
+        Map<String, Object> createdProperties = new HashMap<>();
+        Map<String, Object> deletedProperties = new HashMap<>();
+        int changed = 0;
+        int assignedLabels = 0;
+
+        for (NodeDelta delta : deltas) {
+            assertFalse(delta.isEmpty());
+            createdProperties.putAll(delta.getCreatedProperties());
+            deletedProperties.putAll(delta.getDeletedProperties());
+            changed += delta.getChangedProperties().size();
+            assignedLabels += delta.getAssignedLabels().size();
+        }
+
+        assertEquals(1, createdProperties.size());
+        assertEquals("Daniela", createdProperties.get("name"));
+        assertEquals(1, deletedProperties.size());
+        assertEquals(30, deletedProperties.get("age"));
+        assertEquals(1, changed);
+        assertEquals(1, assignedLabels);
+    }
+
+    @Test
+    public void shouldApplyPolicies() {
+        final List<NodeDelta> deltas = new ArrayList<>();
+
+        database.registerTransactionEventHandler(new TransactionEventHandler.Adapter<Void>() {
+            @Override
+            public Void beforeCommit(TransactionData data) throws Exception {
+                StreamingTransactionData streaming = new StreamingTransactionData(data, InclusionPolicies.all().with(IncludeNodes.all().with(label("Person"))));
+                for (NodeDelta delta : streaming.getNodeDeltas()) {
+                    deltas.add(delta);
+                }
+                assertFalse(streaming.getCreatedNodes().iterator().hasNext());
+                return null;
+            }
+        });
+
+        try (Transaction tx = database.beginTx()) {
+            database.getNodeById(0).setProperty("name", "Michal Bachman");
+            database.getNodeById(1).setProperty("name", "GraphAware Ltd");
+            database.createNode(label("Company"));
+            tx.success();
+        }
+
+        assertEquals(1, deltas.size());
+        assertEquals(0, deltas.get(0).getId());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.filtered;
+
+import com.graphaware.common.policy.inclusion.BaseNodeInclusionPolicy;
+import com.graphaware.common.policy.inclusion.DeterministicInclusionPolicy;
+import com.graphaware.common.policy.inclusion.all.IncludeAllNodes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static com.graphaware.common.util.DatabaseUtils.registerShutdownHook;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link MemoizingNodeInclusionPolicy}.
+ */
+public class MemoizingNodeInclusionPolicyTest {
+
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() {
+        database = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        registerShutdownHook(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonDeterministicPolicyShouldNotBeMemoized() {
+        new MemoizingNodeInclusionPolicy(IncludeAllNodes.getInstance());
+    }
+
+    @Test
+    public void policyShouldBeEvaluatedOncePerNode() {
+        CountingPolicy counting = new CountingPolicy();
+        MemoizingNodeInclusionPolicy policy = new MemoizingNodeInclusionPolicy(counting);
+
+        try (Transaction tx = database.beginTx()) {
+            Node included = database.createNode();
+            included.setProperty("include", true);
+            Node excluded = database.createNode();
+
+            assertTrue(policy.include(included));
+            assertTrue(policy.include(included));
+            assertFalse(policy.include(excluded));
+            assertFalse(policy.include(excluded));
+
+            assertEquals(2, counting.evaluations);
+            assertEquals(2, policy.size());
+
+            tx.success();
+        }
+    }
+
+    private static class CountingPolicy extends BaseNodeInclusionPolicy implements DeterministicInclusionPolicy {
+
+        private int evaluations = 0;
+
+        @Override
+        public boolean include(Node node) {
+            evaluations++;
+            return node.hasProperty("include");
+        }
+    }
+}
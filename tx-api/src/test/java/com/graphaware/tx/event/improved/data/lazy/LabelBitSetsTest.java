@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013-2017 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of
+ * the GNU General Public License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.tx.event.improved.data.lazy;
+
+import org.junit.Test;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.Label;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.neo4j.graphdb.Label.label;
+
+/**
+ * Unit test for {@link LabelBitSets}.
+ */
+public class LabelBitSetsTest {
+
+    @Test
+    public void shouldRecordLabelsPerNode() {
+        LabelBitSets.LabelIndex index = new LabelBitSets.LabelIndex();
+        LabelBitSets assigned = new LabelBitSets(index);
+        LabelBitSets removed = new LabelBitSets(index);
+
+        assigned.add(1, label("Person"));
+        assigned.add(1, label("Developer"));
+        removed.add(2, label("Developer"));
+
+        assertTrue(assigned.containsNode(1));
+        assertFalse(assigned.containsNode(2));
+        assertTrue(assigned.contains(1, label("Person")));
+        assertTrue(assigned.contains(1, label("Developer")));
+        assertFalse(assigned.contains(2, label("Developer")));
+        assertFalse(assigned.contains(1, label("Unknown")));
+        assertTrue(removed.contains(2, label("Developer")));
+
+        Set<Label> labels = assigned.labels(1);
+        assertEquals(2, labels.size());
+        assertTrue(labels.contains(label("Person")));
+        assertTrue(labels.contains(label("Developer")));
+        assertFalse(labels.contains(label("Company")));
+
+        assertTrue(assigned.labels(3).isEmpty());
+
+        PrimitiveLongIterator nodeIds = removed.nodeIds();
+        assertTrue(nodeIds.hasNext());
+        assertEquals(2, nodeIds.next());
+        assertFalse(nodeIds.hasNext());
+    }
+}
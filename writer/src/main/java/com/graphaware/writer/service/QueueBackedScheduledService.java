@@ -105,6 +105,14 @@ public abstract class QueueBackedScheduledService<E> extends AbstractScheduledSe
         return queue.offer(futureTask);
     }
 
+    /**
+     * Get the number of tasks waiting in the queue.
+     *
+     * @return queue size.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
 
     /**
      * Return <code>true</code> iff empty queue should be logged. Defaults to <code>false</code>, intended to be overridden.